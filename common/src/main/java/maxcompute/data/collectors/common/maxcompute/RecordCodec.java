@@ -0,0 +1,272 @@
+package maxcompute.data.collectors.common.maxcompute;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.TableSchema;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.Binary;
+import com.aliyun.odps.data.Char;
+import com.aliyun.odps.data.Varchar;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Converts between string values and the columns of one table schema.
+ *
+ * Column names are resolved to indexes and types once, when the codec is
+ * created, and date formats are cached per thread, so the per-cell methods
+ * only switch on the cached type. The conversion rules are the ones of
+ * {@link RecordUtil}.
+ */
+public class RecordCodec {
+    public static final String DEFAULT_DATE_PATTERN = "yyyy-MM-dd HH:mm:ss";
+
+    private final Column[] columns;
+    private final OdpsType[] types;
+    private final Map<String, Integer> columnIndex;
+    private final String inputDatePattern;
+
+    private final ThreadLocal<Map<String, SimpleDateFormat>> dateFormats =
+        new ThreadLocal<Map<String, SimpleDateFormat>>() {
+            @Override
+            protected Map<String, SimpleDateFormat> initialValue() {
+                return new HashMap<String, SimpleDateFormat>();
+            }
+        };
+
+    public RecordCodec(TableSchema schema) {
+        this(schema, DEFAULT_DATE_PATTERN);
+    }
+
+    /**
+     * @param inputDatePattern pattern used to parse DATETIME, DATE and
+     *                         TIMESTAMP values
+     */
+    public RecordCodec(TableSchema schema, String inputDatePattern) {
+        List<Column> columnList = schema.getColumns();
+        this.columns = columnList.toArray(new Column[columnList.size()]);
+        this.types = new OdpsType[columns.length];
+        this.columnIndex = new HashMap<String, Integer>();
+        for (int i = 0; i < columns.length; i++) {
+            types[i] = columns[i].getType();
+            columnIndex.put(columns[i].getName().toLowerCase(), i);
+        }
+        this.inputDatePattern = inputDatePattern;
+    }
+
+    /**
+     * @return the index of the column, ignoring case, or -1 if there is no
+     * such column.
+     */
+    public int getColumnIndex(String name) {
+        Integer index = columnIndex.get(name.toLowerCase());
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Resolve names to column indexes once, so that the per-cell path only
+     * indexes the returned array.
+     *
+     * @return the index of each column, ignoring case.
+     * @throws IllegalArgumentException naming the first column the schema
+     * does not have.
+     */
+    public int[] getColumnIndexes(String[] names) {
+        int[] indexes = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            indexes[i] = getColumnIndex(names[i]);
+            if (indexes[i] < 0) {
+                throw new IllegalArgumentException("Unknown column: " + names[i]);
+            }
+        }
+        return indexes;
+    }
+
+    public Column getColumn(int index) {
+        return columns[index];
+    }
+
+    public int getColumnCount() {
+        return columns.length;
+    }
+
+    /**
+     * @return the date format of the calling thread for pattern.
+     */
+    public SimpleDateFormat getDateFormat(String pattern) {
+        Map<String, SimpleDateFormat> formats = dateFormats.get();
+        SimpleDateFormat format = formats.get(pattern);
+        if (format == null) {
+            format = new SimpleDateFormat(pattern);
+            formats.put(pattern, format);
+        }
+        return format;
+    }
+
+    public void setFieldValue(ArrayRecord record, int index, String fieldValue)
+        throws ParseException {
+        setFieldValue(record, index, fieldValue, inputDatePattern);
+    }
+
+    /**
+     * Set column index of record from its string form. Null or empty values
+     * leave the column untouched.
+     */
+    public void setFieldValue(ArrayRecord record, int index, String fieldValue,
+        String datePattern) throws ParseException {
+        if (fieldValue == null || fieldValue.length() == 0) {
+            return;
+        }
+        switch (types[index]) {
+            case STRING:
+                record.setString(index, fieldValue);
+                break;
+            case BIGINT:
+                record.setBigint(index, Long.parseLong(fieldValue));
+                break;
+            case DATETIME:
+                record.setDatetime(index, getDateFormat(datePattern).parse(fieldValue));
+                break;
+            case DOUBLE:
+                record.setDouble(index, Double.parseDouble(fieldValue));
+                break;
+            case BOOLEAN:
+                Boolean b = parseBoolean(fieldValue);
+                if (b != null) {
+                    record.setBoolean(index, b);
+                }
+                break;
+            case DECIMAL:
+                record.setDecimal(index, new BigDecimal(fieldValue));
+                break;
+            case CHAR:
+                record.setChar(index, new Char(fieldValue));
+                break;
+            case VARCHAR:
+                record.setVarchar(index, new Varchar(fieldValue));
+                break;
+            case TINYINT:
+                record.setTinyint(index, Byte.parseByte(fieldValue));
+                break;
+            case SMALLINT:
+                record.setSmallint(index, Short.parseShort(fieldValue));
+                break;
+            case INT:
+                record.setInt(index, Integer.parseInt(fieldValue));
+                break;
+            case FLOAT:
+                record.setFloat(index, Float.parseFloat(fieldValue));
+                break;
+            case DATE:
+                record.setDate(index,
+                    new java.sql.Date(getDateFormat(datePattern).parse(fieldValue).getTime()));
+                break;
+            case TIMESTAMP:
+                record.setTimestamp(index,
+                    new Timestamp(getDateFormat(datePattern).parse(fieldValue).getTime()));
+                break;
+            case BINARY:
+                record.setBinary(index, new Binary(fieldValue.getBytes()));
+                break;
+            default:
+                throw new RuntimeException("Unknown column type: " + types[index]);
+        }
+    }
+
+    /**
+     * @return the value of column index of record as a string, or null.
+     */
+    public String getFieldValueAsString(ArrayRecord record, int index) {
+        switch (types[index]) {
+            case BIGINT: {
+                Long v = record.getBigint(index);
+                return v == null ? null : String.valueOf(v.longValue());
+            }
+            case BOOLEAN: {
+                Boolean v = record.getBoolean(index);
+                return v == null ? null : v.toString();
+            }
+            case DATETIME: {
+                java.util.Date v = record.getDatetime(index);
+                return v == null ? null : getDateFormat(DEFAULT_DATE_PATTERN).format(v);
+            }
+            case DOUBLE: {
+                Double v = record.getDouble(index);
+                return v == null ? null : String.valueOf(v.doubleValue());
+            }
+            case STRING:
+                return record.getString(index);
+            case DECIMAL: {
+                BigDecimal v = record.getDecimal(index);
+                return v == null ? null : v.toPlainString();
+            }
+            case CHAR: {
+                Char v = record.getChar(index);
+                return v == null ? null : v.getValue();
+            }
+            case VARCHAR: {
+                Varchar v = record.getVarchar(index);
+                return v == null ? null : v.getValue();
+            }
+            case TINYINT: {
+                Byte v = record.getTinyint(index);
+                return v == null ? null : String.valueOf(v.byteValue());
+            }
+            case SMALLINT: {
+                Short v = record.getSmallint(index);
+                return v == null ? null : String.valueOf(v.shortValue());
+            }
+            case INT: {
+                Integer v = record.getInt(index);
+                return v == null ? null : String.valueOf(v.intValue());
+            }
+            case FLOAT: {
+                Float v = record.getFloat(index);
+                return v == null ? null : String.valueOf(v.floatValue());
+            }
+            case DATE: {
+                java.sql.Date v = record.getDate(index);
+                return v == null ? null : getDateFormat(DEFAULT_DATE_PATTERN).format(v);
+            }
+            case TIMESTAMP: {
+                Timestamp v = record.getTimestamp(index);
+                return v == null ? null : getDateFormat(DEFAULT_DATE_PATTERN).format(v);
+            }
+            case BINARY: {
+                Binary v = record.getBinary(index);
+                return v == null ? null : v.toString();
+            }
+            default:
+                throw new RuntimeException("Unknown column type: " + types[index]);
+        }
+    }
+
+    /**
+     * Parse "true", "1", "y" and "false", "0", "n" ignoring case, without
+     * allocating. Anything else yields null.
+     */
+    public static Boolean parseBoolean(String s) {
+        if (s.length() == 1) {
+            char c = s.charAt(0);
+            if (c == '1' || c == 'y' || c == 'Y') {
+                return Boolean.TRUE;
+            }
+            if (c == '0' || c == 'n' || c == 'N') {
+                return Boolean.FALSE;
+            }
+            return null;
+        }
+        if ("true".equalsIgnoreCase(s)) {
+            return Boolean.TRUE;
+        }
+        if ("false".equalsIgnoreCase(s)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+}
@@ -11,22 +11,16 @@ import java.math.BigDecimal;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.HashSet;
-import java.util.Set;
 
 
 public class RecordUtil {
-    final static Set trueString = new HashSet() {{
-        add("true");
-        add("1");
-        add("y");
-    }};
-
-    final static Set falseString = new HashSet() {{
-        add("false");
-        add("0");
-        add("n");
-    }};
+    private static final ThreadLocal<SimpleDateFormat> OUTPUT_DATE_FORMAT =
+        new ThreadLocal<SimpleDateFormat>() {
+            @Override
+            protected SimpleDateFormat initialValue() {
+                return new SimpleDateFormat(RecordCodec.DEFAULT_DATE_PATTERN);
+            }
+        };
 
     public static void setFieldValue(ArrayRecord record, String field, String fieldValue,
         OdpsType odpsType, SimpleDateFormat dateFormat) throws ParseException {
@@ -45,10 +39,9 @@ public class RecordUtil {
                     record.setDouble(field, Double.parseDouble(fieldValue));
                     break;
                 case BOOLEAN:
-                    if (trueString.contains(fieldValue.toLowerCase())) {
-                        record.setBoolean(field, true);
-                    } else if (falseString.contains(fieldValue.toLowerCase())) {
-                        record.setBoolean(field, false);
+                    Boolean b = RecordCodec.parseBoolean(fieldValue);
+                    if (b != null) {
+                        record.setBoolean(field, b);
                     }
                     break;
                 case DECIMAL:
@@ -104,7 +97,7 @@ public class RecordUtil {
             }
             case DATETIME: {
                 java.util.Date v = record.getDatetime(pos);
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                SimpleDateFormat sdf = OUTPUT_DATE_FORMAT.get();
                 colValue = v == null ? null : sdf.format(v);
                 break;
             }
@@ -155,13 +148,13 @@ public class RecordUtil {
             }
             case DATE: {
                 java.sql.Date v = record.getDate(pos);
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                SimpleDateFormat sdf = OUTPUT_DATE_FORMAT.get();
                 colValue = v == null ? null : sdf.format(v);
                 break;
             }
             case TIMESTAMP: {
                 Timestamp v = record.getTimestamp(pos);
-                SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+                SimpleDateFormat sdf = OUTPUT_DATE_FORMAT.get();
                 colValue = v == null ? null : sdf.format(v);
                 break;
             }
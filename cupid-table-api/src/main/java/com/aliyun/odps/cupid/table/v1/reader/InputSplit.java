@@ -88,6 +88,15 @@ public abstract class InputSplit implements Serializable {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * Returns a split of the rows of this split after the first numRows ones,
+     * so that a reader is opened at that row instead of reading the rows
+     * before it, or null if the provider cannot start a split at a row.
+     */
+    public InputSplit skipRows(long numRows) {
+        return null;
+    }
+
     public boolean supportColData() {
         return false;
     }
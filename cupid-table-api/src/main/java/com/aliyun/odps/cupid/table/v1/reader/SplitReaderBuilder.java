@@ -40,6 +40,10 @@ public final class SplitReaderBuilder extends Builder {
         return ProviderRegistry.lookup(inputSplit.getProvider()).createRecordReader(inputSplit);
     }
 
+    /**
+     * A returned batch may read from buffers owned by the reader, it is only
+     * valid until the next call to hasNext, next or close of the reader.
+     */
     public SplitReader<ColDataBatch> buildColDataReader(int batchSize) throws ClassNotFoundException {
         markBuilt();
         return ProviderRegistry.lookup(inputSplit.getProvider()).createColDataReader(inputSplit, batchSize);
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.vectorized;
+
+import com.aliyun.odps.commons.util.DateUtils;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * Reads values of a {@link ColDataVector} that wraps an Arrow vector. Nulls
+ * come from the bit-packed validity buffer and variable width values from
+ * the offset buffer, so nothing is copied until a value is materialized.
+ */
+final class ArrowVectorAccessor {
+
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private final FieldVector vector;
+    private final long timestampUnitsPerSecond;
+
+    ArrowVectorAccessor(FieldVector vector) {
+        this.vector = vector;
+        this.timestampUnitsPerSecond = vector instanceof TimeStampVector
+                ? unitsPerSecond((ArrowType.Timestamp) vector.getField().getType())
+                : 0;
+    }
+
+    FieldVector getVector() {
+        return vector;
+    }
+
+    int getValueCount() {
+        return vector.getValueCount();
+    }
+
+    int getNullCount() {
+        return vector.getNullCount();
+    }
+
+    boolean isNullAt(int rowId) {
+        return vector.isNull(rowId);
+    }
+
+    boolean getBoolean(int rowId) {
+        return ((BitVector) vector).get(rowId) != 0;
+    }
+
+    byte getByte(int rowId) {
+        return ((TinyIntVector) vector).get(rowId);
+    }
+
+    short getShort(int rowId) {
+        return ((SmallIntVector) vector).get(rowId);
+    }
+
+    int getInt(int rowId) {
+        if (vector instanceof DateDayVector) {
+            return ((DateDayVector) vector).get(rowId);
+        }
+        return ((IntVector) vector).get(rowId);
+    }
+
+    long getLong(int rowId) {
+        if (vector instanceof DateDayVector) {
+            return ((DateDayVector) vector).get(rowId);
+        } else if (vector instanceof DateMilliVector) {
+            return ((DateMilliVector) vector).get(rowId);
+        }
+        return ((BigIntVector) vector).get(rowId);
+    }
+
+    float getFloat(int rowId) {
+        return ((Float4Vector) vector).get(rowId);
+    }
+
+    double getDouble(int rowId) {
+        return ((Float8Vector) vector).get(rowId);
+    }
+
+    BigDecimal getDecimal(int rowId) {
+        return ((DecimalVector) vector).getObject(rowId);
+    }
+
+    byte[] getBinary(int rowId) {
+        BaseVariableWidthVector varVector = (BaseVariableWidthVector) vector;
+        int start = varVector.getStartOffset(rowId);
+        int numBytes = varVector.getStartOffset(rowId + 1) - start;
+        byte[] binary = new byte[numBytes];
+        varVector.getDataBuffer().getBytes(start, binary, 0, numBytes);
+        return binary;
+    }
+
+    Timestamp getTimestamp(int rowId) {
+        long value = ((TimeStampVector) vector).get(rowId);
+        long seconds = Math.floorDiv(value, timestampUnitsPerSecond);
+        long fraction = Math.floorMod(value, timestampUnitsPerSecond);
+        Timestamp t = new Timestamp(seconds * 1000);
+        t.setNanos((int) (fraction * (1000000000L / timestampUnitsPerSecond)));
+        return t;
+    }
+
+    java.sql.Date getDate(int rowId) {
+        return DateUtils.fromDayOffset(getDayOffset(rowId));
+    }
+
+    int getDayOffset(int rowId) {
+        if (vector instanceof DateMilliVector) {
+            return (int) Math.floorDiv(((DateMilliVector) vector).get(rowId), MILLIS_PER_DAY);
+        }
+        return ((DateDayVector) vector).get(rowId);
+    }
+
+    java.util.Date getDateTime(int rowId) {
+        return new java.util.Date(((DateMilliVector) vector).get(rowId));
+    }
+
+    private static long unitsPerSecond(ArrowType.Timestamp type) {
+        switch (type.getUnit()) {
+            case SECOND:
+                return 1L;
+            case MILLISECOND:
+                return 1000L;
+            case MICROSECOND:
+                return 1000000L;
+            default:
+                return 1000000000L;
+        }
+    }
+}
@@ -19,7 +19,9 @@
 
 package com.aliyun.odps.cupid.table.v1.vectorized;
 
+import com.aliyun.odps.cupid.table.v1.Attribute;
 import com.aliyun.odps.cupid.table.v1.util.Validator;
+import org.apache.arrow.vector.VectorSchemaRoot;
 
 import java.util.Arrays;
 
@@ -27,14 +29,53 @@ public final class ColDataBatch {
 
     private int rowCount;
     private ColDataVector[] vectors;
+    private VectorSchemaRoot root;
 
     public ColDataBatch(ColDataVector[] vectors) {
         Validator.checkArray(vectors, 0, "vectors");
         this.vectors = vectors;
     }
 
+    /**
+     * Wraps the vectors of root without copying, one column per attribute.
+     * The batch is a view: it stays valid as long as root does.
+     */
+    public static ColDataBatch wrap(VectorSchemaRoot root, Attribute[] columns) {
+        Validator.checkNotNull(root, "root");
+        Validator.checkArray(columns, 0, "columns");
+        if (root.getFieldVectors().size() != columns.length) {
+            throw new IllegalArgumentException("Expect " + columns.length
+                    + " vectors, but got " + root.getFieldVectors().size());
+        }
+        ColDataVector[] vectors = new ColDataVector[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            vectors[i] = ColDataVector.wrap(columns[i], root.getVector(i));
+        }
+        ColDataBatch batch = new ColDataBatch(vectors);
+        batch.root = root;
+        batch.rowCount = root.getRowCount();
+        return batch;
+    }
+
+    public boolean isArrowBacked() {
+        return root != null;
+    }
+
+    /**
+     * Returns the Arrow root a wrapped batch reads from, without copying.
+     */
+    public VectorSchemaRoot toVectorSchemaRoot() {
+        if (root == null) {
+            throw new IllegalStateException("Batch is not backed by arrow vectors");
+        }
+        return root;
+    }
+
     public void setRowCount(int rowCount) {
         this.rowCount = rowCount;
+        if (root != null) {
+            root.setRowCount(rowCount);
+        }
         Arrays.stream(this.getVectors()).forEach(colDataVector -> {
             colDataVector.setNumRows(rowCount);
         });
@@ -26,6 +26,7 @@ import com.aliyun.odps.cupid.table.v1.util.Platform;
 import com.aliyun.odps.cupid.table.v1.util.Validator;
 import com.aliyun.odps.type.DecimalTypeInfo;
 import com.aliyun.odps.type.TypeInfo;
+import org.apache.arrow.vector.FieldVector;
 
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -34,6 +35,11 @@ import java.sql.Timestamp;
 
 import static com.aliyun.odps.cupid.table.v1.util.TableUtils.getTypeInfoFromString;
 
+/**
+ * A column of a {@link ColDataBatch}. The vector either owns heap buffers
+ * with one null byte per row, or wraps an Arrow vector as is, see
+ * {@link #wrap(Attribute, FieldVector)}.
+ */
 public final class ColDataVector {
 
     private Attribute column;
@@ -49,6 +55,8 @@ public final class ColDataVector {
     private int numNulls;
     private int[] binaryOffsets;
     private boolean isOldDecimal;
+    private boolean packedLengths;
+    private ArrowVectorAccessor arrowAccessor;
 
     public ColDataVector(Attribute column,
                          byte[] dataBuf,
@@ -63,10 +71,33 @@ public final class ColDataVector {
         this.deepBuf = deepBuf;
         this.odpsTypeInfo = getTypeInfoFromString(column.getType());
         this.odpsType = this.odpsTypeInfo.getOdpsType();
+        this.isOldDecimal = isOldDecimal(this.odpsTypeInfo);
         this.numNulls = -1;
         this.binaryOffsets = null;
     }
 
+    /**
+     * Wraps an Arrow vector without copying. Nulls are read from its bit-packed
+     * validity buffer and the null count is taken eagerly from the vector.
+     * The raw buffer getters return null for such a vector; the Arrow vector
+     * stays owned by the caller and must outlive the returned vector.
+     */
+    public static ColDataVector wrap(Attribute column, FieldVector vector) {
+        Validator.checkNotNull(vector, "vector");
+        ColDataVector colDataVector = new ColDataVector(column, null, 0, null, null);
+        colDataVector.arrowAccessor = new ArrowVectorAccessor(vector);
+        colDataVector.setNumRows(vector.getValueCount());
+        return colDataVector;
+    }
+
+    public boolean isArrowBacked() {
+        return arrowAccessor != null;
+    }
+
+    public FieldVector getArrowVector() {
+        return arrowAccessor == null ? null : arrowAccessor.getVector();
+    }
+
     public void setDataBufSize(int dataBufSize) {
         this.dataBufSize = dataBufSize;
     }
@@ -75,12 +106,32 @@ public final class ColDataVector {
         this.deepBuf = deepBuf;
     }
 
+    /**
+     * Variable width lengths are kept in dataBuf as a long per 16 byte slot,
+     * the layout of the native reader. Packed lengths are one int per row,
+     * the layout ColDataRowWriter hands to file writers. Old decimals always
+     * use packed lengths.
+     */
+    public void setPackedLengths(boolean packedLengths) {
+        this.packedLengths = packedLengths;
+    }
+
+    public boolean hasPackedLengths() {
+        return packedLengths || isOldDecimal;
+    }
+
     public void setNumRows(int numRows) {
         this.numRows = numRows;
+        if (arrowAccessor != null) {
+            this.numNulls = arrowAccessor.getNullCount();
+        } else {
+            this.numNulls = -1;
+            this.binaryOffsets = null;
+        }
     }
 
     public void setBinaryOffsets(int numRows) {
-        if (binaryOffsets == null) {
+        if (binaryOffsets == null && arrowAccessor == null) {
             binaryOffsets = new int[numRows];
             int sum = 0;
             for (int i = 0; i < numRows; i++) {
@@ -135,38 +186,65 @@ public final class ColDataVector {
     }
 
     public boolean isNullAt(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.isNullAt(rowId);
+        }
         return nulls[rowId] == 1;
     }
 
     public boolean getBoolean(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getBoolean(rowId);
+        }
         return Platform.getBoolean(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId);
     }
 
     public byte getByte(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getByte(rowId);
+        }
         return dataBuf[rowId];
     }
 
     public short getShort(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getShort(rowId);
+        }
         return Platform.getShort(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 2L);
     }
 
     public int getInt(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getInt(rowId);
+        }
         return Platform.getInt(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 4L);
     }
 
     public long getLong(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getLong(rowId);
+        }
         return Platform.getLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 8L);
     }
 
     public float getFloat(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getFloat(rowId);
+        }
         return Platform.getFloat(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 4L);
     }
 
     public double getDouble(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getDouble(rowId);
+        }
         return Platform.getDouble(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 8L);
     }
 
     public BigDecimal getDecimal(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getDecimal(rowId);
+        }
         int precision = ((DecimalTypeInfo) odpsTypeInfo).getPrecision();
         int scale = ((DecimalTypeInfo) odpsTypeInfo).getScale();
         if (isOldDecimal) {
@@ -184,11 +262,11 @@ public final class ColDataVector {
             BigInteger bigInteger = new BigInteger(int128Byte);
             return new BigDecimal(bigInteger, scale);
         } else if (precision > 9) {
-            return new BigDecimal(new BigInteger(String.valueOf(Platform.getLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 8))), scale);
+            return BigDecimal.valueOf(Platform.getLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 8L), scale);
         } else if (precision > 4) {
-            return new BigDecimal(new BigInteger(String.valueOf(Platform.getLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 4))), scale);
+            return BigDecimal.valueOf(Platform.getInt(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 4L), scale);
         } else {
-            return new BigDecimal(new BigInteger(String.valueOf(Platform.getLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 2))), scale);
+            return BigDecimal.valueOf(Platform.getShort(dataBuf, Platform.BYTE_ARRAY_OFFSET + rowId * 2L), scale);
         }
     }
 
@@ -198,8 +276,10 @@ public final class ColDataVector {
     }
 
     public byte[] getBinary(int rowId) {
-        setBinaryOffsets(this.numRows);
-        int offset = binaryOffsets[rowId];
+        if (arrowAccessor != null) {
+            return arrowAccessor.getBinary(rowId);
+        }
+        int offset = getBinaryOffset(rowId);
         int numBytes = getBinaryLength(rowId);
         byte[] binary = new byte[numBytes];
         System.arraycopy(deepBuf, offset, binary, 0, numBytes);
@@ -207,6 +287,9 @@ public final class ColDataVector {
     }
 
     public Timestamp getTimestamp(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getTimestamp(rowId);
+        }
         long seconds = Platform.getLong(dataBuf, rowId * 12 + Platform.BYTE_ARRAY_OFFSET);
         int nano = Platform.getInt(dataBuf, rowId * 12 + 8 + Platform.BYTE_ARRAY_OFFSET);
         Timestamp t = new Timestamp(seconds * 1000);
@@ -215,33 +298,60 @@ public final class ColDataVector {
     }
 
     public java.sql.Date getDate(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getDate(rowId);
+        }
         return DateUtils.fromDayOffset(getLong(rowId));
     }
 
+    /**
+     * Days since epoch of the DATE value at rowId, the value {@link #getDate(int)}
+     * creates a date of.
+     */
+    public int getDayOffset(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getDayOffset(rowId);
+        }
+        return (int) getLong(rowId);
+    }
+
     public java.util.Date getDateTime(int rowId) {
+        if (arrowAccessor != null) {
+            return arrowAccessor.getDateTime(rowId);
+        }
         return new java.util.Date(getLong(rowId));
     }
 
-    private int getBinaryLength(int rowId) {
-        if (isOldDecimal) {
+    /**
+     * Length of the variable width value at rowId in deepBuf. Not defined for
+     * a vector wrapping Arrow.
+     */
+    public int getBinaryLength(int rowId) {
+        if (hasPackedLengths()) {
             return getInt(rowId);
         }
         return (int) getLong(rowId * 2);
     }
 
+    /**
+     * Offset of the variable width value at rowId in deepBuf, so that it can be
+     * read in place instead of through {@link #getBinary(int)}. Not defined for
+     * a vector wrapping Arrow.
+     */
+    public int getBinaryOffset(int rowId) {
+        setBinaryOffsets(this.numRows);
+        return binaryOffsets[rowId];
+    }
+
     private boolean isStringLikeType(OdpsType odpsType) {
         return odpsType == OdpsType.STRING || odpsType == OdpsType.VARCHAR ||
                 odpsType == OdpsType.BINARY || odpsType == OdpsType.CHAR;
     }
 
-    private boolean isOldDecimal(TypeInfo odpsTypeInfo) {
-        if (odpsTypeInfo.getOdpsType() == OdpsType.DECIMAL
+    private static boolean isOldDecimal(TypeInfo odpsTypeInfo) {
+        return odpsTypeInfo.getOdpsType() == OdpsType.DECIMAL
                 && ((DecimalTypeInfo) odpsTypeInfo).getPrecision() == 54
-                && ((DecimalTypeInfo) odpsTypeInfo).getScale() == 18) {
-            this.isOldDecimal = true;
-            return true;
-        }
-        return false;
+                && ((DecimalTypeInfo) odpsTypeInfo).getScale() == 18;
     }
 
     public void close() {
@@ -250,5 +360,6 @@ public final class ColDataVector {
         this.dataBufSize = 0;
         this.nulls = null;
         this.deepBuf = null;
+        this.arrowAccessor = null;
     }
 }
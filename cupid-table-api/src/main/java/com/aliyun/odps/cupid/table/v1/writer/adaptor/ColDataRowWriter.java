@@ -35,6 +35,7 @@ import com.aliyun.odps.type.TypeInfo;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Timestamp;
 import java.util.HashMap;
 import java.util.Map;
@@ -158,6 +159,7 @@ public class ColDataRowWriter {
                     0,
                     nulls[i],
                     deepBuf[i]);
+            vectors[i].setPackedLengths(true);
         }
     }
 
@@ -247,6 +249,7 @@ public class ColDataRowWriter {
                 byte[] newArray = new byte[(deepBuf[ind].length + numBytes) * 2];
                 System.arraycopy(deepBuf[ind], 0, newArray, 0, stringColSizeMap.get(ind));
                 deepBuf[ind] = newArray;
+                vectors[ind].setDeepBuf(newArray);
             }
             Platform.copyMemory(utf8bytes, Platform.BYTE_ARRAY_OFFSET,
                     deepBuf[ind], Platform.BYTE_ARRAY_OFFSET + stringColSizeMap.get(ind), numBytes);
@@ -278,7 +281,7 @@ public class ColDataRowWriter {
                 case TIMESTAMP:
                     Timestamp timeStamp = rec.getTimeStamp(ind);
                     int nanoSeconds = timeStamp.getNanos();
-                    long seconds = timeStamp.getTime() - (nanoSeconds / 1000000) / 1000;
+                    long seconds = (timeStamp.getTime() - nanoSeconds / 1000000) / 1000;
                     Platform.putLong(dataBuf[ind], Platform.BYTE_ARRAY_OFFSET + rCnt * 12, seconds);
                     Platform.putInt(dataBuf[ind], Platform.BYTE_ARRAY_OFFSET + rCnt * 12 + 8, nanoSeconds);
                     break;
@@ -298,11 +301,16 @@ public class ColDataRowWriter {
                             byte[] newArray = new byte[(deepBuf[ind].length + numBytes) * 2];
                             System.arraycopy(deepBuf[ind], 0, newArray, 0, stringColSizeMap.get(ind));
                             deepBuf[ind] = newArray;
+                            vectors[ind].setDeepBuf(newArray);
                         }
                         System.arraycopy(decimalBytes, 0, deepBuf[ind], stringColSizeMap.get(ind), numBytes);
                         stringColSizeMap.put(ind, stringColSizeMap.get(ind) + numBytes);
                         Platform.putInt(dataBuf[ind], Platform.BYTE_ARRAY_OFFSET + rCnt * 4, numBytes);
-                    } else if (decimalInfo.getPrecision() > 18) {
+                        break;
+                    }
+                    // unscaled values are read back with the column scale
+                    decimal = decimal.setScale(decimalInfo.getScale(), RoundingMode.HALF_UP);
+                    if (decimalInfo.getPrecision() > 18) {
                         byte[] byteArray = decimal.unscaledValue().toByteArray();
                         int length = byteArray.length;
                         for (int i = 0; i < length; i++) {
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.functions.AsyncTableFunction;
+import org.apache.flink.table.functions.FunctionContext;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.Preconditions;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * The async variant of {@link OdpsLookupFunction}. Cache hits complete
+ * right away, misses of the partial cache complete once the loader thread
+ * has scanned them in, so the pipeline never blocks on a table load.
+ */
+public class OdpsAsyncLookupFunction extends AsyncTableFunction<RowData> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final OdpsInputFormat<RowData> inputFormat;
+    private final OdpsLookupOptions options;
+
+    private transient OdpsLookupCache cache;
+
+    private final RowType rowType;
+    private final int[] lookupCols;
+
+    public OdpsAsyncLookupFunction(
+            OdpsInputFormat<RowData> inputFormat,
+            OdpsLookupOptions options,
+            int[] lookupKeys,
+            RowType rowType) {
+        this.inputFormat = inputFormat;
+        this.options = options;
+        this.lookupCols = lookupKeys;
+        this.rowType = rowType;
+    }
+
+    @Override
+    public void open(FunctionContext context) throws Exception {
+        super.open(context);
+        cache = OdpsLookupCache.create(inputFormat, options, lookupCols, rowType);
+        cache.open(context == null ? null : context.getMetricGroup());
+    }
+
+    public void eval(CompletableFuture<Collection<RowData>> future, Object... values) {
+        Preconditions.checkArgument(values.length == lookupCols.length,
+                "Number of values and lookup keys mismatch");
+        try {
+            cache.get(GenericRowData.of(values)).whenComplete((rows, throwable) -> {
+                if (throwable != null) {
+                    future.completeExceptionally(throwable);
+                } else {
+                    future.complete(rows);
+                }
+            });
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    @Override
+    public void close() throws Exception {
+        if (cache != null) {
+            cache.close();
+            cache = null;
+        }
+        super.close();
+    }
+}
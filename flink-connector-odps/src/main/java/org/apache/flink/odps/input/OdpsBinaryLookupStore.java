@@ -0,0 +1,189 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.binary.BinaryRowData;
+import org.apache.flink.table.data.binary.BinarySegmentUtils;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.types.logical.RowType;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the rows in their binary form outside of the java heap, found
+ * through a hash index made of primitive arrays only. Each record holds the
+ * key length, the binary key and the binary row; subclasses decide where
+ * the records live.
+ */
+abstract class OdpsBinaryLookupStore implements OdpsLookupStore {
+
+    private static final int INITIAL_BUCKETS = 1024;
+
+    private final RowDataSerializer buildKeySerializer;
+    private final RowDataSerializer lookupKeySerializer;
+    private final RowDataSerializer rowSerializer;
+    private final int rowArity;
+
+    // bucket -> first record number + 1, 0 if empty
+    private int[] buckets = new int[INITIAL_BUCKETS];
+    // record number -> next record number + 1 in the same bucket
+    private int[] next = new int[INITIAL_BUCKETS];
+    private int[] hashes = new int[INITIAL_BUCKETS];
+    private long[] addresses = new long[INITIAL_BUCKETS];
+    private int[] lengths = new int[INITIAL_BUCKETS];
+    private int numRecords;
+    private long numBytes;
+
+    OdpsBinaryLookupStore(RowType keyType, RowType rowType) {
+        this.buildKeySerializer = new RowDataSerializer(keyType);
+        this.lookupKeySerializer = new RowDataSerializer(keyType);
+        this.rowSerializer = new RowDataSerializer(rowType);
+        this.rowArity = rowType.getFieldCount();
+    }
+
+    /** Appends record and returns its address. */
+    protected abstract long append(byte[] record) throws IOException;
+
+    /** Reads length bytes of the record at address. */
+    protected abstract byte[] read(long address, int length) throws IOException;
+
+    @Override
+    public void add(RowData key, RowData row) throws IOException {
+        byte[] keyBytes = toBytes(buildKeySerializer.toBinaryRow(key));
+        BinaryRowData binaryRow = rowSerializer.toBinaryRow(row);
+        byte[] record = new byte[4 + keyBytes.length + binaryRow.getSizeInBytes()];
+        writeInt(record, keyBytes.length);
+        System.arraycopy(keyBytes, 0, record, 4, keyBytes.length);
+        BinarySegmentUtils.copyToBytes(binaryRow.getSegments(), binaryRow.getOffset(),
+                record, 4 + keyBytes.length, binaryRow.getSizeInBytes());
+        insert(record, hash(keyBytes));
+    }
+
+    @Override
+    public void merge(OdpsLookupStore shard) throws IOException {
+        OdpsBinaryLookupStore other = (OdpsBinaryLookupStore) shard;
+        for (int record = 0; record < other.numRecords; record++) {
+            insert(other.read(other.addresses[record], other.lengths[record]), other.hashes[record]);
+        }
+    }
+
+    private void insert(byte[] record, int hash) throws IOException {
+        if (numRecords == addresses.length) {
+            int capacity = numRecords * 2;
+            next = Arrays.copyOf(next, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            addresses = Arrays.copyOf(addresses, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        addresses[numRecords] = append(record);
+        lengths[numRecords] = record.length;
+        hashes[numRecords] = hash;
+        link(numRecords, hash);
+        numRecords++;
+        numBytes += record.length;
+        if (numRecords > buckets.length / 4 * 3) {
+            rehash(buckets.length * 2);
+        }
+    }
+
+    @Override
+    public List<RowData> get(RowData key) throws IOException {
+        byte[] keyBytes = toBytes(lookupKeySerializer.toBinaryRow(key));
+        int hash = hash(keyBytes);
+        List<RowData> rows = null;
+        for (int r = buckets[hash & (buckets.length - 1)]; r != 0; r = next[r - 1]) {
+            int record = r - 1;
+            if (hashes[record] != hash) {
+                continue;
+            }
+            byte[] bytes = read(addresses[record], lengths[record]);
+            if (readInt(bytes) != keyBytes.length || !regionEquals(bytes, keyBytes)) {
+                continue;
+            }
+            BinaryRowData row = new BinaryRowData(rowArity);
+            int offset = 4 + keyBytes.length;
+            row.pointTo(MemorySegmentFactory.wrap(bytes), offset, bytes.length - offset);
+            if (rows == null) {
+                rows = new ArrayList<>();
+            }
+            rows.add(row);
+        }
+        return rows == null ? Collections.emptyList() : rows;
+    }
+
+    @Override
+    public long getNumRows() {
+        return numRecords;
+    }
+
+    @Override
+    public long getNumBytes() {
+        return numBytes;
+    }
+
+    private void link(int record, int hash) {
+        int bucket = hash & (buckets.length - 1);
+        next[record] = buckets[bucket];
+        buckets[bucket] = record + 1;
+    }
+
+    private void rehash(int numBuckets) {
+        buckets = new int[numBuckets];
+        for (int record = 0; record < numRecords; record++) {
+            link(record, hashes[record]);
+        }
+    }
+
+    /** Hashes the binary form of a key. */
+    protected int hash(byte[] keyBytes) {
+        int h = Arrays.hashCode(keyBytes);
+        return h ^ (h >>> 16);
+    }
+
+    private static boolean regionEquals(byte[] record, byte[] keyBytes) {
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (record[4 + i] != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] toBytes(BinaryRowData row) {
+        return BinarySegmentUtils.copyToBytes(row.getSegments(), row.getOffset(), row.getSizeInBytes());
+    }
+
+    private static void writeInt(byte[] bytes, int value) {
+        bytes[0] = (byte) (value >>> 24);
+        bytes[1] = (byte) (value >>> 16);
+        bytes[2] = (byte) (value >>> 8);
+        bytes[3] = (byte) value;
+    }
+
+    private static int readInt(byte[] bytes) {
+        return ((bytes[0] & 0xff) << 24) | ((bytes[1] & 0xff) << 16)
+                | ((bytes[2] & 0xff) << 8) | (bytes[3] & 0xff);
+    }
+}
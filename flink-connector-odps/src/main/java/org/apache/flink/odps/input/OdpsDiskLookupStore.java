@@ -0,0 +1,105 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.types.logical.RowType;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Keeps the records in a local spill file, written sequentially while
+ * loading and read with positional reads, which the page cache serves for
+ * hot keys. The file is deleted on close.
+ */
+class OdpsDiskLookupStore extends OdpsBinaryLookupStore {
+
+    private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+    private long fileSize;
+
+    OdpsDiskLookupStore(RowType keyType, RowType rowType, String dir) throws IOException {
+        super(keyType, rowType);
+        Path parent = Paths.get(dir == null ? System.getProperty("java.io.tmpdir") : dir);
+        Files.createDirectories(parent);
+        this.file = Files.createTempFile(parent, "odps-lookup-", ".store");
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    @Override
+    protected long append(byte[] record) throws IOException {
+        long address = fileSize;
+        if (record.length > writeBuffer.remaining()) {
+            flushBuffer();
+        }
+        if (record.length > writeBuffer.capacity()) {
+            writeFully(ByteBuffer.wrap(record));
+        } else {
+            writeBuffer.put(record);
+        }
+        fileSize += record.length;
+        return address;
+    }
+
+    @Override
+    protected byte[] read(long address, int length) throws IOException {
+        byte[] bytes = new byte[length];
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, address + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of lookup store file " + file);
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        flushBuffer();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            channel.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private void flushBuffer() throws IOException {
+        writeBuffer.flip();
+        writeFully(writeBuffer);
+        writeBuffer.clear();
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.IOUtils;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caches the whole table in an {@link OdpsLookupStore}. Once the cache
+ * expires, the table is reloaded on the loader thread while lookups keep
+ * being served from the old snapshot, which is swapped for the new one when
+ * the reload has finished. Lookups hold a reference to the snapshot they
+ * read, so the replaced store is released as soon as the last lookup reading
+ * it has finished. A failed reload keeps the old snapshot, which is reloaded
+ * again once the cache expires again.
+ */
+class OdpsFullLookupCache extends OdpsLookupCache {
+
+    private final AtomicBoolean reloading = new AtomicBoolean(false);
+    private volatile Snapshot snapshot;
+
+    OdpsFullLookupCache(OdpsInputFormat<RowData> inputFormat,
+                        OdpsLookupOptions options,
+                        int[] lookupKeys,
+                        RowType rowType) {
+        super(inputFormat, options, lookupKeys, rowType);
+    }
+
+    @Override
+    void open(MetricGroup metricGroup) throws Exception {
+        super.open(metricGroup);
+        LOG.info("Populating lookup join cache");
+        try {
+            snapshot = loader.submit(this::load).get();
+        } catch (ExecutionException e) {
+            throw new FlinkRuntimeException(e.getCause());
+        }
+    }
+
+    @Override
+    protected CompletableFuture<Collection<RowData>> lookup(RowData key) {
+        Snapshot current = acquire();
+        if (current.expireTime <= System.currentTimeMillis() && reloading.compareAndSet(false, true)) {
+            LOG.info("Lookup join cache has expired, reloading");
+            loader.execute(this::reload);
+        }
+        List<RowData> rows;
+        try {
+            rows = current.store.get(key);
+        } catch (IOException e) {
+            throw new FlinkRuntimeException("Failed to read lookup join cache", e);
+        } finally {
+            current.release();
+        }
+        if (rows.isEmpty()) {
+            recordMiss();
+        } else {
+            recordHit();
+        }
+        return CompletableFuture.completedFuture(rows);
+    }
+
+    @Override
+    protected long getCachedRows() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.store.getNumRows();
+    }
+
+    @Override
+    protected long getCachedBytes() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.store.getNumBytes();
+    }
+
+    @Override
+    public void close() throws IOException {
+        super.close();
+        try {
+            loader.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (snapshot != null) {
+            snapshot.release();
+            snapshot = null;
+        }
+    }
+
+    /** Returns the current snapshot with a reference held for the caller. */
+    private Snapshot acquire() {
+        while (true) {
+            Snapshot current = snapshot;
+            // fails only if the snapshot was replaced and released meanwhile
+            if (current.retain()) {
+                return current;
+            }
+        }
+    }
+
+    private void reload() {
+        try {
+            Snapshot loaded = load();
+            Snapshot replaced = snapshot;
+            snapshot = loaded;
+            replaced.release();
+        } catch (Throwable t) {
+            LOG.error("Failed to reload lookup join cache, keep serving the old one and retry in "
+                    + options.getCacheExpireMs() + " ms", t);
+            snapshot.expireTime = System.currentTimeMillis() + options.getCacheExpireMs();
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    private Snapshot load() throws Exception {
+        OdpsLookupStore store = loadStore();
+        LOG.info("Loaded {} row(s) into lookup join cache", store.getNumRows());
+        return new Snapshot(store, System.currentTimeMillis() + options.getCacheExpireMs());
+    }
+
+    /** Scans the whole table into a new store. */
+    protected OdpsLookupStore loadStore() throws Exception {
+        return loadWithRetry(() -> merge(scan(
+                () -> OdpsLookupStore.create(options, keyType, rowType),
+                (shard, row) -> shard.add(extractLookupKey(row), row))));
+    }
+
+    /**
+     * Merges the shards built by the readers into the largest one, which
+     * then holds the whole table. All other shards are closed.
+     */
+    private static OdpsLookupStore merge(List<OdpsLookupStore> shards) throws IOException {
+        OdpsLookupStore merged = shards.get(0);
+        for (OdpsLookupStore shard : shards) {
+            if (shard.getNumRows() > merged.getNumRows()) {
+                merged = shard;
+            }
+        }
+        try {
+            for (OdpsLookupStore shard : shards) {
+                if (shard != merged) {
+                    shard.finish();
+                    merged.merge(shard);
+                    shard.close();
+                }
+            }
+            merged.finish();
+            return merged;
+        } catch (Throwable t) {
+            for (OdpsLookupStore shard : shards) {
+                IOUtils.closeQuietly(shard);
+            }
+            throw t;
+        }
+    }
+
+    /**
+     * A loaded store. The cache holds one reference while the snapshot is
+     * current and every lookup one while reading it; the store is closed
+     * when the last reference is released.
+     */
+    private static final class Snapshot {
+        private final OdpsLookupStore store;
+        private final AtomicInteger refCount = new AtomicInteger(1);
+        private volatile long expireTime;
+
+        private Snapshot(OdpsLookupStore store, long expireTime) {
+            this.store = store;
+            this.expireTime = expireTime;
+        }
+
+        private boolean retain() {
+            while (true) {
+                int count = refCount.get();
+                if (count == 0) {
+                    return false;
+                }
+                if (refCount.compareAndSet(count, count + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void release() {
+            if (refCount.decrementAndGet() == 0) {
+                try {
+                    store.close();
+                } catch (IOException e) {
+                    LOG.warn("Failed to release lookup join cache", e);
+                }
+            }
+        }
+    }
+}
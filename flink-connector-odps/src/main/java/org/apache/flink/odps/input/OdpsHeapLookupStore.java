@@ -0,0 +1,89 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.types.logical.RowType;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Keeps the rows as objects in a heap hash map. */
+class OdpsHeapLookupStore implements OdpsLookupStore {
+
+    private final RowDataSerializer keySerializer;
+    private final RowDataSerializer rowSerializer;
+    private final Map<RowData, List<RowData>> rows = new HashMap<>();
+    private long numRows;
+    private long numBytes;
+
+    OdpsHeapLookupStore(RowType keyType, RowType rowType) {
+        this.keySerializer = new RowDataSerializer(keyType);
+        this.rowSerializer = new RowDataSerializer(rowType);
+    }
+
+    @Override
+    public void add(RowData key, RowData row) {
+        RowData copy = rowSerializer.copy(row);
+        rows.computeIfAbsent(keySerializer.copy(key), k -> new ArrayList<>()).add(copy);
+        numRows++;
+        // estimated as the size of the binary form
+        numBytes += rowSerializer.toBinaryRow(copy).getSizeInBytes();
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void merge(OdpsLookupStore shard) {
+        OdpsHeapLookupStore other = (OdpsHeapLookupStore) shard;
+        // the rows of the shard are taken over without copying
+        other.rows.forEach((key, shardRows) -> rows.merge(key, shardRows, (merged, added) -> {
+            merged.addAll(added);
+            return merged;
+        }));
+        numRows += other.numRows;
+        numBytes += other.numBytes;
+    }
+
+    @Override
+    public List<RowData> get(RowData key) {
+        return rows.getOrDefault(key, Collections.emptyList());
+    }
+
+    @Override
+    public long getNumRows() {
+        return numRows;
+    }
+
+    @Override
+    public long getNumBytes() {
+        return numBytes;
+    }
+
+    @Override
+    public void close() {
+        rows.clear();
+    }
+}
@@ -21,7 +21,9 @@ package org.apache.flink.odps.input;
 import com.aliyun.odps.*;
 import com.aliyun.odps.cupid.table.v1.Attribute;
 import com.aliyun.odps.cupid.table.v1.reader.*;
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
 import com.aliyun.odps.cupid.table.v1.util.Options;
+import com.aliyun.odps.cupid.table.v1.util.ProviderRegistry;
 import org.apache.flink.annotation.Public;
 import org.apache.flink.api.common.io.DefaultInputSplitAssigner;
 import org.apache.flink.api.common.io.RichInputFormat;
@@ -51,6 +53,7 @@ import org.slf4j.LoggerFactory;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -87,6 +90,7 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
     private String tableApiProvider = Constants.DEFAULT_TABLE_API_PROVIDER;
     private boolean isLocal = false;
     private boolean useBatch = true;
+    private List<FilterExpression> filterExpressions = new ArrayList<>();
 
     private transient OdpsMetaDataProvider tableMetaProvider;
     protected RecordType recordType = RecordType.FLINK_ROW_DATA;
@@ -189,11 +193,28 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
             builder.setPartitions(partitions);
             builder.setNumPartitions(numPartitions);
             builder.setSplitSize(splitSize);
+            builder.setFilterExpressions(filterExpressions);
             return builder.build();
         }
         return this;
     }
 
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    public OdpsConf getOdpsConf() {
+        return odpsConf;
+    }
+
+    public boolean isPartitioned() {
+        return isPartitioned;
+    }
+
     @Override
     public void configure(Configuration configuration) {
     }
@@ -205,6 +226,31 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
 
     @Override
     public OdpsInputSplit[] createInputSplits(final int minNumSplits) throws IOException {
+        return planInputSplits(partitions, 0);
+    }
+
+    /**
+     * Plans the splits of the given partitions instead of the partitions
+     * this input format was created with, so that partitions found after
+     * its creation can be read.
+     */
+    public OdpsInputSplit[] createInputSplitsForPartitions(String[] partitions) throws IOException {
+        checkNotNull(partitions, "partitions cannot be null");
+        return planInputSplits(partitions, 0);
+    }
+
+    /**
+     * Plans about splitParallelism splits of similar size instead of splits
+     * of the configured split size, so that the table can be read by as many
+     * readers at once. Falls back to the split size if the table api provider
+     * cannot split by parallelism.
+     */
+    public OdpsInputSplit[] createInputSplitsByParallelism(int splitParallelism) throws IOException {
+        Preconditions.checkArgument(splitParallelism > 0, "splitParallelism must be positive");
+        return planInputSplits(partitions, splitParallelism);
+    }
+
+    private OdpsInputSplit[] planInputSplits(String[] partitions, int splitParallelism) throws IOException {
         if (isPartitioned && partitions.length == 0) {
             return new OdpsInputSplit[0];
         }
@@ -224,22 +270,39 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
             }
             RequiredSchema requiredSchema = RequiredSchema.columns(reqColumns);
             Options options = OdpsUtils.getOdpsOptions(odpsConf);
+            TableReadSessionBuilder builder = new TableReadSessionBuilder(tableApiProvider, projectName, tableName)
+                    .readDataColumns(requiredSchema)
+                    .options(options);
             if (partitions.length > 0) {
                 List<PartitionSpecWithBucketFilter> partitionSpecWithBucketFilterList = Arrays.stream(partitions)
                         .map(e -> new PartitionSpecWithBucketFilter(getPartitionSpecKVMap(new PartitionSpec(e))))
                         .collect(Collectors.toList());
-                tableReadSession = new TableReadSessionBuilder(tableApiProvider, projectName, tableName)
-                        .readPartitions(partitionSpecWithBucketFilterList)
-                        .readDataColumns(requiredSchema)
-                        .options(options)
-                        .build();
-            } else {
-                tableReadSession = new TableReadSessionBuilder(tableApiProvider, projectName, tableName)
-                        .readDataColumns(requiredSchema)
-                        .options(options)
-                        .build();
+                builder.readPartitions(partitionSpecWithBucketFilterList);
+            }
+            if (splitParallelism > 0) {
+                builder.splitByParallelism(splitParallelism);
+            }
+            if (!filterExpressions.isEmpty()) {
+                if (ProviderRegistry.lookup(tableApiProvider).getReadCapabilities().supportPushDownFilters()) {
+                    builder.filterExpressions(filterExpressions);
+                } else {
+                    LOG.info("Table api provider {} cannot push down filters, ignore {}",
+                            tableApiProvider, filterExpressions);
+                }
+            }
+            tableReadSession = builder.build();
+            inputSplits = null;
+            if (splitParallelism > 0) {
+                try {
+                    inputSplits = tableReadSession.getOrCreateInputSplits();
+                } catch (UnsupportedOperationException e) {
+                    LOG.warn("Table api provider {} cannot split by parallelism, split by size instead",
+                            tableApiProvider);
+                }
+            }
+            if (inputSplits == null) {
+                inputSplits = tableReadSession.getOrCreateInputSplits(splitSize);
             }
-            inputSplits = tableReadSession.getOrCreateInputSplits(splitSize);
         } catch (Exception e) {
             throw new IOException("create table read session failed", e);
         }
@@ -263,17 +326,27 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
             return;
         }
         LOG.info("open inputFormat: " + split.getSplitNumber());
+        if (useBatch) {
+            useBatch = supportBatch(odpsTableSchema, selectedColumns);
+        }
+        rowIterator = createIterator(split, useBatch);
+    }
+
+    /**
+     * Creates a reader of split that does not share any state with this
+     * input format, so that several splits can be read at once by different
+     * threads. The columnar batch reader is used if vectorized is set and
+     * all selected columns support it.
+     */
+    public NextIterator<T> createIterator(OdpsInputSplit split, boolean vectorized) throws IOException {
         try {
-            if (useBatch) {
-                useBatch = supportBatch(odpsTableSchema, selectedColumns);
-            }
-            if (!useBatch) {
-                rowIterator = new RecordIterator<>(split,
+            if (!vectorized || !supportBatchTypes(odpsTableSchema, selectedColumns)) {
+                return new RecordIterator<>(split,
                         odpsTableSchema,
                         selectedColumns,
                         recordType);
             } else {
-                rowIterator = new CupidBatchIterator<>(split,
+                return new CupidBatchIterator<>(split,
                         odpsTableSchema,
                         selectedColumns,
                         recordType,
@@ -373,8 +446,7 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
         if (isPartitioned) {
             if (this.partitions == null) {
                 // when not specific partition, get all
-                Table t = this.tableMetaProvider.getTable(projectName, tableName);
-                List<Partition> partitionList = t.getPartitions();
+                List<Partition> partitionList = this.tableMetaProvider.getPartitions(projectName, tableName);
                 this.partitions = OdpsUtils.createPartitionSpec(partitionList);
             }
         } else {
@@ -384,15 +456,10 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
     }
 
     private void checkPartitions() {
-        Table t = this.tableMetaProvider.getTable(projectName, tableName);
         for (String p : partitions) {
             PartitionSpec partitionSpec = new PartitionSpec(p);
-            try {
-                if (!t.hasPartition(partitionSpec)) {
-                    throw new FlinkOdpsException("partition not exist. " + partitionSpec.toString());
-                }
-            } catch (OdpsException e) {
-                throw new FlinkOdpsException("check partition failed!", e);
+            if (this.tableMetaProvider.getPartition(projectName, tableName, partitionSpec.toString(), true) == null) {
+                throw new FlinkOdpsException("partition not exist. " + partitionSpec.toString());
             }
         }
     }
@@ -433,6 +500,10 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
         if (isLocal || !odpsConf.getPropertyOrDefault(ODPS_VECTORIZED_READ_ENABLE, false)) {
             return false;
         }
+        return supportBatchTypes(tableSchema, selectedColumns);
+    }
+
+    private boolean supportBatchTypes(OdpsTableSchema tableSchema, String[] selectedColumns) {
         for (String columnName : selectedColumns) {
             OdpsColumn column = tableSchema.getColumn(columnName);
             if (!column.getType().equals(OdpsType.BOOLEAN) &&
@@ -468,6 +539,7 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
         private String[] columns;
         private int numPartitions = 0;
         private int splitSize =  0;
+        private List<FilterExpression> filterExpressions = Collections.emptyList();
 
         public OdpsInputFormatBuilder(String projectName, String tableName) {
             this(null, projectName, tableName);
@@ -499,10 +571,19 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
             return this;
         }
 
+        /**
+         * Filters passed to the table read session, which skips rows that
+         * definitely fail them if the table api provider supports it.
+         */
+        public OdpsInputFormatBuilder<T> setFilterExpressions(List<FilterExpression> filterExpressions) {
+            this.filterExpressions = filterExpressions;
+            return this;
+        }
+
         public OdpsInputFormat<T> build() {
             checkNotNull(projectName, "projectName should not be null");
             checkNotNull(tableName, "tableName should not be null");
-            return new OdpsInputFormat<>(
+            OdpsInputFormat<T> inputFormat = new OdpsInputFormat<>(
                     odpsConf,
                     projectName,
                     tableName,
@@ -511,6 +592,8 @@ public class OdpsInputFormat<T> extends RichInputFormat<T, OdpsInputSplit>
                     numPartitions,
                     splitSize
             );
+            inputFormat.filterExpressions = new ArrayList<>(filterExpressions);
+            return inputFormat;
         }
     }
 }
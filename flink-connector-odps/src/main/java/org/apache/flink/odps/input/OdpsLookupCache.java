@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.odps.input.reader.NextIterator;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.IOUtils;
+import org.apache.flink.util.function.BiConsumerWithException;
+import org.apache.flink.util.function.SupplierWithException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of the build table of a lookup join. Table scans are driven by a
+ * single background loader thread, which reads the splits of the table
+ * itself or, with a load parallelism above one, hands them out to a pool of
+ * reader threads.
+ */
+abstract class OdpsLookupCache implements Closeable {
+
+    protected static final Logger LOG = LoggerFactory.getLogger(OdpsLookupCache.class);
+
+    private static final Duration RETRY_INTERVAL = Duration.ofSeconds(10);
+    private static final int LATENCY_WINDOW_SIZE = 1024;
+
+    protected final OdpsLookupOptions options;
+    protected final ExecutorService loader;
+    private final ExecutorService readers;
+
+    private final OdpsInputFormat<RowData> inputFormat;
+    protected final RowType rowType;
+    protected final RowType keyType;
+    private final ThreadLocal<RowDataSerializer> serializer;
+    private final RowData.FieldGetter[] lookupFieldGetters;
+
+    private Counter hitCounter;
+    private Counter missCounter;
+    private Counter lookupCounter;
+    private Histogram latencyHistogram;
+    private volatile long lastLoadRows;
+    private volatile long lastLoadDurationMs;
+
+    OdpsLookupCache(OdpsInputFormat<RowData> inputFormat,
+                    OdpsLookupOptions options,
+                    int[] lookupKeys,
+                    RowType rowType) {
+        this.inputFormat = inputFormat;
+        this.options = options;
+        this.rowType = rowType;
+        this.serializer = ThreadLocal.withInitial(() -> new RowDataSerializer(rowType));
+        this.lookupFieldGetters = new RowData.FieldGetter[lookupKeys.length];
+        LogicalType[] keyTypes = new LogicalType[lookupKeys.length];
+        for (int i = 0; i < lookupKeys.length; i++) {
+            keyTypes[i] = rowType.getTypeAt(lookupKeys[i]);
+            lookupFieldGetters[i] = RowData.createFieldGetter(keyTypes[i], lookupKeys[i]);
+        }
+        this.keyType = RowType.of(keyTypes);
+        this.loader = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "odps-lookup-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (options.getLoadParallelism() > 1) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.readers = Executors.newFixedThreadPool(options.getLoadParallelism(), r -> {
+                Thread thread = new Thread(r, "odps-lookup-reader-" + threadNumber.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            this.readers = null;
+        }
+    }
+
+    static OdpsLookupCache create(OdpsInputFormat<RowData> inputFormat,
+                                  OdpsLookupOptions options,
+                                  int[] lookupKeys,
+                                  RowType rowType) {
+        if (options.isPartialCache()) {
+            return new OdpsPartialLookupCache(inputFormat, options, lookupKeys, rowType);
+        }
+        return new OdpsFullLookupCache(inputFormat, options, lookupKeys, rowType);
+    }
+
+    /**
+     * Registers the cache metrics on metricGroup, may be null when the
+     * function runs outside of a task, and prepares the cache for lookups.
+     */
+    void open(MetricGroup metricGroup) throws Exception {
+        if (metricGroup != null) {
+            hitCounter = metricGroup.counter("lookupCacheHits");
+            missCounter = metricGroup.counter("lookupCacheMisses");
+            lookupCounter = metricGroup.counter("lookups");
+            metricGroup.meter("lookupsPerSecond", new MeterView(lookupCounter));
+            latencyHistogram = metricGroup.histogram("lookupLatencyMicros",
+                    new DescriptiveStatisticsHistogram(LATENCY_WINDOW_SIZE));
+            metricGroup.gauge("lookupCacheRows", (Gauge<Long>) this::getCachedRows);
+            metricGroup.gauge("lookupCacheBytes", (Gauge<Long>) this::getCachedBytes);
+            metricGroup.gauge("lookupLastLoadRows", (Gauge<Long>) () -> lastLoadRows);
+            metricGroup.gauge("lookupLastLoadDurationMs", (Gauge<Long>) () -> lastLoadDurationMs);
+        }
+    }
+
+    /**
+     * Returns the rows matching key. The future may complete on the loader
+     * thread, and the returned rows must not be modified.
+     */
+    CompletableFuture<Collection<RowData>> get(RowData key) {
+        if (lookupCounter == null) {
+            return lookup(key);
+        }
+        lookupCounter.inc();
+        long start = System.nanoTime();
+        return lookup(key).whenComplete((rows, throwable) ->
+                latencyHistogram.update(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start)));
+    }
+
+    protected abstract CompletableFuture<Collection<RowData>> lookup(RowData key);
+
+    protected abstract long getCachedRows();
+
+    protected abstract long getCachedBytes();
+
+    @Override
+    public void close() throws IOException {
+        loader.shutdownNow();
+        if (readers != null) {
+            readers.shutdownNow();
+        }
+    }
+
+    protected void recordHit() {
+        if (hitCounter != null) {
+            hitCounter.inc();
+        }
+    }
+
+    protected void recordMiss() {
+        if (missCounter != null) {
+            missCounter.inc();
+        }
+    }
+
+    /**
+     * Runs load, which scans the table, retrying it on {@link IOException}
+     * up to the configured times.
+     */
+    protected <T> T loadWithRetry(Callable<T> load) throws Exception {
+        int numRetry = 0;
+        while (true) {
+            long start = System.currentTimeMillis();
+            try {
+                T result = load.call();
+                lastLoadDurationMs = System.currentTimeMillis() - start;
+                return result;
+            } catch (IOException e) {
+                if (numRetry >= options.getMaxRetryTimes()) {
+                    throw new FlinkRuntimeException(
+                            String.format("Failed to load table into cache after %d retries", numRetry), e);
+                }
+                numRetry++;
+                long toSleep = numRetry * RETRY_INTERVAL.toMillis();
+                LOG.warn(String.format("Failed to load table into cache, will retry in %d seconds", toSleep / 1000), e);
+                Thread.sleep(toSleep);
+            }
+        }
+    }
+
+    /**
+     * Scans the whole table once. With a load parallelism of n, the table is
+     * planned into about n splits which are read concurrently by up to n
+     * reader threads. Each reader collects the rows of the splits it reads
+     * into its own shard created by newShard, and the shards are returned to
+     * be merged by the caller. The row passed to accumulator is reused, see
+     * {@link #copy(RowData)}. Shards that are {@link Closeable} are closed
+     * if the scan fails.
+     */
+    protected <S> List<S> scan(SupplierWithException<S, IOException> newShard,
+                               BiConsumerWithException<S, RowData, IOException> accumulator) throws IOException {
+        OdpsInputSplit[] inputSplits = readers == null
+                ? inputFormat.createInputSplits(1)
+                : inputFormat.createInputSplitsByParallelism(options.getLoadParallelism());
+        int numReaders = Math.max(1, Math.min(options.getLoadParallelism(), inputSplits.length));
+        List<S> shards = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger nextSplit = new AtomicInteger();
+        AtomicLong count = new AtomicLong();
+        AtomicBoolean stopped = new AtomicBoolean(false);
+        Callable<Void> reader = () -> {
+            S shard = newShard.get();
+            shards.add(shard);
+            int split;
+            while (!stopped.get() && (split = nextSplit.getAndIncrement()) < inputSplits.length) {
+                count.addAndGet(read(inputSplits[split], shard, accumulator, stopped));
+            }
+            return null;
+        };
+
+        Throwable failure = null;
+        if (numReaders == 1) {
+            try {
+                reader.call();
+            } catch (Throwable t) {
+                failure = t;
+            }
+        } else {
+            List<Future<Void>> futures = new ArrayList<>(numReaders);
+            for (int i = 0; i < numReaders; i++) {
+                futures.add(readers.submit(reader));
+            }
+            failure = await(futures, stopped);
+        }
+        if (failure != null) {
+            for (S shard : shards) {
+                if (shard instanceof Closeable) {
+                    IOUtils.closeQuietly((Closeable) shard);
+                }
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            if (failure instanceof RuntimeException) {
+                throw (RuntimeException) failure;
+            }
+            if (failure instanceof Error) {
+                throw (Error) failure;
+            }
+            throw new IOException(failure);
+        }
+        lastLoadRows = count.get();
+        LOG.info("Scanned {} row(s) of {} split(s) with {} reader(s)", count.get(), inputSplits.length, numReaders);
+        return shards;
+    }
+
+    private <S> long read(OdpsInputSplit split,
+                          S shard,
+                          BiConsumerWithException<S, RowData, IOException> accumulator,
+                          AtomicBoolean stopped) throws IOException {
+        long count = 0;
+        GenericRowData reuse = new GenericRowData(rowType.getFieldCount());
+        try (NextIterator<RowData> iterator = inputFormat.createIterator(split, options.isVectorizedLoad())) {
+            while (!stopped.get() && iterator.hasNext()) {
+                iterator.setReuse(reuse);
+                accumulator.accept(shard, iterator.next());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Waits for all readers, even when interrupted so that no shard is still
+     * being written once this returns, and returns the first failure. The
+     * remaining readers are stopped as soon as one fails.
+     */
+    private static Throwable await(List<Future<Void>> futures, AtomicBoolean stopped) {
+        Throwable failure = null;
+        boolean interrupted = false;
+        for (Future<Void> future : futures) {
+            while (true) {
+                try {
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    stopped.set(true);
+                } catch (ExecutionException e) {
+                    stopped.set(true);
+                    if (failure == null) {
+                        failure = e.getCause();
+                    }
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+            if (failure == null) {
+                failure = new InterruptedIOException("Interrupted while loading lookup join cache");
+            }
+        }
+        return failure;
+    }
+
+    /** Copies row, may be called by any reader thread. */
+    protected RowData copy(RowData row) {
+        return serializer.get().copy(row);
+    }
+
+    /** Estimates the memory taken by row as the size of its binary form. */
+    protected long sizeOf(RowData row) {
+        return serializer.get().toBinaryRow(row).getSizeInBytes();
+    }
+
+    protected RowData extractLookupKey(RowData row) {
+        GenericRowData key = new GenericRowData(lookupFieldGetters.length);
+        for (int i = 0; i < lookupFieldGetters.length; i++) {
+            key.setField(i, lookupFieldGetters[i].getFieldOrNull(row));
+        }
+        return key;
+    }
+}
@@ -26,10 +26,36 @@ public class OdpsLookupOptions implements Serializable {
 
     private final long cacheExpireMs;
     private final int maxRetryTimes;
+    private final long cacheMaxRows;
+    private final long cacheMaxBytes;
+    private final boolean async;
+    private final StoreType storeType;
+    private final String storeDir;
+    private final int loadParallelism;
+    private final boolean vectorizedLoad;
 
     public OdpsLookupOptions(long cacheExpireMs, int maxRetryTimes) {
+        this(cacheExpireMs, maxRetryTimes, -1L, -1L, false, StoreType.HEAP, null, 1, false);
+    }
+
+    public OdpsLookupOptions(long cacheExpireMs,
+                             int maxRetryTimes,
+                             long cacheMaxRows,
+                             long cacheMaxBytes,
+                             boolean async,
+                             StoreType storeType,
+                             String storeDir,
+                             int loadParallelism,
+                             boolean vectorizedLoad) {
         this.cacheExpireMs = cacheExpireMs;
         this.maxRetryTimes = maxRetryTimes;
+        this.cacheMaxRows = cacheMaxRows;
+        this.cacheMaxBytes = cacheMaxBytes;
+        this.async = async;
+        this.storeType = storeType;
+        this.storeDir = storeDir;
+        this.loadParallelism = loadParallelism;
+        this.vectorizedLoad = vectorizedLoad;
     }
 
     public long getCacheExpireMs() {
@@ -40,6 +66,39 @@ public class OdpsLookupOptions implements Serializable {
         return maxRetryTimes;
     }
 
+    public long getCacheMaxRows() {
+        return cacheMaxRows;
+    }
+
+    public long getCacheMaxBytes() {
+        return cacheMaxBytes;
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    public StoreType getStoreType() {
+        return storeType;
+    }
+
+    public String getStoreDir() {
+        return storeDir;
+    }
+
+    public int getLoadParallelism() {
+        return loadParallelism;
+    }
+
+    public boolean isVectorizedLoad() {
+        return vectorizedLoad;
+    }
+
+    /** Whether only recently used keys are cached instead of the whole table. */
+    public boolean isPartialCache() {
+        return cacheMaxRows > 0 || cacheMaxBytes > 0;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -49,16 +108,40 @@ public class OdpsLookupOptions implements Serializable {
         if (o instanceof OdpsLookupOptions) {
             OdpsLookupOptions options = (OdpsLookupOptions) o;
             return Objects.equals(cacheExpireMs, options.cacheExpireMs)
-                    && Objects.equals(maxRetryTimes, options.maxRetryTimes);
+                    && Objects.equals(maxRetryTimes, options.maxRetryTimes)
+                    && Objects.equals(cacheMaxRows, options.cacheMaxRows)
+                    && Objects.equals(cacheMaxBytes, options.cacheMaxBytes)
+                    && Objects.equals(async, options.async)
+                    && Objects.equals(storeType, options.storeType)
+                    && Objects.equals(storeDir, options.storeDir)
+                    && Objects.equals(loadParallelism, options.loadParallelism)
+                    && Objects.equals(vectorizedLoad, options.vectorizedLoad);
         } else {
             return false;
         }
     }
 
+    /** Where the full lookup cache keeps the rows of the table. */
+    public enum StoreType {
+        /** Row objects on the java heap. */
+        HEAP,
+        /** Binary rows in off-heap memory segments. */
+        OFF_HEAP,
+        /** Binary rows in a local spill file, only the hash index stays in memory. */
+        DISK
+    }
+
     /** Builder of {@link OdpsLookupOptions}. */
     public static class Builder {
         private long cacheExpireMs = 300 * 1000L;
         private int maxRetryTimes = 3;
+        private long cacheMaxRows = -1L;
+        private long cacheMaxBytes = -1L;
+        private boolean async = false;
+        private StoreType storeType = StoreType.HEAP;
+        private String storeDir = null;
+        private int loadParallelism = 1;
+        private boolean vectorizedLoad = false;
 
         /** optional, lookup cache expire mills, over this time, the old data will expire. */
         public Builder setCacheExpireMs(long cacheExpireMs) {
@@ -72,8 +155,51 @@ public class OdpsLookupOptions implements Serializable {
             return this;
         }
 
+        /** optional, max rows of the partial lookup cache, enables the partial cache if positive. */
+        public Builder setCacheMaxRows(long cacheMaxRows) {
+            this.cacheMaxRows = cacheMaxRows;
+            return this;
+        }
+
+        /** optional, max bytes of the partial lookup cache, enables the partial cache if positive. */
+        public Builder setCacheMaxBytes(long cacheMaxBytes) {
+            this.cacheMaxBytes = cacheMaxBytes;
+            return this;
+        }
+
+        /** optional, whether to look up asynchronously. */
+        public Builder setAsync(boolean async) {
+            this.async = async;
+            return this;
+        }
+
+        /** optional, where the full lookup cache keeps the rows of the table. */
+        public Builder setStoreType(StoreType storeType) {
+            this.storeType = storeType;
+            return this;
+        }
+
+        /** optional, directory of the spill files of the disk store, the temp directory by default. */
+        public Builder setStoreDir(String storeDir) {
+            this.storeDir = storeDir;
+            return this;
+        }
+
+        /** optional, number of threads reading the table splits concurrently when loading the cache. */
+        public Builder setLoadParallelism(int loadParallelism) {
+            this.loadParallelism = loadParallelism;
+            return this;
+        }
+
+        /** optional, whether to load the cache through the columnar batch reader. */
+        public Builder setVectorizedLoad(boolean vectorizedLoad) {
+            this.vectorizedLoad = vectorizedLoad;
+            return this;
+        }
+
         public OdpsLookupOptions build() {
-            return new OdpsLookupOptions(cacheExpireMs, maxRetryTimes);
+            return new OdpsLookupOptions(cacheExpireMs, maxRetryTimes, cacheMaxRows, cacheMaxBytes,
+                    async, storeType, storeDir, loadParallelism, vectorizedLoad);
         }
     }
 }
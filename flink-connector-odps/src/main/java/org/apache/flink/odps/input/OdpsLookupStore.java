@@ -0,0 +1,65 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Rows of the build table of a lookup join, indexed by lookup key. A store
+ * is filled by one thread, then {@link #finish() finished} and read by one
+ * thread at a time. A table loaded by several threads is built as one store
+ * per thread, which are {@link #merge(OdpsLookupStore) merged} at the end.
+ */
+interface OdpsLookupStore extends Closeable {
+
+    /** Adds row under key. Both may be reused by the caller afterwards. */
+    void add(RowData key, RowData row) throws IOException;
+
+    /** Called once all rows are added, before the first lookup. */
+    void finish() throws IOException;
+
+    /**
+     * Adds all rows of shard, a finished store of the same type, to this
+     * store. The shard must be closed afterwards and not be used any more.
+     */
+    void merge(OdpsLookupStore shard) throws IOException;
+
+    /** Returns the rows added under key, an empty list if there are none. */
+    List<RowData> get(RowData key) throws IOException;
+
+    long getNumRows();
+
+    long getNumBytes();
+
+    static OdpsLookupStore create(OdpsLookupOptions options, RowType keyType, RowType rowType) throws IOException {
+        switch (options.getStoreType()) {
+            case OFF_HEAP:
+                return new OdpsOffHeapLookupStore(keyType, rowType);
+            case DISK:
+                return new OdpsDiskLookupStore(keyType, rowType, options.getStoreDir());
+            default:
+                return new OdpsHeapLookupStore(keyType, rowType);
+        }
+    }
+}
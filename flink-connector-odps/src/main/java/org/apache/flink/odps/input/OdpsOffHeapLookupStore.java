@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.core.memory.MemorySegment;
+import org.apache.flink.core.memory.MemorySegmentFactory;
+import org.apache.flink.table.types.logical.RowType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps the records in off-heap memory segments. An address holds the page
+ * number in its upper and the offset within the page in its lower 32 bits.
+ */
+class OdpsOffHeapLookupStore extends OdpsBinaryLookupStore {
+
+    private static final int PAGE_SIZE = 4 * 1024 * 1024;
+
+    private final List<MemorySegment> pages = new ArrayList<>();
+    private MemorySegment currentPage;
+    private int pageOffset;
+
+    OdpsOffHeapLookupStore(RowType keyType, RowType rowType) {
+        super(keyType, rowType);
+    }
+
+    @Override
+    protected long append(byte[] record) {
+        if (currentPage == null || currentPage.size() - pageOffset < record.length) {
+            currentPage = MemorySegmentFactory.allocateUnpooledOffHeapMemory(Math.max(PAGE_SIZE, record.length));
+            pages.add(currentPage);
+            pageOffset = 0;
+        }
+        long address = ((long) (pages.size() - 1) << 32) | pageOffset;
+        currentPage.put(pageOffset, record);
+        pageOffset += record.length;
+        return address;
+    }
+
+    @Override
+    protected byte[] read(long address, int length) {
+        byte[] bytes = new byte[length];
+        pages.get((int) (address >>> 32)).get((int) address, bytes);
+        return bytes;
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    @Override
+    public void close() {
+        for (MemorySegment page : pages) {
+            page.free();
+        }
+        pages.clear();
+        currentPage = null;
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.types.logical.RowType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caches the rows of recently used keys only, bounded by the configured max
+ * rows and max bytes and evicted in LRU order. Missed keys are queued and
+ * resolved together by one table scan driven by the loader thread. Keys without
+ * rows are cached as well and count as one row. As a miss may wait for a whole
+ * table scan, the table factory only enables it for async lookups.
+ */
+class OdpsPartialLookupCache extends OdpsLookupCache {
+
+    // rough footprint of a cache entry besides its rows
+    private static final long ENTRY_OVERHEAD_BYTES = 64L;
+
+    private final LinkedHashMap<RowData, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private Map<RowData, CompletableFuture<Collection<RowData>>> pending = new HashMap<>();
+    private boolean loading = false;
+    private long cachedRows = 0;
+    private long cachedBytes = 0;
+
+    OdpsPartialLookupCache(OdpsInputFormat<RowData> inputFormat,
+                           OdpsLookupOptions options,
+                           int[] lookupKeys,
+                           RowType rowType) {
+        super(inputFormat, options, lookupKeys, rowType);
+    }
+
+    @Override
+    protected synchronized CompletableFuture<Collection<RowData>> lookup(RowData key) {
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            if (entry.expireTime > System.currentTimeMillis()) {
+                recordHit();
+                return CompletableFuture.completedFuture(entry.rows);
+            }
+            remove(key);
+        }
+        recordMiss();
+        CompletableFuture<Collection<RowData>> future =
+                pending.computeIfAbsent(key, k -> new CompletableFuture<>());
+        if (!loading) {
+            loading = true;
+            loader.execute(this::loadPending);
+        }
+        return future;
+    }
+
+    @Override
+    protected synchronized long getCachedRows() {
+        return cachedRows;
+    }
+
+    @Override
+    protected synchronized long getCachedBytes() {
+        return cachedBytes;
+    }
+
+    private void loadPending() {
+        while (true) {
+            Map<RowData, CompletableFuture<Collection<RowData>>> batch;
+            synchronized (this) {
+                if (pending.isEmpty()) {
+                    loading = false;
+                    return;
+                }
+                batch = pending;
+                pending = new HashMap<>();
+            }
+            try {
+                Map<RowData, List<RowData>> found = loadWithRetry(() -> {
+                    List<Map<RowData, List<RowData>>> shards = scan(HashMap::new, (shard, row) -> {
+                        if (batch.containsKey(extractLookupKey(row))) {
+                            RowData copy = copy(row);
+                            shard.computeIfAbsent(extractLookupKey(copy), k -> new ArrayList<>()).add(copy);
+                        }
+                    });
+                    Map<RowData, List<RowData>> rows = shards.get(0);
+                    for (Map<RowData, List<RowData>> shard : shards.subList(1, shards.size())) {
+                        shard.forEach((key, shardRows) -> rows.merge(key, shardRows, (merged, added) -> {
+                            merged.addAll(added);
+                            return merged;
+                        }));
+                    }
+                    return rows;
+                });
+                LOG.info("Loaded {} key(s) into lookup join cache", batch.size());
+                synchronized (this) {
+                    for (RowData key : batch.keySet()) {
+                        put(key, found.getOrDefault(key, Collections.emptyList()));
+                    }
+                }
+                for (Map.Entry<RowData, CompletableFuture<Collection<RowData>>> request : batch.entrySet()) {
+                    request.getValue().complete(found.getOrDefault(request.getKey(), Collections.emptyList()));
+                }
+            } catch (Throwable t) {
+                LOG.error("Failed to load missed keys into lookup join cache", t);
+                for (CompletableFuture<Collection<RowData>> future : batch.values()) {
+                    future.completeExceptionally(t);
+                }
+            }
+        }
+    }
+
+    private void put(RowData key, List<RowData> rows) {
+        long bytes = ENTRY_OVERHEAD_BYTES;
+        for (RowData row : rows) {
+            bytes += sizeOf(row);
+        }
+        remove(key);
+        Entry entry = new Entry(rows, bytes, System.currentTimeMillis() + options.getCacheExpireMs());
+        entries.put(key, entry);
+        cachedRows += entry.numRows;
+        cachedBytes += bytes;
+        Iterator<Map.Entry<RowData, Entry>> eldest = entries.entrySet().iterator();
+        while (eldest.hasNext() && isOverCapacity()) {
+            Entry evicted = eldest.next().getValue();
+            eldest.remove();
+            cachedRows -= evicted.numRows;
+            cachedBytes -= evicted.bytes;
+        }
+    }
+
+    private void remove(RowData key) {
+        Entry removed = entries.remove(key);
+        if (removed != null) {
+            cachedRows -= removed.numRows;
+            cachedBytes -= removed.bytes;
+        }
+    }
+
+    private boolean isOverCapacity() {
+        return (options.getCacheMaxRows() > 0 && cachedRows > options.getCacheMaxRows())
+                || (options.getCacheMaxBytes() > 0 && cachedBytes > options.getCacheMaxBytes());
+    }
+
+    private static final class Entry {
+        private final List<RowData> rows;
+        private final int numRows;
+        private final long bytes;
+        private final long expireTime;
+
+        private Entry(List<RowData> rows, long bytes, long expireTime) {
+            this.rows = rows;
+            this.numRows = Math.max(1, rows.size());
+            this.bytes = bytes;
+            this.expireTime = expireTime;
+        }
+    }
+}
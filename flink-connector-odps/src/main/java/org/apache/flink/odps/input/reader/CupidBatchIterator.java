@@ -28,6 +28,8 @@ import org.apache.flink.odps.schema.OdpsTableSchema;
 import org.apache.flink.odps.util.OdpsTypeConverter;
 import org.apache.flink.odps.util.OdpsUtils.RecordType;
 import org.apache.flink.odps.vectorized.ColumnarReadBatch;
+import org.apache.flink.odps.vectorized.ColumnarRowDataBatch;
+import org.apache.flink.table.data.RowData;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -35,16 +37,25 @@ import java.io.IOException;
 import java.util.Iterator;
 
 
+/**
+ * Reads a split batch by batch. {@link RowData} is returned as a view over
+ * the columns of the current batch, which is reused for every row and only
+ * valid until the next call of {@link #hasNext()} or {@link #next()}, since
+ * moving to the next batch may release the buffers of the current one; other
+ * record types are converted row by row.
+ */
 public class CupidBatchIterator<T> implements NextIterator<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(CupidBatchIterator.class);
 
     private final ColumnarReadBatch currentBatch;
+    private final ColumnarRowDataBatch currentRowDataBatch;
     private final Column[] fullColumns;
     private final OdpsTypeConverter[] typeConverters;
     private final RecordType recordType;
     private SplitReader<ColDataBatch> splitReader;
     private Iterator<Record> currentRowIterator;
+    private Iterator<RowData> currentRowDataIterator;
     private T reuse;
 
     public CupidBatchIterator(OdpsInputSplit split,
@@ -67,7 +78,13 @@ public class CupidBatchIterator<T> implements NextIterator<T> {
             this.typeConverters[i] = OdpsTypeConverter.valueOf(this.fullColumns[i].getType().name());
 
         }
-        this.currentBatch = new ColumnarReadBatch(fullColumns, split.inputSplit.getPartitionSpec());
+        if (recordType == RecordType.FLINK_ROW_DATA) {
+            this.currentBatch = null;
+            this.currentRowDataBatch = new ColumnarRowDataBatch(fullColumns, split.inputSplit.getPartitionSpec());
+        } else {
+            this.currentBatch = new ColumnarReadBatch(fullColumns, split.inputSplit.getPartitionSpec());
+            this.currentRowDataBatch = null;
+        }
         this.recordType = recordType;
         LOG.info("use batch iterator");
     }
@@ -79,10 +96,21 @@ public class CupidBatchIterator<T> implements NextIterator<T> {
         }
         splitReader = null;
         currentRowIterator = null;
+        currentRowDataIterator = null;
     }
 
     @Override
     public boolean hasNext() {
+        if (currentRowDataBatch != null) {
+            while (currentRowDataIterator == null || !currentRowDataIterator.hasNext()) {
+                if (!splitReader.hasNext()) {
+                    return false;
+                }
+                currentRowDataBatch.updateColumnBatch(splitReader.next());
+                currentRowDataIterator = currentRowDataBatch.rowIterator();
+            }
+            return true;
+        }
         if (currentRowIterator != null && currentRowIterator.hasNext()) {
             return true;
         }
@@ -96,6 +124,9 @@ public class CupidBatchIterator<T> implements NextIterator<T> {
 
     @Override
     public T next() {
+        if (currentRowDataBatch != null) {
+            return (T) currentRowDataIterator.next();
+        }
         return buildReturnType(currentRowIterator.next());
     }
 
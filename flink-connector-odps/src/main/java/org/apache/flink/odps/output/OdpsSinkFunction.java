@@ -19,36 +19,45 @@
 package org.apache.flink.odps.output;
 
 import org.apache.flink.annotation.Public;
+import org.apache.flink.api.common.ExecutionConfig;
 import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.java.typeutils.InputTypeConfigurable;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.odps.output.stream.PartitionAssigner;
 import org.apache.flink.odps.output.writer.OdpsStreamWrite;
 import org.apache.flink.odps.output.writer.OdpsWriteFactory;
 import org.apache.flink.odps.output.writer.OdpsWriteOptions;
+import org.apache.flink.odps.output.writer.stream.OdpsStreamWritePipeline;
 import org.apache.flink.odps.util.OdpsConf;
 import org.apache.flink.odps.util.OdpsUtils;
 import org.apache.flink.runtime.state.FunctionInitializationContext;
 import org.apache.flink.runtime.state.FunctionSnapshotContext;
-import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 import org.apache.flink.streaming.api.checkpoint.CheckpointedFunction;
 import org.apache.flink.streaming.api.functions.sink.RichSinkFunction;
+import org.apache.flink.streaming.api.operators.StreamingRuntimeContext;
+import org.apache.flink.streaming.runtime.tasks.ProcessingTimeService;
 import org.apache.flink.util.Preconditions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
  * Base class shared between the Java and Scala API of Flink
+ *
+ * <p>Records are buffered by the task thread and written to Odps by
+ * {@link OdpsWriteOptions#getFlushThreads()} background threads, see
+ * {@link OdpsStreamWritePipeline}. Checkpoints wait until the buffered records are flushed.
  */
 @Public
-public class OdpsSinkFunction<T> extends RichSinkFunction<T> implements CheckpointedFunction {
+public class OdpsSinkFunction<T> extends RichSinkFunction<T>
+        implements CheckpointedFunction, InputTypeConfigurable {
 
     private static final long serialVersionUID = 1L;
     private static final Logger LOG = LoggerFactory.getLogger(OdpsSinkFunction.class);
@@ -60,14 +69,13 @@ public class OdpsSinkFunction<T> extends RichSinkFunction<T> implements Checkpoi
     private final boolean isDynamicPartition;
     private final boolean supportsGrouping;
 
-    private transient OdpsStreamWrite<T> odpsStreamWrite;
     private final OdpsWriteOptions writeOptions;
     private final PartitionAssigner<T> partitionAssigner;
+    private TypeSerializer<T> serializer;
 
-    private transient ScheduledExecutorService scheduler;
+    private transient OdpsStreamWritePipeline<T> pipeline;
     private transient ScheduledFuture<?> scheduledFuture;
-    private transient volatile Exception flushException;
-    private transient volatile boolean closed;
+    private transient boolean closed;
 
     public OdpsSinkFunction(
             String projectName,
@@ -136,55 +144,57 @@ public class OdpsSinkFunction<T> extends RichSinkFunction<T> implements Checkpoi
     public void initializeState(FunctionInitializationContext context) throws Exception {
     }
 
+    @Override
+    @SuppressWarnings("unchecked")
+    public void setInputType(TypeInformation<?> type, ExecutionConfig executionConfig) {
+        if (executionConfig.isObjectReuseEnabled()) {
+            this.serializer = ((TypeInformation<T>) type).createSerializer(executionConfig);
+        }
+    }
+
     @Override
     public void snapshotState(FunctionSnapshotContext functionSnapshotContext) throws Exception {
-        synchronized (this) {
-            if (!closed) {
-                try {
-                    odpsStreamWrite.flush();
-                } catch (Exception e) {
-                    flushException = e;
-                }
-            }
+        if (!closed) {
+            pipeline.flush();
         }
     }
 
     @Override
     public void open(Configuration configuration) throws Exception {
         super.open(configuration);
-        this.odpsStreamWrite = OdpsWriteFactory.createOdpsStreamWrite(
-                odpsConf,
-                projectName,
-                tableName,
-                partition,
-                isDynamicPartition,
-                supportsGrouping,
-                writeOptions,
-                partitionAssigner);
         RuntimeContext ctx = getRuntimeContext();
+        int flushThreads = Math.max(writeOptions.getFlushThreads(), 1);
+        List<OdpsStreamWrite<T>> writers = new ArrayList<>(flushThreads);
+        for (int i = 0; i < flushThreads; i++) {
+            OdpsStreamWrite<T> odpsStreamWrite = OdpsWriteFactory.createOdpsStreamWrite(
+                    odpsConf,
+                    projectName,
+                    tableName,
+                    partition,
+                    isDynamicPartition,
+                    supportsGrouping,
+                    writeOptions,
+                    partitionAssigner);
+            odpsStreamWrite.initWriteSession();
+            odpsStreamWrite.open(ctx.getIndexOfThisSubtask(), ctx.getNumberOfParallelSubtasks());
+            writers.add(odpsStreamWrite);
+        }
         this.closed = false;
-        odpsStreamWrite.initWriteSession();
-        odpsStreamWrite.open(ctx.getIndexOfThisSubtask(), ctx.getNumberOfParallelSubtasks());
-        if (writeOptions.getBufferFlushIntervalMillis() > 0) {
-            this.scheduler =
-                    Executors.newScheduledThreadPool(
-                            1, new ExecutorThreadFactory("odps-sink-function"));
+        this.pipeline = new OdpsStreamWritePipeline<>(writers, writeOptions, serializer);
+        pipeline.open(ctx.getMetricGroup());
+        ProcessingTimeService timeService = ctx instanceof StreamingRuntimeContext ?
+                ((StreamingRuntimeContext) ctx).getProcessingTimeService() : null;
+        if (writeOptions.getBufferFlushIntervalMillis() > 0 && timeService != null) {
+            // The callbacks run in the task thread, between two records.
             this.scheduledFuture =
-                    scheduler.scheduleWithFixedDelay(
-                            () -> {
-                                synchronized (this) {
-                                    if (!closed) {
-                                        try {
-                                            odpsStreamWrite.flush();
-                                        } catch (Exception e) {
-                                            flushException = e;
-                                        }
-                                    }
+                    timeService.scheduleWithFixedDelay(
+                            timestamp -> {
+                                if (!closed) {
+                                    pipeline.triggerFlush();
                                 }
                             },
                             writeOptions.getBufferFlushIntervalMillis(),
-                            writeOptions.getBufferFlushIntervalMillis(),
-                            TimeUnit.MILLISECONDS);
+                            writeOptions.getBufferFlushIntervalMillis());
         }
         LOG.info("Open odps sink function");
     }
@@ -192,42 +202,24 @@ public class OdpsSinkFunction<T> extends RichSinkFunction<T> implements Checkpoi
     @Override
     public final void invoke(
             T value, Context context) throws Exception {
-        odpsStreamWrite.updateWriteContext(context);
-        synchronized (this) {
-            checkFlushException();
-            try {
-                odpsStreamWrite.writeRecord(value);
-            } catch (Exception e) {
-                throw new IOException("Writing records to Odps failed.", e);
-            }
-        }
+        pipeline.write(value, context);
     }
 
     @Override
     public void close() throws Exception {
         super.close();
-        synchronized (this) {
-            if (!closed) {
-                closed = true;
-                if (scheduledFuture != null) {
-                    scheduledFuture.cancel(false);
-                    scheduler.shutdown();
-                }
-                if (odpsStreamWrite != null) {
-                    try {
-                        odpsStreamWrite.flush();
-                    } catch (Exception e) {
-                        flushException = e;
-                    }
+        if (!closed) {
+            closed = true;
+            if (scheduledFuture != null) {
+                scheduledFuture.cancel(false);
+            }
+            if (pipeline != null) {
+                try {
+                    pipeline.flush();
+                } finally {
+                    pipeline.close();
                 }
             }
-            checkFlushException();
-        }
-    }
-
-    private void checkFlushException() {
-        if (flushException != null) {
-            throw new RuntimeException("Writing records to Odps failed.", flushException);
         }
     }
 
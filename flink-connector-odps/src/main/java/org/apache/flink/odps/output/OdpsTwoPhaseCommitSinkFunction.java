@@ -0,0 +1,383 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.output;
+
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.tunnel.TableTunnel;
+import com.aliyun.odps.tunnel.TunnelException;
+import org.apache.flink.annotation.Public;
+import org.apache.flink.api.common.functions.RuntimeContext;
+import org.apache.flink.api.common.typeutils.base.VoidSerializer;
+import org.apache.flink.odps.output.stream.PartitionAssigner;
+import org.apache.flink.odps.output.writer.OdpsWrite;
+import org.apache.flink.odps.output.writer.OdpsWriteOptions;
+import org.apache.flink.odps.output.writer.WriterContext;
+import org.apache.flink.odps.output.writer.file.StaticOdpsPartitionWrite;
+import org.apache.flink.odps.util.OdpsConf;
+import org.apache.flink.odps.util.OdpsUtils;
+import org.apache.flink.runtime.state.JavaSerializer;
+import org.apache.flink.streaming.api.functions.sink.TwoPhaseCommitSinkFunction;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.apache.flink.util.Preconditions.checkNotNull;
+
+/**
+ * An exactly-once sink writing the rows of each checkpoint of a subtask into
+ * tunnel upload sessions of its own, one per partition. The blocks are
+ * uploaded when the checkpoint is taken, and the sessions are committed when
+ * the checkpoint completes, so that the rows become visible once. Only the
+ * partition and the id of each session are kept in the checkpointed state.
+ * Sessions of restored transactions are committed again after a failover; a
+ * session whose status shows it was already committed is skipped. Any other
+ * failure is retried and then fails the job, so that no checkpoint is dropped.
+ */
+@Public
+public class OdpsTwoPhaseCommitSinkFunction<T> extends
+        TwoPhaseCommitSinkFunction<T, OdpsTwoPhaseCommitSinkFunction.OdpsTransaction, Void> {
+
+    private static final long serialVersionUID = 1L;
+    private static final Logger LOG = LoggerFactory.getLogger(OdpsTwoPhaseCommitSinkFunction.class);
+
+    /** Tunnel upload sessions expire after 24 hours. */
+    private static final long UPLOAD_SESSION_TIMEOUT = TimeUnit.HOURS.toMillis(24);
+    private static final int COMMIT_MAX_ATTEMPTS = 5;
+    private static final long COMMIT_RETRY_INTERVAL = 1000L;
+
+    private final OdpsConf odpsConf;
+    private final String projectName;
+    private final String tableName;
+    private final String partition;
+    private final boolean isDynamicPartition;
+    private final OdpsWriteOptions writeOptions;
+    private final PartitionAssigner<T> partitionAssigner;
+
+    private transient WriterContext writerContext;
+    private transient long transactionCount;
+    private transient TableTunnel tableTunnel;
+
+    public OdpsTwoPhaseCommitSinkFunction(
+            OdpsConf odpsConf,
+            String projectName,
+            String tableName,
+            String partition,
+            boolean isDynamicPartition,
+            OdpsWriteOptions writeOptions,
+            PartitionAssigner<T> partitionAssigner) {
+        super(new JavaSerializer<>(), VoidSerializer.INSTANCE);
+        if (odpsConf == null) {
+            this.odpsConf = OdpsUtils.getOdpsConf();
+        } else {
+            this.odpsConf = odpsConf;
+        }
+        Preconditions.checkNotNull(this.odpsConf, "odps conf cannot be null");
+        this.projectName = Preconditions.checkNotNull(projectName, "project cannot be null");
+        this.tableName = Preconditions.checkNotNull(tableName, "table cannot be null");
+        this.partition = partition == null ? "" : partition;
+        this.isDynamicPartition = isDynamicPartition;
+        this.writeOptions = writeOptions == null ?
+                OdpsWriteOptions.builder().build() : writeOptions;
+        Preconditions.checkArgument(!isDynamicPartition || partitionAssigner != null,
+                "partition assigner cannot be null with dynamic partition");
+        this.partitionAssigner = partitionAssigner;
+        setTransactionTimeout(UPLOAD_SESSION_TIMEOUT);
+        enableTransactionTimeoutWarnings(0.8);
+        LOG.info("Create odps two phase commit sink, table:{}.{}, partition:{},isDynamicPartition:{},writeOptions:{}",
+                projectName, tableName, partition, isDynamicPartition, writeOptions);
+    }
+
+    @Override
+    protected OdpsTransaction beginTransaction() {
+        RuntimeContext ctx = getRuntimeContext();
+        if (writerContext == null) {
+            writerContext = new WriterContext(partition);
+        }
+        return new OdpsTransaction(ctx.getIndexOfThisSubtask() + "-" + transactionCount++);
+    }
+
+    @Override
+    protected void invoke(OdpsTransaction transaction, T value, Context context) throws Exception {
+        String partitionSpec = partition;
+        if (isDynamicPartition) {
+            writerContext.update(context.timestamp(), context.currentWatermark(), context.currentProcessingTime());
+            partitionSpec = partitionAssigner.getPartitionSpec(value, writerContext);
+        }
+        OdpsWrite<T> writer = transaction.getWriter(partitionSpec);
+        if (writer == null) {
+            writer = openWriter(transaction, partitionSpec);
+        }
+        try {
+            writer.writeRecord(value);
+        } catch (Exception e) {
+            throw new IOException("Writing records to Odps failed.", e);
+        }
+    }
+
+    private OdpsWrite<T> openWriter(OdpsTransaction transaction,
+                                    String partitionSpec) throws IOException {
+        if (transaction.sessionIds.size() >= writeOptions.getDynamicPartitionLimit()) {
+            throw new IOException("Too many dynamic partitions in one checkpoint: "
+                    + transaction.sessionIds.size()
+                    + ", which exceeds the size limit: " + writeOptions.getDynamicPartitionLimit());
+        }
+        RuntimeContext ctx = getRuntimeContext();
+        OdpsWrite<T> writer = createWriter(partitionSpec);
+        writer.initWriteSession();
+        writer.open(ctx.getIndexOfThisSubtask(), ctx.getNumberOfParallelSubtasks());
+        String sessionId = getSessionId(writer);
+        transaction.put(partitionSpec, sessionId, writer);
+        LOG.info("Open odps upload session {} for partition {} in transaction {}",
+                sessionId, partitionSpec, transaction);
+        return writer;
+    }
+
+    @Override
+    protected void preCommit(OdpsTransaction transaction) throws Exception {
+        for (OdpsWrite<?> writer : transaction.getWriters().values()) {
+            writer.close();
+        }
+        LOG.info("Pre-commit transaction {} with {} partitions", transaction, transaction.sessionIds.size());
+    }
+
+    @Override
+    protected void commit(OdpsTransaction transaction) {
+        commitSessions(transaction);
+        LOG.info("Commit transaction {} with {} partitions", transaction, transaction.sessionIds.size());
+    }
+
+    @Override
+    protected void recoverAndCommit(OdpsTransaction transaction) {
+        commitSessions(transaction);
+        LOG.info("Commit recovered transaction {} with {} partitions", transaction, transaction.sessionIds.size());
+    }
+
+    private void commitSessions(OdpsTransaction transaction) {
+        for (Map.Entry<String, String> entry : transaction.sessionIds.entrySet()) {
+            try {
+                commitSession(entry.getKey(), entry.getValue());
+            } catch (IOException e) {
+                throw new FlinkRuntimeException("Failed to commit partition " + entry.getKey()
+                        + " of odps transaction " + transaction, e);
+            }
+        }
+    }
+
+    /**
+     * Commits an upload session unless its status shows that it was already
+     * committed. Errors are retried, and the last one is thrown.
+     */
+    private void commitSession(String partitionSpec, String sessionId) throws IOException {
+        int attemptNum = 1;
+        while (true) {
+            try {
+                TableTunnel.UploadStatus status = getSessionStatus(partitionSpec, sessionId);
+                if (status == TableTunnel.UploadStatus.CLOSED) {
+                    LOG.info("Skip upload session {} of partition {}, which is already committed",
+                            sessionId, partitionSpec);
+                    return;
+                }
+                if (status != TableTunnel.UploadStatus.NORMAL
+                        && status != TableTunnel.UploadStatus.COMMITTING) {
+                    // the rows of an expired or canceled session are lost, retrying cannot help
+                    throw new FlinkRuntimeException("Upload session " + sessionId + " of partition "
+                            + partitionSpec + " cannot be committed, status: " + status);
+                }
+                commitUploadSession(partitionSpec, sessionId);
+                return;
+            } catch (IOException | TunnelException e) {
+                if (attemptNum++ >= COMMIT_MAX_ATTEMPTS) {
+                    throw new IOException("Failed to commit upload session " + sessionId
+                            + " of partition " + partitionSpec + " after retrying", e);
+                }
+                LOG.warn("Failed to commit upload session {} of partition {}, retrying",
+                        sessionId, partitionSpec, e);
+                try {
+                    Thread.sleep(COMMIT_RETRY_INTERVAL);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void abort(OdpsTransaction transaction) {
+        for (OdpsWrite<?> writer : transaction.getWriters().values()) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                LOG.warn("Failed to close writer of aborted transaction {}", transaction, e);
+            }
+        }
+        // uncommitted upload sessions expire on their own
+        LOG.info("Abort transaction {}", transaction);
+    }
+
+    protected OdpsWrite<T> createWriter(String partitionSpec) {
+        return new StaticOdpsPartitionWrite<>(
+                odpsConf,
+                projectName,
+                tableName,
+                partitionSpec,
+                false,
+                writeOptions);
+    }
+
+    protected String getSessionId(OdpsWrite<T> writer) throws IOException {
+        String sessionId = ((StaticOdpsPartitionWrite<T>) writer).getUploadSessionId();
+        if (sessionId == null) {
+            throw new IOException("The exactly-once odps sink requires the tunnel table provider");
+        }
+        return sessionId;
+    }
+
+    protected TableTunnel.UploadStatus getSessionStatus(String partitionSpec, String sessionId)
+            throws IOException, TunnelException {
+        return getUploadSession(partitionSpec, sessionId).getStatus();
+    }
+
+    protected void commitUploadSession(String partitionSpec, String sessionId) throws IOException, TunnelException {
+        getUploadSession(partitionSpec, sessionId).commit();
+    }
+
+    private TableTunnel.UploadSession getUploadSession(String partitionSpec, String sessionId)
+            throws TunnelException {
+        if (tableTunnel == null) {
+            tableTunnel = new TableTunnel(OdpsUtils.getOdps(odpsConf));
+            if (!StringUtils.isNullOrWhitespaceOnly(odpsConf.getTunnelEndpoint())) {
+                tableTunnel.setEndpoint(odpsConf.getTunnelEndpoint());
+            }
+        }
+        if (StringUtils.isNullOrWhitespaceOnly(partitionSpec)) {
+            return tableTunnel.getUploadSession(projectName, tableName, sessionId);
+        } else {
+            return tableTunnel.getUploadSession(projectName, tableName,
+                    new PartitionSpec(partitionSpec), sessionId);
+        }
+    }
+
+    /**
+     * The upload sessions written by one subtask between two checkpoints,
+     * as session ids keyed by partition. The writers of the sessions are
+     * only held until pre-commit and are not part of the state.
+     */
+    public static final class OdpsTransaction implements Serializable {
+
+        private static final long serialVersionUID = 2L;
+
+        private final String transactionId;
+        private final LinkedHashMap<String, String> sessionIds = new LinkedHashMap<>();
+        private transient LinkedHashMap<String, OdpsWrite<?>> writers;
+
+        OdpsTransaction(String transactionId) {
+            this.transactionId = transactionId;
+        }
+
+        void put(String partition, String sessionId, OdpsWrite<?> writer) {
+            sessionIds.put(partition, sessionId);
+            getWriters().put(partition, writer);
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> OdpsWrite<T> getWriter(String partition) {
+            return (OdpsWrite<T>) getWriters().get(partition);
+        }
+
+        private LinkedHashMap<String, OdpsWrite<?>> getWriters() {
+            if (writers == null) {
+                writers = new LinkedHashMap<>();
+            }
+            return writers;
+        }
+
+        public Map<String, String> getSessionIds() {
+            return Collections.unmodifiableMap(sessionIds);
+        }
+
+        @Override
+        public String toString() {
+            return "OdpsTransaction{" + transactionId + '}';
+        }
+    }
+
+    /**
+     * Builder to build {@link OdpsTwoPhaseCommitSinkFunction}.
+     */
+    public static class OdpsTwoPhaseCommitSinkBuilder<T> {
+        private final OdpsConf odpsConf;
+        private final String projectName;
+        private final String tableName;
+        private String partition;
+        private boolean isDynamicPartition;
+        private OdpsWriteOptions writeOptions;
+        private PartitionAssigner<T> partitionAssigner;
+
+        public OdpsTwoPhaseCommitSinkBuilder(OdpsConf odpsConf,
+                                             String projectName,
+                                             String tableName) {
+            this.odpsConf = odpsConf;
+            this.projectName = projectName;
+            this.tableName = tableName;
+        }
+
+        public OdpsTwoPhaseCommitSinkBuilder<T> setPartition(String partition) {
+            this.partition = partition;
+            return this;
+        }
+
+        public OdpsTwoPhaseCommitSinkBuilder<T> setDynamicPartition(boolean dynamicPartition) {
+            this.isDynamicPartition = dynamicPartition;
+            return this;
+        }
+
+        public OdpsTwoPhaseCommitSinkBuilder<T> setWriteOptions(OdpsWriteOptions writeOptions) {
+            this.writeOptions = writeOptions;
+            return this;
+        }
+
+        public OdpsTwoPhaseCommitSinkBuilder<T> setPartitionAssigner(PartitionAssigner<T> partitionAssigner) {
+            this.partitionAssigner = partitionAssigner;
+            return this;
+        }
+
+        public OdpsTwoPhaseCommitSinkFunction<T> build() {
+            checkNotNull(projectName, "projectName should not be null");
+            checkNotNull(tableName, "tableName should not be null");
+            return new OdpsTwoPhaseCommitSinkFunction<>(
+                    odpsConf,
+                    projectName,
+                    tableName,
+                    partition,
+                    isDynamicPartition,
+                    writeOptions,
+                    partitionAssigner);
+        }
+    }
+}
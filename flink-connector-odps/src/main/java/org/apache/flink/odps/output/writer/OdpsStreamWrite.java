@@ -27,4 +27,8 @@ public interface OdpsStreamWrite<T> extends OdpsWrite<T> {
     boolean isIdle();
 
     long getFlushInterval();
+
+    long getBytesWritten();
+
+    long getBufferedBytes();
 }
@@ -32,6 +32,9 @@ public class OdpsWriteOptions implements Serializable {
     private final int dynamicPartitionLimit;
     private final String dynamicPartitionDefaultValue;
     private final String dynamicPartitionAssignerClass;
+    private final boolean exactlyOnce;
+    private final int flushThreads;
+    private final long dynamicPartitionBufferSizeInBytes;
 
     public OdpsWriteOptions(
             long bufferFlushMaxSizeInBytes,
@@ -41,6 +44,49 @@ public class OdpsWriteOptions implements Serializable {
             int dynamicPartitionLimit,
             String dynamicPartitionDefaultValue,
             String dynamicPartitionAssignerClass) {
+        this(bufferFlushMaxSizeInBytes, bufferFlushMaxMutations, bufferFlushIntervalMillis, writeMaxRetries,
+                dynamicPartitionLimit, dynamicPartitionDefaultValue, dynamicPartitionAssignerClass, false);
+    }
+
+    public OdpsWriteOptions(
+            long bufferFlushMaxSizeInBytes,
+            long bufferFlushMaxMutations,
+            long bufferFlushIntervalMillis,
+            int writeMaxRetries,
+            int dynamicPartitionLimit,
+            String dynamicPartitionDefaultValue,
+            String dynamicPartitionAssignerClass,
+            boolean exactlyOnce) {
+        this(bufferFlushMaxSizeInBytes, bufferFlushMaxMutations, bufferFlushIntervalMillis, writeMaxRetries,
+                dynamicPartitionLimit, dynamicPartitionDefaultValue, dynamicPartitionAssignerClass, exactlyOnce, 1);
+    }
+
+    public OdpsWriteOptions(
+            long bufferFlushMaxSizeInBytes,
+            long bufferFlushMaxMutations,
+            long bufferFlushIntervalMillis,
+            int writeMaxRetries,
+            int dynamicPartitionLimit,
+            String dynamicPartitionDefaultValue,
+            String dynamicPartitionAssignerClass,
+            boolean exactlyOnce,
+            int flushThreads) {
+        this(bufferFlushMaxSizeInBytes, bufferFlushMaxMutations, bufferFlushIntervalMillis, writeMaxRetries,
+                dynamicPartitionLimit, dynamicPartitionDefaultValue, dynamicPartitionAssignerClass, exactlyOnce,
+                flushThreads, 64 * 1024L * 1024L);
+    }
+
+    public OdpsWriteOptions(
+            long bufferFlushMaxSizeInBytes,
+            long bufferFlushMaxMutations,
+            long bufferFlushIntervalMillis,
+            int writeMaxRetries,
+            int dynamicPartitionLimit,
+            String dynamicPartitionDefaultValue,
+            String dynamicPartitionAssignerClass,
+            boolean exactlyOnce,
+            int flushThreads,
+            long dynamicPartitionBufferSizeInBytes) {
         this.bufferFlushMaxSizeInBytes = bufferFlushMaxSizeInBytes;
         this.bufferFlushMaxRows = bufferFlushMaxMutations;
         this.bufferFlushIntervalMillis = bufferFlushIntervalMillis;
@@ -48,6 +94,9 @@ public class OdpsWriteOptions implements Serializable {
         this.dynamicPartitionLimit = dynamicPartitionLimit;
         this.dynamicPartitionDefaultValue = dynamicPartitionDefaultValue;
         this.dynamicPartitionAssignerClass = dynamicPartitionAssignerClass;
+        this.exactlyOnce = exactlyOnce;
+        this.flushThreads = flushThreads;
+        this.dynamicPartitionBufferSizeInBytes = dynamicPartitionBufferSizeInBytes;
     }
 
     public long getBufferFlushMaxSizeInBytes() {
@@ -78,6 +127,18 @@ public class OdpsWriteOptions implements Serializable {
         return dynamicPartitionAssignerClass;
     }
 
+    public boolean isExactlyOnce() {
+        return exactlyOnce;
+    }
+
+    public int getFlushThreads() {
+        return flushThreads;
+    }
+
+    public long getDynamicPartitionBufferSizeInBytes() {
+        return dynamicPartitionBufferSizeInBytes;
+    }
+
     @Override
     public String toString() {
         return "OdpsWriteOptions{"
@@ -95,6 +156,12 @@ public class OdpsWriteOptions implements Serializable {
                 + dynamicPartitionDefaultValue
                 + ", dynamicPartitionAssignerClass="
                 + dynamicPartitionAssignerClass
+                + ", exactlyOnce="
+                + exactlyOnce
+                + ", flushThreads="
+                + flushThreads
+                + ", dynamicPartitionBufferSizeInBytes="
+                + dynamicPartitionBufferSizeInBytes
                 + '}';
     }
 
@@ -113,7 +180,10 @@ public class OdpsWriteOptions implements Serializable {
                 && writeMaxRetries == that.writeMaxRetries
                 && dynamicPartitionLimit == that.dynamicPartitionLimit
                 && Objects.equals(dynamicPartitionDefaultValue, that.dynamicPartitionDefaultValue)
-                && Objects.equals(dynamicPartitionAssignerClass, that.dynamicPartitionAssignerClass);
+                && Objects.equals(dynamicPartitionAssignerClass, that.dynamicPartitionAssignerClass)
+                && exactlyOnce == that.exactlyOnce
+                && flushThreads == that.flushThreads
+                && dynamicPartitionBufferSizeInBytes == that.dynamicPartitionBufferSizeInBytes;
     }
 
     @Override
@@ -125,7 +195,10 @@ public class OdpsWriteOptions implements Serializable {
                 writeMaxRetries,
                 dynamicPartitionLimit,
                 dynamicPartitionDefaultValue,
-                dynamicPartitionAssignerClass);
+                dynamicPartitionAssignerClass,
+                exactlyOnce,
+                flushThreads,
+                dynamicPartitionBufferSizeInBytes);
     }
 
     /** Creates a builder for {@link OdpsWriteOptions}. */
@@ -143,6 +216,9 @@ public class OdpsWriteOptions implements Serializable {
         private int dynamicPartitionLimit = 20;
         private String dynamicPartitionDefaultValue;
         private String dynamicPartitionAssignerClass;
+        private boolean exactlyOnce = false;
+        private int flushThreads = 1;
+        private long dynamicPartitionBufferSizeInBytes = 64 * 1024L * 1024L;
 
         public Builder setBufferFlushMaxSizeInBytes(long bufferFlushMaxSizeInBytes) {
             this.bufferFlushMaxSizeInBytes = bufferFlushMaxSizeInBytes;
@@ -179,6 +255,33 @@ public class OdpsWriteOptions implements Serializable {
             return this;
         }
 
+        /**
+         * Writes the rows of each checkpoint in tunnel upload sessions which are
+         * committed when the checkpoint completes, instead of streaming them.
+         */
+        public Builder setExactlyOnce(boolean exactlyOnce) {
+            this.exactlyOnce = exactlyOnce;
+            return this;
+        }
+
+        /**
+         * Number of background threads which convert the buffered rows of a streaming sink
+         * subtask and flush them to Odps, each one through its own tunnel writer.
+         */
+        public Builder setFlushThreads(int flushThreads) {
+            this.flushThreads = flushThreads;
+            return this;
+        }
+
+        /**
+         * Maximum size of the rows buffered by the dynamic partition writers of a streaming
+         * sink subtask, the least recently used writers are flushed and closed beyond it.
+         */
+        public Builder setDynamicPartitionBufferSizeInBytes(long dynamicPartitionBufferSizeInBytes) {
+            this.dynamicPartitionBufferSizeInBytes = dynamicPartitionBufferSizeInBytes;
+            return this;
+        }
+
         /** Creates a new instance of {@link OdpsWriteOptions}. */
         public OdpsWriteOptions build() {
             return new OdpsWriteOptions(
@@ -188,7 +291,10 @@ public class OdpsWriteOptions implements Serializable {
                     writeMaxRetries,
                     dynamicPartitionLimit,
                     dynamicPartitionDefaultValue,
-                    dynamicPartitionAssignerClass);
+                    dynamicPartitionAssignerClass,
+                    exactlyOnce,
+                    flushThreads,
+                    dynamicPartitionBufferSizeInBytes);
         }
     }
 }
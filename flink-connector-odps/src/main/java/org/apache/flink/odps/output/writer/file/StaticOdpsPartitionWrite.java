@@ -20,6 +20,7 @@ package org.apache.flink.odps.output.writer.file;
 
 import com.aliyun.odps.Column;
 import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.cupid.table.v1.tunnel.impl.TunnelWriteSessionInfo;
 import com.aliyun.odps.cupid.table.v1.util.Options;
 import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
 import com.aliyun.odps.cupid.table.v1.writer.FileWriterBuilder;
@@ -136,6 +137,16 @@ public class StaticOdpsPartitionWrite<T> extends OdpsTableWrite<T> {
         }
     }
 
+    /**
+     * @return the id of the tunnel upload session, or null with other table providers
+     */
+    public String getUploadSessionId() {
+        if (writeSessionInfo instanceof TunnelWriteSessionInfo) {
+            return ((TunnelWriteSessionInfo) writeSessionInfo).getUploadId();
+        }
+        return null;
+    }
+
     @Override
     public void commitWriteSession() throws IOException {
         rebuildWriteSession();
@@ -29,21 +29,40 @@ import org.apache.flink.odps.output.writer.OdpsWriteOptions;
 import org.apache.flink.odps.util.OdpsConf;
 import org.apache.flink.odps.util.OdpsUtils;
 import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.apache.flink.odps.util.OdpsUtils.getPartitionComputer;
 
+/**
+ * Writes records to the partitions assigned by a {@link PartitionAssigner}, one stream
+ * writer per partition.
+ *
+ * <p>The partitions are created and the writers opened on background threads, the records
+ * of a partition are buffered until its writer is ready. The writers are kept in an
+ * {@link OdpsPartitionWriterCache}, the least recently used ones are flushed and closed when
+ * more than {@link OdpsWriteOptions#getDynamicPartitionLimit()} writers are open or when the
+ * rows buffered by all the writers exceed {@link OdpsWriteOptions#getDynamicPartitionBufferSizeInBytes()}.
+ */
 public class DynamicOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
         implements OdpsStreamWrite<T> {
 
     private static final Logger LOG = LoggerFactory.getLogger(DynamicOdpsPartitionStreamWrite.class);
+
+    private static final int SESSION_CREATION_THREADS = 4;
+    private static final int DEFAULT_PENDING_ROWS = 1000;
+
     private final PartitionAssigner<T> partitionAssigner;
-    private final transient Map<String, OdpsStreamWrite<T>> odpsPartitionWriterMap;
+    private transient ExecutorService sessionExecutor;
+    private transient OdpsPartitionCreator partitionCreator;
+    private transient OdpsPartitionWriterCache<T> writerCache;
     private int taskNumber;
     private int numTasks;
 
@@ -57,7 +76,6 @@ public class DynamicOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
         this.partitionAssigner = partitionAssigner == null ?
                 new TablePartitionAssigner<>(getPartitionComputer(getTableSchema(), staticPartition)) :
                 partitionAssigner;
-        this.odpsPartitionWriterMap = new HashMap<>();
     }
 
     @Override
@@ -74,40 +92,53 @@ public class DynamicOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
     public void open(int taskNumber, int numTasks) throws IOException {
         this.taskNumber = taskNumber;
         this.numTasks = numTasks;
+        this.sessionExecutor = Executors.newFixedThreadPool(
+                SESSION_CREATION_THREADS, new ExecutorThreadFactory("odps-partition-writer"));
+        this.partitionCreator = new OdpsPartitionCreator(
+                getOdps(), getTableMetaProvider().getTable(projectName, tableName), projectName, tableName);
+        this.writerCache = new OdpsPartitionWriterCache<>(
+                writeOptions.getDynamicPartitionLimit(),
+                writeOptions.getDynamicPartitionBufferSizeInBytes(),
+                writeOptions.getBufferFlushMaxRows() > 0 ?
+                        writeOptions.getBufferFlushMaxRows() : DEFAULT_PENDING_ROWS,
+                this::openSingleOdpsPartitionWriter);
     }
 
     @Override
     public void close() throws IOException {
-        flush();
+        try {
+            if (writerCache != null) {
+                writerCache.close();
+            }
+        } finally {
+            if (sessionExecutor != null) {
+                sessionExecutor.shutdownNow();
+            }
+            if (partitionCreator != null) {
+                partitionCreator.close();
+            }
+        }
     }
 
     @Override
     public void writeRecord(T record) throws IOException {
         String partition = this.partitionAssigner.getPartitionSpec(record, writerContext);
-        OdpsStreamWrite<T> singleOdpsPartitionWriter = odpsPartitionWriterMap.get(partition);
-        if (singleOdpsPartitionWriter == null) {
-            singleOdpsPartitionWriter = createSingleOdpsPartitionWriter(partition);
-        }
-        singleOdpsPartitionWriter.writeRecord(record);
+        writerCache.write(partition, record);
+    }
+
+    private CompletableFuture<OdpsStreamWrite<T>> openSingleOdpsPartitionWriter(String partition) {
+        return partitionCreator.create(partition).thenApplyAsync(
+                ignored -> {
+                    try {
+                        return createSingleOdpsPartitionWriter(partition);
+                    } catch (IOException e) {
+                        throw new CompletionException(e);
+                    }
+                },
+                sessionExecutor);
     }
 
     private OdpsStreamWrite<T> createSingleOdpsPartitionWriter(String partition) throws IOException {
-        if (odpsPartitionWriterMap.size() >= writeOptions.getDynamicPartitionLimit()) {
-            String partKey = null;
-            long idleTime = 0L;
-            for (Map.Entry<String, OdpsStreamWrite<T>> odpsWriterEntry : odpsPartitionWriterMap.entrySet()) {
-                if (odpsWriterEntry.getValue().isIdle() && odpsWriterEntry.getValue().getFlushInterval() > idleTime) {
-                    idleTime = odpsWriterEntry.getValue().getFlushInterval();
-                    partKey = odpsWriterEntry.getKey();
-                }
-            }
-            if (partKey == null) {
-                throw new IOException("Too many dynamic partitions: "
-                        + odpsPartitionWriterMap.size()
-                        + ", which exceeds the size limit: " + writeOptions.getDynamicPartitionLimit());
-            }
-            this.odpsPartitionWriterMap.remove(partKey);
-        }
         OdpsStreamWrite<T> singleOdpsPartitionWriter = OdpsWriteFactory.createOdpsStreamWrite(
                 odpsConf,
                 projectName,
@@ -119,27 +150,20 @@ public class DynamicOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
                 null);
         singleOdpsPartitionWriter.initWriteSession();
         singleOdpsPartitionWriter.open(taskNumber, numTasks);
-        this.odpsPartitionWriterMap.put(partition, singleOdpsPartitionWriter);
-        LOG.info("Create new odps writer for dynamic partitions");
+        LOG.info("Create new odps writer for dynamic partition {}", partition);
         return singleOdpsPartitionWriter;
     }
 
     @Override
     public void flush() throws IOException {
-        for (Map.Entry<String, OdpsStreamWrite<T>> odpsWriterEntry :
-                odpsPartitionWriterMap.entrySet()) {
-            odpsWriterEntry.getValue().flush();
+        if (writerCache != null) {
+            writerCache.flush();
         }
     }
 
     @Override
     public boolean isIdle() {
-        for (Map.Entry<String, OdpsStreamWrite<T>> odpsWriterEntry : odpsPartitionWriterMap.entrySet()) {
-            if (!odpsWriterEntry.getValue().isIdle()) {
-                return false;
-            }
-        }
-        return true;
+        return writerCache == null || writerCache.isIdle();
     }
 
     @Override
@@ -147,6 +171,16 @@ public class DynamicOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
         throw new UnsupportedOperationException("Dynamic odps partition writer not support get flush interval");
     }
 
+    @Override
+    public long getBytesWritten() {
+        return writerCache == null ? 0L : writerCache.getBytesWritten();
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        return writerCache == null ? 0L : writerCache.getBufferedBytes();
+    }
+
     @Override
     protected void checkPartition(String partitionSpec) throws IOException {
         try {
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.output.writer.stream;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.OdpsException;
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.Table;
+import com.aliyun.odps.task.SQLTask;
+import org.apache.flink.odps.util.OdpsUtils;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Creates the partitions of a table on a background thread. The partitions requested
+ * while a creation runs are created together by a single DDL statement, or one by one
+ * if it fails. A partition which could not be created alone is left out of the later
+ * statements of the others.
+ */
+class OdpsPartitionCreator implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OdpsPartitionCreator.class);
+
+    private static final int DDL_BATCH_SIZE = 100;
+
+    private final Odps odps;
+    private final Table table;
+    private final String projectName;
+    private final String tableName;
+    private final ExecutorService executor;
+    private final Queue<Request> queue = new ConcurrentLinkedQueue<>();
+    private final Set<String> created = ConcurrentHashMap.newKeySet();
+    // accessed by the creation thread only
+    private final Set<String> failed = new HashSet<>();
+
+    OdpsPartitionCreator(Odps odps, Table table, String projectName, String tableName) {
+        this.odps = odps;
+        this.table = table;
+        this.projectName = projectName;
+        this.tableName = tableName;
+        this.executor = Executors.newSingleThreadExecutor(
+                new ExecutorThreadFactory("odps-partition-creator"));
+    }
+
+    /**
+     * Requests the creation of partition. The future always completes normally, the
+     * writer of a partition which could not be created retries the creation itself.
+     */
+    CompletableFuture<Void> create(String partition) {
+        if (created.contains(partition)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Request request = new Request(partition);
+        queue.add(request);
+        executor.execute(this::createQueued);
+        return request.future;
+    }
+
+    private void createQueued() {
+        List<Request> batch = new ArrayList<>();
+        Request request;
+        while (true) {
+            while (batch.size() < DDL_BATCH_SIZE && (request = queue.poll()) != null) {
+                batch.add(request);
+            }
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                createMissing(batch);
+            } finally {
+                for (Request created : batch) {
+                    created.future.complete(null);
+                }
+                batch.clear();
+            }
+        }
+    }
+
+    private void createMissing(List<Request> batch) {
+        List<String> missing = new ArrayList<>();
+        List<String> failing = new ArrayList<>();
+        for (Request request : batch) {
+            String partition = request.partition;
+            if (created.contains(partition) || missing.contains(partition) || failing.contains(partition)) {
+                continue;
+            }
+            if (exists(partition)) {
+                created.add(partition);
+            } else if (failed.contains(partition)) {
+                failing.add(partition);
+            } else {
+                missing.add(partition);
+            }
+        }
+        if (missing.size() > 1) {
+            try {
+                runSql(createPartitionsSql(missing));
+                created.addAll(missing);
+                LOG.info("Create {} partitions of {}.{}", missing.size(), projectName, tableName);
+                missing.clear();
+            } catch (Exception e) {
+                LOG.warn("Fail to create " + missing.size() + " partitions of "
+                        + projectName + "." + tableName + " in one statement, create them one by one", e);
+            }
+        }
+        missing.addAll(failing);
+        for (String partition : missing) {
+            createAlone(partition);
+        }
+    }
+
+    /**
+     * Creates a single partition. A partition that fails is created alone from then on, so
+     * that it does not fail the statements of the other partitions.
+     */
+    private void createAlone(String partition) {
+        try {
+            runSql(createPartitionsSql(Collections.singletonList(partition)));
+            created.add(partition);
+            failed.remove(partition);
+        } catch (Exception e) {
+            if (failed.add(partition)) {
+                LOG.warn("Fail to create partition " + partition + " of " + projectName + "." + tableName, e);
+            } else {
+                LOG.debug("Fail to create partition {} of {}.{} again", partition, projectName, tableName, e);
+            }
+        }
+    }
+
+    private String createPartitionsSql(List<String> partitions) {
+        StringBuilder sql = new StringBuilder();
+        sql.append("ALTER TABLE ").append(projectName).append('.').append(tableName)
+                .append(" ADD IF NOT EXISTS");
+        for (String partition : partitions) {
+            sql.append(' ').append(OdpsUtils.generatePartitionClause(new PartitionSpec(partition)));
+        }
+        return sql.append(';').toString();
+    }
+
+    /** Whether partition exists, false if it cannot be told. */
+    protected boolean exists(String partition) {
+        try {
+            return table.hasPartition(new PartitionSpec(partition));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    protected void runSql(String sql) throws OdpsException {
+        SQLTask.run(odps, sql).waitForSuccess();
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private static final class Request {
+
+        private final String partition;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        private Request(String partition) {
+            this.partition = partition;
+        }
+    }
+}
@@ -0,0 +1,267 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.output.writer.stream;
+
+import org.apache.flink.odps.output.writer.OdpsStreamWrite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Function;
+
+/**
+ * The stream writers of the partitions written by a {@link DynamicOdpsPartitionStreamWrite},
+ * in LRU order.
+ *
+ * <p>The writers are opened asynchronously by the writer factory, the records of a partition
+ * are kept pending until its writer is ready. The least recently used writers are flushed and
+ * closed when more than {@code maxWriters} writers are open or when the bytes buffered by the
+ * writers, pending records included, exceed {@code maxBufferedBytes}.
+ */
+public class OdpsPartitionWriterCache<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OdpsPartitionWriterCache.class);
+
+    /** The estimated size of a pending record before any record was written. */
+    private static final long DEFAULT_RECORD_BYTES = 1024L;
+
+    private final int maxWriters;
+    private final long maxBufferedBytes;
+    private final long maxPendingRows;
+    private final Function<String, CompletableFuture<OdpsStreamWrite<T>>> writerFactory;
+    private final Map<String, PartitionWriter> writers = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long bufferedBytes;
+    private long closedBytesWritten;
+    private long sampledBytes;
+    private long sampledRecords;
+
+    public OdpsPartitionWriterCache(int maxWriters,
+                                    long maxBufferedBytes,
+                                    long maxPendingRows,
+                                    Function<String, CompletableFuture<OdpsStreamWrite<T>>> writerFactory) {
+        this.maxWriters = Math.max(maxWriters, 1);
+        this.maxBufferedBytes = maxBufferedBytes;
+        this.maxPendingRows = maxPendingRows;
+        this.writerFactory = writerFactory;
+    }
+
+    public void write(String partition, T record) throws IOException {
+        PartitionWriter partitionWriter = writers.get(partition);
+        if (partitionWriter == null) {
+            partitionWriter = new PartitionWriter(partition, writerFactory.apply(partition));
+            writers.put(partition, partitionWriter);
+            if (writers.size() > maxWriters) {
+                evictEldest();
+            }
+        }
+        partitionWriter.write(record);
+        if (maxBufferedBytes > 0 && bufferedBytes > maxBufferedBytes) {
+            evictUntil(partitionWriter);
+        }
+    }
+
+    public void flush() throws IOException {
+        for (PartitionWriter partitionWriter : writers.values()) {
+            partitionWriter.flush();
+        }
+    }
+
+    /** Closes all the writers, the cache stays usable and reopens the writers on demand. */
+    public void close() throws IOException {
+        IOException exception = null;
+        Iterator<PartitionWriter> iterator = writers.values().iterator();
+        while (iterator.hasNext()) {
+            PartitionWriter partitionWriter = iterator.next();
+            iterator.remove();
+            try {
+                partitionWriter.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    public boolean isIdle() {
+        for (PartitionWriter partitionWriter : writers.values()) {
+            if (!partitionWriter.isIdle()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long getBytesWritten() {
+        long bytesWritten = closedBytesWritten;
+        for (PartitionWriter partitionWriter : writers.values()) {
+            if (partitionWriter.writer != null) {
+                bytesWritten += partitionWriter.writer.getBytesWritten();
+            }
+        }
+        return bytesWritten;
+    }
+
+    /** The bytes buffered by the open writers plus the estimated bytes of the pending records. */
+    public long getBufferedBytes() {
+        return bufferedBytes;
+    }
+
+    /** The partitions of the open writers, the least recently used first. */
+    public List<String> getPartitions() {
+        return new ArrayList<>(writers.keySet());
+    }
+
+    private void evictEldest() throws IOException {
+        Iterator<PartitionWriter> iterator = writers.values().iterator();
+        PartitionWriter eldest = iterator.next();
+        iterator.remove();
+        evict(eldest);
+    }
+
+    private void evictUntil(PartitionWriter current) throws IOException {
+        Iterator<PartitionWriter> iterator = writers.values().iterator();
+        while (bufferedBytes > maxBufferedBytes && iterator.hasNext()) {
+            PartitionWriter partitionWriter = iterator.next();
+            if (partitionWriter != current) {
+                iterator.remove();
+                evict(partitionWriter);
+            }
+        }
+    }
+
+    private void evict(PartitionWriter partitionWriter) throws IOException {
+        partitionWriter.close();
+        LOG.info("Close odps writer of partition {}, {} writers open, {} bytes buffered",
+                partitionWriter.partition, writers.size(), bufferedBytes);
+    }
+
+    private long estimateRecordBytes() {
+        return sampledRecords == 0 ? DEFAULT_RECORD_BYTES : sampledBytes / sampledRecords;
+    }
+
+    /** The writer of a partition, with the records received before it was opened. */
+    private final class PartitionWriter {
+
+        private final String partition;
+        private final CompletableFuture<OdpsStreamWrite<T>> future;
+        private List<T> pendingRecords = new ArrayList<>();
+        private long pendingBytes;
+        private OdpsStreamWrite<T> writer;
+        private long writerBufferedBytes;
+
+        private PartitionWriter(String partition, CompletableFuture<OdpsStreamWrite<T>> future) {
+            this.partition = partition;
+            this.future = future;
+        }
+
+        private void write(T record) throws IOException {
+            if (writer == null) {
+                if (!future.isDone() && pendingRecords.size() < maxPendingRows) {
+                    long recordBytes = estimateRecordBytes();
+                    pendingRecords.add(record);
+                    pendingBytes += recordBytes;
+                    bufferedBytes += recordBytes;
+                    return;
+                }
+                awaitWriter();
+            }
+            writer.writeRecord(record);
+            long written = updateBufferedBytes();
+            if (written > 0) {
+                sampledBytes += written;
+                sampledRecords++;
+            }
+        }
+
+        /** Waits for the writer to be opened and writes the pending records to it. */
+        private void awaitWriter() throws IOException {
+            if (writer != null) {
+                return;
+            }
+            try {
+                writer = future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while opening odps writer of partition " + partition);
+            } catch (ExecutionException e) {
+                throw new IOException("Fail to open odps writer of partition " + partition, e.getCause());
+            }
+            List<T> records = pendingRecords;
+            pendingRecords = null;
+            bufferedBytes -= pendingBytes;
+            pendingBytes = 0;
+            for (T pending : records) {
+                writer.writeRecord(pending);
+            }
+            updateBufferedBytes();
+        }
+
+        private void flush() throws IOException {
+            awaitWriter();
+            writer.flush();
+            updateBufferedBytes();
+        }
+
+        /** Flushes the writer and closes it, which releases its upload session. */
+        private void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                bufferedBytes -= pendingBytes + writerBufferedBytes;
+                pendingBytes = 0;
+                writerBufferedBytes = 0;
+                if (writer != null) {
+                    try {
+                        writer.close();
+                    } finally {
+                        closedBytesWritten += writer.getBytesWritten();
+                    }
+                }
+            }
+        }
+
+        private boolean isIdle() {
+            return writer == null ? pendingRecords.isEmpty() : writer.isIdle();
+        }
+
+        /** Updates the buffered bytes from the writer, returns the bytes it buffered since. */
+        private long updateBufferedBytes() {
+            long current = writer.getBufferedBytes();
+            long delta = current - writerBufferedBytes;
+            bufferedBytes += delta;
+            writerBufferedBytes = current;
+            return delta;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.output.writer.stream;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.metrics.Counter;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.Histogram;
+import org.apache.flink.metrics.MeterView;
+import org.apache.flink.metrics.MetricGroup;
+import org.apache.flink.odps.output.writer.OdpsStreamWrite;
+import org.apache.flink.odps.output.writer.OdpsWriteOptions;
+import org.apache.flink.runtime.metrics.DescriptiveStatisticsHistogram;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.util.Preconditions;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Write pipeline of a streaming sink subtask. The task thread appends records to a
+ * batch without taking any lock, and hands the full batch over to one of the flusher
+ * threads while it fills a recycled one. Each flusher owns an {@link OdpsStreamWrite}
+ * which converts the records and flushes them to Odps, so serialization and network
+ * I/O overlap with the ingestion of new records.
+ *
+ * <p>The estimated bytes of the batches handed over but not written yet are bounded,
+ * the task thread blocks once they exceed the limit. All the methods but
+ * {@link #checkFailure} must be called from the task thread.
+ */
+public class OdpsStreamWritePipeline<T> implements Closeable {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OdpsStreamWritePipeline.class);
+
+    private static final int DEFAULT_BATCH_ROWS = 1000;
+    private static final int MAX_BATCH_ROWS = 8192;
+    private static final long WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final int LATENCY_WINDOW_SIZE = 1024;
+
+    private final List<Flusher> flushers;
+    private final BlockingQueue<RecordBatch<T>> freeBatches;
+    private final int batchRows;
+    private final long maxOutstandingBytes;
+    @Nullable
+    private final TypeSerializer<T> serializer;
+
+    private final AtomicLong outstandingBytes = new AtomicLong();
+    private final AtomicInteger queuedBatches = new AtomicInteger();
+    private final AtomicLong recordsWritten = new AtomicLong();
+    private final AtomicCounter bytesWritten = new AtomicCounter();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private volatile Thread blockedThread;
+
+    private RecordBatch<T> activeBatch;
+    private int nextFlusher;
+    private Counter backPressureTimeCounter;
+    private Histogram writeLatencyHistogram;
+    private Histogram flushLatencyHistogram;
+
+    /**
+     * Creates a pipeline with one flusher per writer. The writers must be opened, and
+     * serializer, if not null, copies the records which the caller may reuse.
+     */
+    public OdpsStreamWritePipeline(
+            List<OdpsStreamWrite<T>> writers,
+            OdpsWriteOptions writeOptions,
+            @Nullable TypeSerializer<T> serializer) {
+        Preconditions.checkArgument(!writers.isEmpty(), "At least one writer is required");
+        this.serializer = serializer;
+        long maxRows = writeOptions.getBufferFlushMaxRows();
+        this.batchRows = maxRows > 0 ? (int) Math.min(maxRows, MAX_BATCH_ROWS) : DEFAULT_BATCH_ROWS;
+        // Every flusher may write one batch while another one waits in its queue.
+        this.maxOutstandingBytes = 2L * writers.size() * writeOptions.getBufferFlushMaxSizeInBytes();
+        this.freeBatches = new ArrayBlockingQueue<>(2 * writers.size() + 1);
+        for (int i = 0; i < 2 * writers.size() + 1; i++) {
+            freeBatches.add(new RecordBatch<>(batchRows));
+        }
+        this.flushers = new ArrayList<>(writers.size());
+        for (OdpsStreamWrite<T> writer : writers) {
+            flushers.add(new Flusher(writer));
+        }
+    }
+
+    /**
+     * Registers the pipeline metrics on metricGroup, may be null when the sink runs
+     * outside of a task, and starts the flusher threads.
+     */
+    public void open(@Nullable MetricGroup metricGroup) {
+        if (metricGroup != null) {
+            backPressureTimeCounter = metricGroup.counter("sinkBackPressureTimeMs");
+            metricGroup.gauge("sinkQueueDepth", (Gauge<Integer>) queuedBatches::get);
+            metricGroup.gauge("sinkOutstandingBytes", (Gauge<Long>) outstandingBytes::get);
+            metricGroup.meter("sinkBytesPerSecond", new MeterView(bytesWritten));
+            writeLatencyHistogram = metricGroup.histogram("sinkWriteLatencyMs",
+                    new DescriptiveStatisticsHistogram(LATENCY_WINDOW_SIZE));
+            flushLatencyHistogram = metricGroup.histogram("sinkFlushLatencyMs",
+                    new DescriptiveStatisticsHistogram(LATENCY_WINDOW_SIZE));
+        }
+        ThreadFactory threadFactory = new ExecutorThreadFactory("odps-sink-flusher");
+        for (Flusher flusher : flushers) {
+            flusher.thread = threadFactory.newThread(flusher);
+            flusher.thread.start();
+        }
+        LOG.info("Open odps write pipeline with {} flushers, batch rows: {}, max outstanding bytes: {}",
+                flushers.size(), batchRows, maxOutstandingBytes);
+    }
+
+    /** Appends the record, handing the batch over when it is full. */
+    public void write(T record, SinkFunction.Context context) throws IOException {
+        checkFailure();
+        if (activeBatch == null) {
+            activeBatch = takeFreeBatch();
+        }
+        activeBatch.add(serializer == null ? record : serializer.copy(record), context);
+        if (activeBatch.size >= batchRows) {
+            handOver();
+        }
+    }
+
+    /** Hands the records appended so far over to the next flusher. */
+    public void handOver() throws IOException {
+        if (activeBatch == null || activeBatch.size == 0) {
+            return;
+        }
+        waitForOutstandingBytes();
+        RecordBatch<T> batch = activeBatch;
+        activeBatch = null;
+        batch.estimatedBytes = estimateBytes(batch.size);
+        outstandingBytes.addAndGet(batch.estimatedBytes);
+        queuedBatches.incrementAndGet();
+        flushers.get(nextFlusher).queue.add(new Request<>(batch, null));
+        nextFlusher = (nextFlusher + 1) % flushers.size();
+    }
+
+    /**
+     * Hands the appended records over and asks the flushers to flush them to Odps,
+     * without waiting for them.
+     */
+    public void triggerFlush() throws IOException {
+        requestFlush();
+    }
+
+    /** Writes all the appended records and flushes them to Odps. */
+    public void flush() throws IOException {
+        List<CompletableFuture<Void>> futures = requestFlush();
+        try {
+            for (CompletableFuture<Void> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while flushing records to Odps.");
+        } catch (ExecutionException e) {
+            throw new IOException("Writing records to Odps failed.", e.getCause());
+        }
+        checkFailure();
+    }
+
+    /**
+     * Stops the flushers and throws the failure of a flusher, if any. Records which
+     * were not flushed are dropped, call {@link #flush} first to keep them.
+     */
+    @Override
+    public void close() throws IOException {
+        for (Flusher flusher : flushers) {
+            flusher.queue.add(new Request<>(null, null));
+        }
+        try {
+            for (Flusher flusher : flushers) {
+                if (flusher.thread != null) {
+                    flusher.thread.join();
+                }
+            }
+        } catch (InterruptedException e) {
+            for (Flusher flusher : flushers) {
+                if (flusher.thread != null) {
+                    flusher.thread.interrupt();
+                }
+            }
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while stopping the odps sink flushers.");
+        }
+        checkFailure();
+    }
+
+    private List<CompletableFuture<Void>> requestFlush() throws IOException {
+        handOver();
+        List<CompletableFuture<Void>> futures = new ArrayList<>(flushers.size());
+        for (Flusher flusher : flushers) {
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            flusher.queue.add(new Request<>(null, future));
+            futures.add(future);
+        }
+        return futures;
+    }
+
+    public void checkFailure() throws IOException {
+        Throwable throwable = failure.get();
+        if (throwable != null) {
+            throw new IOException("Writing records to Odps failed.", throwable);
+        }
+    }
+
+    private RecordBatch<T> takeFreeBatch() throws IOException {
+        RecordBatch<T> batch = freeBatches.poll();
+        if (batch != null) {
+            return batch;
+        }
+        long start = System.nanoTime();
+        try {
+            while ((batch = freeBatches.poll(WAIT_NANOS, TimeUnit.NANOSECONDS)) == null) {
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the odps sink flushers.");
+        }
+        updateBackPressureTime(start);
+        return batch;
+    }
+
+    private void waitForOutstandingBytes() throws IOException {
+        if (maxOutstandingBytes <= 0 || outstandingBytes.get() < maxOutstandingBytes) {
+            return;
+        }
+        long start = System.nanoTime();
+        blockedThread = Thread.currentThread();
+        try {
+            while (outstandingBytes.get() >= maxOutstandingBytes) {
+                checkFailure();
+                LockSupport.parkNanos(this, WAIT_NANOS);
+                if (Thread.interrupted()) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while waiting for the odps sink flushers.");
+                }
+            }
+        } finally {
+            blockedThread = null;
+        }
+        updateBackPressureTime(start);
+    }
+
+    private void updateBackPressureTime(long start) {
+        if (backPressureTimeCounter != null) {
+            backPressureTimeCounter.inc(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        }
+    }
+
+    /** Estimates the bytes of the rows from the bytes the flushers wrote so far. */
+    private long estimateBytes(int rows) {
+        long records = recordsWritten.get();
+        return records == 0 ? 0 : rows * bytesWritten.getCount() / records;
+    }
+
+    private void fail(Throwable throwable) {
+        if (failure.compareAndSet(null, throwable)) {
+            LOG.error("Writing records to Odps failed.", throwable);
+        }
+    }
+
+    private static void updateLatency(@Nullable Histogram histogram, long start) {
+        if (histogram != null) {
+            synchronized (histogram) {
+                histogram.update(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+        }
+    }
+
+    private final class Flusher implements Runnable {
+
+        private final OdpsStreamWrite<T> writer;
+        private final BlockingQueue<Request<T>> queue = new LinkedBlockingQueue<>();
+        private final ReplayContext context = new ReplayContext();
+        private Thread thread;
+        private long lastBytesWritten;
+
+        private Flusher(OdpsStreamWrite<T> writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Request<T> request = queue.take();
+                    if (request.batch != null) {
+                        write(request.batch);
+                    } else if (request.flushed != null) {
+                        flush(request.flushed);
+                    } else {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void write(RecordBatch<T> batch) {
+            try {
+                if (failure.get() == null) {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < batch.size; i++) {
+                        context.update(batch, i);
+                        writer.updateWriteContext(context);
+                        writer.writeRecord(batch.get(i));
+                    }
+                    recordsWritten.addAndGet(batch.size);
+                    updateBytesWritten();
+                    updateLatency(writeLatencyHistogram, start);
+                }
+            } catch (Throwable t) {
+                fail(t);
+            } finally {
+                outstandingBytes.addAndGet(-batch.estimatedBytes);
+                queuedBatches.decrementAndGet();
+                batch.clear();
+                freeBatches.add(batch);
+                Thread blocked = blockedThread;
+                if (blocked != null) {
+                    LockSupport.unpark(blocked);
+                }
+            }
+        }
+
+        private void flush(CompletableFuture<Void> flushed) {
+            Throwable throwable = failure.get();
+            if (throwable != null) {
+                flushed.completeExceptionally(throwable);
+                return;
+            }
+            try {
+                long start = System.nanoTime();
+                writer.flush();
+                updateBytesWritten();
+                updateLatency(flushLatencyHistogram, start);
+                flushed.complete(null);
+            } catch (Throwable t) {
+                fail(t);
+                flushed.completeExceptionally(t);
+            }
+        }
+
+        private void updateBytesWritten() {
+            long current = writer.getBytesWritten();
+            bytesWritten.inc(current - lastBytesWritten);
+            lastBytesWritten = current;
+        }
+    }
+
+    private static final class Request<T> {
+
+        @Nullable
+        private final RecordBatch<T> batch;
+        @Nullable
+        private final CompletableFuture<Void> flushed;
+
+        private Request(@Nullable RecordBatch<T> batch, @Nullable CompletableFuture<Void> flushed) {
+            this.batch = batch;
+            this.flushed = flushed;
+        }
+    }
+
+    /** Records with the sink context they were received with. */
+    private static final class RecordBatch<T> {
+
+        private final Object[] records;
+        private final Long[] timestamps;
+        private final long[] watermarks;
+        private final long[] processingTimes;
+        private int size;
+        private long estimatedBytes;
+
+        private RecordBatch(int capacity) {
+            this.records = new Object[capacity];
+            this.timestamps = new Long[capacity];
+            this.watermarks = new long[capacity];
+            this.processingTimes = new long[capacity];
+        }
+
+        private void add(T record, SinkFunction.Context context) {
+            records[size] = record;
+            timestamps[size] = context.timestamp();
+            watermarks[size] = context.currentWatermark();
+            processingTimes[size] = context.currentProcessingTime();
+            size++;
+        }
+
+        @SuppressWarnings("unchecked")
+        private T get(int index) {
+            return (T) records[index];
+        }
+
+        private void clear() {
+            Arrays.fill(records, 0, size, null);
+            Arrays.fill(timestamps, 0, size, null);
+            size = 0;
+            estimatedBytes = 0;
+        }
+    }
+
+    /** Replays the sink context of a buffered record to the partition assigner. */
+    private static final class ReplayContext implements SinkFunction.Context {
+
+        private Long timestamp;
+        private long watermark;
+        private long processingTime;
+
+        private void update(RecordBatch<?> batch, int index) {
+            this.timestamp = batch.timestamps[index];
+            this.watermark = batch.watermarks[index];
+            this.processingTime = batch.processingTimes[index];
+        }
+
+        @Override
+        public long currentProcessingTime() {
+            return processingTime;
+        }
+
+        @Override
+        public long currentWatermark() {
+            return watermark;
+        }
+
+        @Override
+        public Long timestamp() {
+            return timestamp;
+        }
+    }
+
+    /** Counter which the flusher threads may update concurrently. */
+    private static final class AtomicCounter implements Counter {
+
+        private final AtomicLong count = new AtomicLong();
+
+        @Override
+        public void inc() {
+            count.incrementAndGet();
+        }
+
+        @Override
+        public void inc(long n) {
+            count.addAndGet(n);
+        }
+
+        @Override
+        public void dec() {
+            count.decrementAndGet();
+        }
+
+        @Override
+        public void dec(long n) {
+            count.addAndGet(-n);
+        }
+
+        @Override
+        public long getCount() {
+            return count.get();
+        }
+    }
+}
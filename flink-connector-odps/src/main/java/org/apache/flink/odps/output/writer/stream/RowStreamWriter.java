@@ -93,4 +93,9 @@ public class RowStreamWriter<T> extends RowBlockWriter<T>
     public long getFlushInterval() {
         return System.currentTimeMillis() - this.lastFlushTime;
     }
+
+    @Override
+    public long getBufferedBytes() {
+        return fileWriter.getBufferBytes();
+    }
 }
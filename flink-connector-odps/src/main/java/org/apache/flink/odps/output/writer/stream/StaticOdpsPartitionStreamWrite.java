@@ -44,6 +44,7 @@ public class StaticOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
 
     protected transient StreamWriter<T> streamWriter;
     protected String currentPartition;
+    private long closedBytesWritten;
 
     public StaticOdpsPartitionStreamWrite(OdpsConf odpsConf,
                                           String projectName,
@@ -65,6 +66,9 @@ public class StaticOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
     public void open(int taskNumber, int numTasks) throws IOException {
         try {
             Preconditions.checkNotNull(writeSessionInfo, "Write session cannot be null!");
+            if (streamWriter != null) {
+                closedBytesWritten += streamWriter.getBytesWritten();
+            }
             if (useBatch) {
                 throw new UnsupportedOperationException();
             } else {
@@ -105,7 +109,19 @@ public class StaticOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
 
     @Override
     public void close() throws IOException {
-        flush();
+        if (streamWriter == null) {
+            return;
+        }
+        try {
+            streamWriter.flush();
+            streamWriter.close();
+        } finally {
+            // drop the session so that the stream upload session can be released
+            closedBytesWritten += streamWriter.getBytesWritten();
+            streamWriter = null;
+            tableWriteSession = null;
+            writeSessionInfo = null;
+        }
     }
 
     @Override
@@ -128,4 +144,20 @@ public class StaticOdpsPartitionStreamWrite<T> extends OdpsTableWrite<T>
         }
         return Long.MAX_VALUE;
     }
+
+    @Override
+    public long getBytesWritten() {
+        if (streamWriter != null) {
+            return closedBytesWritten + streamWriter.getBytesWritten();
+        }
+        return closedBytesWritten;
+    }
+
+    @Override
+    public long getBufferedBytes() {
+        if (streamWriter != null) {
+            return streamWriter.getBufferedBytes();
+        }
+        return 0L;
+    }
 }
@@ -26,7 +26,13 @@ public interface StreamWriter<T> {
 
     void flush() throws IOException;
 
+    void close() throws IOException;
+
     boolean isIdle();
 
     long getFlushInterval();
+
+    long getBytesWritten();
+
+    long getBufferedBytes();
 }
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
+import org.apache.flink.api.common.typeinfo.TypeInformation;
+import org.apache.flink.api.connector.source.Boundedness;
+import org.apache.flink.api.connector.source.Source;
+import org.apache.flink.api.connector.source.SourceReader;
+import org.apache.flink.api.connector.source.SourceReaderContext;
+import org.apache.flink.api.connector.source.SplitEnumerator;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.api.java.typeutils.ResultTypeQueryable;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.flink.odps.input.OdpsInputFormat;
+import org.apache.flink.odps.util.OdpsConf;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.util.Preconditions;
+
+import javax.annotation.Nullable;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link Source} reading an odps table as {@link RowData}.
+ *
+ * <p>Without a discovery interval the source is bounded and reads the given
+ * partitions, or all partitions of the table. With a discovery interval the
+ * source keeps running and reads every partition added to the table later.
+ * The partitions that were read are kept in the checkpoints of the
+ * enumerator, so a restored job does not read them again.
+ */
+public class OdpsSource implements Source<RowData, OdpsSourceSplit, OdpsSourceEnumState>,
+        ResultTypeQueryable<RowData> {
+
+    private static final long serialVersionUID = 1L;
+
+    private final OdpsInputFormat<RowData> inputFormat;
+    @Nullable
+    private final String[] partitions;
+    @Nullable
+    private final Duration discoveryInterval;
+    private final boolean consumeExistingPartitions;
+    private final boolean vectorizedRead;
+
+    private OdpsSource(OdpsInputFormat<RowData> inputFormat,
+                       @Nullable String[] partitions,
+                       @Nullable Duration discoveryInterval,
+                       boolean consumeExistingPartitions,
+                       boolean vectorizedRead) {
+        this.inputFormat = inputFormat;
+        this.partitions = partitions;
+        this.discoveryInterval = discoveryInterval;
+        this.consumeExistingPartitions = consumeExistingPartitions;
+        this.vectorizedRead = vectorizedRead;
+    }
+
+    public static Builder builder(OdpsConf odpsConf, String project, String table) {
+        return new Builder(odpsConf, project, table);
+    }
+
+    @Override
+    public Boundedness getBoundedness() {
+        return discoveryInterval == null ? Boundedness.BOUNDED : Boundedness.CONTINUOUS_UNBOUNDED;
+    }
+
+    @Override
+    public SourceReader<RowData, OdpsSourceSplit> createReader(SourceReaderContext readerContext) {
+        return new OdpsSourceReader(inputFormat, vectorizedRead, new Configuration(), readerContext);
+    }
+
+    @Override
+    public SplitEnumerator<OdpsSourceSplit, OdpsSourceEnumState> createEnumerator(
+            SplitEnumeratorContext<OdpsSourceSplit> enumContext) {
+        return restoreEnumerator(enumContext, OdpsSourceEnumState.empty());
+    }
+
+    @Override
+    public SplitEnumerator<OdpsSourceSplit, OdpsSourceEnumState> restoreEnumerator(
+            SplitEnumeratorContext<OdpsSourceSplit> enumContext, OdpsSourceEnumState checkpoint) {
+        return new OdpsSourceEnumerator(enumContext, inputFormat, partitions,
+                discoveryInterval, consumeExistingPartitions, checkpoint);
+    }
+
+    @Override
+    public SimpleVersionedSerializer<OdpsSourceSplit> getSplitSerializer() {
+        return OdpsSourceSplitSerializer.INSTANCE;
+    }
+
+    @Override
+    public SimpleVersionedSerializer<OdpsSourceEnumState> getEnumeratorCheckpointSerializer() {
+        return OdpsSourceEnumStateSerializer.INSTANCE;
+    }
+
+    @Override
+    public TypeInformation<RowData> getProducedType() {
+        return inputFormat.getProducedType();
+    }
+
+    /**
+     * Builder to build {@link OdpsSource}.
+     */
+    public static class Builder {
+
+        private final OdpsConf odpsConf;
+        private final String projectName;
+        private final String tableName;
+        private String[] columns;
+        private String[] partitions;
+        private Duration discoveryInterval;
+        private boolean consumeExistingPartitions = true;
+        private boolean vectorizedRead = false;
+        private List<FilterExpression> filterExpressions = Collections.emptyList();
+
+        private Builder(OdpsConf odpsConf, String projectName, String tableName) {
+            this.odpsConf = odpsConf;
+            this.projectName = projectName;
+            this.tableName = tableName;
+        }
+
+        public Builder setColumns(String[] columns) {
+            this.columns = columns;
+            return this;
+        }
+
+        /**
+         * Reads only the given partitions. Cannot be combined with partition discovery.
+         */
+        public Builder setPartitions(String[] partitions) {
+            this.partitions = partitions;
+            return this;
+        }
+
+        /**
+         * Lists the partitions of the table every interval and reads the new ones,
+         * which makes the source unbounded.
+         */
+        public Builder setDiscoveryInterval(Duration discoveryInterval) {
+            this.discoveryInterval = discoveryInterval;
+            return this;
+        }
+
+        /**
+         * Whether the partitions existing when the job starts are read, or only
+         * the partitions discovered later. Defaults to true.
+         */
+        public Builder setConsumeExistingPartitions(boolean consumeExistingPartitions) {
+            this.consumeExistingPartitions = consumeExistingPartitions;
+            return this;
+        }
+
+        public Builder setVectorizedRead(boolean vectorizedRead) {
+            this.vectorizedRead = vectorizedRead;
+            return this;
+        }
+
+        public Builder setFilterExpressions(List<FilterExpression> filterExpressions) {
+            this.filterExpressions = filterExpressions;
+            return this;
+        }
+
+        public OdpsSource build() {
+            Preconditions.checkArgument(partitions == null || discoveryInterval == null,
+                    "partitions cannot be set together with a discovery interval");
+            Preconditions.checkArgument(discoveryInterval == null || !discoveryInterval.isNegative()
+                            && !discoveryInterval.isZero(),
+                    "discovery interval must be positive");
+            Preconditions.checkArgument(consumeExistingPartitions || discoveryInterval != null,
+                    "existing partitions can only be skipped with a discovery interval");
+            // splits are planned per partition by the enumerator
+            OdpsInputFormat<RowData> inputFormat =
+                    new OdpsInputFormat.OdpsInputFormatBuilder<RowData>(odpsConf, projectName, tableName)
+                            .setColumns(columns)
+                            .setPartitions(new String[0])
+                            .setFilterExpressions(filterExpressions)
+                            .build();
+            inputFormat.asFlinkRowData();
+            return new OdpsSource(inputFormat, partitions, discoveryInterval,
+                    consumeExistingPartitions, vectorizedRead);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Checkpointed state of the {@link OdpsSourceEnumerator}: the partitions
+ * whose splits were planned, and the planned splits that were not assigned
+ * to a reader yet.
+ */
+public class OdpsSourceEnumState {
+
+    private final Set<String> processedPartitions;
+    private final List<OdpsSourceSplit> pendingSplits;
+    private final boolean initialDiscoveryFinished;
+
+    public OdpsSourceEnumState(Collection<String> processedPartitions,
+                               List<OdpsSourceSplit> pendingSplits,
+                               boolean initialDiscoveryFinished) {
+        this.processedPartitions = Collections.unmodifiableSet(new LinkedHashSet<>(processedPartitions));
+        this.pendingSplits = Collections.unmodifiableList(pendingSplits);
+        this.initialDiscoveryFinished = initialDiscoveryFinished;
+    }
+
+    public static OdpsSourceEnumState empty() {
+        return new OdpsSourceEnumState(Collections.emptySet(), Collections.emptyList(), false);
+    }
+
+    public Set<String> getProcessedPartitions() {
+        return processedPartitions;
+    }
+
+    public List<OdpsSourceSplit> getPendingSplits() {
+        return pendingSplits;
+    }
+
+    /** Whether the partitions existing at the start of the job were discovered. */
+    public boolean isInitialDiscoveryFinished() {
+        return initialDiscoveryFinished;
+    }
+}
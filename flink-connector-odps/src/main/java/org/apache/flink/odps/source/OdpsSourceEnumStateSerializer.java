@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/** Serializer of {@link OdpsSourceEnumState}. */
+public class OdpsSourceEnumStateSerializer implements SimpleVersionedSerializer<OdpsSourceEnumState> {
+
+    public static final OdpsSourceEnumStateSerializer INSTANCE = new OdpsSourceEnumStateSerializer();
+
+    private static final int VERSION = 1;
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public byte[] serialize(OdpsSourceEnumState state) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(1024);
+        out.writeBoolean(state.isInitialDiscoveryFinished());
+        out.writeInt(state.getProcessedPartitions().size());
+        for (String partition : state.getProcessedPartitions()) {
+            out.writeUTF(partition);
+        }
+        out.writeInt(OdpsSourceSplitSerializer.INSTANCE.getVersion());
+        out.writeInt(state.getPendingSplits().size());
+        for (OdpsSourceSplit split : state.getPendingSplits()) {
+            byte[] serialized = OdpsSourceSplitSerializer.INSTANCE.serialize(split);
+            out.writeInt(serialized.length);
+            out.write(serialized);
+        }
+        return out.getCopyOfBuffer();
+    }
+
+    @Override
+    public OdpsSourceEnumState deserialize(int version, byte[] serialized) throws IOException {
+        if (version != VERSION) {
+            throw new IOException("Unknown version of odps source enumerator state: " + version);
+        }
+        DataInputDeserializer in = new DataInputDeserializer(serialized);
+        boolean initialDiscoveryFinished = in.readBoolean();
+        int numPartitions = in.readInt();
+        List<String> processedPartitions = new ArrayList<>(numPartitions);
+        for (int i = 0; i < numPartitions; i++) {
+            processedPartitions.add(in.readUTF());
+        }
+        int splitVersion = in.readInt();
+        int numSplits = in.readInt();
+        List<OdpsSourceSplit> pendingSplits = new ArrayList<>(numSplits);
+        for (int i = 0; i < numSplits; i++) {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            pendingSplits.add(OdpsSourceSplitSerializer.INSTANCE.deserialize(splitVersion, bytes));
+        }
+        return new OdpsSourceEnumState(processedPartitions, pendingSplits, initialDiscoveryFinished);
+    }
+}
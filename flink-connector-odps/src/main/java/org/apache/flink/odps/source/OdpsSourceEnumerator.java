@@ -0,0 +1,257 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import com.aliyun.odps.Partition;
+import org.apache.flink.api.connector.source.SplitEnumerator;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.odps.input.OdpsInputFormat;
+import org.apache.flink.odps.input.OdpsInputSplit;
+import org.apache.flink.odps.util.OdpsMetaDataProvider;
+import org.apache.flink.odps.util.OdpsUtils;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The enumerator of {@link OdpsSource}. It lists the partitions of the table
+ * on the worker thread of the coordinator, once for a bounded source or every
+ * discovery interval otherwise, and plans the splits of the partitions that
+ * were not seen before. Splits are handed out one at a time to readers that
+ * ask for one, oldest partition first and the larger splits of a partition
+ * before the smaller ones, so that the tail of a partition is short.
+ */
+public class OdpsSourceEnumerator implements SplitEnumerator<OdpsSourceSplit, OdpsSourceEnumState> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OdpsSourceEnumerator.class);
+
+    private final SplitEnumeratorContext<OdpsSourceSplit> context;
+    private final OdpsInputFormat<RowData> inputFormat;
+    @Nullable
+    private final String[] staticPartitions;
+    @Nullable
+    private final Duration discoveryInterval;
+    private final boolean consumeExistingPartitions;
+
+    private final Set<String> processedPartitions;
+    private final LinkedList<OdpsSourceSplit> pendingSplits;
+    private final Set<Integer> readersAwaitingSplit;
+    private volatile boolean initialDiscoveryFinished;
+
+    private OdpsMetaDataProvider metaDataProvider;
+
+    public OdpsSourceEnumerator(SplitEnumeratorContext<OdpsSourceSplit> context,
+                                OdpsInputFormat<RowData> inputFormat,
+                                @Nullable String[] staticPartitions,
+                                @Nullable Duration discoveryInterval,
+                                boolean consumeExistingPartitions,
+                                OdpsSourceEnumState state) {
+        this.context = context;
+        this.inputFormat = inputFormat;
+        this.staticPartitions = staticPartitions;
+        this.discoveryInterval = discoveryInterval;
+        this.consumeExistingPartitions = consumeExistingPartitions;
+        // read by the discovery on the worker thread
+        this.processedPartitions = ConcurrentHashMap.newKeySet();
+        this.processedPartitions.addAll(state.getProcessedPartitions());
+        this.pendingSplits = new LinkedList<>(state.getPendingSplits());
+        this.readersAwaitingSplit = new LinkedHashSet<>();
+        this.initialDiscoveryFinished = state.isInitialDiscoveryFinished();
+    }
+
+    @Override
+    public void start() {
+        context.metricGroup().gauge("pendingSplits", pendingSplits::size);
+        context.metricGroup().gauge("processedPartitions", processedPartitions::size);
+        getMetaDataProvider().registerMetrics(context.metricGroup());
+        if (discoveryInterval == null) {
+            if (initialDiscoveryFinished) {
+                return;
+            }
+            context.callAsync(this::discoverSplits, this::handleDiscoveredSplits);
+        } else {
+            long interval = discoveryInterval.toMillis();
+            context.callAsync(this::discoverSplits, this::handleDiscoveredSplits, 0, interval);
+        }
+    }
+
+    @Override
+    public void handleSplitRequest(int subtaskId, @Nullable String requesterHostname) {
+        readersAwaitingSplit.add(subtaskId);
+        assignPendingSplits();
+    }
+
+    @Override
+    public void addSplitsBack(List<OdpsSourceSplit> splits, int subtaskId) {
+        LOG.info("Add back {} splits of reader {}", splits.size(), subtaskId);
+        pendingSplits.addAll(0, splits);
+        assignPendingSplits();
+    }
+
+    @Override
+    public void addReader(int subtaskId) {
+        // readers ask for splits themselves
+    }
+
+    @Override
+    public OdpsSourceEnumState snapshotState(long checkpointId) {
+        return new OdpsSourceEnumState(processedPartitions, new ArrayList<>(pendingSplits), initialDiscoveryFinished);
+    }
+
+    @Override
+    public void close() throws IOException {
+    }
+
+    /** Runs on the worker thread, plans the splits of partitions not seen before. */
+    private Map<String, List<OdpsSourceSplit>> discoverSplits() throws IOException {
+        List<String> partitions = new ArrayList<>();
+        Map<String, Long> partitionSizes = new TreeMap<>();
+        if (!isPartitioned()) {
+            partitions.add("");
+            partitionSizes.put("", getMetaDataProvider()
+                    .getTable(inputFormat.getProjectName(), inputFormat.getTableName(), true).getSize());
+        } else if (staticPartitions != null) {
+            partitions.addAll(Arrays.asList(staticPartitions));
+        } else {
+            // the listing is diffed against the processed partitions, a partition whose splits
+            // could not be planned is listed again by the next discovery
+            partitionSizes.putAll(listPartitions());
+            partitions.addAll(partitionSizes.keySet());
+        }
+        Map<String, List<OdpsSourceSplit>> discovered = new TreeMap<>();
+        boolean skipExisting = !initialDiscoveryFinished && !consumeExistingPartitions;
+        for (String partition : partitions) {
+            if (processedPartitions.contains(partition)) {
+                continue;
+            }
+            if (skipExisting) {
+                discovered.put(partition, Collections.emptyList());
+                continue;
+            }
+            OdpsInputSplit[] inputSplits = createInputSplits(partition);
+            long partitionSize = partitionSizes.getOrDefault(partition, 0L);
+            long splitSize = inputSplits.length == 0 ? 0 : partitionSize / inputSplits.length;
+            List<OdpsSourceSplit> splits = new ArrayList<>(inputSplits.length);
+            for (OdpsInputSplit inputSplit : inputSplits) {
+                splits.add(new OdpsSourceSplit(
+                        partition + "#" + inputSplit.getSplitNumber(),
+                        partition,
+                        inputSplit,
+                        splitSize,
+                        0L));
+            }
+            splits.sort(Comparator.comparingLong(OdpsSourceSplit::getEstimatedSize).reversed());
+            discovered.put(partition, splits);
+        }
+        return discovered;
+    }
+
+    /** Runs on the coordinator thread. */
+    private void handleDiscoveredSplits(Map<String, List<OdpsSourceSplit>> discovered, Throwable error) {
+        if (error != null) {
+            if (discoveryInterval == null) {
+                throw new FlinkRuntimeException("Failed to discover splits of odps table "
+                        + inputFormat.getProjectName() + "." + inputFormat.getTableName(), error);
+            }
+            LOG.warn("Failed to discover new partitions, retry in {}", discoveryInterval, error);
+            return;
+        }
+        int numNewSplits = 0;
+        for (Map.Entry<String, List<OdpsSourceSplit>> entry : discovered.entrySet()) {
+            // a partition may be discovered again before its splits were handled
+            if (processedPartitions.add(entry.getKey())) {
+                pendingSplits.addAll(entry.getValue());
+                numNewSplits += entry.getValue().size();
+            }
+        }
+        if (!discovered.isEmpty()) {
+            LOG.info("Discovered {} partitions with {} splits, {} splits pending",
+                    discovered.size(), numNewSplits, pendingSplits.size());
+        }
+        initialDiscoveryFinished = true;
+        assignPendingSplits();
+    }
+
+    private void assignPendingSplits() {
+        Iterator<Integer> awaiting = readersAwaitingSplit.iterator();
+        while (awaiting.hasNext()) {
+            int subtaskId = awaiting.next();
+            if (!context.registeredReaders().containsKey(subtaskId)) {
+                awaiting.remove();
+                continue;
+            }
+            if (!pendingSplits.isEmpty()) {
+                OdpsSourceSplit split = pendingSplits.removeFirst();
+                LOG.debug("Assign split {} to reader {}", split, subtaskId);
+                context.assignSplit(split, subtaskId);
+                awaiting.remove();
+            } else if (discoveryInterval == null && initialDiscoveryFinished) {
+                context.signalNoMoreSplits(subtaskId);
+                awaiting.remove();
+            } else {
+                break;
+            }
+        }
+    }
+
+    protected boolean isPartitioned() {
+        return inputFormat.isPartitioned();
+    }
+
+    /** Lists all the partitions of the table with their sizes, ordered by spec. */
+    protected Map<String, Long> listPartitions() {
+        Map<String, Long> partitionSizes = new TreeMap<>();
+        for (Partition partition : getMetaDataProvider()
+                .getLatestPartitions(inputFormat.getProjectName(), inputFormat.getTableName())) {
+            partitionSizes.put(partition.getPartitionSpec().toString(), partition.getSize());
+        }
+        return partitionSizes;
+    }
+
+    /** Plans the splits of partition, empty for a non-partitioned table. */
+    protected OdpsInputSplit[] createInputSplits(String partition) throws IOException {
+        return partition.isEmpty() ?
+                inputFormat.createInputSplitsForPartitions(new String[0]) :
+                inputFormat.createInputSplitsForPartitions(new String[]{partition});
+    }
+
+    protected OdpsMetaDataProvider getMetaDataProvider() {
+        if (metaDataProvider == null) {
+            metaDataProvider = new OdpsMetaDataProvider(OdpsUtils.getOdps(inputFormat.getOdpsConf()));
+        }
+        return metaDataProvider;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import org.apache.flink.api.connector.source.SourceReaderContext;
+import org.apache.flink.configuration.Configuration;
+import org.apache.flink.connector.base.source.reader.SingleThreadMultiplexSourceReaderBase;
+import org.apache.flink.odps.input.OdpsInputFormat;
+import org.apache.flink.table.data.RowData;
+
+import java.util.Map;
+
+/**
+ * The reader of {@link OdpsSource}. It asks the enumerator for a new split
+ * whenever it has none left, so that splits go to the readers that are free.
+ */
+public class OdpsSourceReader
+        extends SingleThreadMultiplexSourceReaderBase<RowData, RowData, OdpsSourceSplit, OdpsSourceSplitState> {
+
+    public OdpsSourceReader(OdpsInputFormat<RowData> inputFormat,
+                            boolean vectorized,
+                            Configuration config,
+                            SourceReaderContext context) {
+        super(() -> new OdpsSourceSplitReader(inputFormat, vectorized),
+                new OdpsSourceRecordEmitter(),
+                config,
+                context);
+    }
+
+    @Override
+    public void start() {
+        // restored splits are read first
+        if (getNumberOfCurrentlyAssignedSplits() == 0) {
+            context.sendSplitRequest();
+        }
+    }
+
+    @Override
+    protected void onSplitFinished(Map<String, OdpsSourceSplitState> finishedSplitIds) {
+        context.sendSplitRequest();
+    }
+
+    @Override
+    protected OdpsSourceSplitState initializedState(OdpsSourceSplit split) {
+        return new OdpsSourceSplitState(split);
+    }
+
+    @Override
+    protected OdpsSourceSplit toSplitType(String splitId, OdpsSourceSplitState splitState) {
+        return splitState.toSplit();
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import org.apache.flink.api.connector.source.SourceSplit;
+import org.apache.flink.odps.input.OdpsInputSplit;
+
+import java.io.Serializable;
+
+/**
+ * A split of an {@link OdpsSource}, which wraps an {@link OdpsInputSplit}
+ * of one partition together with the number of records already emitted
+ * from it, so that a restored reader skips them.
+ */
+public class OdpsSourceSplit implements SourceSplit, Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String splitId;
+    private final String partition;
+    private final OdpsInputSplit inputSplit;
+    private final long estimatedSize;
+    private final long offset;
+
+    public OdpsSourceSplit(String splitId,
+                           String partition,
+                           OdpsInputSplit inputSplit,
+                           long estimatedSize,
+                           long offset) {
+        this.splitId = splitId;
+        this.partition = partition;
+        this.inputSplit = inputSplit;
+        this.estimatedSize = estimatedSize;
+        this.offset = offset;
+    }
+
+    @Override
+    public String splitId() {
+        return splitId;
+    }
+
+    /** The partition spec of the split, empty for a non-partitioned table. */
+    public String getPartition() {
+        return partition;
+    }
+
+    public OdpsInputSplit getInputSplit() {
+        return inputSplit;
+    }
+
+    /** Estimated size of the split in bytes, used to hand out large splits first. */
+    public long getEstimatedSize() {
+        return estimatedSize;
+    }
+
+    /** Number of records of the split that were already emitted. */
+    public long getOffset() {
+        return offset;
+    }
+
+    public OdpsSourceSplit withOffset(long offset) {
+        return new OdpsSourceSplit(splitId, partition, inputSplit, estimatedSize, offset);
+    }
+
+    @Override
+    public String toString() {
+        return "OdpsSourceSplit{" +
+                "splitId='" + splitId + '\'' +
+                ", partition='" + partition + '\'' +
+                ", estimatedSize=" + estimatedSize +
+                ", offset=" + offset +
+                '}';
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import com.aliyun.odps.cupid.table.v1.reader.InputSplit;
+import org.apache.flink.connector.base.source.reader.RecordsBySplits;
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitReader;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsAddition;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsChange;
+import org.apache.flink.odps.input.OdpsInputFormat;
+import org.apache.flink.odps.input.OdpsInputSplit;
+import org.apache.flink.odps.input.reader.NextIterator;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.runtime.typeutils.InternalTypeInfo;
+import org.apache.flink.table.runtime.typeutils.RowDataSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Reads the assigned splits one after another, returning at most
+ * {@link #BATCH_SIZE} rows per fetch so that checkpoints are not delayed
+ * by a large split. Vectorized reads return a row view that is reused, so
+ * those rows are copied before they are buffered. A restored split is
+ * opened at its offset when the table provider supports it.
+ */
+public class OdpsSourceSplitReader implements SplitReader<RowData, OdpsSourceSplit> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(OdpsSourceSplitReader.class);
+
+    static final int BATCH_SIZE = 1024;
+
+    private final OdpsInputFormat<RowData> inputFormat;
+    private final boolean vectorized;
+    private final Queue<OdpsSourceSplit> splits;
+    private final RowDataSerializer serializer;
+
+    private OdpsSourceSplit currentSplit;
+    private NextIterator<RowData> currentIterator;
+
+    public OdpsSourceSplitReader(OdpsInputFormat<RowData> inputFormat, boolean vectorized) {
+        this.inputFormat = inputFormat;
+        this.vectorized = vectorized;
+        this.splits = new ArrayDeque<>();
+        this.serializer = vectorized ?
+                ((InternalTypeInfo<RowData>) inputFormat.getProducedType()).toRowSerializer() : null;
+    }
+
+    @Override
+    public RecordsWithSplitIds<RowData> fetch() throws IOException {
+        RecordsBySplits.Builder<RowData> builder = new RecordsBySplits.Builder<>();
+        if (currentIterator == null && !openNextSplit()) {
+            return builder.build();
+        }
+        String splitId = currentSplit.splitId();
+        int count = 0;
+        while (count < BATCH_SIZE && currentIterator.hasNext()) {
+            RowData row = currentIterator.next();
+            builder.add(splitId, serializer == null ? row : serializer.copy(row));
+            count++;
+        }
+        if (count < BATCH_SIZE) {
+            builder.addFinishedSplit(splitId);
+            closeCurrentSplit();
+        }
+        return builder.build();
+    }
+
+    @Override
+    public void handleSplitsChanges(SplitsChange<OdpsSourceSplit> splitsChanges) {
+        if (!(splitsChanges instanceof SplitsAddition)) {
+            throw new UnsupportedOperationException(String.format(
+                    "The SplitChange type of %s is not supported.", splitsChanges.getClass()));
+        }
+        splits.addAll(splitsChanges.splits());
+    }
+
+    @Override
+    public void wakeUp() {
+        // fetch never blocks for longer than reading a batch
+    }
+
+    @Override
+    public void close() throws Exception {
+        closeCurrentSplit();
+    }
+
+    private boolean openNextSplit() throws IOException {
+        currentSplit = splits.poll();
+        if (currentSplit == null) {
+            return false;
+        }
+        LOG.info("Open split {}", currentSplit);
+        OdpsInputSplit inputSplit = currentSplit.getInputSplit();
+        long rowsToSkip = currentSplit.getOffset();
+        if (rowsToSkip > 0) {
+            InputSplit remaining = inputSplit.inputSplit.skipRows(rowsToSkip);
+            if (remaining != null) {
+                inputSplit = new OdpsInputSplit(remaining, inputSplit.getSplitNumber());
+                rowsToSkip = 0;
+            }
+        }
+        currentIterator = createIterator(inputSplit);
+        if (rowsToSkip > 0) {
+            // the provider cannot open the split at a row, read up to it instead
+            currentIterator.seekToRow(rowsToSkip);
+        }
+        return true;
+    }
+
+    protected NextIterator<RowData> createIterator(OdpsInputSplit inputSplit) throws IOException {
+        return inputFormat.createIterator(inputSplit, vectorized);
+    }
+
+    private void closeCurrentSplit() throws IOException {
+        if (currentIterator != null) {
+            currentIterator.close();
+        }
+        currentIterator = null;
+        currentSplit = null;
+    }
+}
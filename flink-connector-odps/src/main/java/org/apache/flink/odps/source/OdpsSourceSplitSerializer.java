@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.source;
+
+import org.apache.flink.core.io.SimpleVersionedSerializer;
+import org.apache.flink.core.memory.DataInputDeserializer;
+import org.apache.flink.core.memory.DataOutputSerializer;
+import org.apache.flink.odps.input.OdpsInputSplit;
+import org.apache.flink.util.InstantiationUtil;
+
+import java.io.IOException;
+
+/** Serializer of {@link OdpsSourceSplit}. The wrapped input split is java serialized. */
+public class OdpsSourceSplitSerializer implements SimpleVersionedSerializer<OdpsSourceSplit> {
+
+    public static final OdpsSourceSplitSerializer INSTANCE = new OdpsSourceSplitSerializer();
+
+    private static final int VERSION = 1;
+
+    @Override
+    public int getVersion() {
+        return VERSION;
+    }
+
+    @Override
+    public byte[] serialize(OdpsSourceSplit split) throws IOException {
+        DataOutputSerializer out = new DataOutputSerializer(256);
+        out.writeUTF(split.splitId());
+        out.writeUTF(split.getPartition());
+        out.writeLong(split.getEstimatedSize());
+        out.writeLong(split.getOffset());
+        byte[] inputSplit = InstantiationUtil.serializeObject(split.getInputSplit());
+        out.writeInt(inputSplit.length);
+        out.write(inputSplit);
+        return out.getCopyOfBuffer();
+    }
+
+    @Override
+    public OdpsSourceSplit deserialize(int version, byte[] serialized) throws IOException {
+        if (version != VERSION) {
+            throw new IOException("Unknown version of odps source split: " + version);
+        }
+        DataInputDeserializer in = new DataInputDeserializer(serialized);
+        String splitId = in.readUTF();
+        String partition = in.readUTF();
+        long estimatedSize = in.readLong();
+        long offset = in.readLong();
+        byte[] inputSplitBytes = new byte[in.readInt()];
+        in.readFully(inputSplitBytes);
+        OdpsInputSplit inputSplit;
+        try {
+            inputSplit = InstantiationUtil.deserializeObject(inputSplitBytes, getClass().getClassLoader());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Failed to deserialize odps input split", e);
+        }
+        return new OdpsSourceSplit(splitId, partition, inputSplit, estimatedSize, offset);
+    }
+}
@@ -22,6 +22,7 @@ import org.apache.flink.api.common.functions.MapFunction;
 import org.apache.flink.configuration.ReadableConfig;
 import org.apache.flink.odps.output.OdpsOutputFormat;
 import org.apache.flink.odps.output.OdpsSinkFunction;
+import org.apache.flink.odps.output.OdpsTwoPhaseCommitSinkFunction;
 import org.apache.flink.odps.output.stream.*;
 import org.apache.flink.odps.output.writer.OdpsWriteOptions;
 import org.apache.flink.odps.util.OdpsConf;
@@ -220,6 +221,16 @@ public class OdpsDynamicTableSink implements DynamicTableSink, SupportsPartition
         if (odpsConf.isClusterMode()) {
             //TODO: support file sink function for cluster mode
             throw new UnsupportedOperationException();
+        } else if (writeOptions.isExactlyOnce()) {
+            OdpsTwoPhaseCommitSinkFunction.OdpsTwoPhaseCommitSinkBuilder<Row> builder =
+                    new OdpsTwoPhaseCommitSinkFunction.OdpsTwoPhaseCommitSinkBuilder<>(odpsConf, projectName, tableName);
+            builder.setPartition(partition);
+            builder.setDynamicPartition(isDynamicPartition);
+            if (isDynamicPartition) {
+                builder.setPartitionAssigner(createPartitionAssigner(partition));
+            }
+            builder.setWriteOptions(writeOptions);
+            return builder.build();
         } else {
             OdpsSinkFunction.OdpsSinkBuilder<Row> builder =
                     new OdpsSinkFunction.OdpsSinkBuilder<>(odpsConf, projectName, tableName);
@@ -227,34 +238,38 @@ public class OdpsDynamicTableSink implements DynamicTableSink, SupportsPartition
             builder.setDynamicPartition(isDynamicPartition);
             builder.setSupportPartitionGrouping(supportPartitionGrouping);
             if (isDynamicPartition) {
-                PartitionComputer<Row> partitionComputer = new PartitionComputer<>(
-                        writeOptions.getDynamicPartitionDefaultValue(),
-                        tableSchema.getTableColumns()
-                                .stream()
-                                .map(TableColumn::getName)
-                                .collect(Collectors.toList()),
-                        partitionKeys,
-                        partition);
-                PartitionAssigner<Row> partitionAssigner = new TablePartitionAssigner<>(partitionComputer);
-                builder.setPartitionAssigner(partitionAssigner);
-
-                if (!StringUtils.isNullOrWhitespaceOnly(writeOptions.getDynamicPartitionAssignerClass())) {
-                    try {
-                        Class clz = Class.forName(writeOptions.getDynamicPartitionAssignerClass());
-                        Constructor<PartitionAssigner> constructor =
-                                (Constructor<PartitionAssigner>) clz.getDeclaredConstructor(new Class[]{});
-                        constructor.setAccessible(true);
-                        builder.setPartitionAssigner(constructor.newInstance());
-                    } catch (Exception e) {
-                        LOG.error("PartitionAssigner initialized failed: " + e.toString());
-                    }
-                }
+                builder.setPartitionAssigner(createPartitionAssigner(partition));
             }
             builder.setWriteOptions(writeOptions);
             return builder.build();
         }
     }
 
+    private PartitionAssigner<Row> createPartitionAssigner(String partition) {
+        PartitionComputer<Row> partitionComputer = new PartitionComputer<>(
+                writeOptions.getDynamicPartitionDefaultValue(),
+                tableSchema.getTableColumns()
+                        .stream()
+                        .map(TableColumn::getName)
+                        .collect(Collectors.toList()),
+                partitionKeys,
+                partition);
+        PartitionAssigner<Row> partitionAssigner = new TablePartitionAssigner<>(partitionComputer);
+
+        if (!StringUtils.isNullOrWhitespaceOnly(writeOptions.getDynamicPartitionAssignerClass())) {
+            try {
+                Class clz = Class.forName(writeOptions.getDynamicPartitionAssignerClass());
+                Constructor<PartitionAssigner> constructor =
+                        (Constructor<PartitionAssigner>) clz.getDeclaredConstructor(new Class[]{});
+                constructor.setAccessible(true);
+                partitionAssigner = constructor.newInstance();
+            } catch (Exception e) {
+                LOG.error("PartitionAssigner initialized failed: " + e.toString());
+            }
+        }
+        return partitionAssigner;
+    }
+
     private OdpsOutputFormat<Row> createOdpsOutputFormat() {
         boolean isPartitioned = partitionKeys != null && !partitionKeys.isEmpty();
         boolean isDynamicPartition = isPartitioned && partitionKeys.size() > staticPartitionSpec.size();
@@ -20,8 +20,10 @@ package org.apache.flink.odps.table;
 
 import com.aliyun.odps.Partition;
 import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
 import org.apache.flink.configuration.Configuration;
 import org.apache.flink.configuration.ReadableConfig;
+import org.apache.flink.odps.input.OdpsAsyncLookupFunction;
 import org.apache.flink.odps.input.OdpsInputFormat;
 import org.apache.flink.odps.input.OdpsLookupFunction;
 import org.apache.flink.odps.input.OdpsLookupOptions;
@@ -31,10 +33,12 @@ import org.apache.flink.odps.util.OdpsUtils;
 import org.apache.flink.table.api.TableSchema;
 import org.apache.flink.table.connector.ChangelogMode;
 import org.apache.flink.table.connector.source.*;
+import org.apache.flink.table.connector.source.abilities.SupportsFilterPushDown;
 import org.apache.flink.table.connector.source.abilities.SupportsLimitPushDown;
 import org.apache.flink.table.connector.source.abilities.SupportsPartitionPushDown;
 import org.apache.flink.table.connector.source.abilities.SupportsProjectionPushDown;
 import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.expressions.ResolvedExpression;
 import org.apache.flink.table.types.logical.RowType;
 import org.apache.flink.table.utils.TableSchemaUtils;
 import org.apache.flink.util.Preconditions;
@@ -43,6 +47,7 @@ import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import java.util.*;
+import java.util.stream.Collectors;
 
 
 /**
@@ -53,6 +58,7 @@ public class OdpsDynamicTableSource
         LookupTableSource,
         SupportsPartitionPushDown,
         SupportsProjectionPushDown,
+        SupportsFilterPushDown,
         SupportsLimitPushDown {
 
     private static final Logger LOG = LoggerFactory.getLogger(OdpsDynamicTableSource.class);
@@ -74,6 +80,9 @@ public class OdpsDynamicTableSource
     protected int[] projectedFields = null;
     @Nullable
     private Long limit = null;
+    // Filters translated for the table read session, and the ones that could not be.
+    private List<ResolvedExpression> pushedFilters = Collections.emptyList();
+    private List<ResolvedExpression> residualFilters = Collections.emptyList();
 
     public OdpsDynamicTableSource(
             ReadableConfig flinkConf,
@@ -105,12 +114,21 @@ public class OdpsDynamicTableSource
             keyIndices[i] = key[0];
             i++;
         }
+        RowType rowType = (RowType) tableSchema.toRowDataType().getLogicalType();
+        if (lookupOptions.isAsync()) {
+            return AsyncTableFunctionProvider.of(
+                    new OdpsAsyncLookupFunction(
+                            getOdpsInputFormat(),
+                            lookupOptions,
+                            keyIndices,
+                            rowType));
+        }
         return TableFunctionProvider.of(
                 new OdpsLookupFunction(
                         getOdpsInputFormat(),
                         lookupOptions,
                         keyIndices,
-                        (RowType) tableSchema.toRowDataType().getLogicalType()));
+                        rowType));
     }
 
     private OdpsInputFormat<RowData> getOdpsInputFormat() {
@@ -119,6 +137,9 @@ public class OdpsDynamicTableSource
                         this.identifier.getTableName());
         builder.setColumns(tableSchema.getFieldNames());
         builder.setPartitions(OdpsUtils.createPartitionSpec(getPrunedPartitions()));
+        builder.setFilterExpressions(pushedFilters.stream()
+                .map(filter -> OdpsFilterConverter.convert(filter).get())
+                .collect(Collectors.toList()));
         return builder.build();
     }
 
@@ -141,8 +162,7 @@ public class OdpsDynamicTableSource
                 }
             } else {
                 odpsPartitions.addAll(metaDataProvider.getPartitions(identifier.getProjectName(),
-                        identifier.getTableName(),
-                        true));
+                        identifier.getTableName()));
             }
         }
         return odpsPartitions;
@@ -153,9 +173,29 @@ public class OdpsDynamicTableSource
         this.limit = limit;
     }
 
+    /**
+     * Pushes the filters that {@link OdpsFilterConverter} can translate into
+     * the table read session. The read session only skips rows that
+     * definitely fail them, so all filters remain to be evaluated by Flink.
+     */
+    @Override
+    public Result applyFilters(List<ResolvedExpression> filters) {
+        List<ResolvedExpression> pushed = new ArrayList<>();
+        List<ResolvedExpression> residual = new ArrayList<>();
+        for (ResolvedExpression filter : filters) {
+            if (OdpsFilterConverter.convert(filter).isPresent()) {
+                pushed.add(filter);
+            } else {
+                residual.add(filter);
+            }
+        }
+        this.pushedFilters = pushed;
+        this.residualFilters = residual;
+        return Result.of(pushed, filters);
+    }
+
     @Override
     public Optional<List<Map<String, String>>> listPartitions() {
-        // TODO: cache partitions
         if (partitionKeys != null && partitionKeys.size() > 0) {
             List<Map<String, String>> results = new ArrayList<>();
             List<Partition> partitions = metaDataProvider.getPartitions(identifier.getProjectName(),
@@ -196,7 +236,15 @@ public class OdpsDynamicTableSource
 
     @Override
     public String asSummaryString() {
-        return "OdpsSource";
+        if (pushedFilters.isEmpty() && residualFilters.isEmpty()) {
+            return "OdpsSource";
+        }
+        return String.format("OdpsSource(pushedFilters=[%s], residualFilters=[%s])",
+                summarize(pushedFilters), summarize(residualFilters));
+    }
+
+    private static String summarize(List<ResolvedExpression> filters) {
+        return filters.stream().map(ResolvedExpression::asSummaryString).collect(Collectors.joining(", "));
     }
 
     @Override
@@ -211,6 +259,8 @@ public class OdpsDynamicTableSource
         source.remainingPartitions = remainingPartitions;
         source.projectedFields = projectedFields;
         source.limit = limit;
+        source.pushedFilters = pushedFilters;
+        source.residualFilters = residualFilters;
         return source;
     }
 
@@ -231,7 +281,8 @@ public class OdpsDynamicTableSource
                 && Objects.equals(partitionKeys, that.partitionKeys)
                 && Objects.equals(remainingPartitions, that.remainingPartitions)
                 && Arrays.equals(projectedFields, that.projectedFields)
-                && Objects.equals(limit, that.limit);
+                && Objects.equals(limit, that.limit)
+                && Objects.equals(pushedFilters, that.pushedFilters);
     }
 
     @Override
@@ -245,6 +296,7 @@ public class OdpsDynamicTableSource
                 partitionKeys,
                 remainingPartitions,
                 projectedFields,
-                limit);
+                limit,
+                pushedFilters);
     }
 }
@@ -0,0 +1,262 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.table;
+
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
+import org.apache.flink.table.expressions.CallExpression;
+import org.apache.flink.table.expressions.FieldReferenceExpression;
+import org.apache.flink.table.expressions.ResolvedExpression;
+import org.apache.flink.table.expressions.ValueLiteralExpression;
+import org.apache.flink.table.functions.BuiltInFunctionDefinitions;
+import org.apache.flink.table.functions.FunctionDefinition;
+import org.apache.flink.table.types.logical.LogicalType;
+import org.apache.flink.table.types.logical.LogicalTypeRoot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Translates Flink filter expressions into {@link FilterExpression}s of the
+ * table read session, which skips the rows that definitely fail them.
+ *
+ * <p>Only predicates that give the same result on the ODPS values as in
+ * Flink are translated: comparisons on boolean, integral, double and decimal
+ * columns, equality on string columns and LIKE patterns that are a prefix,
+ * suffix or infix. Float, char and time columns as well as string ranges
+ * are left to Flink, as the read session would compare them differently.
+ */
+final class OdpsFilterConverter {
+
+    private OdpsFilterConverter() {
+    }
+
+    /** Returns the translated filter, or empty if filter cannot be pushed. */
+    static Optional<FilterExpression> convert(ResolvedExpression filter) {
+        if (filter instanceof FieldReferenceExpression) {
+            FieldReferenceExpression field = (FieldReferenceExpression) filter;
+            if (isBoolean(field.getOutputDataType().getLogicalType())) {
+                return Optional.of(FilterExpression.EqualTo(field.getName(), true));
+            }
+            return Optional.empty();
+        }
+        if (!(filter instanceof CallExpression)) {
+            return Optional.empty();
+        }
+        CallExpression call = (CallExpression) filter;
+        FunctionDefinition function = call.getFunctionDefinition();
+        List<ResolvedExpression> args = call.getResolvedChildren();
+        if (function == BuiltInFunctionDefinitions.AND || function == BuiltInFunctionDefinitions.OR) {
+            return convertCompound(function == BuiltInFunctionDefinitions.AND, args);
+        } else if (function == BuiltInFunctionDefinitions.NOT) {
+            return convert(args.get(0)).map(FilterExpression::Not);
+        } else if (function == BuiltInFunctionDefinitions.IS_NULL) {
+            return fieldName(args.get(0)).map(FilterExpression::IsNull);
+        } else if (function == BuiltInFunctionDefinitions.IS_NOT_NULL) {
+            return fieldName(args.get(0)).map(FilterExpression::IsNotNull);
+        } else if (function == BuiltInFunctionDefinitions.LIKE) {
+            return convertLike(args);
+        } else if (function == BuiltInFunctionDefinitions.IN) {
+            return convertIn(args);
+        }
+        return convertComparison(function, args);
+    }
+
+    private static Optional<FilterExpression> convertCompound(boolean and, List<ResolvedExpression> args) {
+        List<FilterExpression> children = new ArrayList<>(args.size());
+        for (ResolvedExpression arg : args) {
+            Optional<FilterExpression> child = convert(arg);
+            if (!child.isPresent()) {
+                return Optional.empty();
+            }
+            children.add(child.get());
+        }
+        if (children.size() == 1) {
+            return Optional.of(children.get(0));
+        }
+        FilterExpression[] array = children.toArray(new FilterExpression[0]);
+        return Optional.of(and ? FilterExpression.And(array) : FilterExpression.Or(array));
+    }
+
+    private static Optional<FilterExpression> convertComparison(FunctionDefinition function,
+                                                                List<ResolvedExpression> args) {
+        if (args.size() != 2) {
+            return Optional.empty();
+        }
+        boolean swapped = false;
+        ResolvedExpression left = args.get(0);
+        ResolvedExpression right = args.get(1);
+        if (left instanceof ValueLiteralExpression && right instanceof FieldReferenceExpression) {
+            left = args.get(1);
+            right = args.get(0);
+            swapped = true;
+        }
+        if (!(left instanceof FieldReferenceExpression) || !(right instanceof ValueLiteralExpression)) {
+            return Optional.empty();
+        }
+        FieldReferenceExpression field = (FieldReferenceExpression) left;
+        LogicalType type = field.getOutputDataType().getLogicalType();
+        boolean equality = function == BuiltInFunctionDefinitions.EQUALS
+                || function == BuiltInFunctionDefinitions.NOT_EQUALS;
+        if (!(equality ? isComparable(type) || isString(type) : isComparable(type))) {
+            return Optional.empty();
+        }
+        Optional<Object> value = literalValue((ValueLiteralExpression) right, type);
+        if (!value.isPresent()) {
+            return Optional.empty();
+        }
+        String name = field.getName();
+        Object literal = value.get();
+        if (function == BuiltInFunctionDefinitions.EQUALS) {
+            return Optional.of(FilterExpression.EqualTo(name, literal));
+        } else if (function == BuiltInFunctionDefinitions.NOT_EQUALS) {
+            return Optional.of(FilterExpression.Not(FilterExpression.EqualTo(name, literal)));
+        } else if (function == BuiltInFunctionDefinitions.GREATER_THAN) {
+            return Optional.of(swapped
+                    ? FilterExpression.LessThan(name, literal) : FilterExpression.GreaterThan(name, literal));
+        } else if (function == BuiltInFunctionDefinitions.GREATER_THAN_OR_EQUAL) {
+            return Optional.of(swapped
+                    ? FilterExpression.LessThanOrEqual(name, literal)
+                    : FilterExpression.GreaterThanOrEqual(name, literal));
+        } else if (function == BuiltInFunctionDefinitions.LESS_THAN) {
+            return Optional.of(swapped
+                    ? FilterExpression.GreaterThan(name, literal) : FilterExpression.LessThan(name, literal));
+        } else if (function == BuiltInFunctionDefinitions.LESS_THAN_OR_EQUAL) {
+            return Optional.of(swapped
+                    ? FilterExpression.GreaterThanOrEqual(name, literal)
+                    : FilterExpression.LessThanOrEqual(name, literal));
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<FilterExpression> convertIn(List<ResolvedExpression> args) {
+        if (!(args.get(0) instanceof FieldReferenceExpression)) {
+            return Optional.empty();
+        }
+        FieldReferenceExpression field = (FieldReferenceExpression) args.get(0);
+        LogicalType type = field.getOutputDataType().getLogicalType();
+        if (!isComparable(type) && !isString(type)) {
+            return Optional.empty();
+        }
+        Object[] values = new Object[args.size() - 1];
+        for (int i = 1; i < args.size(); i++) {
+            if (!(args.get(i) instanceof ValueLiteralExpression)) {
+                return Optional.empty();
+            }
+            Optional<Object> value = literalValue((ValueLiteralExpression) args.get(i), type);
+            if (!value.isPresent()) {
+                return Optional.empty();
+            }
+            values[i - 1] = value.get();
+        }
+        return Optional.of(FilterExpression.In(field.getName(), values));
+    }
+
+    /**
+     * Translates LIKE with a pattern of the form 'abc', 'abc%', '%abc' or
+     * '%abc%'. Patterns with an escape character, '_' or '%' in the middle
+     * are not translated.
+     */
+    private static Optional<FilterExpression> convertLike(List<ResolvedExpression> args) {
+        if (args.size() != 2
+                || !(args.get(0) instanceof FieldReferenceExpression)
+                || !(args.get(1) instanceof ValueLiteralExpression)
+                || !isString(args.get(0).getOutputDataType().getLogicalType())) {
+            return Optional.empty();
+        }
+        String name = ((FieldReferenceExpression) args.get(0)).getName();
+        Optional<String> pattern = ((ValueLiteralExpression) args.get(1)).getValueAs(String.class);
+        if (!pattern.isPresent() || pattern.get().contains("_") || pattern.get().contains("\\")) {
+            return Optional.empty();
+        }
+        String value = pattern.get();
+        boolean leading = value.startsWith("%");
+        boolean trailing = value.length() > 1 && value.endsWith("%");
+        String infix = value.substring(leading ? 1 : 0, value.length() - (trailing ? 1 : 0));
+        if (infix.isEmpty() || infix.contains("%")) {
+            return Optional.empty();
+        }
+        if (leading && trailing) {
+            return Optional.of(FilterExpression.StringContains(name, infix));
+        } else if (leading) {
+            return Optional.of(FilterExpression.StringEndsWith(name, infix));
+        } else if (trailing) {
+            return Optional.of(FilterExpression.StringStartsWith(name, infix));
+        }
+        return Optional.of(FilterExpression.EqualTo(name, infix));
+    }
+
+    private static Optional<String> fieldName(ResolvedExpression expression) {
+        if (expression instanceof FieldReferenceExpression) {
+            return Optional.of(((FieldReferenceExpression) expression).getName());
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the value of literal if it is of the same kind as the field
+     * it is compared with. String literals are typed as CHAR by Flink.
+     */
+    private static Optional<Object> literalValue(ValueLiteralExpression literal, LogicalType fieldType) {
+        if (literal.isNull()) {
+            return Optional.empty();
+        }
+        LogicalType type = literal.getOutputDataType().getLogicalType();
+        boolean sameKind = isString(fieldType)
+                ? isString(type) || type.getTypeRoot() == LogicalTypeRoot.CHAR
+                : isComparable(type) && isBoolean(type) == isBoolean(fieldType);
+        if (!sameKind) {
+            return Optional.empty();
+        }
+        return literal.getValueAs(literal.getOutputDataType().getConversionClass()).map(Object.class::cast);
+    }
+
+    private static boolean isBoolean(LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case BOOLEAN:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isComparable(LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case BOOLEAN:
+            case TINYINT:
+            case SMALLINT:
+            case INTEGER:
+            case BIGINT:
+            case DOUBLE:
+            case DECIMAL:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isString(LogicalType type) {
+        switch (type.getTypeRoot()) {
+            case VARCHAR:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
@@ -21,6 +21,7 @@ package org.apache.flink.odps.table;
 import org.apache.flink.configuration.ConfigOption;
 import org.apache.flink.configuration.ConfigOptions;
 import org.apache.flink.configuration.MemorySize;
+import org.apache.flink.odps.input.OdpsLookupOptions;
 import org.apache.flink.odps.util.Constants;
 
 import java.time.Duration;
@@ -97,6 +98,59 @@ public class OdpsOptions {
                     .defaultValue(3)
                     .withDescription("The max retry times if lookup database failed.");
 
+    public static final ConfigOption<Boolean> LOOKUP_ASYNC =
+            ConfigOptions.key("lookup.async")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether to look up asynchronously, so that cache loads do not block the pipeline.");
+
+    public static final ConfigOption<Long> LOOKUP_CACHE_MAX_ROWS =
+            ConfigOptions.key("lookup.cache.max-rows")
+                    .longType()
+                    .defaultValue(-1L)
+                    .withDescription("The max number of rows of the lookup cache. If set, or if " +
+                            "'lookup.cache.max-size' is set, only recently used keys are cached. The keys " +
+                            "missed meanwhile are loaded together by one scan of the whole table, so every " +
+                            "miss costs up to a table scan and 'lookup.async' must be enabled. By default " +
+                            "the whole table is cached.");
+
+    public static final ConfigOption<MemorySize> LOOKUP_CACHE_MAX_SIZE =
+            ConfigOptions.key("lookup.cache.max-size")
+                    .memoryType()
+                    .noDefaultValue()
+                    .withDescription("The max size in memory of the rows in the lookup cache. If set, " +
+                            "only recently used keys are cached and 'lookup.async' must be enabled, " +
+                            "see 'lookup.cache.max-rows'.");
+
+    public static final ConfigOption<OdpsLookupOptions.StoreType> LOOKUP_CACHE_STORE =
+            ConfigOptions.key("lookup.cache.store")
+                    .enumType(OdpsLookupOptions.StoreType.class)
+                    .defaultValue(OdpsLookupOptions.StoreType.HEAP)
+                    .withDescription("Where the whole table lookup cache keeps its rows: 'heap' as row objects, " +
+                            "'off_heap' as binary rows in off-heap memory, or 'disk' as binary rows in a local " +
+                            "file with only the hash index in memory.");
+
+    public static final ConfigOption<String> LOOKUP_CACHE_STORE_DIR =
+            ConfigOptions.key("lookup.cache.store.dir")
+                    .stringType()
+                    .noDefaultValue()
+                    .withDescription("The directory of the 'disk' lookup cache store, the temp directory by default.");
+
+    public static final ConfigOption<Integer> LOOKUP_CACHE_LOAD_PARALLELISM =
+            ConfigOptions.key("lookup.cache.load.parallelism")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription("The number of threads reading the table concurrently when loading the " +
+                            "lookup cache. The table is planned into as many splits, each thread builds its " +
+                            "own part of the cache and the parts are merged once all splits are read.");
+
+    public static final ConfigOption<Boolean> LOOKUP_CACHE_LOAD_VECTORIZED =
+            ConfigOptions.key("lookup.cache.load.vectorized")
+                    .booleanType()
+                    .defaultValue(false)
+                    .withDescription("Whether to load the lookup cache through the columnar batch reader, " +
+                            "if all selected columns support it.");
+
 
     public static final ConfigOption<MemorySize> SINK_BUFFER_FLUSH_MAX_SIZE =
             ConfigOptions.key("sink.buffer-flush.max-size")
@@ -124,11 +178,31 @@ public class OdpsOptions {
                             "Writing option, the interval to flush any buffered rows. "
                                     + "This can improve performance for writing data to Odps, but may increase the latency. ");
 
+    public static final ConfigOption<Integer> SINK_FLUSH_THREADS =
+            ConfigOptions.key("sink.flush.threads")
+                    .intType()
+                    .defaultValue(1)
+                    .withDescription(
+                            "Writing option, the number of threads of each streaming sink subtask which "
+                                    + "convert the buffered rows and flush them to Odps, each one through its "
+                                    + "own stream tunnel writer. When writing dynamic partitions, each thread "
+                                    + "opens its own writers of the partitions, up to "
+                                    + "'sink.dynamic-partition.limit' of them.");
+
     public static final ConfigOption<Integer> SINK_DYNAMIC_PARTITION_LIMIT =
             ConfigOptions.key("sink.dynamic-partition.limit")
                     .intType()
                     .defaultValue(20)
-                    .withDescription("The max limit of dynamic partition");
+                    .withDescription("The max number of dynamic partition writers kept open by a sink subtask, "
+                            + "the least recently used writers are flushed and closed beyond it.");
+
+    public static final ConfigOption<MemorySize> SINK_DYNAMIC_PARTITION_BUFFER_SIZE =
+            ConfigOptions.key("sink.dynamic-partition.buffer-size")
+                    .memoryType()
+                    .defaultValue(MemorySize.parse("64mb"))
+                    .withDescription("The max size of the rows buffered by the dynamic partition writers "
+                            + "of a sink subtask, the least recently used writers are flushed and closed "
+                            + "beyond it. Can be set to '0' to disable it.");
 
     public static final ConfigOption<Integer> SINK_MAX_RETRIES =
             ConfigOptions.key("sink.max-retries")
@@ -136,6 +210,17 @@ public class OdpsOptions {
                     .defaultValue(3)
                     .withDescription("The max retry times if writing records to odps failed.");
 
+    public static final String SINK_SEMANTIC_AT_LEAST_ONCE = "at-least-once";
+    public static final String SINK_SEMANTIC_EXACTLY_ONCE = "exactly-once";
+
+    public static final ConfigOption<String> SINK_SEMANTIC =
+            ConfigOptions.key("sink.semantic")
+                    .stringType()
+                    .defaultValue(SINK_SEMANTIC_AT_LEAST_ONCE)
+                    .withDescription("The delivery guarantee of the streaming sink, 'at-least-once' flushes "
+                            + "rows through the stream tunnel, 'exactly-once' commits the rows of each "
+                            + "checkpoint in tunnel upload sessions when the checkpoint completes.");
+
     public static final ConfigOption<Integer> SINK_PARALLELISM =
             ConfigOptions.key("sink.parallelism")
                     .intType()
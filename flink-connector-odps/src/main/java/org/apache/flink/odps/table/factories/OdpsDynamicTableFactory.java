@@ -85,13 +85,23 @@ public class OdpsDynamicTableFactory implements DynamicTableSourceFactory, Dynam
 
         set.add(LOOKUP_CACHE_TTL);
         set.add(LOOKUP_MAX_RETRIES);
+        set.add(LOOKUP_ASYNC);
+        set.add(LOOKUP_CACHE_MAX_ROWS);
+        set.add(LOOKUP_CACHE_MAX_SIZE);
+        set.add(LOOKUP_CACHE_STORE);
+        set.add(LOOKUP_CACHE_STORE_DIR);
+        set.add(LOOKUP_CACHE_LOAD_PARALLELISM);
+        set.add(LOOKUP_CACHE_LOAD_VECTORIZED);
 
         set.add(SINK_BUFFER_FLUSH_MAX_SIZE);
         set.add(SINK_BUFFER_FLUSH_MAX_ROWS);
         set.add(SINK_BUFFER_FLUSH_INTERVAL);
         set.add(SINK_MAX_RETRIES);
+        set.add(SINK_FLUSH_THREADS);
         set.add(SINK_DYNAMIC_PARTITION_LIMIT);
+        set.add(SINK_DYNAMIC_PARTITION_BUFFER_SIZE);
         set.add(SINK_PARALLELISM);
+        set.add(SINK_SEMANTIC);
         set.add(PARTITION_DEFAULT_VALUE);
         set.add(PARTITION_ASSIGNER_CLASS);
         return set;
@@ -153,6 +163,37 @@ public class OdpsDynamicTableFactory implements DynamicTableSourceFactory, Dynam
                             LOOKUP_MAX_RETRIES.key(), config.get(LOOKUP_MAX_RETRIES)));
         }
 
+        if (config.get(LOOKUP_CACHE_LOAD_PARALLELISM) < 1) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The value of '%s' option should be positive, but is %s.",
+                            LOOKUP_CACHE_LOAD_PARALLELISM.key(), config.get(LOOKUP_CACHE_LOAD_PARALLELISM)));
+        }
+
+        boolean partialCache = config.get(LOOKUP_CACHE_MAX_ROWS) > 0
+                || config.getOptional(LOOKUP_CACHE_MAX_SIZE).map(size -> size.getBytes() > 0).orElse(false);
+        if (partialCache && !config.get(LOOKUP_ASYNC)) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "'%s' and '%s' require '%s' to be true, a missed key is loaded by a table scan.",
+                            LOOKUP_CACHE_MAX_ROWS.key(), LOOKUP_CACHE_MAX_SIZE.key(), LOOKUP_ASYNC.key()));
+        }
+
+        String semantic = config.get(SINK_SEMANTIC);
+        if (!SINK_SEMANTIC_AT_LEAST_ONCE.equals(semantic) && !SINK_SEMANTIC_EXACTLY_ONCE.equals(semantic)) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The value of '%s' option should be '%s' or '%s', but is %s.",
+                            SINK_SEMANTIC.key(), SINK_SEMANTIC_AT_LEAST_ONCE, SINK_SEMANTIC_EXACTLY_ONCE, semantic));
+        }
+
+        if (config.get(SINK_FLUSH_THREADS) <= 0) {
+            throw new IllegalArgumentException(
+                    String.format(
+                            "The value of '%s' option should be positive, but is %s.",
+                            SINK_FLUSH_THREADS.key(), config.get(SINK_FLUSH_THREADS)));
+        }
+
         if (config.get(SINK_MAX_RETRIES) < 0) {
             throw new IllegalArgumentException(
                     String.format(
@@ -206,9 +247,13 @@ public class OdpsDynamicTableFactory implements DynamicTableSourceFactory, Dynam
         builder.setBufferFlushMaxSizeInBytes(
                 tableOptions.get(SINK_BUFFER_FLUSH_MAX_SIZE).getBytes());
         builder.setWriteMaxRetries(tableOptions.get(SINK_MAX_RETRIES));
+        builder.setFlushThreads(tableOptions.get(SINK_FLUSH_THREADS));
         builder.setDynamicPartitionLimit(tableOptions.get(SINK_DYNAMIC_PARTITION_LIMIT));
+        builder.setDynamicPartitionBufferSizeInBytes(
+                tableOptions.get(SINK_DYNAMIC_PARTITION_BUFFER_SIZE).getBytes());
         builder.setDynamicPartitionDefaultValue(tableOptions.get(PARTITION_DEFAULT_VALUE));
         builder.setDynamicPartitionAssignerClass(tableOptions.get(PARTITION_ASSIGNER_CLASS));
+        builder.setExactlyOnce(SINK_SEMANTIC_EXACTLY_ONCE.equals(tableOptions.get(SINK_SEMANTIC)));
         return builder.build();
     }
 
@@ -218,6 +263,20 @@ public class OdpsDynamicTableFactory implements DynamicTableSourceFactory, Dynam
                 tableOptions.get(LOOKUP_CACHE_TTL).toMillis());
         builder.setMaxRetryTimes(
                 tableOptions.get(LOOKUP_MAX_RETRIES));
+        builder.setCacheMaxRows(
+                tableOptions.get(LOOKUP_CACHE_MAX_ROWS));
+        tableOptions.getOptional(LOOKUP_CACHE_MAX_SIZE)
+                .ifPresent(size -> builder.setCacheMaxBytes(size.getBytes()));
+        builder.setAsync(
+                tableOptions.get(LOOKUP_ASYNC));
+        builder.setStoreType(
+                tableOptions.get(LOOKUP_CACHE_STORE));
+        builder.setStoreDir(
+                tableOptions.get(LOOKUP_CACHE_STORE_DIR));
+        builder.setLoadParallelism(
+                tableOptions.get(LOOKUP_CACHE_LOAD_PARALLELISM));
+        builder.setVectorizedLoad(
+                tableOptions.get(LOOKUP_CACHE_LOAD_VECTORIZED));
         return builder.build();
     }
 }
@@ -34,6 +34,8 @@ public class Constants {
     public static final String ODPS_META_CACHE_EXPIRE_TIME = "odps.meta.cache.expire.time";
     public static final int DEFAULT_ODPS_META_CACHE_SIZE = 100;
     public static final int DEFAULT_ODPS_META_CACHE_EXPIRE_TIME = 60;
+    public static final String ODPS_META_CACHE_REFRESH_TIME = "odps.meta.cache.refresh.time";
+    public static final int DEFAULT_ODPS_META_CACHE_REFRESH_TIME = 30;
 
     public static final String ODPS_CONF_DIR = "ODPS_CONF_DIR";
     public static final String ODPS_TABLE = "table-name";
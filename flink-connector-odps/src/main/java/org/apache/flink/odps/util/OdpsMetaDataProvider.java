@@ -19,100 +19,170 @@
 package org.apache.flink.odps.util;
 
 import com.aliyun.odps.*;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListenableFutureTask;
+import org.apache.flink.metrics.Gauge;
+import org.apache.flink.metrics.MetricGroup;
 import org.apache.flink.odps.FlinkOdpsException;
 import org.apache.flink.table.catalog.ObjectPath;
+import org.apache.flink.util.concurrent.ExecutorThreadFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
 import java.util.Optional;
+import java.util.TreeMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
 
 import static org.apache.flink.odps.util.Constants.DEFAULT_ODPS_META_CACHE_EXPIRE_TIME;
+import static org.apache.flink.odps.util.Constants.DEFAULT_ODPS_META_CACHE_REFRESH_TIME;
 import static org.apache.flink.odps.util.Constants.DEFAULT_ODPS_META_CACHE_SIZE;
 import static org.apache.flink.util.Preconditions.checkNotNull;
 
 /**
  * Utils to get odps meta data.
+ *
+ * <p>Entries older than the refresh time are reloaded in the background while the cached
+ * value keeps being returned, only entries older than the expire time are loaded by the
+ * caller. The partitions of each table are indexed by their spec, so that listings, prefix
+ * and filter lookups are served from memory between two listings of the table.
  */
 public class OdpsMetaDataProvider {
 
     private static final Logger LOG = LoggerFactory.getLogger(OdpsMetaDataProvider.class);
+
+    private static final ThreadPoolExecutor RELOAD_EXECUTOR = createReloadExecutor();
+
     public LoadingCache<String, Optional<Project>> projectCache;
     public LoadingCache<ObjectPath, Optional<Table>> tableCache;
     public LoadingCache<PartitionPath, Optional<Partition>> partitionCache;
+    private Cache<ObjectPath, PartitionIndex> partitionIndexCache;
 
     private final int cacheSize;
+    private final int cacheRefreshTime;
     private final int cacheExpireTime;
     private final Odps odps;
 
+    private final AtomicLong partitionListings = new AtomicLong();
+    private final AtomicLong partitionListingTimeNanos = new AtomicLong();
+    private final AtomicLong partitionIndexHits = new AtomicLong();
+
     public OdpsMetaDataProvider(Odps odps) {
-        this(odps, DEFAULT_ODPS_META_CACHE_SIZE, DEFAULT_ODPS_META_CACHE_EXPIRE_TIME);
+        this(odps, DEFAULT_ODPS_META_CACHE_SIZE, DEFAULT_ODPS_META_CACHE_REFRESH_TIME,
+                DEFAULT_ODPS_META_CACHE_EXPIRE_TIME);
     }
 
     public OdpsMetaDataProvider(Odps odps, int cacheSize, int cacheExpireTime) {
+        this(odps, cacheSize, cacheExpireTime, cacheExpireTime);
+    }
+
+    public OdpsMetaDataProvider(Odps odps, int cacheSize, int cacheRefreshTime, int cacheExpireTime) {
         this.odps = odps;
         this.cacheSize = cacheSize;
+        this.cacheRefreshTime = Math.min(cacheRefreshTime, cacheExpireTime);
         this.cacheExpireTime = cacheExpireTime;
         this.initMetaCache();
     }
 
+    private static ThreadPoolExecutor createReloadExecutor() {
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(4, 4, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new ExecutorThreadFactory("odps-meta-reload"));
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
     private CacheBuilder createCacheBuilder() {
-        return CacheBuilder.newBuilder()
+        CacheBuilder builder = CacheBuilder.newBuilder()
                 .maximumSize(cacheSize)
-                .expireAfterWrite(cacheExpireTime, TimeUnit.SECONDS);
+                .expireAfterWrite(cacheExpireTime, TimeUnit.SECONDS)
+                .recordStats();
+        if (cacheRefreshTime < cacheExpireTime) {
+            builder.refreshAfterWrite(cacheRefreshTime, TimeUnit.SECONDS);
+        }
+        return builder;
     }
 
     private void initMetaCache() {
-        CacheLoader<String, Optional<Project>> projectCacheLoader = new CacheLoader<String, Optional<Project>>() {
+        CacheLoader<String, Optional<Project>> projectCacheLoader = new AsyncReloadingCacheLoader<String, Project>() {
             @Override
             public Optional<Project> load(String projectName) throws Exception {
                 try {
                     Project project = odps.projects().get(projectName);
                     project.reload();
                     return Optional.of(project);
-                } catch (OdpsException e) {
-                    LOG.error("load odps project failed: " + e.getMessage());
+                } catch (NoSuchObjectException e) {
+                    LOG.warn("odps project " + projectName + " does not exist: " + e.getMessage());
                     return Optional.empty();
                 }
             }
         };
         projectCache = createCacheBuilder().build(projectCacheLoader);
-        CacheLoader<ObjectPath, Optional<Table>> tableCacheLoader = new CacheLoader<ObjectPath, Optional<Table>>() {
+        CacheLoader<ObjectPath, Optional<Table>> tableCacheLoader = new AsyncReloadingCacheLoader<ObjectPath, Table>() {
             @Override
             public Optional<Table> load(ObjectPath qualifiedTableName) throws Exception {
                 try {
                     Table table = odps.tables().get(qualifiedTableName.getDatabaseName(), qualifiedTableName.getObjectName());
                     table.reload();
                     return Optional.of(table);
-                } catch (OdpsException e) {
-                    LOG.error("load odps table failed: " + e.getMessage());
+                } catch (NoSuchObjectException e) {
+                    LOG.warn("odps table " + qualifiedTableName.getFullName() + " does not exist: " + e.getMessage());
                     return Optional.empty();
                 }
             }
         };
         tableCache = createCacheBuilder().build(tableCacheLoader);
 
-        CacheLoader<PartitionPath, Optional<Partition>> partitionCacheLoader = new CacheLoader<PartitionPath, Optional<Partition>>() {
+        CacheLoader<PartitionPath, Optional<Partition>> partitionCacheLoader = new AsyncReloadingCacheLoader<PartitionPath, Partition>() {
             @Override
             public Optional<Partition> load(PartitionPath qualifiedPartition) throws Exception {
                 try {
-                    Table table = tableCache.get(new ObjectPath(qualifiedPartition.getProjectName(), qualifiedPartition.getTableName()))
-                            .orElseThrow(() -> new FlinkOdpsException(qualifiedPartition.getProjectName() + "." + qualifiedPartition.getTableName() + " does not exist"));
-                    Partition partition = table.getPartition(new PartitionSpec(qualifiedPartition.getPartitionSpec()));
-                    partition.reload();
-                    return Optional.of(partition);
-                } catch (OdpsException e) {
-                    LOG.error("load odps partition failed: " + e.getMessage());
+                    return Optional.of(loadPartition(qualifiedPartition.getProjectName(),
+                            qualifiedPartition.getTableName(), new PartitionSpec(qualifiedPartition.getPartitionSpec())));
+                } catch (NoSuchObjectException e) {
+                    LOG.warn("odps partition " + qualifiedPartition.getPartitionSpec() + " does not exist: " + e.getMessage());
                     return Optional.empty();
                 }
             }
         };
         partitionCache = createCacheBuilder().build(partitionCacheLoader);
+        partitionIndexCache = CacheBuilder.newBuilder()
+                .maximumSize(cacheSize)
+                .build();
+    }
+
+    /**
+     * Registers the hit, miss and load time metrics of the caches, and the count and time
+     * of the partition listings, on metricGroup.
+     */
+    public void registerMetrics(MetricGroup metricGroup) {
+        MetricGroup group = metricGroup.addGroup("odpsMeta");
+        registerCacheMetrics(group.addGroup("project"), projectCache);
+        registerCacheMetrics(group.addGroup("table"), tableCache);
+        registerCacheMetrics(group.addGroup("partition"), partitionCache);
+        group.gauge("partitionIndexHits", (Gauge<Long>) partitionIndexHits::get);
+        group.gauge("partitionListings", (Gauge<Long>) partitionListings::get);
+        group.gauge("partitionListingTimeMs",
+                (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis(partitionListingTimeNanos.get()));
+    }
+
+    private static void registerCacheMetrics(MetricGroup group, LoadingCache<?, ?> cache) {
+        group.gauge("hits", (Gauge<Long>) () -> cache.stats().hitCount());
+        group.gauge("misses", (Gauge<Long>) () -> cache.stats().missCount());
+        group.gauge("loads", (Gauge<Long>) () -> cache.stats().loadCount());
+        group.gauge("loadTimeMs", (Gauge<Long>) () -> TimeUnit.NANOSECONDS.toMillis(cache.stats().totalLoadTime()));
     }
 
     public Partition getPartition(String projectName, String tableName, String partitionSpec, boolean refresh) {
@@ -131,20 +201,84 @@ public class OdpsMetaDataProvider {
         return this.getPartition(projectName, tableName, partitionSpec, false);
     }
 
+    /**
+     * Returns all the partitions of the table. Unless refresh is set, they come from the
+     * partition index of the table while it is younger than the expire time.
+     */
     public List<Partition> getPartitions(String projectName, String tableName, boolean refresh) {
-        Table table = refresh ? getTable(projectName, tableName, true) : getTable(projectName, tableName);
-        List<Partition> result = table.getPartitions();
-        result.forEach(partition -> {
-            partitionCache.put(new PartitionPath(projectName, tableName, partition.getPartitionSpec().toString()),
-                    Optional.of(partition));
-        });
-        return result;
+        PartitionIndex index = getPartitionIndex(projectName, tableName);
+        if (refresh || !index.isComplete(cacheExpireTime)) {
+            return listPartitions(projectName, tableName, index, refresh);
+        }
+        refreshIfStale(projectName, tableName, index);
+        partitionIndexHits.incrementAndGet();
+        return index.getPartitions(partition -> true);
     }
 
     public List<Partition> getPartitions(String projectName, String tableName) {
         return this.getPartitions(projectName, tableName, false);
     }
 
+    /**
+     * Returns the partitions whose spec contains all the keys and values of prefix. They are
+     * listed by the server when the table has no complete partition index.
+     */
+    public List<Partition> getPartitions(String projectName, String tableName, PartitionSpec prefix) {
+        checkNotNull(prefix, "prefix cannot be null");
+        PartitionIndex index = getPartitionIndex(projectName, tableName);
+        if (index.isComplete(cacheExpireTime)) {
+            refreshIfStale(projectName, tableName, index);
+            partitionIndexHits.incrementAndGet();
+            return index.getPartitions(partition -> matches(partition.getPartitionSpec(), prefix));
+        }
+        long start = System.nanoTime();
+        List<Partition> result = new ArrayList<>();
+        Iterator<Partition> iterator = getTable(projectName, tableName).getPartitionIterator(prefix);
+        while (iterator.hasNext()) {
+            result.add(iterator.next());
+        }
+        updateListingTime(start);
+        index.add(result);
+        cachePartitions(projectName, tableName, result);
+        return result;
+    }
+
+    /** Returns the partitions of the table whose spec is accepted by filter. */
+    public List<Partition> getPartitions(String projectName, String tableName, Predicate<PartitionSpec> filter) {
+        checkNotNull(filter, "filter cannot be null");
+        List<Partition> result = new ArrayList<>();
+        for (Partition partition : getPartitions(projectName, tableName, false)) {
+            if (filter.test(partition.getPartitionSpec())) {
+                result.add(partition);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns all the partitions of the table, for callers which poll for new partitions and keep
+     * track of the ones they have seen themselves. Only the partitions following the largest known
+     * spec are listed, the whole table is listed again once the index is older than the expire
+     * time, which finds the partitions added before the largest one.
+     */
+    public List<Partition> getLatestPartitions(String projectName, String tableName) {
+        PartitionIndex index = getPartitionIndex(projectName, tableName);
+        String lastSpec = index.getLastSpec();
+        if (!index.isComplete(cacheExpireTime) || lastSpec == null) {
+            listPartitions(projectName, tableName, index, true);
+        } else {
+            try {
+                long start = System.nanoTime();
+                List<Partition> listed = fetchPartitionsFrom(projectName, tableName, new PartitionSpec(lastSpec));
+                updateListingTime(start);
+                cachePartitions(projectName, tableName, index.add(listed));
+            } catch (OdpsException e) {
+                throw new FlinkOdpsException("list partitions of " + projectName + "." + tableName + " failed", e);
+            }
+        }
+        return index.getPartitions(partition -> true);
+    }
+
     public Table getTable(String projectName, String tableName, boolean refresh) {
         checkNotNull(projectName, "projectName cannot be null");
         checkNotNull(tableName, "tableName cannot be null");
@@ -183,6 +317,95 @@ public class OdpsMetaDataProvider {
         return this.getTable(projectName, tableName, refresh).getSchema();
     }
 
+    /**
+     * Loads a partition from the server, throws {@link NoSuchObjectException} if it does not
+     * exist.
+     */
+    protected Partition loadPartition(String projectName, String tableName, PartitionSpec spec) throws OdpsException {
+        Partition partition = getTable(projectName, tableName).getPartition(spec);
+        partition.reload();
+        return partition;
+    }
+
+    /** Lists all the partitions of a table from the server. */
+    protected List<Partition> fetchPartitions(String projectName, String tableName, boolean refresh) {
+        Table table = refresh ? getTable(projectName, tableName, true) : getTable(projectName, tableName);
+        return table.getPartitions();
+    }
+
+    /**
+     * Lists the partitions of a table from the server, starting at spec. The sdk has no listing
+     * from a marker, the partitions ordered before spec are skipped while iterating.
+     */
+    protected List<Partition> fetchPartitionsFrom(String projectName, String tableName, PartitionSpec spec)
+            throws OdpsException {
+        String from = spec.toString();
+        List<Partition> result = new ArrayList<>();
+        Iterator<Partition> iterator = getTable(projectName, tableName).getPartitionIterator();
+        while (iterator.hasNext()) {
+            Partition partition = iterator.next();
+            if (partition.getPartitionSpec().toString().compareTo(from) >= 0) {
+                result.add(partition);
+            }
+        }
+        return result;
+    }
+
+    private List<Partition> listPartitions(String projectName, String tableName,
+                                           PartitionIndex index, boolean refresh) {
+        long start = System.nanoTime();
+        List<Partition> result = fetchPartitions(projectName, tableName, refresh);
+        updateListingTime(start);
+        index.reset(result);
+        cachePartitions(projectName, tableName, result);
+        return result;
+    }
+
+    private void refreshIfStale(String projectName, String tableName, PartitionIndex index) {
+        if (index.startRefresh(cacheRefreshTime)) {
+            RELOAD_EXECUTOR.execute(() -> {
+                try {
+                    listPartitions(projectName, tableName, index, false);
+                } catch (Throwable t) {
+                    LOG.warn("Refresh partitions of " + projectName + "." + tableName + " failed", t);
+                } finally {
+                    index.finishRefresh();
+                }
+            });
+        }
+    }
+
+    private void cachePartitions(String projectName, String tableName, List<Partition> partitions) {
+        partitions.forEach(partition -> {
+            partitionCache.put(new PartitionPath(projectName, tableName, partition.getPartitionSpec().toString()),
+                    Optional.of(partition));
+        });
+    }
+
+    private void updateListingTime(long start) {
+        partitionListings.incrementAndGet();
+        partitionListingTimeNanos.addAndGet(System.nanoTime() - start);
+    }
+
+    private static boolean matches(PartitionSpec spec, PartitionSpec prefix) {
+        for (String key : prefix.keys()) {
+            if (!prefix.get(key).equals(spec.get(key))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private PartitionIndex getPartitionIndex(String projectName, String tableName) {
+        checkNotNull(projectName, "projectName cannot be null");
+        checkNotNull(tableName, "tableName cannot be null");
+        try {
+            return partitionIndexCache.get(new ObjectPath(projectName, tableName), PartitionIndex::new);
+        } catch (ExecutionException e) {
+            throw new FlinkOdpsException(e);
+        }
+    }
+
     private Optional<Table> getOdpsTableOption(ObjectPath objectPath, boolean refresh) throws ExecutionException {
         if (refresh) {
             tableCache.invalidate(objectPath);
@@ -203,4 +426,82 @@ public class OdpsMetaDataProvider {
         }
         return partitionCache.get(partitionPath);
     }
+
+    /**
+     * Loader which reloads the entries older than the refresh time in the background. The old
+     * value is kept when the reload throws, a reload finding the object gone replaces it.
+     */
+    private abstract static class AsyncReloadingCacheLoader<K, V> extends CacheLoader<K, Optional<V>> {
+
+        @Override
+        public ListenableFuture<Optional<V>> reload(K key, Optional<V> oldValue) {
+            ListenableFutureTask<Optional<V>> task = ListenableFutureTask.create(() -> {
+                try {
+                    return load(key);
+                } catch (Exception e) {
+                    LOG.warn("Reload " + key + " failed, keep the cached value", e);
+                    return oldValue;
+                }
+            });
+            RELOAD_EXECUTOR.execute(task);
+            return task;
+        }
+    }
+
+    /** Partitions of a table, ordered by their spec. */
+    private static final class PartitionIndex {
+
+        private final NavigableMap<String, Partition> partitions = new TreeMap<>();
+        private long listedAt = -1;
+        private boolean refreshing;
+
+        synchronized boolean isComplete(int expireTime) {
+            return listedAt >= 0 && System.currentTimeMillis() - listedAt < TimeUnit.SECONDS.toMillis(expireTime);
+        }
+
+        synchronized boolean startRefresh(int refreshTime) {
+            if (refreshing || System.currentTimeMillis() - listedAt < TimeUnit.SECONDS.toMillis(refreshTime)) {
+                return false;
+            }
+            refreshing = true;
+            return true;
+        }
+
+        synchronized void finishRefresh() {
+            refreshing = false;
+        }
+
+        synchronized void reset(List<Partition> listed) {
+            partitions.clear();
+            for (Partition partition : listed) {
+                partitions.put(partition.getPartitionSpec().toString(), partition);
+            }
+            listedAt = System.currentTimeMillis();
+        }
+
+        /** Adds the partitions, returns the ones which were not indexed yet. */
+        synchronized List<Partition> add(List<Partition> listed) {
+            List<Partition> added = new ArrayList<>();
+            for (Partition partition : listed) {
+                if (partitions.putIfAbsent(partition.getPartitionSpec().toString(), partition) == null) {
+                    added.add(partition);
+                }
+            }
+            return added;
+        }
+
+        synchronized List<Partition> getPartitions(Predicate<Partition> filter) {
+            List<Partition> result = new ArrayList<>();
+            for (Map.Entry<String, Partition> entry : partitions.entrySet()) {
+                if (filter.test(entry.getValue())) {
+                    result.add(entry.getValue());
+                }
+            }
+            return result;
+        }
+
+        synchronized String getLastSpec() {
+            return partitions.isEmpty() ? null : partitions.lastKey();
+        }
+    }
 }
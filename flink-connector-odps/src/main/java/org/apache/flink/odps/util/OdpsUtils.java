@@ -47,6 +47,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import static org.apache.flink.odps.util.Constants.*;
@@ -54,6 +55,7 @@ import static org.apache.flink.util.Preconditions.checkNotNull;
 
 public class OdpsUtils {
     private static final Logger LOG = LoggerFactory.getLogger(OdpsUtils.class);
+    private static final Pattern PARTITION_COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
 
     private static URL odpsConfUrl;
     private static OdpsConf odpsConf;
@@ -178,6 +180,35 @@ public class OdpsUtils {
         return sb.toString();
     }
 
+    /**
+     * Returns the PARTITION clause of a DDL statement for partitionSpec. Unlike
+     * {@link #generatePartition}, whose result is parsed back into a spec, the values are
+     * escaped, as they come from the written rows, and the keys must be column names.
+     */
+    public static String generatePartitionClause(PartitionSpec partitionSpec) {
+        checkNotNull(partitionSpec, "partitionSpec cannot be null");
+        StringBuilder sb = new StringBuilder("PARTITION (");
+        String[] keys = partitionSpec.keys().toArray(new String[0]);
+        for (int i = 0; i < keys.length; ++i) {
+            Preconditions.checkArgument(PARTITION_COLUMN.matcher(keys[i]).matches(),
+                    "Invalid partition column %s in %s", keys[i], partitionSpec);
+            sb.append(keys[i]).append("='");
+            String value = partitionSpec.get(keys[i]);
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                if (c == '\'' || c == '\\') {
+                    sb.append('\\');
+                }
+                sb.append(c);
+            }
+            sb.append("'");
+            if (i + 1 < keys.length) {
+                sb.append(',');
+            }
+        }
+        return sb.append(')').toString();
+    }
+
     public static String[] createPartitionSpec(List<Partition> odpsPartitions) {
         checkNotNull(odpsPartitions, "PartitionList cannot be null");
         String[] partitions = new String[odpsPartitions.size()];
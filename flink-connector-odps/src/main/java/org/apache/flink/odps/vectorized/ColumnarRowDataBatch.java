@@ -0,0 +1,108 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.vectorized;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import org.apache.flink.odps.util.OdpsTypeConverter;
+import org.apache.flink.odps.util.OdpsUtils;
+import org.apache.flink.table.data.ColumnarRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.vector.ColumnVector;
+import org.apache.flink.table.data.vector.VectorizedColumnBatch;
+import org.apache.flink.util.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * Exposes the rows of cupid {@link ColDataBatch}es as {@link ColumnarRowData}
+ * without converting them. The data columns are read from the vectors of the
+ * current batch, the partition columns are constants of the split.
+ */
+public class ColumnarRowDataBatch {
+
+    private final OdpsColumnVector[] dataVectors;
+    private final VectorizedColumnBatch columnBatch;
+    private final ColumnarRowData row;
+
+    public ColumnarRowDataBatch(Column[] fullColumns, Map<String, String> partitionSpec) {
+        ColumnVector[] vectors = new ColumnVector[fullColumns.length];
+        List<OdpsColumnVector> dataVectors = new ArrayList<>(fullColumns.length);
+        for (int i = 0; i < fullColumns.length; i++) {
+            Column column = fullColumns[i];
+            if (partitionSpec.containsKey(column.getName())) {
+                Object value = OdpsUtils.convertPartitionColumn(
+                        partitionSpec.get(column.getName()), column.getTypeInfo());
+                vectors[i] = new OdpsConstantColumnVector(OdpsTypeConverter.valueOf(column.getType().name())
+                        .toFlinkDataField(value, column.getTypeInfo()));
+            } else {
+                // data columns appear in the batch in the order they were selected
+                OdpsColumnVector vector = new OdpsColumnVector(column.getType());
+                dataVectors.add(vector);
+                vectors[i] = vector;
+            }
+        }
+        this.dataVectors = dataVectors.toArray(new OdpsColumnVector[0]);
+        this.columnBatch = new VectorizedColumnBatch(vectors);
+        this.row = new ColumnarRowData(columnBatch);
+    }
+
+    public void updateColumnBatch(ColDataBatch colDataBatch) {
+        Preconditions.checkArgument(colDataBatch.getColumnCount() == dataVectors.length,
+                "Expect %s data columns, but the batch has %s", dataVectors.length, colDataBatch.getColumnCount());
+        for (int i = 0; i < dataVectors.length; i++) {
+            dataVectors[i].setVector(colDataBatch.getVectors()[i]);
+        }
+        columnBatch.setNumRows(colDataBatch.getRowCount());
+    }
+
+    /**
+     * Returns an iterator over the rows in this batch. The same row instance
+     * is returned for every row, and is only valid until the next batch.
+     */
+    public Iterator<RowData> rowIterator() {
+        final int maxRows = columnBatch.getNumRows();
+        return new Iterator<RowData>() {
+            int rowId = 0;
+
+            @Override
+            public boolean hasNext() {
+                return rowId < maxRows;
+            }
+
+            @Override
+            public RowData next() {
+                if (rowId >= maxRows) {
+                    throw new NoSuchElementException();
+                }
+                row.setRowId(rowId++);
+                return row;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
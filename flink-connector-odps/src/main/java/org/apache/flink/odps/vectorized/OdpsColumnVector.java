@@ -0,0 +1,130 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.vectorized;
+
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataVector;
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.data.TimestampData;
+import org.apache.flink.table.data.vector.BooleanColumnVector;
+import org.apache.flink.table.data.vector.ByteColumnVector;
+import org.apache.flink.table.data.vector.BytesColumnVector;
+import org.apache.flink.table.data.vector.DecimalColumnVector;
+import org.apache.flink.table.data.vector.DoubleColumnVector;
+import org.apache.flink.table.data.vector.FloatColumnVector;
+import org.apache.flink.table.data.vector.IntColumnVector;
+import org.apache.flink.table.data.vector.LongColumnVector;
+import org.apache.flink.table.data.vector.ShortColumnVector;
+import org.apache.flink.table.data.vector.TimestampColumnVector;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * A flink column vector reading the values of a cupid {@link ColDataVector}
+ * as flink internal data, converted the same way as
+ * {@link org.apache.flink.odps.util.OdpsTypeConverter#toFlinkDataField}.
+ * The vector can be pointed to the column of the next batch, so that one
+ * instance serves a whole split.
+ */
+public class OdpsColumnVector implements BooleanColumnVector, ByteColumnVector, ShortColumnVector,
+        IntColumnVector, LongColumnVector, FloatColumnVector, DoubleColumnVector,
+        BytesColumnVector, DecimalColumnVector, TimestampColumnVector {
+
+    private final OdpsType odpsType;
+    private final ZoneId zoneId = ZoneId.systemDefault();
+    private ColDataVector vector;
+
+    public OdpsColumnVector(OdpsType odpsType) {
+        this.odpsType = odpsType;
+    }
+
+    public void setVector(ColDataVector vector) {
+        this.vector = vector;
+    }
+
+    @Override
+    public boolean isNullAt(int i) {
+        return vector.isNullAt(i);
+    }
+
+    @Override
+    public boolean getBoolean(int i) {
+        return vector.getBoolean(i);
+    }
+
+    @Override
+    public byte getByte(int i) {
+        return vector.getByte(i);
+    }
+
+    @Override
+    public short getShort(int i) {
+        return vector.getShort(i);
+    }
+
+    @Override
+    public int getInt(int i) {
+        if (odpsType == OdpsType.DATE) {
+            return vector.getDayOffset(i);
+        }
+        return vector.getInt(i);
+    }
+
+    @Override
+    public long getLong(int i) {
+        return vector.getLong(i);
+    }
+
+    @Override
+    public float getFloat(int i) {
+        return vector.getFloat(i);
+    }
+
+    @Override
+    public double getDouble(int i) {
+        return vector.getDouble(i);
+    }
+
+    @Override
+    public Bytes getBytes(int i) {
+        if (!vector.isArrowBacked()) {
+            // read in place, the bytes stay valid until the vector is pointed to the next batch
+            return new Bytes(vector.getDeepBuf(), vector.getBinaryOffset(i), vector.getBinaryLength(i));
+        }
+        // arrow keeps the values off heap and flink strings wrap the returned array, so copy
+        byte[] bytes = vector.getBinary(i);
+        return new Bytes(bytes, 0, bytes.length);
+    }
+
+    @Override
+    public DecimalData getDecimal(int i, int precision, int scale) {
+        return DecimalData.fromBigDecimal(vector.getDecimal(i), precision, scale);
+    }
+
+    @Override
+    public TimestampData getTimestamp(int i, int precision) {
+        if (odpsType == OdpsType.DATETIME) {
+            Instant instant = Instant.ofEpochMilli(vector.getLong(i));
+            return TimestampData.fromLocalDateTime(LocalDateTime.ofInstant(instant, zoneId));
+        }
+        return TimestampData.fromTimestamp(vector.getTimestamp(i));
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.vectorized;
+
+import org.apache.flink.table.data.DecimalData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.TimestampData;
+import org.apache.flink.table.data.vector.BooleanColumnVector;
+import org.apache.flink.table.data.vector.ByteColumnVector;
+import org.apache.flink.table.data.vector.BytesColumnVector;
+import org.apache.flink.table.data.vector.DecimalColumnVector;
+import org.apache.flink.table.data.vector.DoubleColumnVector;
+import org.apache.flink.table.data.vector.FloatColumnVector;
+import org.apache.flink.table.data.vector.IntColumnVector;
+import org.apache.flink.table.data.vector.LongColumnVector;
+import org.apache.flink.table.data.vector.ShortColumnVector;
+import org.apache.flink.table.data.vector.TimestampColumnVector;
+
+/**
+ * A flink column vector with the same value in every row, used for the
+ * partition columns of a split. The value is flink internal data.
+ */
+public class OdpsConstantColumnVector implements BooleanColumnVector, ByteColumnVector, ShortColumnVector,
+        IntColumnVector, LongColumnVector, FloatColumnVector, DoubleColumnVector,
+        BytesColumnVector, DecimalColumnVector, TimestampColumnVector {
+
+    private final Object value;
+    private final Bytes bytes;
+
+    public OdpsConstantColumnVector(Object value) {
+        this.value = value;
+        if (value instanceof StringData) {
+            byte[] data = ((StringData) value).toBytes();
+            this.bytes = new Bytes(data, 0, data.length);
+        } else if (value instanceof byte[]) {
+            this.bytes = new Bytes((byte[]) value, 0, ((byte[]) value).length);
+        } else {
+            this.bytes = null;
+        }
+    }
+
+    @Override
+    public boolean isNullAt(int i) {
+        return value == null;
+    }
+
+    @Override
+    public boolean getBoolean(int i) {
+        return (boolean) value;
+    }
+
+    @Override
+    public byte getByte(int i) {
+        return (byte) value;
+    }
+
+    @Override
+    public short getShort(int i) {
+        return (short) value;
+    }
+
+    @Override
+    public int getInt(int i) {
+        return (int) value;
+    }
+
+    @Override
+    public long getLong(int i) {
+        return (long) value;
+    }
+
+    @Override
+    public float getFloat(int i) {
+        return (float) value;
+    }
+
+    @Override
+    public double getDouble(int i) {
+        return (double) value;
+    }
+
+    @Override
+    public Bytes getBytes(int i) {
+        return bytes;
+    }
+
+    @Override
+    public DecimalData getDecimal(int i, int precision, int scale) {
+        return (DecimalData) value;
+    }
+
+    @Override
+    public TimestampData getTimestamp(int i, int precision) {
+        return (TimestampData) value;
+    }
+}
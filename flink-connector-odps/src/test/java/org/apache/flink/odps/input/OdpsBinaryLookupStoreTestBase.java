@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.types.logical.IntType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.VarCharType;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/** Tests of the hash index shared by the binary stores, run against each store. */
+public abstract class OdpsBinaryLookupStoreTestBase {
+
+    protected static final RowType INT_KEY_TYPE = RowType.of(new IntType());
+    protected static final RowType STRING_KEY_TYPE = RowType.of(new VarCharType(VarCharType.MAX_LENGTH));
+    protected static final RowType ROW_TYPE = RowType.of(new IntType(), new VarCharType(VarCharType.MAX_LENGTH));
+
+    private final List<OdpsLookupStore> stores = new ArrayList<>();
+
+    /**
+     * Creates the store under test, whose records all get the same hash if
+     * collide is set.
+     */
+    protected abstract OdpsBinaryLookupStore createStore(RowType keyType, boolean collide) throws IOException;
+
+    @After
+    public void closeStores() throws IOException {
+        for (OdpsLookupStore store : stores) {
+            store.close();
+        }
+    }
+
+    @Test
+    public void testMultipleRowsPerKey() throws IOException {
+        OdpsLookupStore store = newStore(INT_KEY_TYPE, false);
+        store.add(GenericRowData.of(1), row(1, "a"));
+        store.add(GenericRowData.of(2), row(2, "b"));
+        store.add(GenericRowData.of(1), row(1, "c"));
+        store.finish();
+
+        assertEquals(Arrays.asList("a", "c"), values(store.get(GenericRowData.of(1))));
+        assertEquals(Collections.singletonList("b"), values(store.get(GenericRowData.of(2))));
+        assertTrue(store.get(GenericRowData.of(3)).isEmpty());
+        assertEquals(3, store.getNumRows());
+    }
+
+    @Test
+    public void testRehash() throws IOException {
+        // far beyond the initial buckets, so the index grows and is rehashed several times
+        int numKeys = 20000;
+        OdpsLookupStore store = newStore(INT_KEY_TYPE, false);
+        for (int i = 0; i < numKeys; i++) {
+            store.add(GenericRowData.of(i), row(i, "v" + i));
+            if (i % 2 == 0) {
+                store.add(GenericRowData.of(i), row(i, "w" + i));
+            }
+        }
+        store.finish();
+
+        assertEquals(numKeys + numKeys / 2, store.getNumRows());
+        for (int i = 0; i < numKeys; i++) {
+            List<String> expected = i % 2 == 0 ? Arrays.asList("v" + i, "w" + i) : Collections.singletonList("v" + i);
+            assertEquals(expected, values(store.get(GenericRowData.of(i))));
+        }
+        assertTrue(store.get(GenericRowData.of(numKeys)).isEmpty());
+    }
+
+    @Test
+    public void testHashCollisions() throws IOException {
+        // keys of equal and of different lengths, all in one chain
+        List<String> keys = Arrays.asList("", "a", "b", "ab", "ba", "abc", "a longer key");
+        OdpsLookupStore store = newStore(STRING_KEY_TYPE, true);
+        for (int round = 0; round < 200; round++) {
+            for (int i = 0; i < keys.size(); i++) {
+                store.add(GenericRowData.of(StringData.fromString(keys.get(i))), row(round, keys.get(i)));
+            }
+        }
+        store.finish();
+
+        for (String key : keys) {
+            List<RowData> rows = store.get(GenericRowData.of(StringData.fromString(key)));
+            assertEquals(200, rows.size());
+            for (RowData row : rows) {
+                assertEquals(key, row.getString(1).toString());
+            }
+        }
+        assertTrue(store.get(GenericRowData.of(StringData.fromString("c"))).isEmpty());
+    }
+
+    @Test
+    public void testRecordsLargerThanBuffers() throws IOException {
+        // larger than the write buffer of the disk store and the pages of the off-heap store
+        String large = repeat('x', 5 * 1024 * 1024);
+        String medium = repeat('y', 1024 * 1024 + 1);
+        OdpsLookupStore store = newStore(INT_KEY_TYPE, false);
+        store.add(GenericRowData.of(1), row(1, "small"));
+        store.add(GenericRowData.of(2), row(2, large));
+        store.add(GenericRowData.of(3), row(3, "small"));
+        store.add(GenericRowData.of(4), row(4, medium));
+        store.add(GenericRowData.of(2), row(2, medium));
+        store.add(GenericRowData.of(5), row(5, "small"));
+        store.finish();
+
+        assertEquals(Collections.singletonList("small"), values(store.get(GenericRowData.of(1))));
+        assertEquals(Arrays.asList(large, medium), values(store.get(GenericRowData.of(2))));
+        assertEquals(Collections.singletonList("small"), values(store.get(GenericRowData.of(3))));
+        assertEquals(Collections.singletonList(medium), values(store.get(GenericRowData.of(4))));
+        assertEquals(Collections.singletonList("small"), values(store.get(GenericRowData.of(5))));
+        assertTrue(store.getNumBytes() > large.length() + 2L * medium.length());
+    }
+
+    @Test
+    public void testMerge() throws IOException {
+        OdpsLookupStore merged = newStore(INT_KEY_TYPE, false);
+        OdpsLookupStore shard = newStore(INT_KEY_TYPE, false);
+        for (int i = 0; i < 2000; i++) {
+            (i % 3 == 0 ? shard : merged).add(GenericRowData.of(i % 1000), row(i, "v" + i));
+        }
+        shard.finish();
+        long numBytes = merged.getNumBytes() + shard.getNumBytes();
+        merged.merge(shard);
+        merged.finish();
+
+        assertEquals(2000, merged.getNumRows());
+        assertEquals(numBytes, merged.getNumBytes());
+        for (int i = 0; i < 1000; i++) {
+            List<String> expected = Arrays.asList("v" + i, "v" + (i + 1000));
+            List<String> values = values(merged.get(GenericRowData.of(i)));
+            Collections.sort(expected);
+            Collections.sort(values);
+            assertEquals(expected, values);
+        }
+    }
+
+    protected OdpsLookupStore newStore(RowType keyType, boolean collide) throws IOException {
+        OdpsLookupStore store = createStore(keyType, collide);
+        stores.add(store);
+        return store;
+    }
+
+    private static RowData row(int id, String value) {
+        return GenericRowData.of(id, StringData.fromString(value));
+    }
+
+    /** The values of rows in insertion order; the index returns the latest row first. */
+    private static List<String> values(List<RowData> rows) {
+        List<String> values = new ArrayList<>();
+        for (RowData row : rows) {
+            values.add(row.getString(1).toString());
+        }
+        Collections.reverse(values);
+        return values;
+    }
+
+    private static String repeat(char c, int count) {
+        char[] chars = new char[count];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
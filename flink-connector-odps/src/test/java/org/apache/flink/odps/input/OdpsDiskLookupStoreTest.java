@@ -0,0 +1,64 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.types.logical.RowType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+
+public class OdpsDiskLookupStoreTest extends OdpsBinaryLookupStoreTestBase {
+
+    @Rule
+    public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+    @Override
+    protected OdpsBinaryLookupStore createStore(RowType keyType, boolean collide) throws IOException {
+        String dir = tempFolder.getRoot().getPath();
+        if (collide) {
+            return new OdpsDiskLookupStore(keyType, ROW_TYPE, dir) {
+                @Override
+                protected int hash(byte[] keyBytes) {
+                    return 0;
+                }
+            };
+        }
+        return new OdpsDiskLookupStore(keyType, ROW_TYPE, dir);
+    }
+
+    @Test
+    public void testCloseDeletesFile() throws IOException {
+        OdpsBinaryLookupStore store = createStore(INT_KEY_TYPE, false);
+        store.add(GenericRowData.of(1), GenericRowData.of(1, StringData.fromString("a")));
+        store.finish();
+        assertEquals(1, listFiles().length);
+        store.close();
+        assertEquals(0, listFiles().length);
+    }
+
+    private File[] listFiles() {
+        return tempFolder.getRoot().listFiles();
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.input;
+
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.types.logical.IntType;
+import org.apache.flink.table.types.logical.RowType;
+import org.apache.flink.table.types.logical.VarCharType;
+import org.apache.flink.util.FlinkRuntimeException;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OdpsFullLookupCacheTest {
+
+    private static final RowType ROW_TYPE = RowType.of(new IntType(), new VarCharType(VarCharType.MAX_LENGTH));
+    private static final long EXPIRE_MS = 200;
+
+    private TestCache cache;
+
+    @After
+    public void tearDown() throws IOException {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    @Test
+    public void testFailedReloadKeepsServingOldSnapshot() throws Exception {
+        cache = new TestCache();
+        cache.value = "v1";
+        cache.open(null);
+        assertEquals("v1", lookup(1));
+
+        cache.value = null;
+        Thread.sleep(EXPIRE_MS);
+        assertEquals("v1", lookup(1));
+        waitUntil(() -> cache.failures.get() > 0);
+        // served after the reload failed, without any retry before the next expiry
+        assertEquals("v1", lookup(1));
+        assertEquals(1, cache.failures.get());
+
+        // the next expiry retries the reload
+        waitUntil(() -> lookupUnchecked(1).equals("v1") && cache.failures.get() > 1);
+        cache.value = "v2";
+        waitUntil(() -> lookupUnchecked(1).equals("v2"));
+    }
+
+    @Test
+    public void testFailedFirstLoadFailsOpen() throws Exception {
+        cache = new TestCache();
+        try {
+            cache.open(null);
+            fail("open should fail without any snapshot");
+        } catch (FlinkRuntimeException e) {
+            assertEquals("load failed", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void testReplacedStoreIsReleasedAfterReload() throws Exception {
+        cache = new TestCache();
+        cache.value = "v1";
+        cache.open(null);
+        TrackingStore first = cache.stores.get(0);
+
+        cache.value = "v2";
+        Thread.sleep(EXPIRE_MS);
+        waitUntil(() -> lookupUnchecked(1).equals("v2"));
+        // released by the reload that replaced it, not by the next one
+        waitUntil(() -> first.closed);
+        assertEquals(2, cache.stores.size());
+        TrackingStore second = cache.stores.get(1);
+        assertFalse(second.closed);
+
+        cache.close();
+        cache = null;
+        assertTrue(second.closed);
+    }
+
+    @Test
+    public void testReplacedStoreIsReleasedAfterLastLookup() throws Exception {
+        cache = new TestCache();
+        cache.value = "v1";
+        cache.open(null);
+        TrackingStore first = cache.stores.get(0);
+        first.blockGets = new CountDownLatch(1);
+
+        // a lookup that triggers the reload and is still reading the old store once it is replaced
+        cache.value = "v2";
+        Thread.sleep(EXPIRE_MS);
+        AtomicReference<String> blockedResult = new AtomicReference<>();
+        Thread blocked = new Thread(() -> blockedResult.set(lookupUnchecked(1)));
+        blocked.start();
+        waitUntil(() -> cache.stores.size() == 2 && lookupUnchecked(1).equals("v2"));
+        assertFalse(first.closed);
+
+        first.blockGets.countDown();
+        blocked.join();
+        assertEquals("v1", blockedResult.get());
+        assertTrue(first.closed);
+        assertFalse(cache.stores.get(1).closed);
+    }
+
+    private String lookup(int key) throws Exception {
+        Collection<RowData> rows = cache.get(GenericRowData.of(key)).get();
+        assertEquals(1, rows.size());
+        return rows.iterator().next().getString(1).toString();
+    }
+
+    private String lookupUnchecked(int key) {
+        try {
+            return lookup(key);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    /** Loads a single row holding value, or fails while value is null. */
+    private static class TestCache extends OdpsFullLookupCache {
+
+        private final AtomicInteger failures = new AtomicInteger();
+        private final List<TrackingStore> stores = new CopyOnWriteArrayList<>();
+        private volatile String value;
+
+        TestCache() {
+            super(null, OdpsLookupOptions.builder().setCacheExpireMs(EXPIRE_MS).build(),
+                    new int[] {0}, ROW_TYPE);
+        }
+
+        @Override
+        protected OdpsLookupStore loadStore() throws Exception {
+            String current = value;
+            if (current == null) {
+                failures.incrementAndGet();
+                throw new IOException("load failed");
+            }
+            TrackingStore store = new TrackingStore(OdpsLookupStore.create(options, keyType, rowType));
+            store.add(GenericRowData.of(1), GenericRowData.of(1, StringData.fromString(current)));
+            store.finish();
+            stores.add(store);
+            return store;
+        }
+    }
+
+    /** Records whether it was closed, and blocks lookups while blockGets is set and not counted down. */
+    private static class TrackingStore implements OdpsLookupStore {
+
+        private final OdpsLookupStore store;
+        private volatile CountDownLatch blockGets;
+        private volatile boolean closed;
+
+        TrackingStore(OdpsLookupStore store) {
+            this.store = store;
+        }
+
+        @Override
+        public void add(RowData key, RowData row) throws IOException {
+            store.add(key, row);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            store.finish();
+        }
+
+        @Override
+        public void merge(OdpsLookupStore shard) throws IOException {
+            store.merge(shard);
+        }
+
+        @Override
+        public List<RowData> get(RowData key) throws IOException {
+            assertFalse("read after close", closed);
+            CountDownLatch latch = blockGets;
+            if (latch != null) {
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            return store.get(key);
+        }
+
+        @Override
+        public long getNumRows() {
+            return store.getNumRows();
+        }
+
+        @Override
+        public long getNumBytes() {
+            return store.getNumBytes();
+        }
+
+        @Override
+        public void close() throws IOException {
+            assertFalse("closed twice", closed);
+            closed = true;
+            store.close();
+        }
+    }
+}
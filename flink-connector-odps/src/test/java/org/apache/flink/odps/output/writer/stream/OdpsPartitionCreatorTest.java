@@ -0,0 +1,167 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.output.writer.stream;
+
+import com.aliyun.odps.OdpsException;
+import com.aliyun.odps.PartitionSpec;
+import org.apache.flink.odps.util.OdpsUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OdpsPartitionCreatorTest {
+
+    private final TestCreator creator = new TestCreator();
+
+    @After
+    public void tearDown() {
+        creator.close();
+    }
+
+    @Test
+    public void testQueuedPartitionsAreCreatedTogether() throws Exception {
+        List<CompletableFuture<Void>> futures = creator.createWhileBlocked("ds='1'", "ds='2'", "ds='3'");
+        awaitAll(futures);
+        assertEquals(Arrays.asList(
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='1') PARTITION (ds='2') PARTITION (ds='3');"),
+                creator.statements);
+
+        // created partitions are not created again
+        awaitAll(Collections.singletonList(creator.create("ds='2'")));
+        assertEquals(1, creator.statements.size());
+    }
+
+    @Test
+    public void testFailingPartitionIsLeftOutOfLaterStatements() throws Exception {
+        creator.failing = "ds='bad'";
+        awaitAll(creator.createWhileBlocked("ds='1'", "ds='bad'", "ds='2'"));
+        assertEquals(Arrays.asList(
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='1') PARTITION (ds='bad') PARTITION (ds='2');",
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='1');",
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='bad');",
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='2');"),
+                creator.statements);
+
+        // the writer of the failed partition asks again
+        creator.statements.clear();
+        awaitAll(creator.createWhileBlocked("ds='bad'", "ds='3'", "ds='4'"));
+        assertEquals(Arrays.asList(
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='3') PARTITION (ds='4');",
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='bad');"),
+                creator.statements);
+    }
+
+    @Test
+    public void testPartitionValuesAreEscaped() throws Exception {
+        awaitAll(Collections.singletonList(creator.create("ds='x\\',hh='1)'")));
+        assertEquals(Collections.singletonList(
+                "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (ds='x\\\\',hh='1)');"),
+                creator.statements);
+
+        PartitionSpec spec = new PartitionSpec();
+        spec.set("ds", "o'hara");
+        assertEquals("PARTITION (ds='o\\'hara')", OdpsUtils.generatePartitionClause(spec));
+    }
+
+    @Test
+    public void testInvalidPartitionColumnIsNotCreated() throws Exception {
+        awaitAll(Collections.singletonList(creator.create("ds) drop=x")));
+        assertTrue(creator.statements.isEmpty());
+
+        PartitionSpec spec = new PartitionSpec();
+        spec.set("ds) drop", "x");
+        try {
+            OdpsUtils.generatePartitionClause(spec);
+            fail("expected an invalid partition column");
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("Invalid partition column"));
+        }
+    }
+
+    private static void awaitAll(List<CompletableFuture<Void>> futures) throws Exception {
+        for (CompletableFuture<Void> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    /**
+     * Records the statements instead of running them. The existence check of a blocking
+     * partition waits until released, and the partition exists.
+     */
+    private static class TestCreator extends OdpsPartitionCreator {
+
+        private final List<String> statements = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch blocked;
+        private volatile CountDownLatch gate;
+        private volatile String failing;
+        private int numBlocking;
+
+        TestCreator() {
+            super(null, null, "p", "t");
+        }
+
+        /** Requests partitions while the creation thread is blocked, so that they are batched. */
+        List<CompletableFuture<Void>> createWhileBlocked(String... partitions) throws Exception {
+            blocked = new CountDownLatch(1);
+            gate = new CountDownLatch(1);
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            futures.add(create("blocking='" + numBlocking++ + "'"));
+            assertTrue(blocked.await(10, TimeUnit.SECONDS));
+            for (String partition : partitions) {
+                futures.add(create(partition));
+            }
+            gate.countDown();
+            return futures;
+        }
+
+        @Override
+        protected boolean exists(String partition) {
+            if (!partition.startsWith("blocking=")) {
+                return false;
+            }
+            blocked.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return true;
+        }
+
+        @Override
+        protected void runSql(String sql) throws OdpsException {
+            statements.add(sql);
+            if (failing != null && sql.contains(failing)) {
+                throw new OdpsException("denied");
+            }
+        }
+    }
+}
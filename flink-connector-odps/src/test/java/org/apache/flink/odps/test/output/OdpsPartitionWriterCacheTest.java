@@ -0,0 +1,223 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.test.output;
+
+import org.apache.flink.odps.output.writer.OdpsStreamWrite;
+import org.apache.flink.odps.output.writer.stream.OdpsPartitionWriterCache;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OdpsPartitionWriterCacheTest {
+
+    private static final int RECORD_BYTES = 10;
+
+    private final Map<String, CompletableFuture<OdpsStreamWrite<String>>> futures = new HashMap<>();
+    private final Map<String, FakeWriter> writers = new HashMap<>();
+    private final List<String> closed = new ArrayList<>();
+
+    @Test
+    public void testEvictsLeastRecentlyUsedBeyondLimit() throws Exception {
+        OdpsPartitionWriterCache<String> cache = newCache(2, 0, true);
+        cache.write("p=1", "a");
+        cache.write("p=2", "b");
+        cache.write("p=1", "c");
+        cache.write("p=3", "d");
+
+        assertEquals(Collections.singletonList("p=2"), closed);
+        assertEquals(Arrays.asList("p=1", "p=3"), cache.getPartitions());
+        FakeWriter evicted = writers.get("p=2");
+        assertEquals(1, evicted.flushed);
+        assertEquals(0, evicted.getBufferedBytes());
+        assertEquals(3 * RECORD_BYTES, cache.getBufferedBytes());
+        assertEquals(RECORD_BYTES, cache.getBytesWritten());
+
+        cache.close();
+        assertEquals(Arrays.asList("p=2", "p=1", "p=3"), closed);
+        assertEquals(0, cache.getBufferedBytes());
+        assertEquals(4 * RECORD_BYTES, cache.getBytesWritten());
+    }
+
+    @Test
+    public void testEvictsUntilBufferedBytesFit() throws Exception {
+        OdpsPartitionWriterCache<String> cache = newCache(10, 3 * RECORD_BYTES, true);
+        cache.write("p=1", "a");
+        cache.write("p=2", "b");
+        cache.write("p=3", "c");
+        assertEquals(3 * RECORD_BYTES, cache.getBufferedBytes());
+        assertTrue(closed.isEmpty());
+
+        // p=2 is the least recently used, evicting it is enough
+        cache.write("p=1", "d");
+        assertEquals(Collections.singletonList("p=2"), closed);
+        assertEquals(Arrays.asList("p=3", "p=1"), cache.getPartitions());
+        assertEquals(3 * RECORD_BYTES, cache.getBufferedBytes());
+
+        cache.write("p=1", "e");
+        assertEquals(Arrays.asList("p=2", "p=3"), closed);
+        assertEquals(3 * RECORD_BYTES, cache.getBufferedBytes());
+
+        // the current partition is never evicted
+        cache.write("p=1", "f");
+        assertEquals(Arrays.asList("p=2", "p=3"), closed);
+        assertEquals(Collections.singletonList("p=1"), cache.getPartitions());
+        assertEquals(4 * RECORD_BYTES, cache.getBufferedBytes());
+    }
+
+    @Test
+    public void testPendingRecordsAreCounted() throws Exception {
+        OdpsPartitionWriterCache<String> cache = newCache(10, 0, false);
+        open("p=1");
+        cache.write("p=1", "a");
+        cache.write("p=1", "b");
+        assertEquals(2 * RECORD_BYTES, cache.getBufferedBytes());
+
+        // the records of an unopened writer are estimated from the records written so far
+        cache.write("p=2", "c");
+        cache.write("p=2", "d");
+        cache.write("p=2", "e");
+        assertFalse(writers.containsKey("p=2"));
+        assertEquals(5 * RECORD_BYTES, cache.getBufferedBytes());
+        assertFalse(cache.isIdle());
+
+        open("p=2");
+        cache.write("p=2", "f");
+        assertEquals(Arrays.asList("c", "d", "e", "f"), writers.get("p=2").records);
+        assertEquals(6 * RECORD_BYTES, cache.getBufferedBytes());
+
+        cache.flush();
+        assertEquals(0, cache.getBufferedBytes());
+        assertTrue(cache.isIdle());
+        assertEquals(6 * RECORD_BYTES, cache.getBytesWritten());
+    }
+
+    @Test
+    public void testPendingRecordsCanBeEvicted() throws Exception {
+        OdpsPartitionWriterCache<String> cache = newCache(10, 3 * RECORD_BYTES, false);
+        open("p=1");
+        cache.write("p=1", "a");
+        cache.write("p=2", "b");
+        cache.write("p=2", "c");
+        assertEquals(3 * RECORD_BYTES, cache.getBufferedBytes());
+
+        open("p=2");
+        cache.write("p=1", "d");
+        // p=2 is least recently used and is flushed with its pending records before closing
+        assertEquals(Collections.singletonList("p=2"), closed);
+        assertEquals(Arrays.asList("b", "c"), writers.get("p=2").flushedRecords);
+        assertEquals(2 * RECORD_BYTES, cache.getBufferedBytes());
+    }
+
+    private OdpsPartitionWriterCache<String> newCache(int maxWriters, long maxBufferedBytes, boolean openAtOnce) {
+        return new OdpsPartitionWriterCache<>(maxWriters, maxBufferedBytes, 100, partition -> {
+            CompletableFuture<OdpsStreamWrite<String>> future =
+                    futures.computeIfAbsent(partition, p -> new CompletableFuture<>());
+            if (openAtOnce) {
+                open(partition);
+            }
+            return future;
+        });
+    }
+
+    private void open(String partition) {
+        FakeWriter writer = new FakeWriter(partition);
+        writers.put(partition, writer);
+        futures.computeIfAbsent(partition, p -> new CompletableFuture<>()).complete(writer);
+    }
+
+    /** Buffers {@link #RECORD_BYTES} per record until flushed. */
+    private class FakeWriter implements OdpsStreamWrite<String> {
+
+        private final String partition;
+        private final List<String> records = new ArrayList<>();
+        private final List<String> flushedRecords = new ArrayList<>();
+        private int flushed;
+        private boolean isClosed;
+
+        FakeWriter(String partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void initWriteSession() {
+        }
+
+        @Override
+        public void open(int taskNumber, int numTasks) {
+        }
+
+        @Override
+        public void writeRecord(String record) {
+            assertFalse(isClosed);
+            records.add(record);
+        }
+
+        @Override
+        public void flush() {
+            flushed++;
+            flushedRecords.addAll(records.subList(flushedRecords.size(), records.size()));
+        }
+
+        @Override
+        public void close() {
+            assertFalse(isClosed);
+            isClosed = true;
+            closed.add(partition);
+        }
+
+        @Override
+        public void commitWriteSession() {
+        }
+
+        @Override
+        public void updateWriteContext(SinkFunction.Context context) {
+        }
+
+        @Override
+        public boolean isIdle() {
+            return getBufferedBytes() == 0;
+        }
+
+        @Override
+        public long getFlushInterval() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return (long) flushedRecords.size() * RECORD_BYTES;
+        }
+
+        @Override
+        public long getBufferedBytes() {
+            return (long) (records.size() - flushedRecords.size()) * RECORD_BYTES;
+        }
+    }
+}
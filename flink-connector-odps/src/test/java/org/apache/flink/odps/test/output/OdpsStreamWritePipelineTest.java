@@ -0,0 +1,269 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.test.output;
+
+import org.apache.flink.api.common.typeutils.TypeSerializer;
+import org.apache.flink.api.common.typeutils.base.StringValueSerializer;
+import org.apache.flink.odps.output.writer.OdpsStreamWrite;
+import org.apache.flink.odps.output.writer.OdpsWriteOptions;
+import org.apache.flink.odps.output.writer.stream.OdpsStreamWritePipeline;
+import org.apache.flink.odps.test.util.MockSinkContext;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.types.StringValue;
+import org.apache.flink.util.ExceptionUtils;
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OdpsStreamWritePipelineTest {
+
+    private static final int RECORD_BYTES = 100;
+    private static final SinkFunction.Context CONTEXT = new MockSinkContext(1L, 0L, 0L);
+
+    private final List<OdpsStreamWritePipeline<?>> pipelines = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (OdpsStreamWritePipeline<?> pipeline : pipelines) {
+            try {
+                pipeline.close();
+            } catch (IOException ignored) {
+                // the failure is asserted by the test
+            }
+        }
+    }
+
+    @Test
+    public void testFlushWaitsForEveryBatch() throws Exception {
+        FakeWriter<String> first = new FakeWriter<>();
+        FakeWriter<String> second = new FakeWriter<>();
+        first.gate = new CountDownLatch(1);
+        second.gate = first.gate;
+        OdpsStreamWritePipeline<String> pipeline = open(Arrays.asList(first, second), 2, 1024, null);
+        for (int i = 0; i < 7; i++) {
+            pipeline.write("r" + i, CONTEXT);
+        }
+
+        CompletableFuture<Void> flushed = runAsync(pipeline::flush);
+        assertNotDone(flushed);
+        first.gate.countDown();
+        flushed.get(10, TimeUnit.SECONDS);
+
+        // batches of two records are handed over to the flushers in turn
+        assertEquals(Arrays.asList("r0", "r1", "r4", "r5"), first.records);
+        assertEquals(Arrays.asList("r2", "r3", "r6"), second.records);
+        assertEquals(first.records, first.flushedRecords);
+        assertEquals(second.records, second.flushedRecords);
+        assertEquals(Collections.singletonList(1L), first.timestamps.subList(0, 1));
+    }
+
+    @Test
+    public void testFlusherFailureReachesTaskThread() throws Exception {
+        FakeWriter<String> writer = new FakeWriter<>();
+        writer.failure = new IOException("tunnel closed");
+        OdpsStreamWritePipeline<String> pipeline = open(Collections.singletonList(writer), 1, 1024, null);
+        pipeline.write("r0", CONTEXT);
+
+        assertFailure(pipeline::flush);
+        assertFailure(() -> pipeline.write("r1", CONTEXT));
+        assertFailure(pipeline::close);
+        assertTrue(writer.records.isEmpty());
+    }
+
+    @Test
+    public void testBackPressureBlocksAndResumes() throws Exception {
+        FakeWriter<String> writer = new FakeWriter<>();
+        // at most two batches of RECORD_BYTES may be outstanding
+        OdpsStreamWritePipeline<String> pipeline =
+                open(Collections.singletonList(writer), 1, RECORD_BYTES, null);
+        pipeline.write("r0", CONTEXT);
+        pipeline.flush();
+
+        writer.gate = new CountDownLatch(1);
+        CompletableFuture<Void> written = runAsync(() -> {
+            for (int i = 1; i < 5; i++) {
+                pipeline.write("r" + i, CONTEXT);
+            }
+        });
+        assertNotDone(written);
+        writer.gate.countDown();
+        written.get(10, TimeUnit.SECONDS);
+        pipeline.flush();
+        assertEquals(Arrays.asList("r0", "r1", "r2", "r3", "r4"), writer.flushedRecords);
+    }
+
+    @Test
+    public void testReusedRecordsAreCopied() throws Exception {
+        FakeWriter<StringValue> writer = new FakeWriter<>();
+        OdpsStreamWritePipeline<StringValue> pipeline =
+                open(Collections.singletonList(writer), 10, 1024, StringValueSerializer.INSTANCE);
+        StringValue reuse = new StringValue();
+        for (String value : Arrays.asList("a", "b", "c")) {
+            reuse.setValue(value);
+            pipeline.write(reuse, CONTEXT);
+        }
+        pipeline.flush();
+
+        List<String> values = new ArrayList<>();
+        for (StringValue record : writer.records) {
+            assertFalse(record == reuse);
+            values.add(record.getValue());
+        }
+        assertEquals(Arrays.asList("a", "b", "c"), values);
+    }
+
+    private <T> OdpsStreamWritePipeline<T> open(List<FakeWriter<T>> writers,
+                                               int batchRows,
+                                               long maxBatchBytes,
+                                               TypeSerializer<T> serializer) {
+        OdpsWriteOptions options = OdpsWriteOptions.builder()
+                .setBufferFlushMaxRows(batchRows)
+                .setBufferFlushMaxSizeInBytes(maxBatchBytes)
+                .build();
+        OdpsStreamWritePipeline<T> pipeline =
+                new OdpsStreamWritePipeline<>(new ArrayList<>(writers), options, serializer);
+        pipeline.open(null);
+        pipelines.add(pipeline);
+        return pipeline;
+    }
+
+    private static CompletableFuture<Void> runAsync(IOAction action) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try {
+                action.run();
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return future;
+    }
+
+    private static void assertNotDone(CompletableFuture<Void> future) throws Exception {
+        try {
+            future.get(200, TimeUnit.MILLISECONDS);
+            fail("expected to be blocked");
+        } catch (TimeoutException expected) {
+            // blocked
+        }
+    }
+
+    private static void assertFailure(IOAction action) {
+        try {
+            action.run();
+            fail("expected the failure of the flusher");
+        } catch (IOException e) {
+            assertTrue(ExceptionUtils.findThrowableWithMessage(e, "tunnel closed").isPresent());
+        }
+    }
+
+    private interface IOAction {
+        void run() throws IOException;
+    }
+
+    /** Writes {@link #RECORD_BYTES} per record, blocking on the gate while it is closed. */
+    private static class FakeWriter<T> implements OdpsStreamWrite<T> {
+
+        private final List<T> records = new CopyOnWriteArrayList<>();
+        private final List<T> flushedRecords = new CopyOnWriteArrayList<>();
+        private final List<Long> timestamps = new CopyOnWriteArrayList<>();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile IOException failure;
+        private Long timestamp;
+
+        @Override
+        public void initWriteSession() {
+        }
+
+        @Override
+        public void open(int taskNumber, int numTasks) {
+        }
+
+        @Override
+        public void writeRecord(T record) throws IOException {
+            try {
+                gate.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            records.add(record);
+            timestamps.add(timestamp);
+        }
+
+        @Override
+        public void flush() {
+            flushedRecords.addAll(records.subList(flushedRecords.size(), records.size()));
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void commitWriteSession() {
+        }
+
+        @Override
+        public void updateWriteContext(SinkFunction.Context context) {
+            timestamp = context.timestamp();
+        }
+
+        @Override
+        public boolean isIdle() {
+            return getBufferedBytes() == 0;
+        }
+
+        @Override
+        public long getFlushInterval() {
+            return 0;
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return (long) records.size() * RECORD_BYTES;
+        }
+
+        @Override
+        public long getBufferedBytes() {
+            return (long) (records.size() - flushedRecords.size()) * RECORD_BYTES;
+        }
+    }
+}
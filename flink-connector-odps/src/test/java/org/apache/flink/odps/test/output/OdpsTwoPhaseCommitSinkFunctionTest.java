@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package org.apache.flink.odps.test.output;
+
+import com.aliyun.odps.tunnel.TableTunnel;
+import com.aliyun.odps.tunnel.TunnelException;
+import org.apache.flink.odps.output.OdpsTwoPhaseCommitSinkFunction;
+import org.apache.flink.odps.output.writer.OdpsWrite;
+import org.apache.flink.odps.util.OdpsConf;
+import org.apache.flink.runtime.checkpoint.OperatorSubtaskState;
+import org.apache.flink.streaming.api.functions.sink.SinkFunction;
+import org.apache.flink.streaming.api.operators.StreamSink;
+import org.apache.flink.streaming.util.OneInputStreamOperatorTestHarness;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.*;
+
+import static org.apache.flink.util.ExceptionUtils.findThrowableWithMessage;
+import static org.junit.Assert.*;
+
+public class OdpsTwoPhaseCommitSinkFunctionTest {
+
+    private static FakeTunnel tunnel;
+
+    @Before
+    public void setUp() {
+        tunnel = new FakeTunnel();
+    }
+
+    @Test
+    public void testCommitOnCheckpointComplete() throws Exception {
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.open();
+            harness.processElement("a", 1L);
+            harness.processElement("b", 2L);
+            harness.snapshot(1L, 3L);
+            assertTrue(tunnel.committed.isEmpty());
+
+            harness.notifyOfCompletedCheckpoint(1L);
+            assertEquals(Collections.singletonList("session-0"), tunnel.committed);
+            assertEquals(Arrays.asList("a", "b"), tunnel.rows.get("session-0"));
+        }
+    }
+
+    @Test
+    public void testSnapshotRestoreAndCommit() throws Exception {
+        OperatorSubtaskState state;
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.open();
+            harness.processElement("a", 1L);
+            state = harness.snapshot(1L, 2L);
+            // the job fails before the checkpoint is confirmed
+            harness.processElement("b", 3L);
+        }
+        assertTrue(tunnel.committed.isEmpty());
+
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.initializeState(state);
+            harness.open();
+            assertEquals(Collections.singletonList("session-0"), tunnel.committed);
+            assertEquals(Collections.singletonList("a"), tunnel.rows.get("session-0"));
+            // the rows after the checkpoint are not committed
+            assertEquals(Collections.singletonList("b"), tunnel.rows.get("session-1"));
+        }
+    }
+
+    @Test
+    public void testRestoreSkipsCommittedSession() throws Exception {
+        OperatorSubtaskState state = snapshotOneSession();
+        // committed before the failure, but not confirmed
+        tunnel.statuses.put("session-0", TableTunnel.UploadStatus.CLOSED);
+
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.initializeState(state);
+            harness.open();
+            assertTrue(tunnel.committed.isEmpty());
+        }
+    }
+
+    @Test
+    public void testRestoreRetriesTransientFailure() throws Exception {
+        OperatorSubtaskState state = snapshotOneSession();
+        tunnel.failures = 2;
+
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.initializeState(state);
+            harness.open();
+            assertEquals(Collections.singletonList("session-0"), tunnel.committed);
+        }
+    }
+
+    @Test
+    public void testRestoreFailsOnPersistentFailure() throws Exception {
+        OperatorSubtaskState state = snapshotOneSession();
+        tunnel.failures = Integer.MAX_VALUE;
+
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.initializeState(state);
+            fail("The restore should fail");
+        } catch (Exception e) {
+            assertTrue(findThrowableWithMessage(e, "after retrying").isPresent());
+        }
+        assertTrue(tunnel.committed.isEmpty());
+    }
+
+    @Test
+    public void testRestoreFailsOnExpiredSession() throws Exception {
+        OperatorSubtaskState state = snapshotOneSession();
+        tunnel.statuses.put("session-0", TableTunnel.UploadStatus.EXPIRED);
+
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.initializeState(state);
+            fail("The restore should fail");
+        } catch (Exception e) {
+            assertTrue(findThrowableWithMessage(e, "cannot be committed").isPresent());
+        }
+    }
+
+    private OperatorSubtaskState snapshotOneSession() throws Exception {
+        try (OneInputStreamOperatorTestHarness<String, Object> harness = createHarness()) {
+            harness.setup();
+            harness.open();
+            harness.processElement("a", 1L);
+            return harness.snapshot(1L, 2L);
+        }
+    }
+
+    private static OneInputStreamOperatorTestHarness<String, Object> createHarness() throws Exception {
+        OdpsConf odpsConf = new OdpsConf("id", "key", "endpoint", "project");
+        return new OneInputStreamOperatorTestHarness<>(new StreamSink<>(new TestSink(odpsConf)));
+    }
+
+    /**
+     * Sink whose upload sessions live in a {@link FakeTunnel}.
+     */
+    private static class TestSink extends OdpsTwoPhaseCommitSinkFunction<String> {
+
+        TestSink(OdpsConf odpsConf) {
+            super(odpsConf, "project", "table", "", false, null, null);
+        }
+
+        @Override
+        protected OdpsWrite<String> createWriter(String partitionSpec) {
+            return new FakeWrite();
+        }
+
+        @Override
+        protected String getSessionId(OdpsWrite<String> writer) {
+            return ((FakeWrite) writer).sessionId;
+        }
+
+        @Override
+        protected TableTunnel.UploadStatus getSessionStatus(String partitionSpec, String sessionId)
+                throws IOException {
+            if (tunnel.failures > 0) {
+                tunnel.failures--;
+                throw new IOException("Connection reset");
+            }
+            return tunnel.statuses.get(sessionId);
+        }
+
+        @Override
+        protected void commitUploadSession(String partitionSpec, String sessionId) throws TunnelException {
+            if (tunnel.statuses.get(sessionId) != TableTunnel.UploadStatus.NORMAL) {
+                throw new TunnelException("Session " + sessionId + " is not normal");
+            }
+            tunnel.statuses.put(sessionId, TableTunnel.UploadStatus.CLOSED);
+            tunnel.committed.add(sessionId);
+        }
+    }
+
+    /**
+     * Writer of one fake upload session. It is not serializable, so it must
+     * not be part of the checkpointed transaction.
+     */
+    private static class FakeWrite implements OdpsWrite<String> {
+
+        private String sessionId;
+
+        @Override
+        public void initWriteSession() {
+            sessionId = "session-" + tunnel.statuses.size();
+            tunnel.statuses.put(sessionId, TableTunnel.UploadStatus.NORMAL);
+            tunnel.rows.put(sessionId, new ArrayList<>());
+        }
+
+        @Override
+        public void open(int taskNumber, int numTasks) {
+        }
+
+        @Override
+        public void writeRecord(String record) {
+            tunnel.rows.get(sessionId).add(record);
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void commitWriteSession() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void updateWriteContext(SinkFunction.Context context) {
+        }
+    }
+
+    private static class FakeTunnel {
+        private final Map<String, TableTunnel.UploadStatus> statuses = new LinkedHashMap<>();
+        private final Map<String, List<String>> rows = new HashMap<>();
+        private final List<String> committed = new ArrayList<>();
+        private int failures;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.odps.test.source;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.account.AliyunAccount;
+import org.apache.flink.api.connector.source.ReaderInfo;
+import org.apache.flink.api.connector.source.SourceEvent;
+import org.apache.flink.api.connector.source.SplitEnumeratorContext;
+import org.apache.flink.api.connector.source.SplitsAssignment;
+import org.apache.flink.metrics.groups.SplitEnumeratorMetricGroup;
+import org.apache.flink.metrics.groups.UnregisteredMetricsGroup;
+import org.apache.flink.odps.input.OdpsInputSplit;
+import org.apache.flink.odps.source.OdpsSourceEnumState;
+import org.apache.flink.odps.source.OdpsSourceEnumStateSerializer;
+import org.apache.flink.odps.source.OdpsSourceEnumerator;
+import org.apache.flink.odps.source.OdpsSourceSplit;
+import org.apache.flink.odps.util.OdpsMetaDataProvider;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.function.BiConsumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class OdpsSourceEnumeratorTest {
+
+    private static final String[] PARTITIONS = {"ds=1", "ds=2"};
+    private static final int SPLITS_PER_PARTITION = 3;
+
+    @Test
+    public void testAssignsOneSplitPerRequestInPartitionOrder() throws Exception {
+        TestContext context = new TestContext(2);
+        TestEnumerator enumerator = new TestEnumerator(context, OdpsSourceEnumState.empty());
+        enumerator.start();
+        assertEquals(Arrays.asList("ds=1", "ds=2"), enumerator.plannedPartitions);
+
+        enumerator.handleSplitRequest(0, "localhost");
+        enumerator.handleSplitRequest(1, "localhost");
+        assertEquals(Arrays.asList("ds=1#0", "ds=1#1"), context.assignedSplitIds(0, 1));
+        assertEquals(Arrays.asList("ds=1#0"), context.assignedSplitIds(0));
+        assertEquals(Arrays.asList("ds=1#1"), context.assignedSplitIds(1));
+
+        // a split of a failed reader is handed out again before the others
+        enumerator.addSplitsBack(context.assigned.get(1), 1);
+        enumerator.handleSplitRequest(0, "localhost");
+        assertEquals(Arrays.asList("ds=1#0", "ds=1#1"), context.assignedSplitIds(0));
+
+        for (int i = 0; i < 4; i++) {
+            enumerator.handleSplitRequest(1, "localhost");
+        }
+        assertEquals(Arrays.asList("ds=1#1", "ds=1#2", "ds=2#0", "ds=2#1", "ds=2#2"),
+                context.assignedSplitIds(1));
+        assertTrue(context.noMoreSplits.isEmpty());
+
+        // a bounded source signals the end once all the splits are handed out
+        enumerator.handleSplitRequest(0, "localhost");
+        enumerator.handleSplitRequest(1, "localhost");
+        assertEquals(Arrays.asList(0, 1), context.noMoreSplits);
+    }
+
+    @Test
+    public void testSnapshotState() throws Exception {
+        TestContext context = new TestContext(1);
+        TestEnumerator enumerator = new TestEnumerator(context, OdpsSourceEnumState.empty());
+        enumerator.start();
+        enumerator.handleSplitRequest(0, "localhost");
+
+        OdpsSourceEnumState state = enumerator.snapshotState(1L);
+        assertTrue(state.isInitialDiscoveryFinished());
+        assertEquals(new HashSet<>(Arrays.asList(PARTITIONS)), state.getProcessedPartitions());
+        assertEquals(Arrays.asList("ds=1#1", "ds=1#2", "ds=2#0", "ds=2#1", "ds=2#2"), splitIds(state.getPendingSplits()));
+    }
+
+    @Test
+    public void testRestoreHandsOutPendingSplitsWithoutRediscovery() throws Exception {
+        TestContext context = new TestContext(1);
+        TestEnumerator enumerator = new TestEnumerator(context, OdpsSourceEnumState.empty());
+        enumerator.start();
+        enumerator.handleSplitRequest(0, "localhost");
+        enumerator.handleSplitRequest(0, "localhost");
+        byte[] checkpoint = OdpsSourceEnumStateSerializer.INSTANCE.serialize(enumerator.snapshotState(1L));
+
+        OdpsSourceEnumState restoredState = OdpsSourceEnumStateSerializer.INSTANCE.deserialize(
+                OdpsSourceEnumStateSerializer.INSTANCE.getVersion(), checkpoint);
+        TestContext restoredContext = new TestContext(1);
+        TestEnumerator restored = new TestEnumerator(restoredContext, restoredState);
+        restored.start();
+        assertTrue(restored.plannedPartitions.isEmpty());
+
+        for (int i = 0; i < 5; i++) {
+            restored.handleSplitRequest(0, "localhost");
+        }
+        assertEquals(Arrays.asList("ds=1#2", "ds=2#0", "ds=2#1", "ds=2#2"), restoredContext.assignedSplitIds(0));
+        assertEquals(Arrays.asList(0), restoredContext.noMoreSplits);
+    }
+
+    @Test
+    public void testPartitionIsPlannedAgainAfterFailedDiscovery() throws Exception {
+        TestContext context = new TestContext(1);
+        TestEnumerator enumerator = new TestEnumerator(
+                context, null, Duration.ofMinutes(1), OdpsSourceEnumState.empty());
+        enumerator.tablePartitions.put("ds=1", 30L);
+        enumerator.tablePartitions.put("ds=2", 30L);
+        enumerator.failingPartitions.add("ds=2");
+        enumerator.start();
+        assertTrue(enumerator.snapshotState(1L).getProcessedPartitions().isEmpty());
+        assertTrue(enumerator.snapshotState(1L).getPendingSplits().isEmpty());
+
+        // the next discovery lists the same partitions and plans them again
+        context.discover();
+        assertEquals(Arrays.asList("ds=1", "ds=2", "ds=1", "ds=2"), enumerator.plannedPartitions);
+        OdpsSourceEnumState state = enumerator.snapshotState(2L);
+        assertEquals(new HashSet<>(Arrays.asList("ds=1", "ds=2")), state.getProcessedPartitions());
+        assertEquals(Arrays.asList("ds=1#0", "ds=1#1", "ds=1#2", "ds=2#0", "ds=2#1", "ds=2#2"),
+                splitIds(state.getPendingSplits()));
+
+        // a new partition is planned alone
+        enumerator.tablePartitions.put("ds=3", 30L);
+        context.discover();
+        assertEquals(Arrays.asList("ds=1", "ds=2", "ds=1", "ds=2", "ds=3"), enumerator.plannedPartitions);
+        assertEquals(9, enumerator.snapshotState(3L).getPendingSplits().size());
+    }
+
+    private static List<String> splitIds(List<OdpsSourceSplit> splits) {
+        List<String> ids = new ArrayList<>();
+        for (OdpsSourceSplit split : splits) {
+            ids.add(split.splitId());
+        }
+        return ids;
+    }
+
+    /**
+     * Plans {@link #SPLITS_PER_PARTITION} splits for each of the static {@link #PARTITIONS}, or of
+     * the listed table partitions when discovering partitions.
+     */
+    private static class TestEnumerator extends OdpsSourceEnumerator {
+
+        private final List<String> plannedPartitions = new ArrayList<>();
+        private final Map<String, Long> tablePartitions = new TreeMap<>();
+        private final Set<String> failingPartitions = new HashSet<>();
+        private final OdpsMetaDataProvider metaDataProvider =
+                new OdpsMetaDataProvider(new Odps(new AliyunAccount("id", "key")));
+
+        TestEnumerator(SplitEnumeratorContext<OdpsSourceSplit> context, OdpsSourceEnumState state) {
+            this(context, PARTITIONS, null, state);
+        }
+
+        TestEnumerator(SplitEnumeratorContext<OdpsSourceSplit> context,
+                       String[] staticPartitions,
+                       Duration discoveryInterval,
+                       OdpsSourceEnumState state) {
+            super(context, null, staticPartitions, discoveryInterval, true, state);
+        }
+
+        @Override
+        protected boolean isPartitioned() {
+            return true;
+        }
+
+        @Override
+        protected Map<String, Long> listPartitions() {
+            return new TreeMap<>(tablePartitions);
+        }
+
+        @Override
+        protected OdpsInputSplit[] createInputSplits(String partition) throws IOException {
+            plannedPartitions.add(partition);
+            if (failingPartitions.remove(partition)) {
+                throw new IOException("planning " + partition + " failed");
+            }
+            OdpsInputSplit[] splits = new OdpsInputSplit[SPLITS_PER_PARTITION];
+            for (int i = 0; i < splits.length; i++) {
+                splits[i] = new OdpsInputSplit(new TestInputSplit(partition, i * 10L, 10L, true), i);
+            }
+            return splits;
+        }
+
+        @Override
+        protected OdpsMetaDataProvider getMetaDataProvider() {
+            return metaDataProvider;
+        }
+    }
+
+    /**
+     * Runs the async calls at once and records the assignments, a periodic call runs again on
+     * {@link #discover()}.
+     */
+    private static class TestContext implements SplitEnumeratorContext<OdpsSourceSplit> {
+
+        private final Map<Integer, ReaderInfo> readers = new HashMap<>();
+        private final Map<Integer, List<OdpsSourceSplit>> assigned = new HashMap<>();
+        private final List<Integer> noMoreSplits = new ArrayList<>();
+        private Runnable periodicCall;
+        private final SplitEnumeratorMetricGroup metricGroup =
+                UnregisteredMetricsGroup.createSplitEnumeratorMetricGroup();
+
+        TestContext(int parallelism) {
+            for (int i = 0; i < parallelism; i++) {
+                readers.put(i, new ReaderInfo(i, "localhost"));
+            }
+        }
+
+        void discover() {
+            periodicCall.run();
+        }
+
+        List<String> assignedSplitIds(int... subtaskIds) {
+            List<String> ids = new ArrayList<>();
+            for (int subtaskId : subtaskIds) {
+                ids.addAll(splitIds(assigned.getOrDefault(subtaskId, new ArrayList<>())));
+            }
+            return ids;
+        }
+
+        @Override
+        public SplitEnumeratorMetricGroup metricGroup() {
+            return metricGroup;
+        }
+
+        @Override
+        public void sendEventToSourceReader(int subtaskId, SourceEvent event) {
+        }
+
+        @Override
+        public int currentParallelism() {
+            return readers.size();
+        }
+
+        @Override
+        public Map<Integer, ReaderInfo> registeredReaders() {
+            return readers;
+        }
+
+        @Override
+        public void assignSplits(SplitsAssignment<OdpsSourceSplit> newSplitAssignments) {
+            for (Map.Entry<Integer, List<OdpsSourceSplit>> entry : newSplitAssignments.assignment().entrySet()) {
+                assigned.computeIfAbsent(entry.getKey(), k -> new ArrayList<>()).addAll(entry.getValue());
+            }
+        }
+
+        @Override
+        public void signalNoMoreSplits(int subtask) {
+            noMoreSplits.add(subtask);
+        }
+
+        @Override
+        public <T> void callAsync(Callable<T> callable, BiConsumer<T, Throwable> handler) {
+            T result;
+            try {
+                result = callable.call();
+            } catch (Throwable t) {
+                handler.accept(null, t);
+                return;
+            }
+            handler.accept(result, null);
+        }
+
+        @Override
+        public <T> void callAsync(Callable<T> callable, BiConsumer<T, Throwable> handler,
+                                  long initialDelay, long period) {
+            periodicCall = () -> callAsync(callable, handler);
+            periodicCall.run();
+        }
+
+        @Override
+        public void runInCoordinatorThread(Runnable runnable) {
+            runnable.run();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.odps.test.source;
+
+import org.apache.flink.odps.input.OdpsInputSplit;
+import org.apache.flink.odps.source.OdpsSourceEnumState;
+import org.apache.flink.odps.source.OdpsSourceEnumStateSerializer;
+import org.apache.flink.odps.source.OdpsSourceSplit;
+import org.apache.flink.odps.source.OdpsSourceSplitSerializer;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class OdpsSourceSerializerTest {
+
+    @Test
+    public void testSplitRoundTrip() throws IOException {
+        OdpsSourceSplit split = newSplit("ds=1", 3, 1024L, 17L);
+        OdpsSourceSplit restored = roundTrip(split);
+        assertSplitEquals(split, restored);
+
+        OdpsSourceSplit unpartitioned = newSplit("", 0, 0L, 0L);
+        assertSplitEquals(unpartitioned, roundTrip(unpartitioned));
+    }
+
+    @Test
+    public void testEnumStateRoundTrip() throws IOException {
+        OdpsSourceEnumState state = new OdpsSourceEnumState(
+                Arrays.asList("ds=2", "ds=1"),
+                Arrays.asList(newSplit("ds=2", 0, 300L, 0L), newSplit("ds=2", 1, 200L, 5L)),
+                true);
+        byte[] serialized = OdpsSourceEnumStateSerializer.INSTANCE.serialize(state);
+        OdpsSourceEnumState restored = OdpsSourceEnumStateSerializer.INSTANCE.deserialize(
+                OdpsSourceEnumStateSerializer.INSTANCE.getVersion(), serialized);
+
+        assertTrue(restored.isInitialDiscoveryFinished());
+        assertEquals(Arrays.asList("ds=2", "ds=1"), Arrays.asList(restored.getProcessedPartitions().toArray()));
+        assertEquals(2, restored.getPendingSplits().size());
+        for (int i = 0; i < 2; i++) {
+            assertSplitEquals(state.getPendingSplits().get(i), restored.getPendingSplits().get(i));
+        }
+
+        OdpsSourceEnumState empty = OdpsSourceEnumStateSerializer.INSTANCE.deserialize(
+                OdpsSourceEnumStateSerializer.INSTANCE.getVersion(),
+                OdpsSourceEnumStateSerializer.INSTANCE.serialize(OdpsSourceEnumState.empty()));
+        assertFalse(empty.isInitialDiscoveryFinished());
+        assertEquals(Collections.emptySet(), empty.getProcessedPartitions());
+        assertEquals(Collections.emptyList(), empty.getPendingSplits());
+    }
+
+    @Test
+    public void testUnknownVersionIsRejected() throws IOException {
+        byte[] split = OdpsSourceSplitSerializer.INSTANCE.serialize(newSplit("ds=1", 0, 0L, 0L));
+        try {
+            OdpsSourceSplitSerializer.INSTANCE.deserialize(OdpsSourceSplitSerializer.INSTANCE.getVersion() + 1, split);
+            fail("an unknown split version must be rejected");
+        } catch (IOException expected) {
+        }
+        byte[] state = OdpsSourceEnumStateSerializer.INSTANCE.serialize(OdpsSourceEnumState.empty());
+        try {
+            OdpsSourceEnumStateSerializer.INSTANCE.deserialize(
+                    OdpsSourceEnumStateSerializer.INSTANCE.getVersion() + 1, state);
+            fail("an unknown state version must be rejected");
+        } catch (IOException expected) {
+        }
+    }
+
+    static OdpsSourceSplit newSplit(String partition, int splitNumber, long estimatedSize, long offset) {
+        return new OdpsSourceSplit(
+                partition + "#" + splitNumber,
+                partition,
+                new OdpsInputSplit(new TestInputSplit(partition, splitNumber * 100L, 100L, true), splitNumber),
+                estimatedSize,
+                offset);
+    }
+
+    private static OdpsSourceSplit roundTrip(OdpsSourceSplit split) throws IOException {
+        byte[] serialized = OdpsSourceSplitSerializer.INSTANCE.serialize(split);
+        return OdpsSourceSplitSerializer.INSTANCE.deserialize(
+                OdpsSourceSplitSerializer.INSTANCE.getVersion(), serialized);
+    }
+
+    static void assertSplitEquals(OdpsSourceSplit expected, OdpsSourceSplit actual) {
+        assertEquals(expected.splitId(), actual.splitId());
+        assertEquals(expected.getPartition(), actual.getPartition());
+        assertEquals(expected.getEstimatedSize(), actual.getEstimatedSize());
+        assertEquals(expected.getOffset(), actual.getOffset());
+        assertEquals(expected.getInputSplit().getSplitNumber(), actual.getInputSplit().getSplitNumber());
+        TestInputSplit expectedInput = (TestInputSplit) expected.getInputSplit().inputSplit;
+        TestInputSplit actualInput = (TestInputSplit) actual.getInputSplit().inputSplit;
+        assertEquals(expectedInput.getPartition(), actualInput.getPartition());
+        assertEquals(expectedInput.getPartitionSpec(), actualInput.getPartitionSpec());
+        assertEquals(expectedInput.getStartIndex(), actualInput.getStartIndex());
+        assertEquals(expectedInput.getNumRecord(), actualInput.getNumRecord());
+    }
+}
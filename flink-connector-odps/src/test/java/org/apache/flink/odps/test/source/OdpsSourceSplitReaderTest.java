@@ -0,0 +1,153 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.odps.test.source;
+
+import org.apache.flink.connector.base.source.reader.RecordsWithSplitIds;
+import org.apache.flink.connector.base.source.reader.splitreader.SplitsAddition;
+import org.apache.flink.odps.input.OdpsInputSplit;
+import org.apache.flink.odps.input.reader.NextIterator;
+import org.apache.flink.odps.source.OdpsSourceSplit;
+import org.apache.flink.odps.source.OdpsSourceSplitReader;
+import org.apache.flink.table.data.GenericRowData;
+import org.apache.flink.table.data.RowData;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class OdpsSourceSplitReaderTest {
+
+    @Test
+    public void testRestoredSplitIsOpenedAtItsOffset() throws Exception {
+        TestSplitReader reader = new TestSplitReader();
+        reader.handleSplitsChanges(new SplitsAddition<>(Collections.singletonList(
+                newSplit(new TestInputSplit("ds=1", 100L, 10L, true), 0, 3L))));
+
+        assertEquals(Arrays.asList(103L, 104L, 105L, 106L, 107L, 108L, 109L), readAll(reader, "ds=1#0"));
+        assertEquals(1, reader.iterators.size());
+        assertEquals(103L, reader.iterators.get(0).split.getStartIndex());
+        assertEquals(7L, reader.iterators.get(0).split.getNumRecord());
+        assertEquals(7, reader.iterators.get(0).rowsRead);
+        reader.close();
+    }
+
+    @Test
+    public void testRestoredSplitSeeksWhenItCannotBeOpenedAtItsOffset() throws Exception {
+        TestSplitReader reader = new TestSplitReader();
+        reader.handleSplitsChanges(new SplitsAddition<>(Collections.singletonList(
+                newSplit(new TestInputSplit("ds=1", 100L, 10L, false), 0, 3L))));
+
+        assertEquals(Arrays.asList(103L, 104L, 105L, 106L, 107L, 108L, 109L), readAll(reader, "ds=1#0"));
+        assertEquals(100L, reader.iterators.get(0).split.getStartIndex());
+        assertEquals(10, reader.iterators.get(0).rowsRead);
+        reader.close();
+    }
+
+    @Test
+    public void testSplitsAreReadInOrder() throws Exception {
+        TestSplitReader reader = new TestSplitReader();
+        reader.handleSplitsChanges(new SplitsAddition<>(Arrays.asList(
+                newSplit(new TestInputSplit("ds=1", 0L, 2L, true), 0, 0L),
+                newSplit(new TestInputSplit("ds=1", 10L, 2L, true), 1, 1L))));
+
+        assertEquals(Arrays.asList(0L, 1L), readAll(reader, "ds=1#0"));
+        assertEquals(Arrays.asList(11L), readAll(reader, "ds=1#1"));
+        RecordsWithSplitIds<RowData> records = reader.fetch();
+        assertNull(records.nextSplit());
+        assertEquals(2, reader.iterators.size());
+        reader.close();
+    }
+
+    private static OdpsSourceSplit newSplit(TestInputSplit inputSplit, int splitNumber, long offset) {
+        return new OdpsSourceSplit(
+                inputSplit.getPartition() + "#" + splitNumber,
+                inputSplit.getPartition(),
+                new OdpsInputSplit(inputSplit, splitNumber),
+                0L,
+                offset);
+    }
+
+    /** Fetches until the split is finished, returning the row values. */
+    private static List<Long> readAll(OdpsSourceSplitReader reader, String splitId) throws Exception {
+        List<Long> values = new ArrayList<>();
+        while (true) {
+            RecordsWithSplitIds<RowData> records = reader.fetch();
+            String current = records.nextSplit();
+            if (current != null) {
+                assertEquals(splitId, current);
+                RowData row;
+                while ((row = records.nextRecordFromSplit()) != null) {
+                    values.add(row.getLong(0));
+                }
+            }
+            if (!records.finishedSplits().isEmpty()) {
+                return values;
+            }
+        }
+    }
+
+    private static class TestSplitReader extends OdpsSourceSplitReader {
+
+        private final List<TestIterator> iterators = new ArrayList<>();
+
+        TestSplitReader() {
+            super(null, false);
+        }
+
+        @Override
+        protected NextIterator<RowData> createIterator(OdpsInputSplit inputSplit) {
+            TestIterator iterator = new TestIterator((TestInputSplit) inputSplit.inputSplit);
+            iterators.add(iterator);
+            return iterator;
+        }
+    }
+
+    /** Returns the row indexes of the split, counting the rows read. */
+    private static class TestIterator implements NextIterator<RowData> {
+
+        private final TestInputSplit split;
+        private int rowsRead;
+
+        TestIterator(TestInputSplit split) {
+            this.split = split;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return rowsRead < split.getNumRecord();
+        }
+
+        @Override
+        public RowData next() {
+            return GenericRowData.of(split.getStartIndex() + rowsRead++);
+        }
+
+        @Override
+        public void setReuse(RowData reuse) {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
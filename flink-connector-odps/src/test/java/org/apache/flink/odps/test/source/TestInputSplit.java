@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.flink.odps.test.source;
+
+import com.aliyun.odps.cupid.table.v1.reader.InputSplit;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/** A split of the rows [startIndex, startIndex + numRecord) of one partition. */
+public class TestInputSplit extends InputSplit {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String partition;
+    private final long startIndex;
+    private final long numRecord;
+    private final boolean skippable;
+
+    public TestInputSplit(String partition, long startIndex, long numRecord, boolean skippable) {
+        super("project", "table", Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), partitionSpec(partition));
+        this.partition = partition;
+        this.startIndex = startIndex;
+        this.numRecord = numRecord;
+        this.skippable = skippable;
+    }
+
+    @Override
+    public String getProvider() {
+        return "test";
+    }
+
+    @Override
+    public InputSplit skipRows(long numRows) {
+        if (!skippable) {
+            return null;
+        }
+        return new TestInputSplit(partition, startIndex + numRows, numRecord - numRows, true);
+    }
+
+    public String getPartition() {
+        return partition;
+    }
+
+    public long getStartIndex() {
+        return startIndex;
+    }
+
+    public long getNumRecord() {
+        return numRecord;
+    }
+
+    private static Map<String, String> partitionSpec(String partition) {
+        Map<String, String> spec = new HashMap<>();
+        if (!partition.isEmpty()) {
+            spec.put("ds", partition.substring("ds=".length()));
+        }
+        return spec;
+    }
+}
@@ -33,6 +33,12 @@ import org.apache.flink.table.catalog.Column;
 import org.apache.flink.table.catalog.ResolvedSchema;
 import org.apache.flink.table.connector.sink.DynamicTableSink;
 import org.apache.flink.table.connector.source.DynamicTableSource;
+import org.apache.flink.table.connector.source.abilities.SupportsFilterPushDown;
+import org.apache.flink.table.expressions.CallExpression;
+import org.apache.flink.table.expressions.FieldReferenceExpression;
+import org.apache.flink.table.expressions.ResolvedExpression;
+import org.apache.flink.table.expressions.ValueLiteralExpression;
+import org.apache.flink.table.functions.BuiltInFunctionDefinitions;
 import org.apache.flink.util.ExceptionUtils;
 import org.junit.Test;
 
@@ -136,6 +142,113 @@ public class OdpsDynamicTableFactoryTest {
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void testOdpsAsyncLookupProperties() {
+        Map<String, String> properties = getAllOptions();
+        properties.put("lookup.async", "true");
+        properties.put("lookup.cache.max-rows", "1000");
+        properties.put("lookup.cache.max-size", "16mb");
+        properties.put("lookup.cache.ttl", "10s");
+
+        DynamicTableSource actual = createTableSource(SCHEMA, properties);
+
+        OdpsLookupOptions lookupOptions =
+                OdpsLookupOptions.builder()
+                        .setCacheExpireMs(10_000)
+                        .setCacheMaxRows(1000)
+                        .setCacheMaxBytes(16 * 1024 * 1024)
+                        .setAsync(true)
+                        .build();
+
+        OdpsDynamicTableSource expected =
+                new OdpsDynamicTableSource(
+                        new Configuration(),
+                        getOdpsConf(),
+                        lookupOptions,
+                        OdpsTablePath.fromTablePath("project.tableName"),
+                        TableSchema.fromResolvedSchema(SCHEMA),
+                        new ArrayList<>());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testOdpsLookupStoreProperties() {
+        Map<String, String> properties = getAllOptions();
+        properties.put("lookup.cache.store", "disk");
+        properties.put("lookup.cache.store.dir", "/tmp/odps-lookup");
+        properties.put("lookup.cache.ttl", "10s");
+
+        DynamicTableSource actual = createTableSource(SCHEMA, properties);
+
+        OdpsLookupOptions lookupOptions =
+                OdpsLookupOptions.builder()
+                        .setCacheExpireMs(10_000)
+                        .setStoreType(OdpsLookupOptions.StoreType.DISK)
+                        .setStoreDir("/tmp/odps-lookup")
+                        .build();
+
+        OdpsDynamicTableSource expected =
+                new OdpsDynamicTableSource(
+                        new Configuration(),
+                        getOdpsConf(),
+                        lookupOptions,
+                        OdpsTablePath.fromTablePath("project.tableName"),
+                        TableSchema.fromResolvedSchema(SCHEMA),
+                        new ArrayList<>());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testOdpsLookupLoadProperties() {
+        Map<String, String> properties = getAllOptions();
+        properties.put("lookup.cache.load.parallelism", "8");
+        properties.put("lookup.cache.load.vectorized", "true");
+        properties.put("lookup.cache.ttl", "10s");
+
+        DynamicTableSource actual = createTableSource(SCHEMA, properties);
+
+        OdpsLookupOptions lookupOptions =
+                OdpsLookupOptions.builder()
+                        .setCacheExpireMs(10_000)
+                        .setLoadParallelism(8)
+                        .setVectorizedLoad(true)
+                        .build();
+
+        OdpsDynamicTableSource expected =
+                new OdpsDynamicTableSource(
+                        new Configuration(),
+                        getOdpsConf(),
+                        lookupOptions,
+                        OdpsTablePath.fromTablePath("project.tableName"),
+                        TableSchema.fromResolvedSchema(SCHEMA),
+                        new ArrayList<>());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testOdpsFilterPushDown() {
+        OdpsDynamicTableSource source =
+                (OdpsDynamicTableSource) createTableSource(SCHEMA, getAllOptions());
+        FieldReferenceExpression aaa = new FieldReferenceExpression("aaa", DataTypes.INT().notNull(), 0, 0);
+        FieldReferenceExpression bbb = new FieldReferenceExpression("bbb", DataTypes.STRING().notNull(), 0, 1);
+        ResolvedExpression pushable = new CallExpression(
+                BuiltInFunctionDefinitions.GREATER_THAN,
+                Arrays.asList(aaa, new ValueLiteralExpression(10)),
+                DataTypes.BOOLEAN());
+        ResolvedExpression residual = new CallExpression(
+                BuiltInFunctionDefinitions.LIKE,
+                Arrays.asList(bbb, new ValueLiteralExpression("a_c")),
+                DataTypes.BOOLEAN());
+
+        SupportsFilterPushDown.Result result = source.applyFilters(Arrays.asList(pushable, residual));
+
+        assertEquals(Collections.singletonList(pushable), result.getAcceptedFilters());
+        assertEquals(Arrays.asList(pushable, residual), result.getRemainingFilters());
+        assertEquals("OdpsSource(pushedFilters=[greaterThan(aaa, 10)], residualFilters=[like(bbb, 'a_c')])",
+                source.asSummaryString());
+        assertEquals(source, source.copy());
+    }
+
     @Test
     public void testOdpsSinkProperties() {
         Map<String, String> properties = getAllOptions();
@@ -166,6 +279,34 @@ public class OdpsDynamicTableFactoryTest {
         assertEquals(expectedSink, actualSink);
     }
 
+    @Test
+    public void testOdpsExactlyOnceSinkProperties() {
+        Map<String, String> properties = getAllOptions();
+        properties.put("sink.semantic", "exactly-once");
+        DynamicTableSink actualSink = createTableSink(SCHEMA, properties);
+
+        OdpsWriteOptions options = OdpsWriteOptions.builder()
+                .setBufferFlushIntervalMillis(new Configuration().get(SINK_BUFFER_FLUSH_INTERVAL).toMillis())
+                .setBufferFlushMaxRows(new Configuration().get(SINK_BUFFER_FLUSH_MAX_ROWS))
+                .setWriteMaxRetries(new Configuration().get(SINK_MAX_RETRIES))
+                .setBufferFlushMaxSizeInBytes(new Configuration().get(SINK_BUFFER_FLUSH_MAX_SIZE).getBytes())
+                .setDynamicPartitionLimit(new Configuration().get(SINK_DYNAMIC_PARTITION_LIMIT))
+                .setDynamicPartitionAssignerClass(new Configuration().get(PARTITION_ASSIGNER_CLASS))
+                .setDynamicPartitionDefaultValue(new Configuration().get(PARTITION_DEFAULT_VALUE))
+                .setExactlyOnce(true).build();
+
+        OdpsDynamicTableSink expectedSink =
+                new OdpsDynamicTableSink(
+                        new Configuration(),
+                        getOdpsConf(),
+                        options,
+                        OdpsTablePath.fromTablePath("project.tableName"),
+                        TableSchema.fromResolvedSchema(SCHEMA),
+                        new ArrayList<>(),
+                        null);
+        assertEquals(expectedSink, actualSink);
+    }
+
     @Test
     public void testOdpsTablePath() {
         // test default project
@@ -259,6 +400,20 @@ public class OdpsDynamicTableFactoryTest {
                             .isPresent());
         }
 
+        // partial lookup cache without async lookups
+        try {
+            Map<String, String> properties = getAllOptions();
+            properties.put("lookup.cache.max-rows", "1000");
+            createTableSource(SCHEMA, properties);
+            fail("exception expected");
+        } catch (Throwable t) {
+            assertTrue(
+                    ExceptionUtils.findThrowableWithMessage(
+                            t,
+                            "'lookup.cache.max-rows' and 'lookup.cache.max-size' require 'lookup.async' to be true")
+                            .isPresent());
+        }
+
         // sink retries shouldn't be negative
         try {
             Map<String, String> properties = getAllOptions();
@@ -272,5 +427,34 @@ public class OdpsDynamicTableFactoryTest {
                             "The value of 'sink.max-retries' option shouldn't be negative, but is -1.")
                             .isPresent());
         }
+
+        // invalid flush threads
+        try {
+            Map<String, String> properties = getAllOptions();
+            properties.put("sink.flush.threads", "0");
+            createTableSink(SCHEMA, properties);
+            fail("exception expected");
+        } catch (Throwable t) {
+            assertTrue(
+                    ExceptionUtils.findThrowableWithMessage(
+                            t,
+                            "The value of 'sink.flush.threads' option should be positive, but is 0.")
+                            .isPresent());
+        }
+
+        // unknown sink semantic
+        try {
+            Map<String, String> properties = getAllOptions();
+            properties.put("sink.semantic", "at-most-once");
+            createTableSink(SCHEMA, properties);
+            fail("exception expected");
+        } catch (Throwable t) {
+            assertTrue(
+                    ExceptionUtils.findThrowableWithMessage(
+                            t,
+                            "The value of 'sink.semantic' option should be 'at-least-once' or 'exactly-once', "
+                                    + "but is at-most-once.")
+                            .isPresent());
+        }
     }
 }
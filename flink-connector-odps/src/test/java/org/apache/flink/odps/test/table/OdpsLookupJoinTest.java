@@ -19,6 +19,7 @@
 package org.apache.flink.odps.test.table;
 
 import org.apache.flink.api.java.tuple.Tuple2;
+import org.apache.flink.odps.input.OdpsAsyncLookupFunction;
 import org.apache.flink.odps.input.OdpsInputFormat;
 import org.apache.flink.odps.input.OdpsLookupFunction;
 import org.apache.flink.odps.input.OdpsLookupOptions;
@@ -41,6 +42,7 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static org.apache.flink.table.api.Expressions.$;
@@ -145,6 +147,41 @@ public class OdpsLookupJoinTest {
         assertEquals(expected, result);
     }
 
+    @Test
+    public void testAsyncLookupFunctionWithPartialCache() throws Exception {
+        OdpsLookupOptions lookupOptions =
+                OdpsLookupOptions.builder().setCacheMaxRows(1).setAsync(true).build();
+        OdpsAsyncLookupFunction lookupFunction =
+                new OdpsAsyncLookupFunction(
+                        buildOdpsInputFormat(), lookupOptions, lookupKeys, buildRowType());
+        lookupFunction.open(null);
+
+        CompletableFuture<Collection<RowData>> first = new CompletableFuture<>();
+        lookupFunction.eval(first, 1, StringData.fromString("1"));
+        CompletableFuture<Collection<RowData>> second = new CompletableFuture<>();
+        lookupFunction.eval(second, 2, StringData.fromString("3"));
+        // evicted by the max rows limit and loaded again
+        CompletableFuture<Collection<RowData>> third = new CompletableFuture<>();
+        lookupFunction.eval(third, 1, StringData.fromString("1"));
+
+        List<String> result = new ArrayList<>();
+        for (CompletableFuture<Collection<RowData>> future : Arrays.asList(first, second, third)) {
+            future.get().stream().map(RowData::toString).forEach(result::add);
+        }
+        Collections.sort(result);
+        lookupFunction.close();
+
+        List<String> expected = new ArrayList<>();
+        expected.add("+I(1,1,11-c1-v1,11-c2-v1)");
+        expected.add("+I(1,1,11-c1-v1,11-c2-v1)");
+        expected.add("+I(1,1,11-c1-v2,11-c2-v2)");
+        expected.add("+I(1,1,11-c1-v2,11-c2-v2)");
+        expected.add("+I(2,3,null,23-c2)");
+        Collections.sort(expected);
+
+        assertEquals(expected, result);
+    }
+
     @Test
     public void testLookupTable() throws Exception {
         StreamExecutionEnvironment env = StreamExecutionEnvironment.getExecutionEnvironment();
@@ -164,7 +201,7 @@ public class OdpsLookupJoinTest {
                         $("proctime").proctime());
 
         tEnv.createTemporaryView("T", t);
-        String cacheConfig = ", 'lookup.cache.max-rows'='4', 'lookup.cache.ttl'='10000'";
+        String cacheConfig = ", 'lookup.cache.max-rows'='4', 'lookup.cache.ttl'='10000', 'lookup.async'='true'";
         tEnv.executeSql(
                 "CREATE TABLE "
                         + "lookup ("
@@ -219,22 +256,28 @@ public class OdpsLookupJoinTest {
 
     private OdpsLookupFunction buildOdpsLookupFunction() {
         OdpsLookupOptions lookupOptions = OdpsLookupOptions.builder().build();
-        RowType rowType =
-                RowType.of(
-                        Arrays.stream(fieldDataTypes)
-                                .map(DataType::getLogicalType)
-                                .toArray(LogicalType[]::new),
-                        fieldNames);
+        return new OdpsLookupFunction(
+                buildOdpsInputFormat(),
+                lookupOptions,
+                lookupKeys,
+                buildRowType());
+    }
+
+    private RowType buildRowType() {
+        return RowType.of(
+                Arrays.stream(fieldDataTypes)
+                        .map(DataType::getLogicalType)
+                        .toArray(LogicalType[]::new),
+                fieldNames);
+    }
+
+    private OdpsInputFormat<RowData> buildOdpsInputFormat() {
         OdpsInputFormat.OdpsInputFormatBuilder<RowData> builder =
                 new OdpsInputFormat.OdpsInputFormatBuilder<>(
                         odpsConf,
                         odpsConf.getProject(),
                         LOOKUP_TABLE);
-        return new OdpsLookupFunction(
-                builder.build(),
-                lookupOptions,
-                lookupKeys,
-                rowType);
+        return builder.build();
     }
 
     private static final class ListOutputCollector implements Collector<RowData> {
@@ -0,0 +1,187 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.test.util;
+
+import com.aliyun.odps.NoSuchObjectException;
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.OdpsException;
+import com.aliyun.odps.Partition;
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.account.AliyunAccount;
+import org.apache.flink.odps.util.OdpsMetaDataProvider;
+import org.apache.flink.odps.util.PartitionPath;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.lang.reflect.Constructor;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+public class OdpsMetaDataProviderTest {
+
+    private static final String PROJECT = "p";
+    private static final String TABLE = "t";
+
+    private FakeMetaDataProvider provider;
+
+    @Before
+    public void setUp() {
+        provider = new FakeMetaDataProvider();
+    }
+
+    @Test
+    public void testReloadKeepsValueOnlyOnFailure() throws Exception {
+        provider.create("ds=1");
+        Partition loaded = provider.getPartition(PROJECT, TABLE, "ds=1");
+        assertNotNull(loaded);
+        PartitionPath path = new PartitionPath(PROJECT, TABLE, "ds=1");
+
+        provider.failing = true;
+        int loads = provider.loads.get();
+        provider.partitionCache.refresh(path);
+        waitUntil(() -> provider.loads.get() > loads && provider.partitionCache.stats().loadSuccessCount() > 1);
+        assertSame(loaded, provider.getPartition(PROJECT, TABLE, "ds=1"));
+
+        // a reload which finds the partition gone drops it
+        provider.failing = false;
+        provider.drop("ds=1");
+        provider.partitionCache.refresh(path);
+        waitUntil(() -> provider.getPartition(PROJECT, TABLE, "ds=1") == null);
+    }
+
+    @Test
+    public void testRefreshingLookupSeesDroppedPartition() {
+        provider.create("ds=1");
+        assertNotNull(provider.getPartition(PROJECT, TABLE, "ds=1"));
+        provider.drop("ds=1");
+        assertNotNull(provider.getPartition(PROJECT, TABLE, "ds=1"));
+        assertNull(provider.getPartition(PROJECT, TABLE, "ds=1", true));
+    }
+
+    @Test
+    public void testLatestPartitionsAreNotConsumed() {
+        provider.create("ds=1");
+        provider.create("ds=2");
+        assertEquals(Arrays.asList("ds='1'", "ds='2'"), specs(provider.getLatestPartitions(PROJECT, TABLE)));
+        assertEquals(Arrays.asList("ds='1'", "ds='2'"), specs(provider.getLatestPartitions(PROJECT, TABLE)));
+
+        // only the partitions following the largest known one are listed
+        provider.create("ds=3");
+        assertEquals(Arrays.asList("ds='1'", "ds='2'", "ds='3'"),
+                specs(provider.getLatestPartitions(PROJECT, TABLE)));
+
+        // another lookup indexes the new partition first
+        provider.create("ds=4");
+        assertEquals(4, provider.getPartitions(PROJECT, TABLE, true).size());
+        assertEquals(Arrays.asList("ds='1'", "ds='2'", "ds='3'", "ds='4'"),
+                specs(provider.getLatestPartitions(PROJECT, TABLE)));
+    }
+
+    @Test
+    public void testDroppedPartitionLeavesLatestPartitions() {
+        provider.create("ds=1");
+        provider.create("ds=2");
+        assertEquals(2, provider.getLatestPartitions(PROJECT, TABLE).size());
+
+        provider.drop("ds=1");
+        provider.getPartitions(PROJECT, TABLE, true);
+        assertEquals(Collections.singletonList("ds='2'"), specs(provider.getLatestPartitions(PROJECT, TABLE)));
+    }
+
+    private static List<String> specs(List<Partition> partitions) {
+        return partitions.stream()
+                .map(partition -> partition.getPartitionSpec().toString())
+                .collect(Collectors.toList());
+    }
+
+    private static void waitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("condition not met in time", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    /** Serves one table from memory instead of the server. */
+    private static class FakeMetaDataProvider extends OdpsMetaDataProvider {
+
+        private final TreeMap<String, Partition> partitions = new TreeMap<>();
+        private final AtomicInteger loads = new AtomicInteger();
+        private volatile boolean failing;
+
+        private static final Odps ODPS = new Odps(new AliyunAccount("id", "key"));
+
+        FakeMetaDataProvider() {
+            super(ODPS);
+        }
+
+        synchronized void create(String spec) {
+            PartitionSpec partitionSpec = new PartitionSpec(spec);
+            partitions.put(partitionSpec.toString(), newPartition(partitionSpec));
+        }
+
+        synchronized void drop(String spec) {
+            partitions.remove(new PartitionSpec(spec).toString());
+        }
+
+        @Override
+        protected synchronized Partition loadPartition(String projectName, String tableName, PartitionSpec spec)
+                throws OdpsException {
+            loads.incrementAndGet();
+            if (failing) {
+                throw new OdpsException("service unavailable");
+            }
+            Partition partition = partitions.get(spec.toString());
+            if (partition == null) {
+                throw new NoSuchObjectException(spec + " does not exist");
+            }
+            return partition;
+        }
+
+        @Override
+        protected synchronized List<Partition> fetchPartitions(String projectName, String tableName, boolean refresh) {
+            return new ArrayList<>(partitions.values());
+        }
+
+        @Override
+        protected synchronized List<Partition> fetchPartitionsFrom(String projectName, String tableName,
+                                                                   PartitionSpec spec) {
+            return new ArrayList<>(partitions.tailMap(spec.toString()).values());
+        }
+
+        private static Partition newPartition(PartitionSpec spec) {
+            try {
+                Constructor<Partition> constructor = Partition.class.getDeclaredConstructor(
+                        PartitionSpec.class, String.class, String.class, String.class, Odps.class);
+                constructor.setAccessible(true);
+                return constructor.newInstance(spec, PROJECT, null, TABLE, ODPS);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,312 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.flink.odps.test.vectorized;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
+import com.aliyun.odps.cupid.table.v1.writer.adaptor.ColDataRowWriter;
+import com.aliyun.odps.cupid.table.v1.writer.adaptor.Row;
+import com.aliyun.odps.data.Char;
+import com.aliyun.odps.data.Varchar;
+import com.aliyun.odps.type.TypeInfoFactory;
+import org.apache.flink.odps.util.OdpsTypeConverter;
+import org.apache.flink.odps.util.OdpsTypeUtil;
+import org.apache.flink.odps.util.OdpsUtils;
+import org.apache.flink.odps.vectorized.ColumnarRowDataBatch;
+import org.apache.flink.odps.vectorized.OdpsColumnVector;
+import org.apache.flink.table.data.RowData;
+import org.apache.flink.table.data.StringData;
+import org.apache.flink.table.data.vector.BytesColumnVector;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the rows of {@link ColumnarRowDataBatch} read the same values as
+ * the record path, which converts every field with {@link OdpsTypeConverter}.
+ */
+public class ColumnarRowDataBatchTest {
+
+    private static final Column[] DATA_COLUMNS = new Column[]{
+            new Column("c_bigint", TypeInfoFactory.BIGINT),
+            new Column("c_date", TypeInfoFactory.DATE),
+            new Column("c_datetime", TypeInfoFactory.DATETIME),
+            new Column("c_timestamp", TypeInfoFactory.TIMESTAMP),
+            new Column("c_decimal", TypeInfoFactory.getDecimalTypeInfo(10, 2)),
+            new Column("c_decimal_wide", TypeInfoFactory.getDecimalTypeInfo(30, 4)),
+            new Column("c_char", TypeInfoFactory.getCharTypeInfo(5)),
+            new Column("c_varchar", TypeInfoFactory.getVarcharTypeInfo(10)),
+            new Column("c_string", TypeInfoFactory.STRING)
+    };
+
+    private static final Column[] PARTITION_COLUMNS = new Column[]{
+            new Column("pt", TypeInfoFactory.STRING),
+            new Column("ds", TypeInfoFactory.BIGINT)
+    };
+
+    private static final int STRING_INDEX = 8;
+
+    @Test
+    public void testRowsMatchTypeConverter() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{
+                1L,
+                java.sql.Date.valueOf("2021-03-04"),
+                new Date(1614820000123L),
+                timestamp(1614820000123L, 123456789),
+                new BigDecimal("12345678.91"),
+                new BigDecimal("-123456789012345678901234.5678"),
+                new Char("ab", 5),
+                new Varchar("varchar", 10),
+                "string"});
+        rows.add(new Object[9]);
+        rows.add(new Object[]{
+                -2L,
+                java.sql.Date.valueOf("1969-12-31"),
+                new Date(0L),
+                timestamp(1000L, 1),
+                new BigDecimal("-0.01"),
+                new BigDecimal("0.0001"),
+                new Char("\u4e2d\u6587", 5),
+                new Varchar("", 10),
+                "\u591a\u5b57\u8282 string"});
+
+        Map<String, String> partitionSpec = new HashMap<>();
+        partitionSpec.put("pt", "p1");
+        partitionSpec.put("ds", "20210304");
+
+        List<Object[]> read = readColumnar(rows, partitionSpec, 2);
+
+        assertEquals(rows.size(), read.size());
+        for (int i = 0; i < rows.size(); i++) {
+            Object[] expected = new Object[DATA_COLUMNS.length + PARTITION_COLUMNS.length];
+            for (int j = 0; j < DATA_COLUMNS.length; j++) {
+                expected[j] = toFlinkDataField(rows.get(i)[j], DATA_COLUMNS[j]);
+            }
+            for (int j = 0; j < PARTITION_COLUMNS.length; j++) {
+                Column column = PARTITION_COLUMNS[j];
+                expected[DATA_COLUMNS.length + j] = toFlinkDataField(OdpsUtils.convertPartitionColumn(
+                        partitionSpec.get(column.getName()), column.getTypeInfo()), column);
+            }
+            assertArrayEquals("row " + i, expected, read.get(i));
+        }
+    }
+
+    @Test
+    public void testStringsAreReadInPlace() throws IOException {
+        List<Object[]> rows = new ArrayList<>();
+        rows.add(new Object[]{1L, null, null, null, null, null, null, null, "first"});
+        rows.add(new Object[]{2L, null, null, null, null, null, null, null, "second"});
+        writeBatches(rows, 2, batch -> {
+            OdpsColumnVector vector = new OdpsColumnVector(OdpsType.STRING);
+            vector.setVector(batch.getVectors()[STRING_INDEX]);
+            BytesColumnVector.Bytes bytes = vector.getBytes(1);
+            assertSame(batch.getVectors()[STRING_INDEX].getDeepBuf(), bytes.data);
+            assertEquals("second", new String(bytes.data, bytes.offset, bytes.len));
+        });
+    }
+
+    private static List<Object[]> readColumnar(List<Object[]> rows,
+                                               Map<String, String> partitionSpec,
+                                               int batchSize) throws IOException {
+        Column[] fullColumns = new Column[DATA_COLUMNS.length + PARTITION_COLUMNS.length];
+        System.arraycopy(DATA_COLUMNS, 0, fullColumns, 0, DATA_COLUMNS.length);
+        System.arraycopy(PARTITION_COLUMNS, 0, fullColumns, DATA_COLUMNS.length, PARTITION_COLUMNS.length);
+        RowData.FieldGetter[] getters = new RowData.FieldGetter[fullColumns.length];
+        for (int i = 0; i < fullColumns.length; i++) {
+            getters[i] = RowData.createFieldGetter(
+                    OdpsTypeUtil.toFlinkType(fullColumns[i].getTypeInfo()).getLogicalType(), i);
+        }
+        // one instance serves all the batches of a split
+        ColumnarRowDataBatch columnarBatch = new ColumnarRowDataBatch(fullColumns, partitionSpec);
+        List<Object[]> read = new ArrayList<>();
+        writeBatches(rows, batchSize, batch -> {
+            columnarBatch.updateColumnBatch(batch);
+            Iterator<RowData> iterator = columnarBatch.rowIterator();
+            while (iterator.hasNext()) {
+                RowData row = iterator.next();
+                Object[] fields = new Object[getters.length];
+                for (int i = 0; i < getters.length; i++) {
+                    fields[i] = getters[i].getFieldOrNull(row);
+                }
+                // the row and its strings are only valid until the next batch
+                read.add(copyStrings(fields));
+            }
+        });
+        return read;
+    }
+
+    private static void writeBatches(List<Object[]> rows, int batchSize, BatchConsumer consumer) throws IOException {
+        ColDataRowWriter writer = new ColDataRowWriter(DATA_COLUMNS, new FileWriter<ColDataBatch>() {
+            @Override
+            public void write(ColDataBatch data) throws IOException {
+                consumer.accept(data);
+            }
+
+            @Override
+            public void close() {
+            }
+
+            @Override
+            public void commit() {
+            }
+
+            @Override
+            public long getBytesWritten() {
+                return 0;
+            }
+
+            @Override
+            public long getRowsWritten() {
+                return 0;
+            }
+        }, batchSize);
+        for (Object[] row : rows) {
+            writer.insert(new TestRow(row));
+        }
+        writer.close();
+    }
+
+    private static Object[] copyStrings(Object[] fields) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] instanceof StringData) {
+                fields[i] = StringData.fromString(fields[i].toString());
+            }
+        }
+        return fields;
+    }
+
+    private static Object toFlinkDataField(Object value, Column column) {
+        if (value == null) {
+            return null;
+        }
+        return OdpsTypeConverter.valueOf(column.getType().name()).toFlinkDataField(value, column.getTypeInfo());
+    }
+
+    private static Timestamp timestamp(long millis, int nanos) {
+        Timestamp timestamp = new Timestamp(millis);
+        timestamp.setNanos(nanos);
+        return timestamp;
+    }
+
+    private interface BatchConsumer {
+        void accept(ColDataBatch batch);
+    }
+
+    private static class TestRow implements Row {
+
+        private final Object[] values;
+
+        TestRow(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isNullAt(int idx) {
+            return values[idx] == null;
+        }
+
+        @Override
+        public boolean getBoolean(int idx) {
+            return (Boolean) values[idx];
+        }
+
+        @Override
+        public byte getByte(int idx) {
+            return (Byte) values[idx];
+        }
+
+        @Override
+        public short getShort(int idx) {
+            return (Short) values[idx];
+        }
+
+        @Override
+        public int getInt(int idx) {
+            return (Integer) values[idx];
+        }
+
+        @Override
+        public long getLong(int idx) {
+            return (Long) values[idx];
+        }
+
+        @Override
+        public float getFloat(int idx) {
+            return (Float) values[idx];
+        }
+
+        @Override
+        public double getDouble(int idx) {
+            return (Double) values[idx];
+        }
+
+        @Override
+        public Date getDatetime(int idx) {
+            return (Date) values[idx];
+        }
+
+        @Override
+        public java.sql.Date getDate(int idx) {
+            return (java.sql.Date) values[idx];
+        }
+
+        @Override
+        public Timestamp getTimeStamp(int idx) {
+            return (Timestamp) values[idx];
+        }
+
+        @Override
+        public BigDecimal getDecimal(int idx) {
+            return (BigDecimal) values[idx];
+        }
+
+        @Override
+        public String getString(int idx) {
+            return (String) values[idx];
+        }
+
+        @Override
+        public Char getChar(int idx) {
+            return (Char) values[idx];
+        }
+
+        @Override
+        public Varchar getVarchar(int idx) {
+            return (Varchar) values[idx];
+        }
+
+        @Override
+        public byte[] getBytes(int idx) {
+            return (byte[]) values[idx];
+        }
+    }
+}
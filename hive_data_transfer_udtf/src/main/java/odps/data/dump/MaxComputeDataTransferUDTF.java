@@ -16,10 +16,9 @@ import com.aliyun.odps.tunnel.io.TunnelBufferedWriter;
 import com.aliyun.odps.utils.StringUtils;
 import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
-import maxcompute.data.collectors.common.maxcompute.RecordUtil;
+import maxcompute.data.collectors.common.maxcompute.RecordCodec;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
@@ -49,6 +48,8 @@ public class MaxComputeDataTransferUDTF extends GenericUDTF{
     private TableTunnel tunnel;
     private UploadSession uploadSession;
     private TableSchema tableSchema;
+    private RecordCodec recordCodec;
+    private int[] columnIndexes;
 
     private OdpsConfig odpsConfig = new OdpsConfig();
 
@@ -94,9 +95,9 @@ public class MaxComputeDataTransferUDTF extends GenericUDTF{
         String columnStr = soi2.getPrimitiveJavaObject(column);
         if (columns == null) {
             columns = columnStr.split(",");
-        }
-        for (int i = 0; i < columns.length; i++) {
-            columns[i] = columns[i].trim();
+            for (int i = 0; i < columns.length; i++) {
+                columns[i] = columns[i].trim();
+            }
         }
         if (!tableName.equals(tmpTableName) || !partitionName.equals(tmpPartitionName)) {
             tableName = tmpTableName.trim();
@@ -106,6 +107,8 @@ public class MaxComputeDataTransferUDTF extends GenericUDTF{
                 try {
                     Table t = odps.tables().get(tableName);
                     tableSchema = t.getSchema();
+                    recordCodec = new RecordCodec(tableSchema);
+                    initColumnIndexes();
                     if (StringUtils.isEmpty(partitionName)) {
                         uploadSession = tunnel.createUploadSession(odpsConfig.getProjectName(), tableName);
                     } else {
@@ -136,20 +139,20 @@ public class MaxComputeDataTransferUDTF extends GenericUDTF{
             if (colValueJavaObj == null) {
                 continue;
             }
-            String columnName = columns[i-3];
             try {
-                OdpsType odpsType = tableSchema.getColumn(columnName).getType();
+                int index = columnIndexes[i-3];
+                OdpsType odpsType = recordCodec.getColumn(index).getType();
                 String value = colValueJavaObj.toString();
-                SimpleDateFormat format = null;
+                String pattern = RecordCodec.DEFAULT_DATE_PATTERN;
                 if (odpsType.equals(OdpsType.TIMESTAMP)) {
                     for (String fmt : TIMESTAMP_PATTERNS) {
                         if (fmt.length() == value.length()) {
-                            format = new SimpleDateFormat(fmt);
+                            pattern = fmt;
                             break;
                         }
                     }
                 }
-                RecordUtil.setFieldValue(product, columnName, value, odpsType, format);
+                recordCodec.setFieldValue(product, index, value, pattern);
             } catch (ParseException e) {
                 throw new HiveException("set Field value failed", e);
             }
@@ -161,6 +164,14 @@ public class MaxComputeDataTransferUDTF extends GenericUDTF{
         }
     }
 
+    private void initColumnIndexes() throws HiveException {
+        try {
+            columnIndexes = recordCodec.getColumnIndexes(columns);
+        } catch (IllegalArgumentException e) {
+            throw new HiveException(e.getMessage() + " in table " + tableName, e);
+        }
+    }
+
     @Override public void close() {
         if (uploadSession != null) {
             try {
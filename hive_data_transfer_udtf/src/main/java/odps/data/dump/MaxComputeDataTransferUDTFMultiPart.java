@@ -17,10 +17,9 @@ import com.aliyun.odps.tunnel.io.TunnelBufferedWriter;
 import com.aliyun.odps.utils.StringUtils;
 import java.io.IOException;
 import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.List;
-import maxcompute.data.collectors.common.maxcompute.RecordUtil;
+import maxcompute.data.collectors.common.maxcompute.RecordCodec;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
 import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
@@ -50,6 +49,8 @@ public class MaxComputeDataTransferUDTFMultiPart extends GenericUDTF{
     TableTunnel tunnel;
     UploadSession uploadSession;
     TableSchema tableSchema;
+    RecordCodec recordCodec;
+    int[] columnIndexes;
     RecordWriter writer = null;
 
     OdpsConfig odpsConfig = new OdpsConfig();
@@ -98,15 +99,15 @@ public class MaxComputeDataTransferUDTFMultiPart extends GenericUDTF{
 
         if (columnNames == null) {
             columnNames = columnStr.split(",");
-        }
-        for (int i = 0; i < columnNames.length; i++) {
-            columnNames[i] = columnNames[i].trim();
+            for (int i = 0; i < columnNames.length; i++) {
+                columnNames[i] = columnNames[i].trim();
+            }
         }
         if (partitionNames == null) {
             partitionNames = tmpPartitionName.split(",");
-        }
-        for (int i = 0; i < partitionNames.length; i++) {
-            partitionNames[i] = partitionNames[i].trim();
+            for (int i = 0; i < partitionNames.length; i++) {
+                partitionNames[i] = partitionNames[i].trim();
+            }
         }
 
         // get partition spec
@@ -150,6 +151,8 @@ public class MaxComputeDataTransferUDTFMultiPart extends GenericUDTF{
             try {
                 Table t = odps.tables().get(tableName);
                 tableSchema = t.getSchema();
+                recordCodec = new RecordCodec(tableSchema);
+                initColumnIndexes();
                 if (StringUtils.isEmpty(partitionSpec)) {
                     uploadSession = tunnel.createUploadSession(odpsConfig.getProjectName(), tableName);
                 } else {
@@ -181,20 +184,20 @@ public class MaxComputeDataTransferUDTFMultiPart extends GenericUDTF{
             if (colValueJavaObj == null) {
                 continue;
             }
-            String columnName = columnNames[i-3];
             try {
-                OdpsType odpsType = tableSchema.getColumn(columnName).getType();
+                int index = columnIndexes[i-3];
+                OdpsType odpsType = recordCodec.getColumn(index).getType();
                 String value = colValueJavaObj.toString();
-                SimpleDateFormat format = null;
+                String pattern = RecordCodec.DEFAULT_DATE_PATTERN;
                 if (odpsType.equals(OdpsType.TIMESTAMP)) {
                     for (String fmt : TIMESTAMP_PATTERNS) {
                         if (fmt.length() == value.length()) {
-                            format = new SimpleDateFormat(fmt);
+                            pattern = fmt;
                             break;
                         }
                     }
                 }
-                RecordUtil.setFieldValue(product, columnName, value, odpsType, format);
+                recordCodec.setFieldValue(product, index, value, pattern);
             } catch (ParseException e) {
                 throw new HiveException("set Field value failed", e);
             }
@@ -206,6 +209,14 @@ public class MaxComputeDataTransferUDTFMultiPart extends GenericUDTF{
         }
     }
 
+    private void initColumnIndexes() throws HiveException {
+        try {
+            columnIndexes = recordCodec.getColumnIndexes(columnNames);
+        } catch (IllegalArgumentException e) {
+            throw new HiveException(e.getMessage() + " in table " + tableName, e);
+        }
+    }
+
     @Override public void close() {
         if (uploadSession != null) {
             try {
@@ -33,7 +33,7 @@ import java.util.Map;
 //import com.aliyun.odps.data.Char;
 //import com.aliyun.odps.data.Varchar;
 import com.aliyun.odps.utils.StringUtils;
-import maxcompute.data.collectors.common.maxcompute.RecordUtil;
+import maxcompute.data.collectors.common.maxcompute.RecordCodec;
 import org.pentaho.di.core.exception.KettleException;
 import org.pentaho.di.core.row.RowDataUtil;
 import org.pentaho.di.core.row.RowMeta;
@@ -64,6 +64,7 @@ public class OdpsInput extends BaseStep implements StepInterface {
 
     private Map<String, Integer> odpsColumnPosMap;
     private TableSchema schema;
+    private RecordCodec recordCodec;
 
     private int errorLine;
 
@@ -109,8 +110,7 @@ public class OdpsInput extends BaseStep implements StepInterface {
                         throw new Exception(
                             "Invalid column: " + meta.getOdpsFields().get(i).getName());
                     }
-                    Column column = schema.getColumn(pos);
-                    outputRow[i] = RecordUtil.getFieldValueAsString(record, column, pos);
+                    outputRow[i] = recordCodec.getFieldValueAsString(record, pos);
                 }
 
                 putRow(data.outputRowMeta, outputRow);
@@ -163,6 +163,7 @@ public class OdpsInput extends BaseStep implements StepInterface {
 
                 schema = downloadSession.getSchema();
                 initOdpsFieldPosMap(schema);
+                recordCodec = new RecordCodec(schema);
 
                 long count = downloadSession.getRecordCount();
                 logBasic("count is: " + count);
@@ -20,7 +20,6 @@
 package com.aliyun.pentaho.di.trans.steps.odpsoutput;
 
 import java.io.IOException;
-import java.text.SimpleDateFormat;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,15 +57,14 @@ public class OdpsOutput extends BaseStep implements StepInterface {
     private Map<String, Integer> odpsColumnPosMap;
     private Map<String, Integer> streamFieldPosMap;
     private Map<String, String> odpsColumn2StreamFieldMap;
-    private SimpleDateFormat dateFormat = null;
+    private RecordCodec recordCodec;
+    private int[] odpsColumnIndexes;
+    private int[] streamFieldIndexes;
     private int errorLine = 0;
 
     public OdpsOutput(StepMeta stepMeta, StepDataInterface stepDataInterface, int copyNr,
         TransMeta transMeta, Trans trans) {
         super(stepMeta, stepDataInterface, copyNr, transMeta, trans);
-        if (dateFormat == null) {
-            dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        }
     }
 
     private void initStreamFieldPosMap(RowMetaInterface rowMeta) {
@@ -96,6 +94,30 @@ public class OdpsOutput extends BaseStep implements StepInterface {
         }
     }
 
+    private void initOdpsColumnIndexes() {
+        String[] odpsColumns = new String[meta.getOdpsFields().size()];
+        for (int i = 0; i < odpsColumns.length; i++) {
+            odpsColumns[i] = meta.getOdpsFields().get(i).getName();
+        }
+        odpsColumnIndexes = recordCodec.getColumnIndexes(odpsColumns);
+    }
+
+    private void initStreamFieldIndexes() {
+        streamFieldIndexes = new int[meta.getOdpsFields().size()];
+        for (int i = 0; i < streamFieldIndexes.length; i++) {
+            String odpsColumn = meta.getOdpsFields().get(i).getName().toLowerCase();
+            String streamField = odpsColumn2StreamFieldMap.get(odpsColumn);
+            if (Const.isEmpty(streamField)) {
+                streamFieldIndexes[i] = -1;
+            } else if (streamFieldPosMap.containsKey(streamField)) {
+                streamFieldIndexes[i] = streamFieldPosMap.get(streamField);
+            } else {
+                throw new RuntimeException("Error: Unknown stream field " + streamField
+                    + " for table field " + odpsColumn + "!");
+            }
+        }
+    }
+
     @Override
     public boolean processRow(StepMetaInterface smi, StepDataInterface sdi)
         throws KettleException {
@@ -112,6 +134,7 @@ public class OdpsOutput extends BaseStep implements StepInterface {
                 data.outputRowMeta = getInputRowMeta().clone();
 
                 initStreamFieldPosMap(data.outputRowMeta);
+                initStreamFieldIndexes();
             }
 
             if (streamFieldPosMap.size() != odpsColumnPosMap.size()) {
@@ -122,14 +145,11 @@ public class OdpsOutput extends BaseStep implements StepInterface {
             if (!isStopped()) {
                 ArrayRecord record = (ArrayRecord)(data.uploadSession.newRecord());
 
-                for (int i = 0; i < meta.getOdpsFields().size(); i++) {
-                    String odpsColumn = meta.getOdpsFields().get(i).getName().toLowerCase();
-                    String streamField = odpsColumn2StreamFieldMap.get(odpsColumn);
-                    if (!Const.isEmpty(streamField)) {
-                        int pos = streamFieldPosMap.get(streamField);
-                        Column column = schema.getColumn(i);
+                for (int i = 0; i < odpsColumnIndexes.length; i++) {
+                    int pos = streamFieldIndexes[i];
+                    if (pos >= 0) {
                         String fieldValue = String.valueOf(row[pos]);
-                        RecordUtil.setFieldValue(record, odpsColumn, fieldValue, column.getType(), dateFormat);
+                        recordCodec.setFieldValue(record, odpsColumnIndexes[i], fieldValue);
                     }
                 }
                 data.recordWriter.write(record);
@@ -186,6 +206,8 @@ public class OdpsOutput extends BaseStep implements StepInterface {
 
                 schema = data.uploadSession.getSchema();
                 initOdpsFieldPosMap(schema);
+                recordCodec = new RecordCodec(schema);
+                initOdpsColumnIndexes();
                 initOdpsColumn2StreamFieldMap();
 
                 data.recordWriter = data.uploadSession.openBufferedWriter();
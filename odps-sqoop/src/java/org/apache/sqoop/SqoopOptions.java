@@ -191,6 +191,8 @@ public String toString() {
   @StoredAsProperty("odps.disable.dynamic.partitions") private boolean odpsDisableDynamicPartitions;
   @StoredAsProperty("odps.overwrite.table") private boolean overwriteOdpsTable;
   @StoredAsProperty("odps.use.compress") private boolean useCompressInUpload;
+  @StoredAsProperty("odps.shared.download.session")
+  private boolean odpsSharedDownloadSession;
 
   public boolean isSkipFailed() {
     return skipFailed;
@@ -232,6 +234,18 @@ public void setOdpsUseCompressInUpload(boolean useCompress) {
     this.useCompressInUpload = useCompress;
   }
 
+  /**
+   * @return the user-specified option to share one download session
+   * among all export map tasks and prefetch records in the readers.
+   */
+  public boolean isOdpsSharedDownloadSession() {
+    return odpsSharedDownloadSession;
+  }
+
+  public void setOdpsSharedDownloadSession(boolean shared) {
+    this.odpsSharedDownloadSession = shared;
+  }
+
 
   private Properties mapColumnOdps;
 
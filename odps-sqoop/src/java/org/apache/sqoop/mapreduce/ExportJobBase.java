@@ -244,6 +244,8 @@ protected void configureInputFormat(Job job, String tableName,
       if (partitionSpec != null) {
         conf.set(OdpsConstants.PARTITION_SPEC, partitionSpec);
       }
+      conf.setBoolean(OdpsConstants.SHARED_DOWNLOAD_SESSION,
+          options.isOdpsSharedDownloadSession());
       setMapperClass(OdpsExportMapper.class);
     }
     super.configureInputFormat(job, tableName, tableClassName, splitByCol);
@@ -23,6 +23,7 @@
 import com.aliyun.odps.tunnel.TableTunnel;
 import com.aliyun.odps.tunnel.TunnelException;
 import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.io.Text;
 import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapreduce.*;
 import org.apache.hadoop.mapreduce.RecordReader;
@@ -64,8 +65,12 @@ public List<InputSplit> getSplits(JobContext jobContext) throws IOException, Int
           }
           long count = downloadSession.getRecordCount();
 
+          String sessionId = null;
+          if (conf.getBoolean(OdpsConstants.SHARED_DOWNLOAD_SESSION, false)) {
+              sessionId = downloadSession.getId();
+          }
           OdpsSplitter splitter = new OdpsSplitter();
-          return splitter.split(conf, count);
+          return splitter.split(conf, count, sessionId);
       } catch (TunnelException e) {
           throw new IOException(e);
       } catch (SQLException e) {
@@ -83,14 +88,21 @@ public static class OdpsExportInputSplit extends InputSplit implements Writable
 
       private long start;
       private long length;
+      private String sessionId;
 
       public OdpsExportInputSplit() {
 
       }
 
       public OdpsExportInputSplit(long start, long readCount) {
+          this(start, readCount, null);
+      }
+
+      public OdpsExportInputSplit(long start, long readCount,
+                                  String sessionId) {
           this.start = start;
           this.length = readCount;
+          this.sessionId = sessionId;
       }
 
       @Override
@@ -102,6 +114,14 @@ public long getStart() {
           return start;
       }
 
+      /**
+       * @return id of the download session shared by the whole job, or null
+       * if the reader should create its own session.
+       */
+      public String getSessionId() {
+          return sessionId;
+      }
+
       @Override
       public String[] getLocations() throws IOException, InterruptedException {
           return new String[0];
@@ -111,6 +131,10 @@ public String[] getLocations() throws IOException, InterruptedException {
       public void write(DataOutput dataOutput) throws IOException {
           dataOutput.writeLong(start);
           dataOutput.writeLong(start + length - 1);
+          dataOutput.writeBoolean(sessionId != null);
+          if (sessionId != null) {
+              Text.writeString(dataOutput, sessionId);
+          }
       }
 
       @Override
@@ -118,6 +142,8 @@ public void readFields(DataInput dataInput) throws IOException {
           start = dataInput.readLong();
           long end = dataInput.readLong();
           length = end - start + 1;
+          sessionId = dataInput.readBoolean()
+                  ? Text.readString(dataInput) : null;
       }
   }
 }
@@ -32,6 +32,16 @@
 public class OdpsSplitter extends IntegerSplitter {
   public List<InputSplit> split(Configuration conf, long count) 
       throws SQLException, IOException, TunnelException {
+    return split(conf, count, null);
+  }
+
+  /**
+   * Split the record range [0, count) into map tasks. When sessionId is not
+   * null, every split carries it so that the readers attach to the same
+   * download session instead of creating their own.
+   */
+  public List<InputSplit> split(Configuration conf, long count,
+      String sessionId) throws SQLException, IOException, TunnelException {
 
     int numSplits = ConfigurationHelper.getConfNumMaps(conf);
     if (numSplits < 1) {
@@ -52,7 +62,7 @@ public List<InputSplit> split(Configuration conf, long count)
           readLength = end - start - 1;
       }
       splits.add(new OdpsExportInputFormat
-          .OdpsExportInputSplit(start, readLength));
+          .OdpsExportInputSplit(start, readLength, sessionId));
       start = end;
     }
 
@@ -0,0 +1,263 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.odps;
+
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.Binary;
+import com.aliyun.odps.data.Char;
+import com.aliyun.odps.data.Varchar;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+/**
+ * Typed setter for one ODPS column, chosen once per job from the column
+ * type. Values that already have the matching Java type are stored as is;
+ * anything else is converted from its string form, following the rules of
+ * RecordUtil.setFieldValue.
+ */
+public abstract class OdpsColumnBinder {
+
+  protected final int index;
+
+  protected OdpsColumnBinder(int index) {
+    this.index = index;
+  }
+
+  /**
+   * Set the column of record to value. A null or empty value, or one that
+   * cannot be converted, leaves the column null.
+   */
+  public void bind(ArrayRecord record, Object value) {
+    if (value == null) {
+      record.set(index, null);
+      return;
+    }
+    try {
+      set(record, value);
+    } catch (Exception e) {
+      // Same as OdpsRecordBuilder before: skip fields that fail to convert.
+      record.set(index, null);
+    }
+  }
+
+  protected abstract void set(ArrayRecord record, Object value)
+      throws ParseException;
+
+  private static boolean isEmpty(String s) {
+    return s.length() == 0;
+  }
+
+  public static OdpsColumnBinder create(OdpsType type, int index,
+                                        final SimpleDateFormat dateFormat) {
+    switch (type) {
+      case STRING:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            String s = value.toString();
+            record.setString(index, isEmpty(s) ? null : s);
+          }
+        };
+      case BIGINT:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Long) {
+              record.setBigint(index, (Long) value);
+            } else if (value instanceof Integer || value instanceof Short
+                || value instanceof Byte) {
+              record.setBigint(index, ((Number) value).longValue());
+            } else {
+              String s = value.toString();
+              record.setBigint(index, isEmpty(s) ? null : Long.parseLong(s));
+            }
+          }
+        };
+      case INT:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Integer) {
+              record.setInt(index, (Integer) value);
+            } else {
+              String s = value.toString();
+              record.setInt(index, isEmpty(s) ? null : Integer.parseInt(s));
+            }
+          }
+        };
+      case SMALLINT:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Short) {
+              record.setSmallint(index, (Short) value);
+            } else {
+              String s = value.toString();
+              record.setSmallint(index, isEmpty(s) ? null : Short.parseShort(s));
+            }
+          }
+        };
+      case TINYINT:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Byte) {
+              record.setTinyint(index, (Byte) value);
+            } else {
+              String s = value.toString();
+              record.setTinyint(index, isEmpty(s) ? null : Byte.parseByte(s));
+            }
+          }
+        };
+      case DOUBLE:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Double) {
+              record.setDouble(index, (Double) value);
+            } else if (value instanceof Float) {
+              record.setDouble(index, ((Float) value).doubleValue());
+            } else {
+              String s = value.toString();
+              record.setDouble(index, isEmpty(s) ? null : Double.parseDouble(s));
+            }
+          }
+        };
+      case FLOAT:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Float) {
+              record.setFloat(index, (Float) value);
+            } else {
+              String s = value.toString();
+              record.setFloat(index, isEmpty(s) ? null : Float.parseFloat(s));
+            }
+          }
+        };
+      case DECIMAL:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof BigDecimal) {
+              record.setDecimal(index, (BigDecimal) value);
+            } else {
+              String s = value.toString();
+              record.setDecimal(index, isEmpty(s) ? null : new BigDecimal(s));
+            }
+          }
+        };
+      case BOOLEAN:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof Boolean) {
+              record.setBoolean(index, (Boolean) value);
+              return;
+            }
+            String s = value.toString();
+            if ("true".equalsIgnoreCase(s) || "1".equals(s)
+                || "y".equalsIgnoreCase(s)) {
+              record.setBoolean(index, true);
+            } else if ("false".equalsIgnoreCase(s) || "0".equals(s)
+                || "n".equalsIgnoreCase(s)) {
+              record.setBoolean(index, false);
+            } else {
+              record.setBoolean(index, null);
+            }
+          }
+        };
+      case CHAR:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            String s = value.toString();
+            record.setChar(index, isEmpty(s) ? null : new Char(s));
+          }
+        };
+      case VARCHAR:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            String s = value.toString();
+            record.setVarchar(index, isEmpty(s) ? null : new Varchar(s));
+          }
+        };
+      case BINARY:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value) {
+            if (value instanceof byte[]) {
+              record.setBinary(index, new Binary((byte[]) value));
+            } else {
+              String s = value.toString();
+              record.setBinary(index, isEmpty(s) ? null : new Binary(s.getBytes()));
+            }
+          }
+        };
+      case DATETIME:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value)
+              throws ParseException {
+            if (value instanceof Date) {
+              record.setDatetime(index, new Date(((Date) value).getTime()));
+            } else {
+              String s = value.toString();
+              record.setDatetime(index, isEmpty(s) ? null : dateFormat.parse(s));
+            }
+          }
+        };
+      case DATE:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value)
+              throws ParseException {
+            if (value instanceof java.sql.Date) {
+              record.setDate(index, (java.sql.Date) value);
+            } else {
+              String s = value.toString();
+              record.setDate(index, isEmpty(s) ? null
+                  : new java.sql.Date(dateFormat.parse(s).getTime()));
+            }
+          }
+        };
+      case TIMESTAMP:
+        return new OdpsColumnBinder(index) {
+          @Override
+          protected void set(ArrayRecord record, Object value)
+              throws ParseException {
+            if (value instanceof Timestamp) {
+              record.setTimestamp(index, (Timestamp) value);
+            } else {
+              String s = value.toString();
+              record.setTimestamp(index, isEmpty(s) ? null
+                  : new Timestamp(dateFormat.parse(s).getTime()));
+            }
+          }
+        };
+      default:
+        throw new RuntimeException("Unknown column type: " + type);
+    }
+  }
+}
@@ -45,10 +45,26 @@ private OdpsConstants() {}
 
   public static final String PARTITION_SPEC = "sqoop.odps.partition.spec";
   public static final String USE_COMPRESS_IN_UPLOAD = "sqoop.odps.use.compress";
+  public static final String SHARED_DOWNLOAD_SESSION =
+      "sqoop.odps.shared.download.session";
+  public static final String PREFETCH_BLOCK_SIZE =
+      "sqoop.odps.prefetch.blocksize";
+  public static final String PREFETCH_QUEUE_SIZE =
+      "sqoop.odps.prefetch.queuesize";
+  public static final String SESSION_POOL_SIZE =
+      "sqoop.odps.session.pool.size";
+  public static final String PARTITION_DDL_BATCH_SIZE =
+      "sqoop.odps.partition.ddl.batchsize";
+  public static final String PARTITION_PENDING_ROWS =
+      "sqoop.odps.partition.pending.rows";
 
   public static final int DEFAULT_BATCH_SIZE = 1000;
   public static final int DEFAULT_SHARD_NUM = 1;
   public static final int DEFAULT_SHARD_TIMEOUT = 60;
   public static final int DEFAULT_RETRY_COUNT = 3;
   public static final int DEFAULT_HUBLIFECYCLE = 7;
+  public static final int DEFAULT_PREFETCH_BLOCK_SIZE = 1000;
+  public static final int DEFAULT_PREFETCH_QUEUE_SIZE = 4;
+  public static final int DEFAULT_SESSION_POOL_SIZE = 64;
+  public static final int DEFAULT_PARTITION_DDL_BATCH_SIZE = 100;
 }
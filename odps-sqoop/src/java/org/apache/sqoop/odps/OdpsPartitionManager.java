@@ -0,0 +1,287 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.odps;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.OdpsException;
+import com.aliyun.odps.Partition;
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.Table;
+import com.aliyun.odps.task.SQLTask;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.regex.Pattern;
+
+/**
+ * Creates missing partitions of the import table on a background thread.
+ *
+ * The writer asks {@link #isReady(String)} for the partition of every row.
+ * A partition that is not known to exist is queued and false is returned,
+ * so the caller can buffer the row instead of waiting for the metadata
+ * call. Queued partitions are created together, up to ddlBatchSize specs
+ * per ALTER TABLE statement, or one by one if the statement fails.
+ * Partition values are escaped in the statement. Existing partitions are
+ * listed once, also in the background, before the first creation.
+ */
+public class OdpsPartitionManager implements Closeable {
+
+  public static final Log LOG
+          = LogFactory.getLog(OdpsPartitionManager.class.getName());
+
+  private static final Pattern PARTITION_KEY =
+      Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+
+  private final Odps odps;
+  private final Table table;
+  private final String project;
+  private final String tableName;
+  private final int ddlBatchSize;
+
+  // Normalized specs known to exist, filled by the background thread.
+  private final Set<String> created =
+      Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+  // Normalized specs whose creation failed, with the cause.
+  private final ConcurrentMap<String, Exception> failed =
+      new ConcurrentHashMap<String, Exception>();
+  private final BlockingQueue<String> queue = new LinkedBlockingQueue<String>();
+  private final ExecutorService executor;
+
+  // Accessed by the caller thread only.
+  private final Set<String> ready = new HashSet<String>();
+  private final Set<String> requested = new HashSet<String>();
+
+  private final Runnable creator = new Runnable() {
+    @Override
+    public void run() {
+      createQueued();
+    }
+  };
+
+  public OdpsPartitionManager(Odps odps, Table table, String project,
+                              String tableName, int ddlBatchSize) {
+    this.odps = odps;
+    this.table = table;
+    this.project = project;
+    this.tableName = tableName;
+    this.ddlBatchSize = Math.max(1, ddlBatchSize);
+    this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread t = new Thread(r, "odps-partition-manager");
+        t.setDaemon(true);
+        return t;
+      }
+    });
+    executor.submit(new Runnable() {
+      @Override
+      public void run() {
+        listPartitions();
+      }
+    });
+  }
+
+  private static String normalize(String partitionSpec) {
+    return new PartitionSpec(partitionSpec).toString();
+  }
+
+  /**
+   * @return true if the partition exists. Otherwise its creation is
+   * scheduled, if not already, and false is returned.
+   * @throws RuntimeException if the creation of the partition failed
+   */
+  public boolean isReady(String partitionSpec) {
+    if (ready.contains(partitionSpec)) {
+      return true;
+    }
+    String spec = normalize(partitionSpec);
+    Exception cause = failed.get(spec);
+    if (cause != null) {
+      throw new RuntimeException("Create partition failed. ", cause);
+    }
+    if (created.contains(spec)) {
+      ready.add(partitionSpec);
+      return true;
+    }
+    if (requested.add(spec)) {
+      queue.add(spec);
+      executor.submit(creator);
+    }
+    return false;
+  }
+
+  /**
+   * Wait until the partition exists, creating it if needed.
+   */
+  public void awaitReady(String partitionSpec) throws InterruptedException {
+    if (!isReady(partitionSpec)) {
+      awaitAll();
+      if (!isReady(partitionSpec)) {
+        throw new RuntimeException("Partition " + partitionSpec
+            + " was not created.");
+      }
+    }
+  }
+
+  /**
+   * Wait until all partitions requested so far are created or failed.
+   */
+  public void awaitAll() throws InterruptedException {
+    try {
+      // The executor is single threaded, so this runs after every
+      // creation submitted before.
+      executor.submit(creator).get();
+    } catch (ExecutionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+  }
+
+  private void listPartitions() {
+    try {
+      Iterator<Partition> it = table.getPartitionIterator();
+      while (it.hasNext()) {
+        created.add(it.next().getPartitionSpec().toString());
+      }
+    } catch (Exception e) {
+      // Creation uses IF NOT EXISTS, so existing partitions are still safe.
+      LOG.warn("List partitions of " + tableName + " failed.", e);
+    }
+  }
+
+  private void createQueued() {
+    List<String> batch = new ArrayList<String>(ddlBatchSize);
+    while (queue.drainTo(batch, ddlBatchSize) > 0) {
+      Iterator<String> it = batch.iterator();
+      while (it.hasNext()) {
+        if (created.contains(it.next())) {
+          it.remove();
+        }
+      }
+      if (!batch.isEmpty()) {
+        create(batch);
+      }
+      batch.clear();
+    }
+  }
+
+  private void create(List<String> specs) {
+    try {
+      runSql(addPartitionsSql(project, tableName, specs));
+      created.addAll(specs);
+      return;
+    } catch (Exception e) {
+      if (specs.size() == 1) {
+        failed.put(specs.get(0), e);
+        return;
+      }
+      LOG.warn("Create " + specs.size() + " partitions in one statement"
+          + " failed, creating them one by one.", e);
+    }
+    for (String spec : specs) {
+      try {
+        runSql(addPartitionsSql(project, tableName,
+            Collections.singletonList(spec)));
+        created.add(spec);
+      } catch (Exception e) {
+        failed.put(spec, e);
+      }
+    }
+  }
+
+  /**
+   * Runs a DDL statement and waits for it to succeed.
+   */
+  protected void runSql(String sql) throws OdpsException {
+    SQLTask.run(odps, sql).waitForSuccess();
+  }
+
+  /**
+   * Builds the statement adding the partitions of specs.
+   *
+   * @throws IllegalArgumentException if a key is not a column name
+   */
+  static String addPartitionsSql(String project, String tableName,
+                                 List<String> specs) {
+    StringBuilder sql = new StringBuilder();
+    sql.append("ALTER TABLE ").append(project).append('.').append(tableName)
+        .append(" ADD IF NOT EXISTS");
+    for (String spec : specs) {
+      sql.append(' ').append(partitionClause(new PartitionSpec(spec)));
+    }
+    sql.append(';');
+    return sql.toString();
+  }
+
+  /**
+   * Builds the PARTITION clause of spec. The values come from the imported
+   * rows, so they are quoted with their quotes and backslashes escaped, and
+   * the keys must be plain column names.
+   *
+   * @throws IllegalArgumentException if a key is not a column name
+   */
+  static String partitionClause(PartitionSpec spec) {
+    StringBuilder clause = new StringBuilder("PARTITION (");
+    boolean first = true;
+    for (String key : spec.keys()) {
+      if (!PARTITION_KEY.matcher(key).matches()) {
+        throw new IllegalArgumentException("Invalid partition column "
+            + key + " in " + spec);
+      }
+      if (!first) {
+        clause.append(',');
+      }
+      first = false;
+      clause.append(key).append("='").append(escape(spec.get(key)))
+          .append('\'');
+    }
+    return clause.append(')').toString();
+  }
+
+  private static String escape(String value) {
+    StringBuilder escaped = new StringBuilder(value.length());
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '\'' || c == '\\') {
+        escaped.append('\\');
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
@@ -0,0 +1,142 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.odps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Partition spec template such as "pt='p1',region='%{col_name}'", tokenized
+ * once per job. Evaluating it for a row only concatenates the literal parts
+ * and the referenced field values.
+ *
+ * %{name} is replaced by the value of field name, any other %x is dropped.
+ */
+public class OdpsPartitionTemplate {
+
+  private final String[] literals;
+  // fields[i] is appended after literals[i]; null marks the end.
+  private final String[] fields;
+  private final String constant;
+  private final StringBuilder buffer = new StringBuilder();
+
+  /**
+   * @param partKeys partition column names
+   * @param partValues partition value templates, one per key
+   * @param fieldNames field names of the input records, used to resolve
+   *                   %{name} references regardless of their case
+   */
+  public OdpsPartitionTemplate(String[] partKeys, String[] partValues,
+                               List<String> fieldNames) {
+    if (partKeys.length != partValues.length) {
+      throw new RuntimeException("Numbers of partition key and "
+              + "partition value are not equal.");
+    }
+    List<String> literalList = new ArrayList<String>();
+    List<String> fieldList = new ArrayList<String>();
+    StringBuilder literal = new StringBuilder();
+    for (int i = 0; i < partKeys.length; i++) {
+      if (i > 0) {
+        literal.append(',');
+      }
+      literal.append(partKeys[i]).append("='");
+      String value = partValues[i];
+      int pos = 0;
+      while (pos < value.length()) {
+        char c = value.charAt(pos);
+        if (c == '%' && pos + 1 < value.length()) {
+          char next = value.charAt(pos + 1);
+          if (next == '{') {
+            int end = value.indexOf('}', pos + 2);
+            if (end > pos + 2 && isFieldName(value, pos + 2, end)) {
+              literalList.add(literal.toString());
+              literal.setLength(0);
+              fieldList.add(resolve(value.substring(pos + 2, end), fieldNames));
+              pos = end + 1;
+              continue;
+            }
+          } else if (next == '%' || isWordChar(next)) {
+            pos += 2;
+            continue;
+          }
+        }
+        literal.append(c);
+        pos++;
+      }
+      literal.append('\'');
+    }
+    literalList.add(literal.toString());
+    this.literals = literalList.toArray(new String[literalList.size()]);
+    this.fields = fieldList.toArray(new String[fieldList.size()]);
+    this.constant = fields.length == 0 ? literals[0] : null;
+  }
+
+  private static boolean isWordChar(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')
+        || (c >= '0' && c <= '9') || c == '_';
+  }
+
+  private static boolean isFieldName(String s, int start, int end) {
+    for (int i = start; i < end; i++) {
+      char c = s.charAt(i);
+      if (!isWordChar(c) && c != '.' && c != '-') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static String resolve(String name, List<String> fieldNames) {
+    if (fieldNames != null) {
+      for (String fieldName : fieldNames) {
+        if (fieldName.equalsIgnoreCase(name)) {
+          return fieldName;
+        }
+      }
+    }
+    return name.toLowerCase();
+  }
+
+  /**
+   * @return true if the template references no field, so every row goes
+   * to the same partition.
+   */
+  public boolean isConstant() {
+    return constant != null;
+  }
+
+  /**
+   * @return the partition spec of the row with the given field values.
+   */
+  public String evaluate(Map<String, Object> row) {
+    if (constant != null) {
+      return constant;
+    }
+    buffer.setLength(0);
+    for (int i = 0; i < fields.length; i++) {
+      buffer.append(literals[i]);
+      Object value = row.get(fields[i]);
+      if (value != null) {
+        buffer.append(value.toString());
+      }
+    }
+    buffer.append(literals[fields.length]);
+    return buffer.toString();
+  }
+}
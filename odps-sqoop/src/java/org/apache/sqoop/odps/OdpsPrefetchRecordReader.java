@@ -0,0 +1,174 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.sqoop.odps;
+
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.data.RecordReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A RecordReader that reads blocks of records from an underlying ODPS reader
+ * on a background thread, so that the network is kept busy while the map
+ * task processes the previous block. At most queueSize blocks of blockSize
+ * records are buffered at any time.
+ */
+public class OdpsPrefetchRecordReader implements RecordReader {
+  private static final List<Record> END_OF_DATA =
+      Collections.<Record>emptyList();
+  private static final long OFFER_TIMEOUT_MS = 100;
+  private static final long POLL_TIMEOUT_MS = 100;
+
+  private final RecordReader reader;
+  private final int blockSize;
+  private final BlockingQueue<List<Record>> queue;
+  private final Thread fetcher;
+
+  private volatile Throwable error;
+  private volatile boolean closed;
+
+  private List<Record> currentBlock;
+  private int currentIndex;
+  private boolean finished;
+
+  public OdpsPrefetchRecordReader(RecordReader reader, int blockSize,
+                                  int queueSize) {
+    if (blockSize < 1 || queueSize < 1) {
+      throw new IllegalArgumentException("Prefetch block size and queue size"
+          + " must be positive, got " + blockSize + " and " + queueSize);
+    }
+    this.reader = reader;
+    this.blockSize = blockSize;
+    this.queue = new ArrayBlockingQueue<List<Record>>(queueSize);
+    this.fetcher = new Thread(new Runnable() {
+      @Override
+      public void run() {
+        fetch();
+      }
+    }, "odps-prefetch-reader");
+    this.fetcher.setDaemon(true);
+    this.fetcher.start();
+  }
+
+  private void fetch() {
+    try {
+      while (!closed) {
+        List<Record> block = new ArrayList<Record>(blockSize);
+        Record record = null;
+        while (block.size() < blockSize && (record = reader.read()) != null) {
+          block.add(record);
+        }
+        if (!block.isEmpty() && !enqueue(block)) {
+          return;
+        }
+        if (record == null) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      // closed by the consumer
+      return;
+    } catch (Throwable t) {
+      error = t;
+    }
+    try {
+      enqueue(END_OF_DATA);
+    } catch (InterruptedException e) {
+      // closed by the consumer
+    }
+  }
+
+  /**
+   * Waits for room in the queue until the reader is closed, so that the
+   * fetcher exits even if the underlying reader swallowed the interrupt.
+   */
+  private boolean enqueue(List<Record> block) throws InterruptedException {
+    while (!closed) {
+      if (queue.offer(block, OFFER_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public Record read() throws IOException {
+    while (currentBlock == null || currentIndex >= currentBlock.size()) {
+      if (finished) {
+        return null;
+      }
+      try {
+        currentBlock = dequeue();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new IOException("Interrupted while waiting for records", e);
+      }
+      currentIndex = 0;
+      if (currentBlock == END_OF_DATA) {
+        finished = true;
+        if (error != null) {
+          throw new IOException("Prefetch of ODPS records failed", error);
+        }
+        return null;
+      }
+    }
+    return currentBlock.get(currentIndex++);
+  }
+
+  /**
+   * Waits for the next block until the reader is closed or the fetcher
+   * exited without queueing the end marker, instead of blocking forever.
+   */
+  private List<Record> dequeue() throws IOException, InterruptedException {
+    while (true) {
+      if (closed) {
+        throw new IOException("Prefetch record reader is closed");
+      }
+      boolean fetcherAlive = fetcher.isAlive();
+      List<Record> block = queue.poll(POLL_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+      if (block != null) {
+        return block;
+      }
+      if (!fetcherAlive) {
+        throw new IOException("Prefetch of ODPS records stopped before the"
+            + " end of data", error);
+      }
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    closed = true;
+    fetcher.interrupt();
+    // make room for a fetcher waiting on a full queue before joining it
+    queue.clear();
+    try {
+      fetcher.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    queue.clear();
+    reader.close();
+  }
+}
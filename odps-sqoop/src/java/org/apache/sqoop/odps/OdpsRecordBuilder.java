@@ -17,7 +17,6 @@
  */
 package org.apache.sqoop.odps;
 
-import maxcompute.data.collectors.common.maxcompute.*;
 import com.aliyun.odps.Column;
 import com.aliyun.odps.OdpsType;
 import com.aliyun.odps.Table;
@@ -42,6 +41,10 @@ public class OdpsRecordBuilder {
   private Column[] odpsColumns;
   private SimpleDateFormat dateFormat;
   private Map<String, OdpsType> colNameTypeMap;
+  // Input field names and the binders of their columns, in the same order.
+  private String[] fieldNames;
+  private OdpsColumnBinder[] binders;
+  private boolean fieldNamesResolved;
 
   public OdpsRecordBuilder(Table odpsTable, String dateFormatString,
                            List<String> inputColNames) {
@@ -51,6 +54,67 @@ public OdpsRecordBuilder(Table odpsTable, String dateFormatString,
       dateFormat = new SimpleDateFormat(dateFormatString);
     }
     colNameTypeMap = buildColNameTypeMap(inputColNames, tableSchema);
+    buildBinders(inputColNames);
+  }
+
+  private void buildBinders(List<String> inputColNames) {
+    Map<String, Integer> columnIndex = Maps.newHashMap();
+    for (int i = 0; i < odpsColumns.length; i++) {
+      columnIndex.put(odpsColumns[i].getName().toLowerCase(), i);
+    }
+    List<String> names = new ArrayList<String>();
+    List<OdpsColumnBinder> binderList = new ArrayList<OdpsColumnBinder>();
+    for (String colName : inputColNames) {
+      if (StringUtils.isEmpty(colName)) {
+        continue;
+      }
+      String key = colName.toLowerCase();
+      names.add(colName);
+      binderList.add(OdpsColumnBinder.create(colNameTypeMap.get(key),
+          columnIndex.get(key), dateFormat));
+    }
+    fieldNames = names.toArray(new String[names.size()]);
+    binders = binderList.toArray(new OdpsColumnBinder[binderList.size()]);
+  }
+
+  /**
+   * Field map keys normally equal the input column names; fall back to a
+   * case-insensitive match once, on the first row.
+   */
+  private void resolveFieldNames(Map<String, Object> rowMap) {
+    for (int i = 0; i < fieldNames.length; i++) {
+      if (!rowMap.containsKey(fieldNames[i])) {
+        for (String key : rowMap.keySet()) {
+          if (key.equalsIgnoreCase(fieldNames[i])) {
+            fieldNames[i] = key;
+            break;
+          }
+        }
+      }
+    }
+    fieldNamesResolved = true;
+  }
+
+  /**
+   * @return an empty record of the table schema, to be filled by
+   * {@link #bindRecord(Map, ArrayRecord)}.
+   */
+  public ArrayRecord newRecord() {
+    return new ArrayRecord(odpsColumns);
+  }
+
+  /**
+   * Fill record with the values of rowMap through the compiled column
+   * binders. Every input column is overwritten, so the record can be
+   * reused for the next row.
+   */
+  public void bindRecord(Map<String, Object> rowMap, ArrayRecord record) {
+    if (!fieldNamesResolved) {
+      resolveFieldNames(rowMap);
+    }
+    for (int i = 0; i < binders.length; i++) {
+      binders[i].bind(record, rowMap.get(fieldNames[i]));
+    }
   }
 
   private Map<String, OdpsType> buildColNameTypeMap(List<String> inputColNames,
@@ -77,20 +141,8 @@ private Map<String, OdpsType> buildColNameTypeMap(List<String> inputColNames,
 
   public Record buildRecord(Map<String, Object> rowMap)
           throws ParseException {
-    ArrayRecord record = new ArrayRecord(odpsColumns);
-    for (Map.Entry<String, Object> mapEntry : rowMap.entrySet()) {
-      try {
-        String key = mapEntry.getKey();
-        Object value = mapEntry.getValue();
-        RecordUtil.setFieldValue(record, key.toLowerCase(), value == null ? null : value.toString(),
-            colNameTypeMap.get(key.toLowerCase()), dateFormat);
-      } catch (Exception e) {
-        // If build record field failed, warn and skip it
-//        LOG.warn("Input key (or value) is null, skip this field.", e);
-//        LOG.warn("Input entry: " + mapEntry.toString());
-//        LOG.warn("Input rowMap: " + Arrays.toString(rowMap.entrySet().toArray()));
-      }
-    }
+    ArrayRecord record = newRecord();
+    bindRecord(rowMap, record);
     return record;
   }
 
@@ -43,6 +43,7 @@ public class OdpsSqoopRecordReader extends RecordReader<LongWritable, Record> {
   private long start;
   private long length;
   private long pos;
+  private String sessionId;
 
   public OdpsSqoopRecordReader(OdpsExportInputFormat
       .OdpsExportInputSplit split)
@@ -50,6 +51,7 @@ public OdpsSqoopRecordReader(OdpsExportInputFormat
     this.start = split.getStart();
     this.length = split.getLength();
     this.pos = this.start;
+    this.sessionId = split.getSessionId();
   }
 
   @Override
@@ -75,13 +77,30 @@ public void initialize(InputSplit inputSplit,
     }
     TableTunnel.DownloadSession downloadSession;
     try {
-      if (partitionSpec == null) {
+      if (sessionId != null) {
+        // Attach to the session created at job submission.
+        if (partitionSpec == null) {
+          downloadSession = tunnel.getDownloadSession(project, tableName,
+              sessionId);
+        } else {
+          downloadSession = tunnel.getDownloadSession(project, tableName,
+              partitionSpec, sessionId);
+        }
+      } else if (partitionSpec == null) {
         downloadSession = tunnel.createDownloadSession(project, tableName);
       } else {
         downloadSession = tunnel.createDownloadSession(project, tableName,
               partitionSpec);
       }
       this.odpsRecordReader = downloadSession.openRecordReader(start, length);
+      if (conf.getBoolean(OdpsConstants.SHARED_DOWNLOAD_SESSION, false)) {
+        int blockSize = conf.getInt(OdpsConstants.PREFETCH_BLOCK_SIZE,
+            OdpsConstants.DEFAULT_PREFETCH_BLOCK_SIZE);
+        int queueSize = conf.getInt(OdpsConstants.PREFETCH_QUEUE_SIZE,
+            OdpsConstants.DEFAULT_PREFETCH_QUEUE_SIZE);
+        this.odpsRecordReader = new OdpsPrefetchRecordReader(
+            this.odpsRecordReader, blockSize, queueSize);
+      }
     } catch (TunnelException e) {
       throw new IOException(e);
     }
@@ -122,6 +141,8 @@ public float getProgress() throws IOException, InterruptedException {
 
   @Override
   public void close() throws IOException {
-    // DO NOTHING
+    if (this.odpsRecordReader != null) {
+      this.odpsRecordReader.close();
+    }
   }
 }
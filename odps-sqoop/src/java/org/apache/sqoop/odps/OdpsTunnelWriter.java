@@ -29,13 +29,20 @@
 import org.apache.commons.logging.LogFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 public class OdpsTunnelWriter extends OdpsWriter {
   public static final Log LOG = LogFactory.getLog(OdpsTunnelWriter.class.getName());
+
+  // Tunnel accepts block ids in [0, 20000) within one upload session.
+  private static final long MAX_BLOCK_ID = 20000L;
+
   private TableTunnel tunnel;
   private String project;
   private String tableName;
@@ -44,15 +51,43 @@ public class OdpsTunnelWriter extends OdpsWriter {
   private TableTunnel.UploadSession sharedUploadSession;
   private RecordWriter sharedWriter;
   private boolean useCompress;
+  private int sessionPoolSize;
+  // Upload sessions of dynamic partitions, least recently used first.
+  private LinkedHashMap<String, PooledSession> sessionPool;
+
+  /**
+   * An upload session kept open for the whole task, together with the
+   * blocks written to it so far.
+   */
+  private static class PooledSession {
+    private final String partition;
+    private final TableTunnel.UploadSession uploadSession;
+    private final List<Long> blockIds = new ArrayList<Long>();
+    private long nextBlockId = 0;
+
+    PooledSession(String partition, TableTunnel.UploadSession uploadSession) {
+      this.partition = partition;
+      this.uploadSession = uploadSession;
+    }
+  }
 
   public OdpsTunnelWriter(TableTunnel tunnel, String project,
                           String tableName, int retryCount, String sessionId, boolean useCompress) {
+    this(tunnel, project, tableName, retryCount, sessionId, useCompress,
+        OdpsConstants.DEFAULT_SESSION_POOL_SIZE);
+  }
+
+  public OdpsTunnelWriter(TableTunnel tunnel, String project,
+                          String tableName, int retryCount, String sessionId,
+                          boolean useCompress, int sessionPoolSize) {
     this.tunnel = tunnel;
     this.project = project;
     this.tableName = tableName;
     this.retryCount = retryCount;
     this.sharedSessionId = sessionId;
     this.useCompress = useCompress;
+    this.sessionPoolSize = Math.max(1, sessionPoolSize);
+    this.sessionPool = new LinkedHashMap<String, PooledSession>(16, 0.75f, true);
   }
 
   public OdpsTunnelWriter(TableTunnel tunnel, String project, String tableName, int retryCount,
@@ -88,56 +123,120 @@ public void write(List<OdpsRowDO> rowList)
     }
     for (Map.Entry<String, List<Record>> mapEntry
             : partitionRecordMap.entrySet()) {
-      int retry = 0;
       if (sharedUploadSession != null) {
         for (Record r : mapEntry.getValue()) {
           sharedWriter.write(r);
         }
         continue;
       }
-      
-      while (true) {
-        RecordWriter writer = null;
+
+      PooledSession session = getPooledSession(mapEntry.getKey());
+      if (session.nextBlockId >= MAX_BLOCK_ID) {
+        // Block ids are used up, commit and continue in a fresh session.
+        sessionPool.remove(session.partition);
+        commit(session);
+        session = getPooledSession(mapEntry.getKey());
+      }
+      writeBlock(session, session.nextBlockId++, mapEntry.getValue());
+    }
+  }
+
+  private PooledSession getPooledSession(String partition)
+      throws InterruptedException, TunnelException, IOException {
+    PooledSession session = sessionPool.get(partition);
+    if (session != null) {
+      return session;
+    }
+    if (sessionPool.size() >= sessionPoolSize) {
+      Iterator<PooledSession> eldest = sessionPool.values().iterator();
+      PooledSession evicted = eldest.next();
+      eldest.remove();
+      commit(evicted);
+    }
+    int retry = 0;
+    while (true) {
+      try {
+        TableTunnel.UploadSession uploadSession;
+        if (partition == null) {
+          uploadSession = tunnel.createUploadSession(project, tableName);
+        } else {
+          uploadSession = tunnel.createUploadSession(project, tableName,
+              new PartitionSpec(partition));
+        }
+        session = new PooledSession(partition, uploadSession);
+        sessionPool.put(partition, session);
+        return session;
+      } catch (TunnelException e) {
+        retry = waitForRetry("Create upload session", retry, e);
+      }
+    }
+  }
+
+  private void writeBlock(PooledSession session, long blockId,
+                          List<Record> records) throws InterruptedException {
+    int retry = 0;
+    while (true) {
+      RecordWriter writer = null;
+      try {
+        // Rewriting the same block id replaces the data of a failed attempt.
+        writer = session.uploadSession.openRecordWriter(blockId, useCompress);
+        for (Record r : records) {
+          writer.write(r);
+        }
+        writer.close();
+        writer = null;
+        session.blockIds.add(blockId);
+        return;
+      } catch (Exception e) {
+        retry = waitForRetry("Upload", retry, e);
+      } finally {
         try {
-          String partition = mapEntry.getKey();
-          TableTunnel.UploadSession uploadSession;
-          if (partition == null) {
-            uploadSession = tunnel.createUploadSession(project, tableName);
-          } else {
-            uploadSession = tunnel.createUploadSession(project, tableName,
-                new PartitionSpec(partition));
-          }
-          writer = uploadSession.openRecordWriter(0, useCompress);
-          for (Record r : mapEntry.getValue()) {
-            writer.write(r);
+          if (writer != null) {
+            writer.close();
           }
-          writer.close();
-          uploadSession.commit(new Long[]{0L});
-          break;
         } catch (Exception e) {
-          LOG.warn("Upload exception in retry " + retry, e);
-          retry++;
-          if (retry > retryCount) {
-            throw new RuntimeException("Retry failed. " +
-                "Retry count reaches limit.", e);
-          }
-          int sleepTime = 50 + 1000 * (retry - 1);
-          Thread.sleep(sleepTime);
-        } finally {
-          try {
-            if (writer != null) {
-              writer.close();
-            }
-          } catch (Exception e) {
-            // Do Nothing
-          }
+          // Do Nothing
         }
       }
     }
   }
 
+  private void commit(PooledSession session) throws InterruptedException {
+    if (session.blockIds.isEmpty()) {
+      return;
+    }
+    int retry = 0;
+    while (true) {
+      try {
+        session.uploadSession.commit(
+            session.blockIds.toArray(new Long[session.blockIds.size()]));
+        return;
+      } catch (Exception e) {
+        retry = waitForRetry("Commit of partition " + session.partition,
+            retry, e);
+      }
+    }
+  }
+
+  private int waitForRetry(String action, int retry, Exception e)
+      throws InterruptedException {
+    LOG.warn(action + " exception in retry " + retry, e);
+    retry++;
+    if (retry > retryCount) {
+      throw new RuntimeException("Retry failed. " +
+          "Retry count reaches limit.", e);
+    }
+    int sleepTime = 50 + 1000 * (retry - 1);
+    Thread.sleep(sleepTime);
+    return retry;
+  }
+
   @Override
   public void close() throws InterruptedException, TunnelException, IOException {
+    for (PooledSession session : sessionPool.values()) {
+      commit(session);
+    }
+    sessionPool.clear();
     if (sharedWriter != null) {
       sharedWriter.close();
     }
@@ -19,6 +19,7 @@
 
 import com.aliyun.odps.*;
 import com.aliyun.odps.account.AliyunAccount;
+import com.aliyun.odps.data.ArrayRecord;
 import com.aliyun.odps.tunnel.StreamClient;
 import com.aliyun.odps.tunnel.TableTunnel;
 import com.aliyun.odps.tunnel.TunnelException;
@@ -26,7 +27,6 @@
 import com.cloudera.sqoop.lib.FieldMapProcessor;
 import com.cloudera.sqoop.lib.FieldMappable;
 import com.cloudera.sqoop.lib.ProcessingException;
-import com.google.common.collect.Maps;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -39,8 +39,6 @@
 import java.text.ParseException;
 import java.util.*;
 import java.util.concurrent.TimeoutException;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Created by Tian Li on 15/9/29.
@@ -57,6 +55,8 @@ public class OdpsUploadProcessor implements Closeable, Configurable,
   private OdpsRecordBuilder odpsRecordBuilder;
   private OdpsWriter odpsWriter;
   private List<OdpsRowDO> rowDOList;
+  // Rows already sent to the writer, reused for the next batch.
+  private List<OdpsRowDO> freeRowDOList;
   private int shardNumber;
   private int shardTimeout;
   private int retryCount;
@@ -65,12 +65,21 @@ public class OdpsUploadProcessor implements Closeable, Configurable,
   private String[] partitionValues;
   private String inputDateFormat;
   private boolean autoCreatePartition = true;
-  private Map partitionMap;
+  private OdpsPartitionManager partitionManager;
+  private OdpsPartitionTemplate partitionTemplate;
+  // Rows of partitions that are still being created, by partition spec.
+  private Map<String, List<OdpsRowDO>> pendingRowDOMap;
+  private int pendingRowCount;
+  private int maxPendingRows;
   private boolean useCompress;
 
   @Override
   public void close() throws IOException {
     try {
+      if (partitionManager != null) {
+        partitionManager.awaitAll();
+        movePendingRows();
+      }
       sendBatch(rowDOList);
     } catch (Exception e) {
       throw new RuntimeException(e);
@@ -80,13 +89,19 @@ public void close() throws IOException {
       odpsWriter.close();
     } catch (Exception e) {
       throw new RuntimeException(e);
+    } finally {
+      if (partitionManager != null) {
+        partitionManager.close();
+      }
     }
   }
 
   @Override
   public void setConf(Configuration configuration) {
     this.conf = configuration;
-    rowDOList = new LinkedList<OdpsRowDO>();
+    rowDOList = new ArrayList<OdpsRowDO>();
+    freeRowDOList = new ArrayList<OdpsRowDO>();
+    pendingRowDOMap = new LinkedHashMap<String, List<OdpsRowDO>>();
 
     inputDateFormat = conf.get(OdpsConstants.DATE_FORMAT);
     retryCount = conf.getInt(OdpsConstants.RETRY_COUNT,
@@ -94,6 +109,8 @@ public void setConf(Configuration configuration) {
     batchSize = conf.getInt(OdpsConstants.BATCH_SIZE,
             OdpsConstants.DEFAULT_BATCH_SIZE);
     useCompress = conf.getBoolean(OdpsConstants.USE_COMPRESS_IN_UPLOAD, false);
+    maxPendingRows = conf.getInt(OdpsConstants.PARTITION_PENDING_ROWS,
+            batchSize * 10);
 
     String project = conf.get(OdpsConstants.PROJECT);
     String endpoint = conf.get(OdpsConstants.ENDPOINT);
@@ -107,17 +124,26 @@ public void setConf(Configuration configuration) {
 
     partitionKeys = strToArray(conf.get(OdpsConstants.PARTITION_KEY));
     partitionValues = strToArray(conf.get(OdpsConstants.PARTITION_VALUE));
-    if (partitionKeys != null) {
-      partitionMap = buildPartitionMap();
-    }
-
     List<String> inputColumnNames = Arrays.asList(
             conf.getStrings(OdpsConstants.INPUT_COL_NAMES));
+    if (partitionKeys != null && partitionValues != null) {
+      partitionTemplate = new OdpsPartitionTemplate(partitionKeys,
+          partitionValues, inputColumnNames);
+      if (autoCreatePartition) {
+        partitionManager = new OdpsPartitionManager(odps, odpsTable, project,
+            tableName, conf.getInt(OdpsConstants.PARTITION_DDL_BATCH_SIZE,
+                OdpsConstants.DEFAULT_PARTITION_DDL_BATCH_SIZE));
+      }
+    }
+
     odpsRecordBuilder = new OdpsRecordBuilder(odpsTable,
             inputDateFormat, inputColumnNames);
     try {
       if (conf.getBoolean(OdpsConstants.ODPS_DISABLE_DYNAMIC_PARTITIONS, false)) {
-        String partition = getPartitionSpec(partitionKeys, partitionValues, Maps.newHashMap());
+        String partition = getPartitionSpec(Collections.<String, Object>emptyMap());
+        if (partition != null && partitionManager != null) {
+          partitionManager.awaitReady(partition);
+        }
         TableTunnel.UploadSession uploadSession = null;
         TableTunnel tunnel = new TableTunnel(odps);
         if (StringUtils.isNotEmpty(tunnelEndPoint)) {
@@ -140,14 +166,6 @@ public void setConf(Configuration configuration) {
     }
   }
 
-  private Map buildPartitionMap() {
-    Map partMap = Maps.newHashMap();
-    for (Partition partition : odpsTable.getPartitions()) {
-      partMap.put(partition.getPartitionSpec().toString(), true);
-    }
-    return partMap;
-  }
-
   private String[] strToArray(String s) {
     if (s == null) {
       return null;
@@ -164,14 +182,19 @@ public Configuration getConf() {
   public void accept(FieldMappable record) throws IOException,
           ProcessingException {
     Map<String, Object> fields = record.getFieldMap();
-    OdpsRowDO rowDO = new OdpsRowDO();
+    OdpsRowDO rowDO = nextRowDO();
     try {
-      rowDO.setRecord(odpsRecordBuilder.buildRecord(fields));
-      String partitionSpec = getPartitionSpec(partitionKeys,
-              partitionValues, fields);
+      odpsRecordBuilder.bindRecord(fields, (ArrayRecord) rowDO.getRecord());
+      String partitionSpec = getPartitionSpec(fields);
       rowDO.setPartitionSpec(partitionSpec);
-      rowDOList.add(rowDO);
+      if (partitionSpec == null || partitionManager == null
+          || partitionManager.isReady(partitionSpec)) {
+        rowDOList.add(rowDO);
+      } else {
+        addPendingRow(rowDO);
+      }
       if (rowDOList.size() >= batchSize) {
+        movePendingRows();
         sendBatch(rowDOList);
       }
     } catch (Exception e) {
@@ -179,55 +202,52 @@ public void accept(FieldMappable record) throws IOException,
     }
   }
 
-  private String getPartitionSpec(String[] partKeys,
-                                  String[] partValues, Map fields) {
-    if (partKeys == null || partValues == null) {
-      return null;
+  private OdpsRowDO nextRowDO() {
+    if (freeRowDOList.isEmpty()) {
+      OdpsRowDO rowDO = new OdpsRowDO();
+      rowDO.setRecord(odpsRecordBuilder.newRecord());
+      return rowDO;
     }
-    if (partKeys.length != partValues.length) {
-      throw new RuntimeException("Numbers of partition key and "
-              + "partition value are not equal.");
+    return freeRowDOList.remove(freeRowDOList.size() - 1);
+  }
+
+  private String getPartitionSpec(Map<String, Object> fields) {
+    if (partitionTemplate == null) {
+      return null;
     }
-    StringBuilder sb = new StringBuilder();
-    String sep = "";
-    for (int i = 0; i < partKeys.length; i++) {
-      String realPartVal = escapeString(partValues[i], fields);
-      sb.append(sep).append(partKeys[i]).append("='").
-              append(realPartVal).append("'");
-      sep = ",";
+    return partitionTemplate.evaluate(fields);
+  }
+
+  private void addPendingRow(OdpsRowDO rowDO) throws InterruptedException {
+    List<OdpsRowDO> rows = pendingRowDOMap.get(rowDO.getPartitionSpec());
+    if (rows == null) {
+      rows = new ArrayList<OdpsRowDO>();
+      pendingRowDOMap.put(rowDO.getPartitionSpec(), rows);
     }
-    String partitionSpec = sb.toString();
-    if (autoCreatePartition && !partitionMap.containsKey(partitionSpec)) {
-      try {
-        odpsTable.createPartition(new PartitionSpec(partitionSpec), true);
-      } catch (OdpsException e) {
-        throw new RuntimeException("Create partition failed. ", e);
-      }
-      partitionMap.put(partitionSpec, true);
+    rows.add(rowDO);
+    pendingRowCount++;
+    if (pendingRowCount >= maxPendingRows) {
+      // Too many rows waiting for their partitions, let creation catch up.
+      partitionManager.awaitAll();
+      movePendingRows();
     }
-    return partitionSpec;
   }
 
-  public final static String TAG_REGEX = "\\%(\\w|\\%)|\\%\\{([\\w\\.-]+)\\}";
-  public final static Pattern tagPattern = Pattern.compile(TAG_REGEX);
-  public static String escapeString(String in, Map rowMap) {
-    Matcher matcher = tagPattern.matcher(in);
-    StringBuffer sb = new StringBuffer();
-    while (matcher.find()) {
-      String replacement = "";
-      if(matcher.group(2) != null) {
-        replacement = rowMap.get(matcher.group(2).toLowerCase()).toString();
-        if(replacement == null) {
-          replacement = "";
-        }
+  /**
+   * Move the buffered rows of partitions that have been created meanwhile
+   * to the batch.
+   */
+  private void movePendingRows() {
+    Iterator<Map.Entry<String, List<OdpsRowDO>>> it =
+        pendingRowDOMap.entrySet().iterator();
+    while (it.hasNext()) {
+      Map.Entry<String, List<OdpsRowDO>> entry = it.next();
+      if (partitionManager.isReady(entry.getKey())) {
+        rowDOList.addAll(entry.getValue());
+        pendingRowCount -= entry.getValue().size();
+        it.remove();
       }
-      replacement = replacement.replaceAll("\\\\", "\\\\\\\\");
-      replacement = replacement.replaceAll("\\$", "\\\\\\$");
-
-      matcher.appendReplacement(sb, replacement);
     }
-    matcher.appendTail(sb);
-    return sb.toString();
   }
 
   private void sendBatch(List<OdpsRowDO> rowDOList)
@@ -235,6 +255,8 @@ private void sendBatch(List<OdpsRowDO> rowDOList)
           TunnelException, IOException {
     if (rowDOList != null && rowDOList.size() > 0) {
       odpsWriter.write(rowDOList);
+      // The writer has serialized the records, recycle them.
+      freeRowDOList.addAll(rowDOList);
       rowDOList.clear();
     }
   }
@@ -253,7 +275,10 @@ private OdpsWriter buildTunnelWriter(String project, String tableName,
     if (StringUtils.isNotEmpty(tunnelEndPoint)) {
       tunnel.setEndpoint(tunnelEndPoint);
     }
-    return new OdpsTunnelWriter(tunnel, project, tableName, retryCount, sessionId, useCompress);
+    int sessionPoolSize = conf.getInt(OdpsConstants.SESSION_POOL_SIZE,
+        OdpsConstants.DEFAULT_SESSION_POOL_SIZE);
+    return new OdpsTunnelWriter(tunnel, project, tableName, retryCount, sessionId, useCompress,
+        sessionPoolSize);
   }
   
   private OdpsWriter buildTunnelWriter(String project, String tableName,
@@ -215,6 +215,7 @@ public abstract class BaseSqoopTool extends com.cloudera.sqoop.tool.SqoopTool {
   public static final String ODPS_DISABLE_DYNAMIC_PARTITIONS = "disable-dynamic-partitions";
   public static final String ODPS_OVERWRITE_ARG = "odps-overwrite";
   public static final String ODPS_USE_COMPRESS = "odps-compress";
+  public static final String ODPS_SHARED_SESSION_ARG = "odps-shared-session";
 
   //Accumulo arguments.
   public static final String ACCUMULO_TABLE_ARG = "accumulo-table";
@@ -1495,6 +1496,10 @@ protected void applyOdpsOptions(CommandLine in, SqoopOptions out) {
     if (in.hasOption(ODPS_USE_COMPRESS)) {
       out.setOdpsUseCompressInUpload(true);
     }
+
+    if (in.hasOption(ODPS_SHARED_SESSION_ARG)) {
+      out.setOdpsSharedDownloadSession(true);
+    }
   }
 
   protected void applyHBaseOptions(CommandLine in, SqoopOptions out) {
@@ -223,6 +223,11 @@ protected RelatedOptions getOdpsOptions() {
         .withDescription("Set the ODPS table partitionSpec")
         .withLongOpt(ODPS_PARTITION_SPEC_ARG)
         .create());
+    odpsOpts.addOption(OptionBuilder
+        .withDescription("Share one download session among all map tasks"
+            + " and prefetch records in background")
+        .withLongOpt(ODPS_SHARED_SESSION_ARG)
+        .create());
     return odpsOpts;
   }
 
@@ -0,0 +1,91 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.odps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.text.SimpleDateFormat;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.ArrayRecord;
+import org.junit.Test;
+
+public class TestOdpsColumnBinder {
+
+  private static final Column[] COLUMNS = new Column[] {
+      new Column("b", OdpsType.BIGINT),
+      new Column("d", OdpsType.DECIMAL),
+      new Column("f", OdpsType.BOOLEAN),
+      new Column("t", OdpsType.DATETIME),
+      new Column("s", OdpsType.STRING)
+  };
+
+  private final SimpleDateFormat format =
+      new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+
+  private OdpsColumnBinder binder(int index) {
+    return OdpsColumnBinder.create(COLUMNS[index].getType(), index, format);
+  }
+
+  @Test
+  public void testTypedValues() {
+    ArrayRecord record = new ArrayRecord(COLUMNS);
+    binder(0).bind(record, 42);
+    binder(1).bind(record, new BigDecimal("1.50"));
+    binder(2).bind(record, Boolean.TRUE);
+    binder(3).bind(record, new Timestamp(1000L));
+    binder(4).bind(record, "abc");
+    assertEquals(Long.valueOf(42), record.getBigint(0));
+    assertEquals(new BigDecimal("1.50"), record.getDecimal(1));
+    assertEquals(Boolean.TRUE, record.getBoolean(2));
+    assertEquals(1000L, record.getDatetime(3).getTime());
+    assertEquals("abc", record.getString(4));
+  }
+
+  @Test
+  public void testStringValues() throws Exception {
+    ArrayRecord record = new ArrayRecord(COLUMNS);
+    binder(0).bind(record, "42");
+    binder(1).bind(record, "1.5");
+    binder(2).bind(record, "Y");
+    binder(3).bind(record, "2015-09-29 10:00:00");
+    assertEquals(Long.valueOf(42), record.getBigint(0));
+    assertEquals(new BigDecimal("1.5"), record.getDecimal(1));
+    assertEquals(Boolean.TRUE, record.getBoolean(2));
+    assertEquals(format.parse("2015-09-29 10:00:00"), record.getDatetime(3));
+  }
+
+  @Test
+  public void testReusedRecordIsOverwritten() {
+    ArrayRecord record = new ArrayRecord(COLUMNS);
+    binder(0).bind(record, 42L);
+    binder(4).bind(record, "abc");
+    binder(0).bind(record, "not a number");
+    binder(4).bind(record, "");
+    assertNull(record.getBigint(0));
+    assertNull(record.getString(4));
+    binder(0).bind(record, 1L);
+    binder(0).bind(record, null);
+    assertNull(record.getBigint(0));
+  }
+}
@@ -0,0 +1,166 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.odps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.OdpsException;
+import com.aliyun.odps.Partition;
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.Table;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestOdpsPartitionManager {
+
+  private RecordingPartitionManager manager;
+
+  @Before
+  public void setUp() throws Exception {
+    Table table = mock(Table.class);
+    Partition existing = mock(Partition.class);
+    when(existing.getPartitionSpec()).thenReturn(new PartitionSpec("pt='a'"));
+    when(table.getPartitionIterator())
+        .thenReturn(Collections.singletonList(existing).iterator());
+    manager = new RecordingPartitionManager(table);
+    // Let the initial listing finish before the tests stub the table again.
+    manager.awaitAll();
+  }
+
+  @After
+  public void tearDown() {
+    manager.close();
+  }
+
+  @Test
+  public void testExistingPartitionIsNotCreated() throws Exception {
+    assertTrue(manager.isReady("pt='a'"));
+    manager.awaitAll();
+    assertTrue(manager.statements.isEmpty());
+  }
+
+  @Test
+  public void testMissingPartitionIsCreatedInBackground() throws Exception {
+    assertFalse(manager.isReady("pt='b'"));
+    assertFalse(manager.isReady("pt='b'"));
+    manager.awaitAll();
+    assertTrue(manager.isReady("pt='b'"));
+    assertEquals(Collections.singletonList(
+        "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (pt='b');"),
+        manager.statements);
+  }
+
+  @Test
+  public void testFailedCreationIsReported() throws Exception {
+    manager.failing = true;
+    manager.awaitReady("pt='a'");
+    try {
+      manager.awaitReady("pt='c'");
+      fail("Expected the creation failure to be reported");
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof OdpsException);
+    }
+  }
+
+  @Test
+  public void testFailedBatchIsCreatedOneByOne() throws Exception {
+    manager.failing = true;
+    manager.failOnlyBatches = true;
+    assertFalse(manager.isReady("pt='b'"));
+    assertFalse(manager.isReady("pt='c'"));
+    manager.awaitAll();
+    assertTrue(manager.isReady("pt='b'"));
+    assertTrue(manager.isReady("pt='c'"));
+    assertEquals(Arrays.asList(
+        "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (pt='b') PARTITION (pt='c');",
+        "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (pt='b');",
+        "ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (pt='c');"),
+        manager.statements);
+  }
+
+  @Test
+  public void testQuotedValueIsEscaped() {
+    PartitionSpec spec = new PartitionSpec();
+    spec.set("pt", "x'); DROP TABLE t; --");
+    spec.set("region", "o'hara\\");
+    assertEquals("PARTITION (pt='x\\'); DROP TABLE t; --',"
+        + "region='o\\'hara\\\\')",
+        OdpsPartitionManager.partitionClause(spec));
+  }
+
+  @Test
+  public void testTrailingBackslashIsEscaped() {
+    assertEquals("ALTER TABLE p.t ADD IF NOT EXISTS PARTITION (pt='x\\\\');",
+        OdpsPartitionManager.addPartitionsSql("p", "t",
+            Collections.singletonList("pt='x\\'")));
+  }
+
+  @Test
+  public void testInvalidPartitionColumnIsRejected() throws Exception {
+    try {
+      OdpsPartitionManager.addPartitionsSql("p", "t",
+          Collections.singletonList("pt='a'),(x='b'"));
+      fail("Expected the partition column to be rejected");
+    } catch (IllegalArgumentException e) {
+      // expected
+    }
+    assertFalse(manager.isReady("p t='a'"));
+    try {
+      manager.awaitReady("p t='a'");
+      fail("Expected the creation failure to be reported");
+    } catch (RuntimeException e) {
+      assertTrue(e.getCause() instanceof IllegalArgumentException);
+    }
+    assertTrue(manager.statements.isEmpty());
+  }
+
+  /**
+   * Records the statements instead of running them.
+   */
+  private static class RecordingPartitionManager extends OdpsPartitionManager {
+
+    private final List<String> statements = new ArrayList<String>();
+    private volatile boolean failing;
+    private volatile boolean failOnlyBatches;
+
+    RecordingPartitionManager(Table table) {
+      super(mock(Odps.class), table, "p", "t", 10);
+    }
+
+    @Override
+    protected void runSql(String sql) throws OdpsException {
+      statements.add(sql);
+      if (failing && (!failOnlyBatches || sql.contains(") PARTITION ("))) {
+        throw new OdpsException("denied");
+      }
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.odps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+public class TestOdpsPartitionTemplate {
+
+  // The regex based substitution OdpsUploadProcessor applied to every row
+  // before the template, kept as the reference the template must match.
+  private static final Pattern TAG_PATTERN =
+      Pattern.compile("\\%(\\w|\\%)|\\%\\{([\\w\\.-]+)\\}");
+
+  private static String escapeString(String in, Map<String, Object> row) {
+    Matcher matcher = TAG_PATTERN.matcher(in);
+    StringBuffer sb = new StringBuffer();
+    while (matcher.find()) {
+      String replacement = "";
+      if (matcher.group(2) != null) {
+        replacement = row.get(matcher.group(2).toLowerCase()).toString();
+      }
+      replacement = replacement.replaceAll("\\\\", "\\\\\\\\");
+      replacement = replacement.replaceAll("\\$", "\\\\\\$");
+
+      matcher.appendReplacement(sb, replacement);
+    }
+    matcher.appendTail(sb);
+    return sb.toString();
+  }
+
+  private static String escape(String[] keys, String[] values,
+                               Map<String, Object> row) {
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < keys.length; i++) {
+      if (i > 0) {
+        sb.append(',');
+      }
+      sb.append(keys[i]).append("='")
+          .append(escapeString(values[i], row))
+          .append('\'');
+    }
+    return sb.toString();
+  }
+
+  @Test
+  public void testConstantTemplate() {
+    OdpsPartitionTemplate template = new OdpsPartitionTemplate(
+        new String[] {"pt"}, new String[] {"p1"}, Arrays.asList("id"));
+    assertTrue(template.isConstant());
+    assertEquals("pt='p1'",
+        template.evaluate(new HashMap<String, Object>()));
+  }
+
+  @Test
+  public void testSameResultAsRegexSubstitution() {
+    String[] keys = {"pt", "region", "ds"};
+    String[] values = {"p1", "r_%{region}", "%{ds}%d%%x.%{bad name}"};
+    Map<String, Object> row = new HashMap<String, Object>();
+    row.put("region", "hz$\\1");
+    row.put("ds", 20150929);
+
+    OdpsPartitionTemplate template = new OdpsPartitionTemplate(keys, values,
+        Arrays.asList("region", "ds"));
+    assertFalse(template.isConstant());
+    assertEquals(escape(keys, values, row), template.evaluate(row));
+
+    row.put("region", "bj");
+    assertEquals(escape(keys, values, row), template.evaluate(row));
+  }
+
+  @Test
+  public void testFieldReferenceIgnoresCase() {
+    OdpsPartitionTemplate template = new OdpsPartitionTemplate(
+        new String[] {"region"}, new String[] {"%{REGION}"},
+        Arrays.asList("Region"));
+    Map<String, Object> row = new HashMap<String, Object>();
+    row.put("Region", "hz");
+    assertEquals("region='hz'", template.evaluate(row));
+  }
+}
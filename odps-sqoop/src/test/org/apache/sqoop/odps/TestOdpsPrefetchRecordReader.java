@@ -0,0 +1,177 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.odps;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.Record;
+import com.aliyun.odps.data.RecordReader;
+import org.junit.Test;
+
+public class TestOdpsPrefetchRecordReader {
+
+  private static final Column[] COLUMNS =
+      new Column[] {new Column("id", OdpsType.BIGINT)};
+
+  /** Produces count records with ids 0..count-1, then optionally fails. */
+  private static class CountingReader implements RecordReader {
+    private final long count;
+    private final boolean failAtEnd;
+    private long next;
+    private boolean closed;
+
+    CountingReader(long count, boolean failAtEnd) {
+      this.count = count;
+      this.failAtEnd = failAtEnd;
+    }
+
+    @Override
+    public Record read() throws IOException {
+      if (next >= count) {
+        if (failAtEnd) {
+          throw new IOException("broken stream");
+        }
+        return null;
+      }
+      Record record = new ArrayRecord(COLUMNS);
+      record.setBigint(0, next++);
+      return record;
+    }
+
+    @Override
+    public void close() {
+      closed = true;
+    }
+  }
+
+  @Test
+  public void testReadsAllRecordsInOrder() throws IOException {
+    CountingReader source = new CountingReader(2503, false);
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(source, 100, 2);
+    for (long i = 0; i < 2503; i++) {
+      assertEquals(Long.valueOf(i), reader.read().getBigint(0));
+    }
+    assertNull(reader.read());
+    assertNull(reader.read());
+    reader.close();
+    assertTrue(source.closed);
+  }
+
+  @Test
+  public void testEmptySource() throws IOException {
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(new CountingReader(0, false), 10, 1);
+    assertNull(reader.read());
+    reader.close();
+  }
+
+  @Test
+  public void testErrorIsPropagated() throws IOException {
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(new CountingReader(15, true), 10, 1);
+    for (int i = 0; i < 10; i++) {
+      reader.read();
+    }
+    try {
+      while (reader.read() != null) {
+        // drain the records fetched before the failure
+      }
+      fail("Expected the fetch error to be rethrown");
+    } catch (IOException e) {
+      assertEquals("broken stream", e.getCause().getMessage());
+    }
+    reader.close();
+  }
+
+  @Test
+  public void testCloseBeforeFullyRead() throws IOException {
+    CountingReader source = new CountingReader(100000, false);
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(source, 10, 1);
+    assertEquals(Long.valueOf(0), reader.read().getBigint(0));
+    reader.close();
+    assertTrue(source.closed);
+  }
+
+  @Test(timeout = 10000)
+  public void testCloseWhenReaderSwallowsInterrupt() throws IOException {
+    CountingReader source = new CountingReader(Long.MAX_VALUE, false) {
+      @Override
+      public Record read() throws IOException {
+        try {
+          Thread.sleep(1);
+        } catch (InterruptedException e) {
+          // like network clients which retry instead of giving up
+        }
+        return super.read();
+      }
+    };
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(source, 1, 1);
+    assertEquals(Long.valueOf(0), reader.read().getBigint(0));
+    reader.close();
+    assertTrue(source.closed);
+  }
+
+  @Test(timeout = 10000)
+  public void testReadAfterClose() throws IOException {
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(new CountingReader(100000, false), 10, 1);
+    assertEquals(Long.valueOf(0), reader.read().getBigint(0));
+    reader.close();
+    try {
+      for (int i = 1; i < 100000; i++) {
+        reader.read();
+      }
+      fail("Expected reading a closed reader to fail");
+    } catch (IOException e) {
+      assertEquals("Prefetch record reader is closed", e.getMessage());
+    }
+  }
+
+  @Test(timeout = 10000)
+  public void testFetcherExitsWithoutEndOfData() throws IOException {
+    CountingReader source = new CountingReader(Long.MAX_VALUE, false) {
+      @Override
+      public Record read() throws IOException {
+        // the fetcher thread dies on its next enqueue
+        Thread.currentThread().interrupt();
+        return super.read();
+      }
+    };
+    OdpsPrefetchRecordReader reader =
+        new OdpsPrefetchRecordReader(source, 10, 1);
+    try {
+      reader.read();
+      fail("Expected the dead fetcher to be detected");
+    } catch (IOException e) {
+      assertTrue(e.getMessage().startsWith("Prefetch of ODPS records stopped"));
+    }
+    reader.close();
+  }
+}
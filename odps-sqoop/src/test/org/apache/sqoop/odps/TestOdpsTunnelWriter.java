@@ -0,0 +1,132 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.sqoop.odps;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyBoolean;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.argThat;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.data.RecordWriter;
+import com.aliyun.odps.tunnel.TableTunnel;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentMatcher;
+
+public class TestOdpsTunnelWriter {
+
+  private static final Column[] COLUMNS =
+      new Column[] {new Column("id", OdpsType.BIGINT)};
+
+  private TableTunnel tunnel;
+  private TableTunnel.UploadSession sessionA;
+  private TableTunnel.UploadSession sessionB;
+  private TableTunnel.UploadSession sessionC;
+
+  @Before
+  public void setUp() throws Exception {
+    tunnel = mock(TableTunnel.class);
+    sessionA = mockSession("pt='a'");
+    sessionB = mockSession("pt='b'");
+    sessionC = mockSession("pt='c'");
+  }
+
+  private TableTunnel.UploadSession mockSession(String partition)
+      throws Exception {
+    TableTunnel.UploadSession session = mock(TableTunnel.UploadSession.class);
+    when(session.openRecordWriter(anyLong(), anyBoolean()))
+        .thenReturn(mock(RecordWriter.class));
+    when(tunnel.createUploadSession(eq("p"), eq("t"),
+        argThat(new PartitionMatcher(partition)))).thenReturn(session);
+    return session;
+  }
+
+  private static class PartitionMatcher extends ArgumentMatcher<PartitionSpec> {
+    private final String partition;
+
+    PartitionMatcher(String partition) {
+      this.partition = new PartitionSpec(partition).toString();
+    }
+
+    @Override
+    public boolean matches(Object argument) {
+      return argument != null && partition.equals(argument.toString());
+    }
+  }
+
+  private List<OdpsRowDO> rows(String... partitions) {
+    List<OdpsRowDO> rows = new ArrayList<OdpsRowDO>();
+    for (String partition : partitions) {
+      OdpsRowDO row = new OdpsRowDO();
+      row.setPartitionSpec(partition);
+      row.setRecord(new ArrayRecord(COLUMNS));
+      rows.add(row);
+    }
+    return rows;
+  }
+
+  @Test
+  public void testSessionsAreReusedAcrossBatches() throws Exception {
+    OdpsTunnelWriter writer =
+        new OdpsTunnelWriter(tunnel, "p", "t", 1, "", false, 4);
+    writer.write(rows("pt='a'", "pt='b'"));
+    writer.write(rows("pt='a'", "pt='a'"));
+    writer.write(rows("pt='b'"));
+
+    verify(tunnel, times(1)).createUploadSession(eq("p"), eq("t"),
+        argThat(new PartitionMatcher("pt='a'")));
+    verify(tunnel, times(1)).createUploadSession(eq("p"), eq("t"),
+        argThat(new PartitionMatcher("pt='b'")));
+    verify(sessionA, never()).commit(any(Long[].class));
+
+    writer.close();
+    verify(sessionA).commit(new Long[] {0L, 1L});
+    verify(sessionB).commit(new Long[] {0L, 1L});
+  }
+
+  @Test
+  public void testLeastRecentlyUsedSessionIsEvicted() throws Exception {
+    OdpsTunnelWriter writer =
+        new OdpsTunnelWriter(tunnel, "p", "t", 1, "", false, 2);
+    writer.write(rows("pt='a'"));
+    writer.write(rows("pt='b'"));
+    writer.write(rows("pt='a'"));
+    writer.write(rows("pt='c'"));
+
+    verify(sessionB).commit(new Long[] {0L});
+    verify(sessionA, never()).commit(any(Long[].class));
+
+    writer.close();
+    verify(sessionA).commit(new Long[] {0L, 1L});
+    verify(sessionC).commit(new Long[] {0L});
+  }
+}
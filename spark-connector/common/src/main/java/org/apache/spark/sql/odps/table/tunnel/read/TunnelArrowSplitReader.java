@@ -31,17 +31,36 @@ import com.aliyun.odps.table.read.SplitReader;
 import com.aliyun.odps.table.utils.SchemaUtils;
 import com.aliyun.odps.tunnel.TableTunnel;
 import com.aliyun.odps.tunnel.TunnelException;
-import org.apache.arrow.vector.*;
-import org.apache.arrow.vector.types.pojo.Field;
+import com.aliyun.odps.type.TypeInfo;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.spark.sql.catalyst.util.DateTimeUtils;
+import org.apache.spark.sql.odps.OdpsUtils;
 import org.apache.spark.sql.odps.table.utils.TableUtils;
+import org.apache.spark.sql.odps.vectorized.*;
+import org.apache.spark.sql.types.DataType;
+import org.apache.spark.sql.types.Decimal;
+import org.apache.spark.sql.types.DecimalType;
+import org.apache.spark.unsafe.types.UTF8String;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * Reads the Arrow batches of a tunnel split.
+ *
+ * The batches hold the data columns only. Partition columns have a single value per split
+ * and are exposed by {@link #getPartitionVectors()} as constant column vectors, which are
+ * shared by all batches instead of being filled per batch.
+ */
 public class TunnelArrowSplitReader implements SplitReader<VectorSchemaRoot> {
 
     private ArrowRecordReader reader;
@@ -49,10 +68,7 @@ public class TunnelArrowSplitReader implements SplitReader<VectorSchemaRoot> {
     private final TunnelInputSplit inputSplit;
     private final ReaderOptions readerOptions;
 
-    private boolean hasPartitionColumn;
-    private List<Column> requiredPartitionColumns;
-    private List<Field> partitionFields;
-    private List<Object> partitionValues;
+    private Map<String, ConstantColumnVector> partitionVectors;
 
     private boolean hasDataColumn;
 
@@ -82,39 +98,26 @@ public class TunnelArrowSplitReader implements SplitReader<VectorSchemaRoot> {
                 cache = reader.read();
                 hasNext = cache != null;
             } else {
-                // only has partition column
-                hasNext = recordCount.getCount() < inputSplit.getRowRange().getNumRecord();
-            }
-
-            if (hasNext && hasPartitionColumn) {
-                int rowCount;
-                if (hasDataColumn) {
-                    rowCount = cache.getRowCount();
-                } else {
-                    // only has partition column
-                    rowCount = (int)inputSplit.getRowRange().getNumRecord();
+                // only has partition column, return batches without vectors
+                long remaining = inputSplit.getRowRange().getNumRecord() - recordCount.getCount();
+                hasNext = remaining > 0;
+                if (hasNext) {
+                    cache = new VectorSchemaRoot(Collections.emptyList(), Collections.emptyList());
+                    cache.setRowCount((int) Math.min(remaining,
+                            Math.max(readerOptions.getBatchRowCount(), 1)));
                 }
-
-                List<Field> fields = hasDataColumn ?
-                        new ArrayList<>(cache.getSchema().getFields()) : new ArrayList<>();
-                List<FieldVector> vectors = hasDataColumn ?
-                        new ArrayList<>(cache.getFieldVectors()) : new ArrayList<>();
-
-                List<FieldVector> partitionVectors = partitionFields.stream()
-                        .map(field -> field.createVector(readerOptions.getBufferAllocator()))
-                        .collect(Collectors.toList());
-                setPartitionVectors(partitionVectors, rowCount);
-
-                fields.addAll(partitionFields);
-                vectors.addAll(partitionVectors);
-
-                cache = new VectorSchemaRoot(fields, vectors);
-                cache.setRowCount(rowCount);
             }
         }
         return hasNext;
     }
 
+    /**
+     * @return the constant vectors of the required partition columns, by column name
+     */
+    public Map<String, ConstantColumnVector> getPartitionVectors() {
+        return partitionVectors;
+    }
+
     @Override
     public VectorSchemaRoot get() {
         VectorSchemaRoot result = cache;
@@ -186,88 +189,57 @@ public class TunnelArrowSplitReader implements SplitReader<VectorSchemaRoot> {
             }
         }
 
-        this.requiredPartitionColumns = requiredSchema.getColumns()
-                .stream()
-                .filter(col -> partitionKeys.contains(col.getName()))
-                .collect(Collectors.toList());
-        this.partitionFields = requiredPartitionColumns.stream()
-                .map(SchemaUtils::columnToArrowField)
-                .collect(Collectors.toList());
-        this.hasPartitionColumn = requiredPartitionColumns.size() > 0;
-        this.partitionValues = new ArrayList<>(requiredPartitionColumns.size());
-        for (Column requiredPartitionColumn : requiredPartitionColumns) {
-            String partitionValue = inputSplit.getPartitionSpec().get(requiredPartitionColumn.getName());
-            switch (requiredPartitionColumn.getTypeInfo().getOdpsType()) {
-                case TINYINT: {
-                    partitionValues.add(Byte.parseByte(partitionValue));
-                    break;
-                }
-                case INT: {
-                    partitionValues.add(Integer.parseInt(partitionValue));
-                    break;
-                }
-                case BIGINT: {
-                    partitionValues.add(Long.parseLong(partitionValue));
-                    break;
-                }
-                case SMALLINT: {
-                    partitionValues.add(Short.parseShort(partitionValue));
-                    break;
-                }
-                case CHAR:
-                case VARCHAR:
-                case STRING: {
-                    partitionValues.add(partitionValue);
-                    break;
-                }
-                default: {
-                    throw new UnsupportedOperationException("Unsupported odps type:" +
-                            requiredPartitionColumn.getTypeInfo().getOdpsType());
-                }
+        this.partitionVectors = new LinkedHashMap<>();
+        for (Column column : requiredSchema.getColumns()) {
+            if (partitionKeys.contains(column.getName())) {
+                String partitionValue = split.getPartitionSpec().get(column.getName());
+                partitionVectors.put(column.getName(),
+                        createPartitionVector(column.getTypeInfo(), partitionValue));
             }
         }
     }
 
-    private void setPartitionVectors(List<FieldVector> partitionVectors,
-                                     int rowCount) {
-        for (int i = 0; i < partitionVectors.size(); i++) {
-            partitionVectors.get(i).allocateNew();
-            Object partitionValue = partitionValues.get(i);
-            switch (requiredPartitionColumns.get(i).getTypeInfo().getOdpsType()) {
-                case TINYINT: {
-                    for (int j = 0; j < rowCount; j++) {
-                        ((TinyIntVector) (partitionVectors.get(i))).setSafe(j, (Byte) partitionValue);
-                    }
-                    break;
-                }
-                case INT: {
-                    for (int j = 0; j < rowCount; j++) {
-                        ((IntVector) (partitionVectors.get(i))).setSafe(j, (Integer) partitionValue);
-                    }
-                    break;
-                }
-                case BIGINT: {
-                    for (int j = 0; j < rowCount; j++) {
-                        ((BigIntVector) (partitionVectors.get(i))).setSafe(j, (Long) partitionValue);
-                    }
-                    break;
-                }
-                case SMALLINT: {
-                    for (int j = 0; j < rowCount; j++) {
-                        ((SmallIntVector) (partitionVectors.get(i))).setSafe(j, (Short) partitionValue);
-                    }
-                    break;
-                }
-                case VARCHAR:
-                case STRING:
-                case CHAR: {
-                    for (int j = 0; j < rowCount; j++) {
-                        ((VarCharVector) (partitionVectors.get(i))).setSafe(j, ((String) partitionValue).getBytes());
-                    }
-                    break;
-                }
+    private static ConstantColumnVector createPartitionVector(TypeInfo typeInfo, String value) {
+        switch (typeInfo.getOdpsType()) {
+            case BOOLEAN:
+                return new BooleanConstantColumnVector(Boolean.parseBoolean(value));
+            case TINYINT:
+                return new ByteConstantColumnVector(Byte.parseByte(value));
+            case SMALLINT:
+                return new ShortConstantColumnVector(Short.parseShort(value));
+            case INT:
+                return new IntegerConstantColumnVector(Integer.parseInt(value));
+            case BIGINT:
+                return new LongConstantColumnVector(Long.parseLong(value));
+            case FLOAT:
+                return new FloatConstantColumnVector(Float.parseFloat(value));
+            case DOUBLE:
+                return new DoubleConstantColumnVector(Double.parseDouble(value));
+            case DECIMAL: {
+                DecimalType type = (DecimalType) OdpsUtils.typeInfo2Type(typeInfo);
+                return new DecimalConstantColumnVector(
+                        Decimal.apply(new BigDecimal(value), type.precision(), type.scale()), type);
+            }
+            case DATE: {
+                DataType type = OdpsUtils.typeInfo2Type(typeInfo);
+                return new IntegerConstantColumnVector(
+                        Math.toIntExact(LocalDate.parse(value).toEpochDay()), type);
+            }
+            case DATETIME:
+            case TIMESTAMP: {
+                DataType type = OdpsUtils.typeInfo2Type(typeInfo);
+                return new LongConstantColumnVector(
+                        DateTimeUtils.fromJavaTimestamp(Timestamp.valueOf(value)), type);
+            }
+            case CHAR:
+                return new StringConstantColumnVector(UTF8String.fromString(value).trimRight());
+            case VARCHAR:
+            case STRING:
+                return new StringConstantColumnVector(UTF8String.fromString(value));
+            default: {
+                throw new UnsupportedOperationException("Unsupported odps type:" +
+                        typeInfo.getOdpsType());
             }
         }
-        partitionVectors.forEach(vec -> vec.setValueCount(rowCount));
     }
-}
\ No newline at end of file
+}
@@ -38,8 +38,28 @@ public class TunnelRowRangeInputSplitAssigner implements InputSplitAssigner {
         return totalRowCount;
     }
 
+    @Override
+    public InputSplit[] getAllSplits() {
+        return splits;
+    }
+
+    /**
+     * A tunnel split reads from one download session, so the rows must lie in one partition.
+     */
     @Override
     public InputSplit getSplitByRowOffset(long startIndex, long numRecord) {
-        throw new UnsupportedOperationException();
+        long offset = 0;
+        for (TunnelInputSplit split : splits) {
+            long splitNumRecord = split.getRowRange().getNumRecord();
+            if (startIndex >= offset && startIndex + numRecord <= offset + splitNumRecord) {
+                return new TunnelInputSplit(split.getSessionId(),
+                        split.getRowRange().getStartIndex() + startIndex - offset,
+                        numRecord,
+                        split.getPartitionSpec());
+            }
+            offset += splitNumRecord;
+        }
+        throw new UnsupportedOperationException("Rows [" + startIndex + ", " + (startIndex + numRecord)
+                + ") span more than one download session");
     }
 }
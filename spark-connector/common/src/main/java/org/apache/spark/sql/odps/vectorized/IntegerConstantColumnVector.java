@@ -18,6 +18,7 @@
 
 package org.apache.spark.sql.odps.vectorized;
 
+import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.IntegerType$;
 
 public final class IntegerConstantColumnVector extends ConstantColumnVector {
@@ -25,7 +26,14 @@ public final class IntegerConstantColumnVector extends ConstantColumnVector {
     private final int value;
 
     public IntegerConstantColumnVector(int value) {
-        super(IntegerType$.MODULE$);
+        this(value, IntegerType$.MODULE$);
+    }
+
+    /**
+     * @param type a type stored as int, e.g. DateType
+     */
+    public IntegerConstantColumnVector(int value, DataType type) {
+        super(type);
         this.value = value;
     }
 
@@ -18,6 +18,7 @@
 
 package org.apache.spark.sql.odps.vectorized;
 
+import org.apache.spark.sql.types.DataType;
 import org.apache.spark.sql.types.LongType$;
 
 public final class LongConstantColumnVector extends ConstantColumnVector {
@@ -25,7 +26,14 @@ public final class LongConstantColumnVector extends ConstantColumnVector {
     private final long value;
 
     public LongConstantColumnVector(long value) {
-        super(LongType$.MODULE$);
+        this(value, LongType$.MODULE$);
+    }
+
+    /**
+     * @param type a type stored as long, e.g. TimestampType
+     */
+    public LongConstantColumnVector(long value, DataType type) {
+        super(type);
         this.value = value;
     }
 
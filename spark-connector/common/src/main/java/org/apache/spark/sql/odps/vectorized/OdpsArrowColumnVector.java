@@ -44,7 +44,9 @@ import static org.apache.spark.sql.odps.table.utils.DateTimeConstants.MICROS_PER
 import static org.apache.spark.sql.odps.table.utils.DateTimeConstants.NANOS_PER_MICROS;
 
 public class OdpsArrowColumnVector extends ColumnVector {
-    private final ArrowVectorAccessor accessor;
+    private final TypeInfo typeInfo;
+    private ValueVector vector;
+    private ArrowVectorAccessor accessor;
     private OdpsArrowColumnVector[] childColumns;
     private final boolean isTimestamp;
     private ArrowType.Timestamp timestampType;
@@ -172,8 +174,23 @@ public class OdpsArrowColumnVector extends ColumnVector {
 
     public OdpsArrowColumnVector(ValueVector vector, TypeInfo typeInfo) {
         super(ArrowUtils.fromArrowField(vector.getField()));
+        this.typeInfo = typeInfo;
         isTimestamp = type instanceof TimestampType;
         isDate = type instanceof DateType;
+        setVector(vector);
+    }
+
+    /**
+     * Points this column to the vector of the next batch, which must have the same field.
+     * The previous vector is not closed.
+     */
+    public void setVector(ValueVector vector) {
+        if (vector == this.vector) {
+            return;
+        }
+        this.vector = vector;
+        shouldTransform = false;
+        isDatetimeMilliMode = false;
 
         if (vector instanceof BitVector) {
             accessor = new ArrowBitAccessor((BitVector) vector);
@@ -217,10 +234,16 @@ public class OdpsArrowColumnVector extends ColumnVector {
             StructVector structVector = (StructVector) vector;
             accessor = new StructAccessor(structVector);
 
-            childColumns = new OdpsArrowColumnVector[structVector.size()];
-            for (int i = 0; i < childColumns.length; ++i) {
-                childColumns[i] = new OdpsArrowColumnVector(structVector.getVectorById(i),
-                        ((StructTypeInfo)typeInfo).getFieldTypeInfos().get(i));
+            if (childColumns == null) {
+                childColumns = new OdpsArrowColumnVector[structVector.size()];
+                for (int i = 0; i < childColumns.length; ++i) {
+                    childColumns[i] = new OdpsArrowColumnVector(structVector.getVectorById(i),
+                            ((StructTypeInfo)typeInfo).getFieldTypeInfos().get(i));
+                }
+            } else {
+                for (int i = 0; i < childColumns.length; ++i) {
+                    childColumns[i].setVector(structVector.getVectorById(i));
+                }
             }
         } else {
             throw new UnsupportedOperationException();
@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.sql.odps
+
+import java.io.IOException
+import java.util
+import java.util.concurrent.CountDownLatch
+import java.util.concurrent.locks.ReentrantLock
+
+import scala.collection.JavaConverters._
+
+import com.aliyun.odps.table.metrics.MetricNames
+import com.aliyun.odps.table.read.SplitReader
+import org.apache.arrow.vector.VectorSchemaRoot
+
+import org.apache.spark.internal.Logging
+import org.apache.spark.util.ThreadUtils
+
+/**
+ * Reads the Arrow batches of a split on a background thread ahead of the consumer.
+ *
+ * At most maxBatches batches are buffered, and no batch is added while the buffered ones
+ * would exceed maxBytes, although a single batch is always admitted. A failure of the reader
+ * is rethrown by the next call to [[next]]. [[close]] stops the background read, waits until
+ * the reader is closed and releases the batches that were not consumed.
+ */
+class ArrowBatchPrefetcher(reader: SplitReader[VectorSchemaRoot],
+                           maxBatches: Int,
+                           maxBytes: Long) extends Logging {
+
+  private val lock = new ReentrantLock()
+  private val notEmpty = lock.newCondition()
+  private val notFull = lock.newCondition()
+
+  // Guarded by lock.
+  private val batches = new util.ArrayDeque[(VectorSchemaRoot, Long)]()
+  private var bufferedBytes = 0L
+  private var finished = false
+  private var failure: Throwable = _
+  private var cancelled = false
+  private var producer: Thread = _
+
+  private val closed = new CountDownLatch(1)
+  @volatile private var bytesRead = 0L
+
+  ArrowBatchPrefetcher.executor.execute(new Runnable {
+    override def run(): Unit = produce()
+  })
+
+  private def produce(): Unit = {
+    lock.lock()
+    try {
+      producer = Thread.currentThread()
+    } finally {
+      lock.unlock()
+    }
+    try {
+      while (!isCancelled && reader.hasNext) {
+        val root = reader.get()
+        if (root != null) {
+          put(root)
+        }
+      }
+      finish(null)
+    } catch {
+      case cause: Throwable =>
+        finish(cause)
+    } finally {
+      lock.lock()
+      try {
+        // The pooled thread must not be interrupted by close() once it runs another split.
+        producer = null
+        Thread.interrupted()
+      } finally {
+        lock.unlock()
+      }
+      try {
+        reader.currentMetricsValues.counter(MetricNames.BYTES_COUNT).ifPresent(c =>
+          bytesRead = c.getCount)
+        reader.close()
+      } catch {
+        case e: Exception =>
+          logWarning("Close split reader failed", e)
+      } finally {
+        closed.countDown()
+      }
+    }
+  }
+
+  private def isCancelled: Boolean = {
+    lock.lock()
+    try {
+      cancelled
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  private def put(root: VectorSchemaRoot): Unit = {
+    val size = root.getFieldVectors.asScala.map(_.getBufferSize.toLong).sum
+    lock.lock()
+    try {
+      while (!cancelled && (batches.size >= maxBatches ||
+        (!batches.isEmpty && bufferedBytes + size > maxBytes))) {
+        notFull.await()
+      }
+      if (cancelled) {
+        root.close()
+      } else {
+        batches.add((root, size))
+        bufferedBytes += size
+        notEmpty.signal()
+      }
+    } catch {
+      case e: InterruptedException =>
+        root.close()
+        throw e
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  private def finish(cause: Throwable): Unit = {
+    lock.lock()
+    try {
+      finished = true
+      failure = cause
+      notEmpty.signalAll()
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  /**
+   * @return the next batch, or null when the split is exhausted
+   */
+  def next(): VectorSchemaRoot = {
+    lock.lockInterruptibly()
+    try {
+      while (batches.isEmpty && !finished) {
+        notEmpty.await()
+      }
+      if (failure != null) {
+        throw new IOException("Read split failed", failure)
+      }
+      if (batches.isEmpty) {
+        null
+      } else {
+        val (root, size) = batches.poll()
+        bufferedBytes -= size
+        notFull.signal()
+        root
+      }
+    } finally {
+      lock.unlock()
+    }
+  }
+
+  /**
+   * @return the bytes read by the split reader, known once the prefetcher is closed
+   */
+  def getBytesRead: Long = bytesRead
+
+  def close(): Unit = {
+    lock.lock()
+    try {
+      cancelled = true
+      notFull.signalAll()
+      // Stops a read blocked on the network.
+      if (producer != null && !finished) {
+        producer.interrupt()
+      }
+    } finally {
+      lock.unlock()
+    }
+    var interrupted = false
+    while (closed.getCount > 0) {
+      try {
+        closed.await()
+      } catch {
+        case _: InterruptedException =>
+          interrupted = true
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt()
+    }
+    lock.lock()
+    try {
+      batches.asScala.foreach(_._1.close())
+      batches.clear()
+      bufferedBytes = 0L
+    } finally {
+      lock.unlock()
+    }
+  }
+}
+
+object ArrowBatchPrefetcher {
+  private val executor = ThreadUtils.newDaemonCachedThreadPool("odps-arrow-prefetch")
+}
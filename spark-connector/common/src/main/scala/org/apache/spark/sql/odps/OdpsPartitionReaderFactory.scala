@@ -19,8 +19,7 @@
 
 package org.apache.spark.sql.odps
 
-import java.io.IOException
-import java.util.concurrent.{ExecutorService, Executors, LinkedBlockingDeque}
+import java.util.concurrent.TimeUnit.NANOSECONDS
 
 import scala.collection.JavaConverters._
 import com.aliyun.odps.table.DataFormat
@@ -35,19 +34,24 @@ import org.apache.spark.internal.Logging
 import org.apache.spark.sql.catalyst.InternalRow
 import org.apache.spark.sql.catalyst.expressions.{SpecificInternalRow, UnsafeRow}
 import org.apache.spark.sql.catalyst.expressions.codegen.GenerateUnsafeProjection
+import org.apache.spark.sql.connector.metric.CustomTaskMetric
 import org.apache.spark.sql.connector.read.{InputPartition, PartitionReader, PartitionReaderFactory}
+import org.apache.spark.sql.odps.table.tunnel.read.TunnelArrowSplitReader
 import org.apache.spark.sql.odps.vectorized._
 import org.apache.spark.sql.types._
-import org.apache.spark.sql.vectorized.ColumnarBatch
+import org.apache.spark.sql.vectorized.{ColumnVector, ColumnarBatch}
 import org.apache.spark.util.SerializableConfiguration
 
-import scala.collection.mutable
-
 case class OdpsScanPartition(inputSplit: InputSplit,
                              scan: TableBatchReadSession) extends InputPartition
 
 case class OdpsEmptyColumnPartition(rowCount: Long) extends InputPartition
 
+/**
+ * The single row answering an aggregate pushed into the scan.
+ */
+case class OdpsAggregatePartition(row: InternalRow) extends InputPartition
+
 case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableConfiguration],
                                       readDataSchema: StructType,
                                       readPartitionSchema: StructType,
@@ -56,7 +60,9 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
                                       reusedBatchEnable: Boolean,
                                       compressionCodec: String,
                                       bufferedReaderEnable: Boolean,
-                                      asyncRead: Boolean)
+                                      prefetchDepth: Int,
+                                      prefetchSizeInBytes: Long,
+                                      limit: Int = -1)
   extends PartitionReaderFactory with Logging {
 
   private val output = readDataSchema.toAttributes ++ readPartitionSchema.toAttributes
@@ -68,6 +74,22 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
     .orElse(CompressionCodec.NO_COMPRESSION)
 
   override def createReader(partition: InputPartition): PartitionReader[InternalRow] = {
+    partition match {
+      case OdpsAggregatePartition(row) =>
+        return new PartitionReader[InternalRow] {
+          private var consumed = false
+          override def next(): Boolean = {
+            val hasNext = !consumed
+            consumed = true
+            hasNext
+          }
+          override def get(): InternalRow = row
+          override def close(): Unit = {
+          }
+        }
+      case _ =>
+    }
+
     if (output.isEmpty) {
       assert(partition.isInstanceOf[OdpsEmptyColumnPartition], "Output column is empty")
       val emptyColumnPartition = partition.asInstanceOf[OdpsEmptyColumnPartition]
@@ -109,9 +131,10 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
         }
         private val unsafeProjection = GenerateUnsafeProjection.generate(output, output)
         private var unsafeRow: UnsafeRow = _
+        private var returnedRows = 0L
 
         override def next(): Boolean = {
-          if (!recordReader.hasNext) {
+          if ((limit >= 0 && returnedRows >= limit) || !recordReader.hasNext) {
             false
           } else {
             val record = recordReader.get()
@@ -133,6 +156,7 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
               }
             }
             unsafeRow = unsafeProjection(currentRow)
+            returnedRows += 1
             true
           }
         }
@@ -153,6 +177,7 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
           private var unsafeRow: InternalRow = _
           private val batchReader = createColumnarReader(partition)
           private var rowIterator: Iterator[InternalRow] = _
+          private var returnedRows = 0L
 
           private def hasNext: Boolean = {
             if (rowIterator == null || !rowIterator.hasNext) {
@@ -171,16 +196,20 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
           }
 
           override def next(): Boolean = {
-            if (!hasNext) {
+            if ((limit >= 0 && returnedRows >= limit) || !hasNext) {
               false
             } else {
               unsafeRow = rowIterator.next()
+              returnedRows += 1
               true
             }
           }
 
           override def get(): InternalRow = unsafeRow
 
+          override def currentMetricsValues(): Array[CustomTaskMetric] =
+            batchReader.currentMetricsValues()
+
           override def close(): Unit = {
             batchReader.close()
           }
@@ -209,91 +238,98 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
     val arrowReader = odpsScanPartition.scan
       .createArrowReader(odpsScanPartition.inputSplit, readerOptions)
     val schema = odpsScanPartition.scan.readSchema
+    val partitionVectors: Map[String, ColumnVector] = arrowReader match {
+      case reader: TunnelArrowSplitReader => reader.getPartitionVectors.asScala.toMap
+      case _ => Map.empty
+    }
 
     var inputBytes = 0L
-    val queueForVisit = new mutable.Queue[VectorSchemaRoot]
-    var executor : ExecutorService = null
-    val asyncQueueForVisit = new LinkedBlockingDeque[Object]()
-    val DONE_SENTINEL = new Object
-
-    if (bufferedReaderEnable) {
-      if (asyncRead) {
-        executor = Executors.newSingleThreadExecutor
-        executor.submit(new Runnable() {
-          override def run(): Unit = {
-            try {
-              while (arrowReader.hasNext) {
-                asyncQueueForVisit.add(arrowReader.get)
-              }
-              asyncQueueForVisit.add(DONE_SENTINEL)
-
-              arrowReader.currentMetricsValues.counter(MetricNames.BYTES_COUNT).ifPresent(c =>
-                inputBytes = c.getCount)
-              arrowReader.close()
-            } catch {
-              case cause: Throwable =>
-                asyncQueueForVisit.add(cause)
-            }
-          }
-        })
-      } else {
-        while (arrowReader.hasNext) {
-          queueForVisit.enqueue(arrowReader.get)
-        }
-        arrowReader.currentMetricsValues.counter(MetricNames.BYTES_COUNT).ifPresent(c =>
-          inputBytes = c.getCount)
-        arrowReader.close()
-      }
+    val prefetcher = if (bufferedReaderEnable) {
+      new ArrowBatchPrefetcher(arrowReader, math.max(prefetchDepth, 1), prefetchSizeInBytes)
+    } else {
+      null
     }
 
     new PartitionReader[ColumnarBatch] {
+      // One batch per split, whose Arrow columns are pointed to each new root.
       private var columnarBatch: ColumnarBatch = _
+      private var columnVectors: Array[ColumnVector] = _
+      // Index of each column in the roots, or -1 for a partition column.
+      private var rootIndexes: Array[Int] = _
+      private var currentRoot: VectorSchemaRoot = _
+      // Time spent waiting for the next batch, and time spent by the task on the previous one.
+      private var waitTimeNs = 0L
+      private var computeTimeNs = 0L
+      private var lastBatchTimeNs = 0L
 
       private def updateColumnBatch(root: VectorSchemaRoot): Unit = {
-        if (columnarBatch != null && !reusedBatch) {
-          columnarBatch.close()
+        if (currentRoot != null && (currentRoot ne root) && !reusedBatch) {
+          currentRoot.close()
         }
         val vectors = root.getFieldVectors
-        val fields = root.getSchema.getFields
-        val fieldNameIdxMap = fields.asScala.map(f => f.getName).zipWithIndex.toMap
-        if (allNames.nonEmpty) {
-          val arrowVectors =
-            allNames.map(name => {
-              fieldNameIdxMap.get(name) match {
-                case Some(fieldIdx) =>
-                  new OdpsArrowColumnVector(vectors.get(fieldIdx),
-                    schema.getColumn(name).get().getTypeInfo)
-                case None =>
-                  throw new RuntimeException("Missing column " + name + " from arrow reader.")
+        if (columnarBatch == null) {
+          val fieldNameIdxMap = root.getSchema.getFields.asScala.map(_.getName).zipWithIndex.toMap
+          rootIndexes = allNames.map { name =>
+            fieldNameIdxMap.getOrElse(name, {
+              if (!partitionVectors.contains(name)) {
+                throw new RuntimeException("Missing column " + name + " from arrow reader.")
               }
-            }).toList
-          columnarBatch = new ColumnarBatch(arrowVectors.toArray)
+              -1
+            })
+          }.toArray
+          columnVectors = allNames.zip(rootIndexes).map {
+            case (name, -1) => partitionVectors(name)
+            case (name, fieldIdx) =>
+              new OdpsArrowColumnVector(vectors.get(fieldIdx),
+                schema.getColumn(name).get().getTypeInfo)
+          }.toArray
+          columnarBatch = new ColumnarBatch(columnVectors)
         } else {
-          columnarBatch = new ColumnarBatch(new Array[OdpsArrowColumnVector](0).toArray)
+          var i = 0
+          while (i < rootIndexes.length) {
+            if (rootIndexes(i) >= 0) {
+              columnVectors(i).asInstanceOf[OdpsArrowColumnVector]
+                .setVector(vectors.get(rootIndexes(i)))
+            }
+            i += 1
+          }
         }
+        currentRoot = root
         columnarBatch.setNumRows(root.getRowCount)
       }
 
+      private var returnedRows = 0L
+
       override def next(): Boolean = {
-        if (bufferedReaderEnable) {
-          if (asyncRead) {
-            val nextObject = asyncQueueForVisit.take
-            if (nextObject == DONE_SENTINEL) {
-                false
-            } else nextObject match {
-              case t: Throwable =>
-                throw new IOException(t)
-              case _ =>
-                updateColumnBatch(nextObject.asInstanceOf[VectorSchemaRoot])
-                true
-            }
+        val startTimeNs = System.nanoTime()
+        if (lastBatchTimeNs > 0) {
+          computeTimeNs += startTimeNs - lastBatchTimeNs
+          lastBatchTimeNs = 0L
+        }
+        if (limit >= 0 && returnedRows >= limit) {
+          false
+        } else if (nextBatch()) {
+          lastBatchTimeNs = System.nanoTime()
+          waitTimeNs += lastBatchTimeNs - startTimeNs
+          if (limit >= 0 && returnedRows + columnarBatch.numRows > limit) {
+            columnarBatch.setNumRows((limit - returnedRows).toInt)
+          }
+          returnedRows += columnarBatch.numRows
+          true
+        } else {
+          waitTimeNs += System.nanoTime() - startTimeNs
+          false
+        }
+      }
+
+      private def nextBatch(): Boolean = {
+        if (prefetcher != null) {
+          val root = prefetcher.next()
+          if (root == null) {
+            false
           } else {
-            if (queueForVisit.nonEmpty) {
-              updateColumnBatch(queueForVisit.dequeue)
-              true
-            } else {
-              false
-            }
+            updateColumnBatch(root)
+            true
           }
         } else {
           if (!arrowReader.hasNext) {
@@ -307,12 +343,23 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
 
       override def get(): ColumnarBatch = columnarBatch
 
+      override def currentMetricsValues(): Array[CustomTaskMetric] = Array(
+        OdpsTaskMetric(OdpsScanMetrics.READER_WAIT_TIME, NANOSECONDS.toMillis(waitTimeNs)),
+        OdpsTaskMetric(OdpsScanMetrics.READER_COMPUTE_TIME, NANOSECONDS.toMillis(computeTimeNs)))
+
       override def close(): Unit = {
-        if (columnarBatch != null) {
-          columnarBatch.close()
+        if (lastBatchTimeNs > 0) {
+          computeTimeNs += System.nanoTime() - lastBatchTimeNs
+          lastBatchTimeNs = 0L
+        }
+        if (currentRoot != null) {
+          currentRoot.close()
         }
 
-        if (!bufferedReaderEnable) {
+        if (prefetcher != null) {
+          prefetcher.close()
+          inputBytes = prefetcher.getBytesRead
+        } else {
           arrowReader.currentMetricsValues.counter(MetricNames.BYTES_COUNT).ifPresent(c =>
             inputBytes = c.getCount)
           arrowReader.close()
@@ -320,10 +367,6 @@ case class OdpsPartitionReaderFactory(broadcastedConf: Broadcast[SerializableCon
 
         TaskContext.get().taskMetrics().inputMetrics
           .incBytesRead(inputBytes)
-
-        if (executor != null) {
-          executor.shutdown()
-        }
       }
     }
   }
@@ -0,0 +1,47 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.sql.odps
+
+import org.apache.spark.sql.connector.metric.{CustomMetric, CustomSumMetric, CustomTaskMetric}
+
+/**
+ * Custom metrics reported by the ODPS scan and its partition readers.
+ */
+object OdpsScanMetrics {
+  val READER_WAIT_TIME = "readerWaitTime"
+  val READER_COMPUTE_TIME = "readerComputeTime"
+
+  def supportedCustomMetrics(): Array[CustomMetric] = Array(
+    new OdpsReaderWaitTimeMetric,
+    new OdpsReaderComputeTimeMetric)
+}
+
+class OdpsReaderWaitTimeMetric extends CustomSumMetric {
+  override def name(): String = OdpsScanMetrics.READER_WAIT_TIME
+
+  override def description(): String = "time waiting for batches of the reader (ms)"
+}
+
+class OdpsReaderComputeTimeMetric extends CustomSumMetric {
+  override def name(): String = OdpsScanMetrics.READER_COMPUTE_TIME
+
+  override def description(): String = "time processing batches of the reader (ms)"
+}
+
+case class OdpsTaskMetric(name: String, value: Long) extends CustomTaskMetric
@@ -0,0 +1,133 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.sql.odps
+
+import scala.collection.JavaConverters._
+
+import com.aliyun.odps.`type`.TypeInfoFactory
+import org.apache.arrow.memory.RootAllocator
+import org.apache.arrow.vector.{BigIntVector, FieldVector, IntVector, VectorSchemaRoot}
+
+import org.apache.spark.sql.odps.vectorized.OdpsArrowColumnVector
+import org.apache.spark.sql.vectorized.{ColumnVector, ColumnarBatch}
+
+/**
+ * Compares the batches per second of the columnar read path when the column wrappers are
+ * built for every Arrow batch, as before, and when one ColumnarBatch is re-pointed to each
+ * batch of the split. Every batch is consumed by summing its first column.
+ *
+ * Run with:
+ * java -cp <test classes and the compile classpath of common> \
+ *     org.apache.spark.sql.odps.ColumnarBatchReuseBenchmark [rowsPerBatch] [batches]
+ */
+object ColumnarBatchReuseBenchmark {
+
+  private val names = Seq("id", "value")
+  private val typeInfos = Seq(TypeInfoFactory.BIGINT, TypeInfoFactory.INT)
+
+  def main(args: Array[String]): Unit = {
+    val rowsPerBatch = if (args.length > 0) args(0).toInt else 256
+    val batches = if (args.length > 1) args(1).toInt else 2000000
+    val allocator = new RootAllocator(Long.MaxValue)
+    // Distinct roots, as read from a split without batch reuse.
+    val roots = (0 until 64).map(_ => createRoot(allocator, rowsPerBatch))
+
+    for (_ <- 0 until 3) {
+      run("rebuild", roots, batches, rebuild)
+      run("reuse", roots, batches, new Reuse().apply)
+    }
+    roots.foreach(_.close())
+    allocator.close()
+  }
+
+  private def createRoot(allocator: RootAllocator, rows: Int): VectorSchemaRoot = {
+    val id = new BigIntVector("id", allocator)
+    val value = new IntVector("value", allocator)
+    id.allocateNew(rows)
+    value.allocateNew(rows)
+    for (i <- 0 until rows) {
+      id.set(i, i.toLong)
+      value.set(i, i)
+    }
+    val root = new VectorSchemaRoot(Seq[FieldVector](id, value).asJava)
+    root.setRowCount(rows)
+    root
+  }
+
+  private def rebuild(root: VectorSchemaRoot): ColumnarBatch = {
+    val vectors = root.getFieldVectors
+    val fieldNameIdxMap = root.getSchema.getFields.asScala.map(_.getName).zipWithIndex.toMap
+    val columns = names.zip(typeInfos).map { case (name, typeInfo) =>
+      new OdpsArrowColumnVector(vectors.get(fieldNameIdxMap(name)), typeInfo)
+    }.toList
+    val batch = new ColumnarBatch(columns.toArray[ColumnVector])
+    batch.setNumRows(root.getRowCount)
+    batch
+  }
+
+  private class Reuse {
+    private var batch: ColumnarBatch = _
+    private var columns: Array[OdpsArrowColumnVector] = _
+    private var indexes: Array[Int] = _
+
+    def apply(root: VectorSchemaRoot): ColumnarBatch = {
+      val vectors = root.getFieldVectors
+      if (batch == null) {
+        val fieldNameIdxMap = root.getSchema.getFields.asScala.map(_.getName).zipWithIndex.toMap
+        indexes = names.map(fieldNameIdxMap).toArray
+        columns = indexes.zip(typeInfos).map { case (index, typeInfo) =>
+          new OdpsArrowColumnVector(vectors.get(index), typeInfo)
+        }
+        batch = new ColumnarBatch(columns.toArray[ColumnVector])
+      } else {
+        var i = 0
+        while (i < columns.length) {
+          columns(i).setVector(vectors.get(indexes(i)))
+          i += 1
+        }
+      }
+      batch.setNumRows(root.getRowCount)
+      batch
+    }
+  }
+
+  private def run(
+      name: String,
+      roots: Seq[VectorSchemaRoot],
+      batches: Int,
+      next: VectorSchemaRoot => ColumnarBatch): Unit = {
+    val rootArray = roots.toArray
+    var sum = 0L
+    val start = System.nanoTime()
+    var i = 0
+    while (i < batches) {
+      val batch = next(rootArray(i % rootArray.length))
+      val column = batch.column(0)
+      var row = 0
+      while (row < batch.numRows) {
+        sum += column.getLong(row)
+        row += 1
+      }
+      i += 1
+    }
+    val seconds = (System.nanoTime() - start) / 1e9
+    println(f"$name%-8s $batches%10d batches $seconds%8.3f s ${batches / seconds}%14.0f batches/s" +
+      s" (checksum $sum)")
+  }
+}
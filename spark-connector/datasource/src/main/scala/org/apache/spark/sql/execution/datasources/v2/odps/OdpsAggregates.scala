@@ -0,0 +1,72 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.sql.execution.datasources.v2.odps
+
+import org.apache.spark.sql.catalyst.InternalRow
+import org.apache.spark.sql.connector.expressions.{Expression, NamedReference}
+import org.apache.spark.sql.connector.expressions.aggregate.{Aggregation, Count, CountStar}
+import org.apache.spark.sql.types.{LongType, StructField, StructType}
+
+/**
+ * Answers aggregates of a scan from partition metadata, without opening data splits.
+ *
+ * Supported are COUNT(*) and COUNT of a partition column, which is never null, both without
+ * GROUP BY. The answer is a single row, which is also a valid partial result if Spark aggregates
+ * it again. MIN/MAX of partition columns are not answered: the read session only reports the
+ * total row count, so empty partitions cannot be told apart.
+ */
+object OdpsAggregates {
+
+  /**
+   * @return the schema of the answer, or None if the aggregation is not supported
+   */
+  def schema(aggregation: Aggregation, partitionSchema: StructType): Option[StructType] = {
+    if (aggregation.groupByExpressions.nonEmpty) {
+      None
+    } else {
+      val fields = aggregation.aggregateExpressions.map {
+        case _: CountStar =>
+          Some(StructField("count(*)", LongType, nullable = false))
+        case count: Count if !count.isDistinct =>
+          partitionField(count.column, partitionSchema).map(field =>
+            StructField(s"count(${field.name})", LongType, nullable = false))
+        case _ => None
+      }
+      if (fields.forall(_.isDefined)) Some(StructType(fields.map(_.get))) else None
+    }
+  }
+
+  /**
+   * @param rowCount the number of rows in the selected partitions
+   */
+  def evaluate(aggregation: Aggregation, rowCount: Long): InternalRow = {
+    InternalRow.fromSeq(aggregation.aggregateExpressions.map {
+      case _: CountStar | _: Count => rowCount
+      case other =>
+        throw new UnsupportedOperationException(s"Unsupported pushed aggregate: $other")
+    })
+  }
+
+  private def partitionField(column: Expression, partitionSchema: StructType): Option[StructField] =
+    column match {
+      case ref: NamedReference if ref.fieldNames.length == 1 =>
+        partitionSchema.find(_.name == ref.fieldNames.head)
+      case _ => None
+    }
+}
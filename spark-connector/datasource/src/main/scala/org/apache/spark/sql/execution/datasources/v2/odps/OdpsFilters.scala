@@ -0,0 +1,97 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.sql.execution.datasources.v2.odps
+
+import scala.util.Try
+
+import org.apache.spark.sql.catalyst.StructFilters
+import org.apache.spark.sql.catalyst.expressions.{BoundReference, Literal}
+import org.apache.spark.sql.sources._
+import org.apache.spark.sql.types._
+
+/**
+ * Experimental translation of the data filters of an ODPS scan.
+ *
+ * A filter is pushable only as a whole. It must reference atomic columns of the data schema,
+ * compare them with literals of the column type and translate into a catalyst predicate.
+ * Anything else is residual. The read session takes no predicate yet, so pushable filters are
+ * only reported by the scan and Spark still evaluates them.
+ */
+object OdpsFilters {
+
+  /**
+   * Splits the filters into the pushable and the residual ones, keeping their order.
+   */
+  def split(filters: Array[Filter], schema: StructType): (Array[Filter], Array[Filter]) =
+    filters.partition(isPushable(_, schema))
+
+  def isPushable(filter: Filter, schema: StructType): Boolean = {
+    isSupported(filter, schema) &&
+      StructFilters.filterToExpression(filter, toRef(schema)).isDefined
+  }
+
+  private def toRef(schema: StructType)(name: String): Option[BoundReference] = {
+    schema.getFieldIndex(name).map { index =>
+      BoundReference(index, schema(index).dataType, schema(index).nullable)
+    }
+  }
+
+  private def isSupported(filter: Filter, schema: StructType): Boolean = filter match {
+    case And(left, right) => isSupported(left, schema) && isSupported(right, schema)
+    case Or(left, right) => isSupported(left, schema) && isSupported(right, schema)
+    case Not(child) => isSupported(child, schema)
+    case EqualTo(attribute, value) => isComparable(attribute, value, schema)
+    case EqualNullSafe(attribute, value) =>
+      if (value == null) isAtomic(attribute, schema) else isComparable(attribute, value, schema)
+    case GreaterThan(attribute, value) => isComparable(attribute, value, schema)
+    case GreaterThanOrEqual(attribute, value) => isComparable(attribute, value, schema)
+    case LessThan(attribute, value) => isComparable(attribute, value, schema)
+    case LessThanOrEqual(attribute, value) => isComparable(attribute, value, schema)
+    case In(attribute, values) =>
+      values.nonEmpty && values.forall(isComparable(attribute, _, schema))
+    case IsNull(attribute) => isAtomic(attribute, schema)
+    case IsNotNull(attribute) => isAtomic(attribute, schema)
+    case StringStartsWith(attribute, value) => isString(attribute, value, schema)
+    case StringEndsWith(attribute, value) => isString(attribute, value, schema)
+    case StringContains(attribute, value) => isString(attribute, value, schema)
+    case _ => false
+  }
+
+  private def fieldType(attribute: String, schema: StructType): Option[DataType] =
+    schema.getFieldIndex(attribute).map(schema(_).dataType)
+
+  private def isAtomic(attribute: String, schema: StructType): Boolean =
+    fieldType(attribute, schema).exists {
+      case _: StructType | _: ArrayType | _: MapType | BinaryType => false
+      case _ => true
+    }
+
+  private def isComparable(attribute: String, value: Any, schema: StructType): Boolean = {
+    value != null && isAtomic(attribute, schema) &&
+      Try(Literal(value).dataType).toOption.exists { literalType =>
+        (literalType, fieldType(attribute, schema).get) match {
+          case (_: DecimalType, _: DecimalType) => true
+          case (left, right) => left.sameType(right)
+        }
+      }
+  }
+
+  private def isString(attribute: String, value: String, schema: StructType): Boolean =
+    value != null && fieldType(attribute, schema).contains(StringType)
+}
@@ -45,6 +45,10 @@ class OdpsOptions(val parameters: CaseInsensitiveMap[String]) extends Serializab
 
   val enableVectorizedReader = parameters.getOrElse(ODPS_VECTORIZED_READER_ENABLED, "true").toBoolean
 
+  // Experimental: data filters that translate are reported as pushed, but the read session takes
+  // no predicate yet, so they are not evaluated at the source and Spark still applies them.
+  val enableFilterPushdown = parameters.getOrElse(ODPS_FILTER_PUSHDOWN_ENABLED, "false").toBoolean
+
   val enableReuseBatch = {
     if (tableReadProvider.equals(TUNNEL_TABLE_PROVIDER)) {
       false
@@ -56,6 +60,15 @@ class OdpsOptions(val parameters: CaseInsensitiveMap[String]) extends Serializab
   val columnarReaderBatchSize =
     parameters.getOrElse(ODPS_VECTORIZED_READER_BATCH_SIZE, "4096").toInt
 
+  val enableBufferedReader =
+    parameters.getOrElse(ODPS_BUFFERED_READER_ENABLED, "true").toBoolean
+
+  val bufferedReaderPrefetchDepth =
+    parameters.getOrElse(ODPS_BUFFERED_READER_PREFETCH_DEPTH, "4").toInt
+
+  val bufferedReaderPrefetchSizeInMB =
+    parameters.getOrElse(ODPS_BUFFERED_READER_PREFETCH_SIZE_IN_MB, "64").toInt
+
   val enableVectorizedWriter =
     parameters.getOrElse(ODPS_VECTORIZED_WRITER_ENABLED, "true").toBoolean
 
@@ -110,8 +123,12 @@ object OdpsOptions {
   val ODPS_META_CACHE_EXPIRE_SECONDS = newOption("metaCacheExpireSeconds")
   val ODPS_META_STATS_LEVEL = newOption("metaStatsLevel")
   val ODPS_VECTORIZED_READER_ENABLED = newOption("enableVectorizedReader")
+  val ODPS_FILTER_PUSHDOWN_ENABLED = newOption("enableFilterPushdown")
   val ODPS_BATCH_REUSED_ENABLED = newOption("enableBatchReused")
   val ODPS_VECTORIZED_READER_BATCH_SIZE = newOption("columnarReaderBatchSize")
+  val ODPS_BUFFERED_READER_ENABLED = newOption("enableBufferedReader")
+  val ODPS_BUFFERED_READER_PREFETCH_DEPTH = newOption("bufferedReaderPrefetchDepth")
+  val ODPS_BUFFERED_READER_PREFETCH_SIZE_IN_MB = newOption("bufferedReaderPrefetchSizeInMB")
   val ODPS_VECTORIZED_WRITER_ENABLED = newOption("enableVectorizedWriter")
   val ODPS_VECTORIZED_WRITER_BATCH_SIZE = newOption("columnarWriterBatchSize")
   val ODPS_HASH_CLUSTER_ENABLED = newOption("enableHashCluster")
@@ -32,6 +32,8 @@ import org.apache.commons.lang3.StringUtils
 import org.apache.hadoop.conf.Configuration
 import org.apache.spark.internal.Logging
 import org.apache.spark.sql.connector.catalog.Identifier
+import org.apache.spark.sql.connector.expressions.aggregate.Aggregation
+import org.apache.spark.sql.connector.metric.CustomMetric
 import org.apache.spark.sql.connector.read.{Batch, InputPartition, PartitionReaderFactory, Scan, Statistics, SupportsReportPartitioning, SupportsReportStatistics}
 import org.apache.spark.sql.internal.connector.SupportsMetadata
 import org.apache.spark.sql.sources.Filter
@@ -41,7 +43,7 @@ import org.apache.spark.sql.{AnalysisException, SparkSession}
 import org.apache.spark.util.{SerializableConfiguration, ThreadUtils, Utils}
 import org.apache.spark.sql.odps.bucket.OdpsDefaultHasher
 import org.apache.spark.sql.odps.catalyst.expressions.OdpsHashFunction
-import org.apache.spark.sql.odps.{OdpsClient, OdpsEmptyColumnPartition, OdpsPartitionReaderFactory, OdpsScanPartition}
+import org.apache.spark.sql.odps.{OdpsAggregatePartition, OdpsClient, OdpsEmptyColumnPartition, OdpsPartitionReaderFactory, OdpsScanMetrics, OdpsScanPartition}
 import org.apache.spark.sql.execution.datasources.v2.odps.OdpsTableType.VIRTUAL_VIEW
 import org.apache.spark.sql.sources.EqualTo
 
@@ -62,22 +64,27 @@ case class OdpsScan(
                      readDataSchema: StructType,
                      readPartitionSchema: StructType,
                      partitionFilters: Array[Filter],
+                     dataFilters: Array[Filter],
                      bucketFilters: Array[Filter],
-                     stats: OdpsStatistics)
+                     stats: OdpsStatistics,
+                     limit: Int = -1,
+                     aggregation: Option[Aggregation] = None)
   extends Scan
     with Batch
     with SupportsReportStatistics
     with SupportsMetadata
     with Logging {
 
-  override def readSchema(): StructType =
-    StructType(readDataSchema.fields ++ readPartitionSchema.fields)
+  override def readSchema(): StructType = aggregation match {
+    case Some(agg) => OdpsAggregates.schema(agg, partitionSchema).get
+    case None => StructType(readDataSchema.fields ++ readPartitionSchema.fields)
+  }
 
   override def toBatch: Batch = this
 
   private lazy val partitions = createPartitions()
 
-  private def createTableScan(emptyColumn: Boolean,
+  private def createTableScan(splitByRowOffset: Boolean,
                               bucketIds: Seq[Integer],
                               selectedPartitions: Seq[PartitionSpec]): TableBatchReadSession = {
     val project = catalogTable.tableIdent.namespace.head
@@ -105,7 +112,7 @@ case class OdpsScan(
       scanBuilder.requiredPartitions(selectedPartitions.toList.asJava)
     }
 
-    val splitOptions = if (!emptyColumn) {
+    val splitOptions = if (!splitByRowOffset) {
       if (catalog.odpsOptions.splitParallelism > 0) {
         SplitOptions.newBuilder().SplitByParallelism(catalog.odpsOptions.splitParallelism).build()
       } else {
@@ -170,7 +177,8 @@ case class OdpsScan(
         logInfo(s"prunedPartitions: ${seqToString(prunedPartitions)}")
 
         if (prunedPartitions.isEmpty) {
-          return Array.empty
+          return aggregation.map(agg => Array[InputPartition](OdpsAggregatePartition(
+            OdpsAggregates.evaluate(agg, 0L)))).getOrElse(Array.empty)
         }
 
         prunedPartitions.map(partition => {
@@ -187,8 +195,14 @@ case class OdpsScan(
         Nil
       }
 
-    if (!emptyColumn) {
-      if (partitionSchema.nonEmpty) {
+    if (aggregation.isDefined) {
+      val rowCount = createTableScan(splitByRowOffset = true, Nil, selectedPartitions)
+        .getInputSplitAssigner.getTotalRowCount
+      Array(OdpsAggregatePartition(OdpsAggregates.evaluate(aggregation.get, rowCount)))
+    } else if (!emptyColumn) {
+      if (limit >= 0) {
+        createLimitedPartitions(bucketIds, selectedPartitions)
+      } else if (partitionSchema.nonEmpty) {
         val partSplits = collection.mutable.Map[Int, ArrayBuffer[PartitionSpec]]()
         val splitPar = catalog.odpsOptions.splitSessionParallelism
         val concurrentNum = Math.min(Math.max(splitPar, selectedPartitions.length / 200), 16)
@@ -226,7 +240,32 @@ case class OdpsScan(
         createTableScan(emptyColumn, bucketIds, Nil)
       }
 
-      Array(OdpsEmptyColumnPartition(scan.getInputSplitAssigner.getTotalRowCount))
+      val rowCount = scan.getInputSplitAssigner.getTotalRowCount
+      Array(OdpsEmptyColumnPartition(if (limit >= 0) math.min(rowCount, limit) else rowCount))
+    }
+  }
+
+  /**
+   * Spark only pushes a limit when no filter is left above the scan, so the first rows of the
+   * table answer the limit and one split of at most limit rows is planned. Providers that cannot
+   * cut such a split across the selected partitions read the row offset splits, and readers stop
+   * at the limit.
+   */
+  private def createLimitedPartitions(bucketIds: Seq[Integer],
+                                      selectedPartitions: Seq[PartitionSpec]): Array[InputPartition] = {
+    val scan = createTableScan(splitByRowOffset = true, bucketIds, selectedPartitions)
+    val assigner = scan.getInputSplitAssigner
+    val numRecord = math.min(assigner.getTotalRowCount, limit)
+    if (numRecord == 0) {
+      Array.empty
+    } else {
+      try {
+        Array(OdpsScanPartition(assigner.getSplitByRowOffset(0, numRecord), scan))
+      } catch {
+        case e: UnsupportedOperationException =>
+          logInfo(s"Cannot plan a single split of $numRecord rows, reading row offset splits", e)
+          assigner.getAllSplits.map(split => OdpsScanPartition(split, scan))
+      }
     }
   }
 
@@ -242,10 +281,15 @@ case class OdpsScan(
       catalog.odpsOptions.columnarReaderBatchSize,
       catalog.odpsOptions.enableReuseBatch,
       catalog.odpsOptions.odpsTableCompressionCodec,
-      false,
-      false)
+      catalog.odpsOptions.enableBufferedReader,
+      catalog.odpsOptions.bufferedReaderPrefetchDepth,
+      catalog.odpsOptions.bufferedReaderPrefetchSizeInMB * 1024L * 1024L,
+      limit)
   }
 
+  override def supportedCustomMetrics(): Array[CustomMetric] =
+    OdpsScanMetrics.supportedCustomMetrics()
+
   override def estimateStatistics(): Statistics = stats
 
   private val maxMetadataValueLength = sparkSession.sessionState.conf.maxMetadataStringLength
@@ -266,7 +310,9 @@ case class OdpsScan(
       "ReadDataSchema" -> readDataSchema.catalogString,
       "ReadPartitionSchema" -> readPartitionSchema.catalogString,
       "PartitionFilters" -> seqToString(partitionFilters),
-      "DataFilters" -> seqToString(Nil))
+      "DataFilters" -> seqToString(dataFilters),
+      "PushedLimit" -> (if (limit >= 0) limit.toString else "None"),
+      "PushedAggregation" -> seqToString(aggregation.toSeq.flatMap(_.aggregateExpressions)))
   }
 
   private def seqToString(seq: Seq[Any]): String = seq.mkString("[", ", ", "]")
@@ -20,10 +20,12 @@ package org.apache.spark.sql.execution.datasources.v2.odps
 
 import scala.collection.JavaConverters._
 
+import org.apache.spark.internal.Logging
 import org.apache.spark.sql.SparkSession
 import org.apache.spark.sql.sources.EqualTo
 import org.apache.spark.sql.connector.catalog.Identifier
-import org.apache.spark.sql.connector.read.{Scan, ScanBuilder, SupportsPushDownFilters, SupportsPushDownRequiredColumns}
+import org.apache.spark.sql.connector.expressions.aggregate.Aggregation
+import org.apache.spark.sql.connector.read.{Scan, ScanBuilder, SupportsPushDownAggregates, SupportsPushDownFilters, SupportsPushDownLimit, SupportsPushDownRequiredColumns}
 import org.apache.spark.sql.execution.datasources.PartitioningUtils
 import org.apache.spark.sql.sources.Filter
 import org.apache.spark.sql.types.StructType
@@ -37,7 +39,12 @@ case class OdpsScanBuilder(
     partitionSchema: StructType,
     stats: OdpsStatistics,
     options: CaseInsensitiveStringMap)
-  extends ScanBuilder with SupportsPushDownRequiredColumns with SupportsPushDownFilters {
+  extends ScanBuilder
+    with SupportsPushDownRequiredColumns
+    with SupportsPushDownFilters
+    with SupportsPushDownLimit
+    with SupportsPushDownAggregates
+    with Logging {
 
   lazy val hadoopConf = {
     val caseSensitiveMap = options.asCaseSensitiveMap.asScala.toMap
@@ -92,10 +99,10 @@ case class OdpsScanBuilder(
     val (partitionFilters, nonPartitionFilters) =
       normalFilters.partition(_.references.toSet.subsetOf(partitionSet))
     _partitionFilters = partitionFilters
-    _dataFilters = nonPartitionFilters.filter(_.references.toSet.intersect(partitionSet).isEmpty)
+    val dataFilters = nonPartitionFilters.filter(_.references.toSet.intersect(partitionSet).isEmpty)
 
     if (table.bucketSpec.isDefined && table.bucketSpec.get.clusterType.toLowerCase.equals("hash")) {
-      val (bucketFilters, _) = _dataFilters.toSeq.partition {
+      val (bucketFilters, _) = dataFilters.toSeq.partition {
         case EqualTo(attr, _) =>
             table.bucketSpec.get.bucketColumnNames.contains(attr)
         case _ => false
@@ -103,14 +110,51 @@ case class OdpsScanBuilder(
       _bucketFilters = alignBucketPredicates(bucketFilters.asInstanceOf[Seq[EqualTo]],
         table.bucketSpec).toArray
     }
+
+    // Experimental: the read session takes no predicate, so the data filters OdpsFilters can
+    // translate are only reported as pushed. Spark still evaluates every data filter.
+    _dataFilters = if (catalog.odpsOptions.enableFilterPushdown) {
+      OdpsFilters.split(dataFilters, dataSchema)._1
+    } else {
+      Array.empty[Filter]
+    }
+    logInfo(s"Pushed filters: ${(_partitionFilters ++ _dataFilters).mkString("[", ", ", "]")}, " +
+      s"residual filters: ${(nestedFilters ++ nonPartitionFilters).mkString("[", ", ", "]")}")
     nestedFilters ++ nonPartitionFilters
   }
 
   override def pushedFilters(): Array[Filter] = _partitionFilters ++ _dataFilters
 
+  private var _limit = -1
+
+  // Spark still applies the limit on top of the scan.
+  override def pushLimit(limit: Int): Boolean = {
+    _limit = limit
+    true
+  }
+
+  private var _aggregation: Option[Aggregation] = None
+
+  override def supportCompletePushDown(aggregation: Aggregation): Boolean =
+    canPushAggregation(aggregation)
+
+  override def pushAggregation(aggregation: Aggregation): Boolean = {
+    if (canPushAggregation(aggregation)) {
+      _aggregation = Some(aggregation)
+      true
+    } else {
+      false
+    }
+  }
+
+  // Pushed data filters are invisible to partition metadata.
+  private def canPushAggregation(aggregation: Aggregation): Boolean =
+    _dataFilters.isEmpty && OdpsAggregates.schema(aggregation, partitionSchema).isDefined
+
   override def build(): Scan = {
     OdpsScan(SparkSession.active, hadoopConf, catalog, table, tableIdent, dataSchema, partitionSchema,
-      readDataSchema(), readPartitionSchema(), _partitionFilters, _bucketFilters, stats)
+      readDataSchema(), readPartitionSchema(), _partitionFilters, _dataFilters, _bucketFilters, stats,
+      _limit, _aggregation)
   }
 
   protected def readDataSchema(): StructType = {
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.apache.spark.sql.execution.datasources.v2.odps
+
+import java.math.BigDecimal
+
+import org.junit.Assert._
+import org.junit.Test
+
+import org.apache.spark.sql.sources._
+import org.apache.spark.sql.types._
+
+class OdpsFiltersTest {
+
+  private val schema = new StructType()
+    .add("id", LongType)
+    .add("name", StringType)
+    .add("price", DecimalType(10, 2))
+    .add("payload", BinaryType)
+    .add("tags", ArrayType(StringType))
+    .add("address", new StructType().add("city", StringType))
+
+  private def assertPushable(filter: Filter): Unit =
+    assertTrue(s"$filter should be pushable", OdpsFilters.isPushable(filter, schema))
+
+  private def assertResidual(filter: Filter): Unit =
+    assertFalse(s"$filter should be residual", OdpsFilters.isPushable(filter, schema))
+
+  @Test
+  def testAtomicColumnFiltersArePushable(): Unit = {
+    assertPushable(EqualTo("id", 1L))
+    assertPushable(EqualNullSafe("id", 1L))
+    assertPushable(EqualNullSafe("id", null))
+    assertPushable(GreaterThan("id", 1L))
+    assertPushable(GreaterThanOrEqual("id", 1L))
+    assertPushable(LessThan("id", 1L))
+    assertPushable(LessThanOrEqual("id", 1L))
+    assertPushable(In("id", Array(1L, 2L)))
+    assertPushable(IsNull("name"))
+    assertPushable(IsNotNull("name"))
+    assertPushable(StringStartsWith("name", "a"))
+    assertPushable(StringEndsWith("name", "a"))
+    assertPushable(StringContains("name", "a"))
+    assertPushable(EqualTo("price", new BigDecimal("1.5")))
+  }
+
+  @Test
+  def testCombinedFiltersArePushableAsAWhole(): Unit = {
+    assertPushable(And(EqualTo("id", 1L), IsNotNull("name")))
+    assertPushable(Or(LessThan("id", 1L), StringStartsWith("name", "a")))
+    assertPushable(Not(EqualTo("name", "a")))
+
+    assertResidual(And(EqualTo("id", 1L), IsNotNull("payload")))
+    assertResidual(Or(LessThan("id", 1L), EqualTo("missing", 1L)))
+    assertResidual(Not(IsNull("tags")))
+  }
+
+  @Test
+  def testUntranslatableFiltersAreResidual(): Unit = {
+    // literal of another type than the column
+    assertResidual(EqualTo("id", "1"))
+    assertResidual(EqualTo("id", 1))
+    assertResidual(In("id", Array(1L, "2")))
+    assertResidual(StringStartsWith("id", "1"))
+    // null literals and empty lists
+    assertResidual(EqualTo("id", null))
+    assertResidual(In("id", Array.empty[Any]))
+    // complex, binary and unknown columns
+    assertResidual(IsNull("payload"))
+    assertResidual(IsNotNull("tags"))
+    assertResidual(IsNull("address"))
+    assertResidual(EqualTo("address.city", "a"))
+    assertResidual(EqualTo("missing", 1L))
+    // filters that have no translation
+    assertResidual(AlwaysTrue)
+  }
+
+  @Test
+  def testSplitKeepsOrder(): Unit = {
+    val filters: Array[Filter] = Array(
+      EqualTo("id", 1L),
+      IsNull("payload"),
+      StringContains("name", "a"),
+      EqualTo("id", "1"))
+    val (pushable, residual) = OdpsFilters.split(filters, schema)
+    assertArrayEquals(Array[AnyRef](EqualTo("id", 1L), StringContains("name", "a")),
+      pushable.asInstanceOf[Array[AnyRef]])
+    assertArrayEquals(Array[AnyRef](IsNull("payload"), EqualTo("id", "1")),
+      residual.asInstanceOf[Array[AnyRef]])
+  }
+}
@@ -116,10 +116,18 @@ private[spark] object OdpsOptions extends Logging {
     .booleanConf
     .createWithDefault(true)
 
-  val ODPS_TABLE_ASYNC_READ_ENABLE = buildConf("spark.sql.odps.enableAsyncRead")
-    .doc("Enable async read.")
-    .booleanConf
-    .createWithDefault(true)
+  val ODPS_TABLE_BUFFERED_READER_PREFETCH_DEPTH =
+    buildConf("spark.sql.odps.bufferedReader.prefetchDepth")
+      .doc("Max number of batches the buffered reader reads ahead.")
+      .intConf
+      .checkValue(_ > 0, "The prefetch depth must be positive.")
+      .createWithDefault(4)
+
+  val ODPS_TABLE_BUFFERED_READER_PREFETCH_SIZE =
+    buildConf("spark.sql.odps.bufferedReader.prefetchSize")
+      .doc("Max size of the batches the buffered reader reads ahead.")
+      .bytesConf(ByteUnit.BYTE)
+      .createWithDefaultString("64m")
 
   val ODPS_TABLE_BUFFERED_WRITER_ENABLE = buildConf("spark.sql.odps.enableBufferedWriter")
     .doc("Enable odps buffered writer.")
@@ -206,8 +214,12 @@ private[spark] object OdpsOptions extends Logging {
     conf.getConf(ODPS_TABLE_BUFFERED_READER_ENABLE)
   }
 
-  def odpsTableAsyncReadEnable(conf: SQLConf): Boolean = {
-    conf.getConf(ODPS_TABLE_ASYNC_READ_ENABLE)
+  def odpsTableBufferedReaderPrefetchDepth(conf: SQLConf): Int = {
+    conf.getConf(ODPS_TABLE_BUFFERED_READER_PREFETCH_DEPTH)
+  }
+
+  def odpsTableBufferedReaderPrefetchSize(conf: SQLConf): Long = {
+    conf.getConf(ODPS_TABLE_BUFFERED_READER_PREFETCH_SIZE)
   }
 
   def odpsTableBufferedWriterEnable(conf: SQLConf): Boolean = {
@@ -299,7 +299,8 @@ case class OdpsTableScanExec(
       true,
       OdpsOptions.odpsTableReaderCompressCodec(conf),
       OdpsOptions.odpsTableBufferedReaderEnable(conf),
-      OdpsOptions.odpsTableAsyncReadEnable(conf))
+      OdpsOptions.odpsTableBufferedReaderPrefetchDepth(conf),
+      OdpsOptions.odpsTableBufferedReaderPrefetchSize(conf))
 
     val startTime = System.nanoTime()
     val partitions = createPartitions()
@@ -0,0 +1,402 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.cupid.table.v1.Attribute;
+import com.aliyun.odps.cupid.table.v1.util.Platform;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataVector;
+import com.aliyun.odps.type.DecimalTypeInfo;
+import com.aliyun.odps.type.TypeInfo;
+import org.apache.arrow.vector.BaseFixedWidthVector;
+import org.apache.arrow.vector.BaseVariableWidthVector;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * Converts between the Arrow batches of the tunnel arrow path and the
+ * {@link ColDataVector} memory layout. Reading copies fixed width columns
+ * whose Arrow layout matches in bulk, the rest value by value, and lays
+ * variable width columns out as the native reader does. Writing decodes
+ * lengths through the vector, so it takes batches from either layout as well
+ * as batches wrapping Arrow vectors.
+ */
+final class ArrowColDataConverter {
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long MILLIS_PER_DAY = 86400000L;
+
+    private final Attribute[] attributes;
+    private final TypeInfo[] typeInfos;
+
+    ArrowColDataConverter(List<Column> columns) {
+        this.attributes = new Attribute[columns.size()];
+        this.typeInfos = new TypeInfo[columns.size()];
+        for (int i = 0; i < columns.size(); i++) {
+            TypeInfo typeInfo = columns.get(i).getTypeInfo();
+            checkSupported(typeInfo.getOdpsType());
+            this.attributes[i] = new Attribute(columns.get(i).getName(), typeInfo.getTypeName());
+            this.typeInfos[i] = typeInfo;
+        }
+    }
+
+    /**
+     * Wraps root as a batch without copying, valid as long as root is.
+     */
+    ColDataBatch wrap(VectorSchemaRoot root) {
+        return ColDataBatch.wrap(root, attributes);
+    }
+
+    ColDataBatch convert(VectorSchemaRoot root, int offset, int numRows) {
+        ColDataVector[] vectors = new ColDataVector[attributes.length];
+        for (int i = 0; i < attributes.length; i++) {
+            vectors[i] = convertVector(attributes[i], typeInfos[i], root.getVector(i), offset, numRows);
+        }
+        ColDataBatch batch = new ColDataBatch(vectors);
+        batch.setRowCount(numRows);
+        return batch;
+    }
+
+    /**
+     * Appends the rows of batch to root starting at row offset. The caller
+     * sets the row count of root afterwards.
+     */
+    void fill(ColDataBatch batch, VectorSchemaRoot root, int offset) {
+        ColDataVector[] vectors = batch.getVectors();
+        if (vectors.length != typeInfos.length) {
+            throw new IllegalArgumentException("Expect " + typeInfos.length
+                    + " columns, but got " + vectors.length);
+        }
+        for (int i = 0; i < vectors.length; i++) {
+            fillVector(typeInfos[i], vectors[i], root.getVector(i), offset, batch.getRowCount());
+        }
+    }
+
+    private static void fillVector(TypeInfo typeInfo,
+                                   ColDataVector source,
+                                   FieldVector vector,
+                                   int offset,
+                                   int numRows) {
+        if (isVariableWidth(typeInfo) && !source.isArrowBacked()) {
+            fillVariableWidth(source, vector, offset, numRows);
+            return;
+        }
+        for (int i = 0; i < numRows; i++) {
+            int index = offset + i;
+            if (source.isNullAt(i)) {
+                setNull(vector, index);
+                continue;
+            }
+            switch (typeInfo.getOdpsType()) {
+                case BOOLEAN:
+                    ((BitVector) vector).setSafe(index, source.getBoolean(i) ? 1 : 0);
+                    break;
+                case TINYINT:
+                    ((TinyIntVector) vector).setSafe(index, source.getByte(i));
+                    break;
+                case SMALLINT:
+                    ((SmallIntVector) vector).setSafe(index, source.getShort(i));
+                    break;
+                case INT:
+                    ((IntVector) vector).setSafe(index, source.getInt(i));
+                    break;
+                case BIGINT:
+                    ((BigIntVector) vector).setSafe(index, source.getLong(i));
+                    break;
+                case FLOAT:
+                    ((Float4Vector) vector).setSafe(index, source.getFloat(i));
+                    break;
+                case DOUBLE:
+                    ((Float8Vector) vector).setSafe(index, source.getDouble(i));
+                    break;
+                case DATE:
+                    ((DateDayVector) vector).setSafe(index, (int) source.getLong(i));
+                    break;
+                case DATETIME:
+                    ((DateMilliVector) vector).setSafe(index, source.getLong(i));
+                    break;
+                case TIMESTAMP: {
+                    Timestamp timestamp = source.getTimestamp(i);
+                    long seconds = Math.floorDiv(timestamp.getTime(), 1000L);
+                    ((TimeStampVector) vector).setSafe(index, seconds * NANOS_PER_SECOND + timestamp.getNanos());
+                    break;
+                }
+                case DECIMAL:
+                    ((DecimalVector) vector).setSafe(index,
+                            source.getDecimal(i).setScale(((DecimalTypeInfo) typeInfo).getScale()));
+                    break;
+                case STRING:
+                case VARCHAR:
+                case CHAR:
+                case BINARY:
+                    ((BaseVariableWidthVector) vector).setSafe(index, source.getBinary(i));
+                    break;
+                default:
+                    throw new UnsupportedOperationException(
+                            "Unsupported column type for col data conversion: " + typeInfo.getTypeName());
+            }
+        }
+    }
+
+    /**
+     * Copies the bytes of each row straight out of deepBuf, where batches not
+     * backed by Arrow keep variable width values back to back.
+     */
+    private static void fillVariableWidth(ColDataVector source,
+                                          FieldVector vector,
+                                          int offset,
+                                          int numRows) {
+        byte[] deepBuf = source.getDeepBuf();
+        BaseVariableWidthVector varVector = (BaseVariableWidthVector) vector;
+        int deepOffset = 0;
+        for (int i = 0; i < numRows; i++) {
+            int index = offset + i;
+            int length = source.getBinaryLength(i);
+            if (source.isNullAt(i)) {
+                varVector.setNull(index);
+            } else {
+                varVector.setSafe(index, deepBuf, deepOffset, length);
+            }
+            deepOffset += length;
+        }
+    }
+
+    private static boolean isVariableWidth(TypeInfo typeInfo) {
+        switch (typeInfo.getOdpsType()) {
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+            case BINARY:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isOldDecimal(TypeInfo typeInfo) {
+        return typeInfo.getOdpsType() == OdpsType.DECIMAL
+                && ((DecimalTypeInfo) typeInfo).getPrecision() > 38;
+    }
+
+    private static void setNull(FieldVector vector, int index) {
+        if (vector instanceof BaseFixedWidthVector) {
+            ((BaseFixedWidthVector) vector).setNull(index);
+        } else {
+            ((BaseVariableWidthVector) vector).setNull(index);
+        }
+    }
+
+    private static ColDataVector convertVector(Attribute attribute,
+                                               TypeInfo typeInfo,
+                                               FieldVector vector,
+                                               int offset,
+                                               int numRows) {
+        byte[] nulls = new byte[numRows];
+        for (int i = 0; i < numRows; i++) {
+            if (vector.isNull(offset + i)) {
+                nulls[i] = 1;
+            }
+        }
+        byte[] dataBuf;
+        byte[] deepBuf = null;
+        switch (typeInfo.getOdpsType()) {
+            case BOOLEAN: {
+                dataBuf = new byte[numRows];
+                BitVector bitVector = (BitVector) vector;
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls[i] == 0 && bitVector.get(offset + i) != 0) {
+                        dataBuf[i] = 1;
+                    }
+                }
+                break;
+            }
+            case TINYINT:
+                dataBuf = copyFixedWidth((BaseFixedWidthVector) vector, 1, offset, numRows);
+                break;
+            case SMALLINT:
+                dataBuf = copyFixedWidth((BaseFixedWidthVector) vector, 2, offset, numRows);
+                break;
+            case INT:
+            case FLOAT:
+                dataBuf = copyFixedWidth((BaseFixedWidthVector) vector, 4, offset, numRows);
+                break;
+            case BIGINT:
+            case DOUBLE:
+                dataBuf = copyFixedWidth((BaseFixedWidthVector) vector, 8, offset, numRows);
+                break;
+            case DATE: {
+                dataBuf = new byte[numRows * 8];
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls[i] == 0) {
+                        long days;
+                        if (vector instanceof DateDayVector) {
+                            days = ((DateDayVector) vector).get(offset + i);
+                        } else {
+                            days = Math.floorDiv(((DateMilliVector) vector).get(offset + i), MILLIS_PER_DAY);
+                        }
+                        Platform.putLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + i * 8L, days);
+                    }
+                }
+                break;
+            }
+            case DATETIME: {
+                dataBuf = new byte[numRows * 8];
+                DateMilliVector milliVector = (DateMilliVector) vector;
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls[i] == 0) {
+                        Platform.putLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + i * 8L,
+                                milliVector.get(offset + i));
+                    }
+                }
+                break;
+            }
+            case TIMESTAMP: {
+                dataBuf = new byte[numRows * 12];
+                TimeStampVector timeStampVector = (TimeStampVector) vector;
+                for (int i = 0; i < numRows; i++) {
+                    if (nulls[i] == 0) {
+                        long nanos = timeStampVector.get(offset + i);
+                        long base = Platform.BYTE_ARRAY_OFFSET + i * 12L;
+                        Platform.putLong(dataBuf, base, Math.floorDiv(nanos, NANOS_PER_SECOND));
+                        Platform.putInt(dataBuf, base + 8, (int) Math.floorMod(nanos, NANOS_PER_SECOND));
+                    }
+                }
+                break;
+            }
+            case DECIMAL:
+                if (isOldDecimal(typeInfo)) {
+                    // old decimals are strings with packed int lengths
+                    dataBuf = new byte[numRows * 4];
+                    StringBuilder values = new StringBuilder();
+                    for (int i = 0; i < numRows; i++) {
+                        if (nulls[i] == 0) {
+                            Object value = vector.getObject(offset + i);
+                            String text = value instanceof BigDecimal
+                                    ? ((BigDecimal) value).toPlainString() : value.toString();
+                            values.append(text);
+                            Platform.putInt(dataBuf, Platform.BYTE_ARRAY_OFFSET + i * 4L,
+                                    text.getBytes(StandardCharsets.UTF_8).length);
+                        }
+                    }
+                    deepBuf = values.toString().getBytes(StandardCharsets.UTF_8);
+                    break;
+                }
+                dataBuf = convertDecimal((DecimalTypeInfo) typeInfo, (DecimalVector) vector, nulls, offset, numRows);
+                break;
+            case STRING:
+            case VARCHAR:
+            case CHAR:
+            case BINARY: {
+                BaseVariableWidthVector varVector = (BaseVariableWidthVector) vector;
+                int start = varVector.getStartOffset(offset);
+                int end = varVector.getStartOffset(offset + numRows);
+                deepBuf = new byte[end - start];
+                varVector.getDataBuffer().getBytes(start, deepBuf, 0, end - start);
+                dataBuf = new byte[numRows * 16];
+                for (int i = 0; i < numRows; i++) {
+                    long length = varVector.getStartOffset(offset + i + 1) - varVector.getStartOffset(offset + i);
+                    Platform.putLong(dataBuf, Platform.BYTE_ARRAY_OFFSET + i * 16L, length);
+                }
+                break;
+            }
+            default:
+                throw new UnsupportedOperationException(
+                        "Unsupported column type for col data conversion: " + typeInfo.getTypeName());
+        }
+        return new ColDataVector(attribute, dataBuf, dataBuf.length, nulls, deepBuf);
+    }
+
+    private static byte[] copyFixedWidth(BaseFixedWidthVector vector, int width, int offset, int numRows) {
+        byte[] dataBuf = new byte[numRows * width];
+        vector.getDataBuffer().getBytes((long) offset * width, dataBuf, 0, numRows * width);
+        return dataBuf;
+    }
+
+    private static byte[] convertDecimal(DecimalTypeInfo typeInfo,
+                                         DecimalVector vector,
+                                         byte[] nulls,
+                                         int offset,
+                                         int numRows) {
+        int precision = typeInfo.getPrecision();
+        int scale = typeInfo.getScale();
+        int width = precision > 18 ? 16 : precision > 9 ? 8 : precision > 4 ? 4 : 2;
+        byte[] dataBuf = new byte[numRows * width];
+        for (int i = 0; i < numRows; i++) {
+            if (nulls[i] == 1) {
+                continue;
+            }
+            BigDecimal value = vector.getObject(offset + i).setScale(scale);
+            long base = Platform.BYTE_ARRAY_OFFSET + (long) i * width;
+            switch (width) {
+                case 16: {
+                    // little endian int128, as read back by ColDataVector
+                    byte[] bigEndian = value.unscaledValue().toByteArray();
+                    byte sign = (byte) (value.signum() < 0 ? -1 : 0);
+                    for (int b = 0; b < 16; b++) {
+                        int src = bigEndian.length - 1 - b;
+                        dataBuf[i * 16 + b] = src >= 0 ? bigEndian[src] : sign;
+                    }
+                    break;
+                }
+                case 8:
+                    Platform.putLong(dataBuf, base, value.unscaledValue().longValue());
+                    break;
+                case 4:
+                    Platform.putInt(dataBuf, base, value.unscaledValue().intValue());
+                    break;
+                default:
+                    Platform.putShort(dataBuf, base, value.unscaledValue().shortValue());
+                    break;
+            }
+        }
+        return dataBuf;
+    }
+
+    private static void checkSupported(OdpsType odpsType) {
+        switch (odpsType) {
+            case ARRAY:
+            case MAP:
+            case STRUCT:
+            case INTERVAL_DAY_TIME:
+            case INTERVAL_YEAR_MONTH:
+                throw new UnsupportedOperationException(
+                        "Unsupported column type for col data conversion: " + odpsType);
+            default:
+        }
+    }
+}
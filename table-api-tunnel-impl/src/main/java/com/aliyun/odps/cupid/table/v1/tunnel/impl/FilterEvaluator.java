@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
+import com.aliyun.odps.data.AbstractChar;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Evaluates {@link FilterExpression} trees against partition values or records.
+ *
+ * Evaluation is conservative: an attribute the resolver does not know, a null
+ * value in a comparison or a literal that cannot be compared with the value
+ * yields unknown, and only expressions that are definitely false reject the
+ * partition or row. Engines are expected to evaluate their filters again.
+ */
+final class FilterEvaluator {
+
+    /**
+     * Returned by a resolver for attributes it has no value for.
+     */
+    static final Object MISSING = new Object();
+
+    private FilterEvaluator() {
+    }
+
+    /**
+     * @return false if any of the conjunctive filters is definitely false
+     */
+    static boolean mayMatch(List<FilterExpression> filters, Function<String, Object> resolver) {
+        for (FilterExpression filter : filters) {
+            if (Boolean.FALSE.equals(evaluate(filter, resolver))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true, false, or null when the result is unknown
+     */
+    static Boolean evaluate(FilterExpression filter, Function<String, Object> resolver) {
+        switch (filter.getType()) {
+            case AND: {
+                Boolean result = Boolean.TRUE;
+                for (FilterExpression child : filter.getChildren()) {
+                    Boolean value = evaluate(child, resolver);
+                    if (Boolean.FALSE.equals(value)) {
+                        return Boolean.FALSE;
+                    }
+                    if (value == null) {
+                        result = null;
+                    }
+                }
+                return result;
+            }
+            case OR: {
+                Boolean result = Boolean.FALSE;
+                for (FilterExpression child : filter.getChildren()) {
+                    Boolean value = evaluate(child, resolver);
+                    if (Boolean.TRUE.equals(value)) {
+                        return Boolean.TRUE;
+                    }
+                    if (value == null) {
+                        result = null;
+                    }
+                }
+                return result;
+            }
+            case NOT: {
+                Boolean value = evaluate(filter.getChildren()[0], resolver);
+                return value == null ? null : !value;
+            }
+            default:
+        }
+
+        Object value = resolver.apply(filter.getAttribute().toLowerCase());
+        if (value == MISSING) {
+            return null;
+        }
+        if (value instanceof byte[]) {
+            value = new String((byte[]) value, StandardCharsets.UTF_8);
+        } else if (value instanceof AbstractChar) {
+            value = value.toString();
+        }
+        Object literal = filter.getLiteral();
+        switch (filter.getType()) {
+            case IS_NULL:
+                return value == null;
+            case IS_NOT_NULL:
+                return value != null;
+            case EQUAL_NULL_SAFE:
+                if (value == null || literal == null) {
+                    return value == null && literal == null;
+                }
+                return compareIs(compare(value, literal), 0, 0);
+            default:
+        }
+        if (value == null || literal == null) {
+            return null;
+        }
+        switch (filter.getType()) {
+            case EQUAL_TO:
+                return compareIs(compare(value, literal), 0, 0);
+            case GREATER_THAN:
+                return compareIs(compare(value, literal), 1, 1);
+            case GREATER_THAN_OR_EQUAL:
+                return compareIs(compare(value, literal), 0, 1);
+            case LESS_THAN:
+                return compareIs(compare(value, literal), -1, -1);
+            case LESS_THAN_OR_EQUAL:
+                return compareIs(compare(value, literal), -1, 0);
+            case IN: {
+                Boolean result = Boolean.FALSE;
+                for (Object item : (Object[]) literal) {
+                    Boolean matched = item == null ? null : compareIs(compare(value, item), 0, 0);
+                    if (Boolean.TRUE.equals(matched)) {
+                        return Boolean.TRUE;
+                    }
+                    if (matched == null) {
+                        result = null;
+                    }
+                }
+                return result;
+            }
+            case STRING_STARTS_WITH:
+                return value.toString().startsWith(literal.toString());
+            case STRING_ENDS_WITH:
+                return value.toString().endsWith(literal.toString());
+            case STRING_CONTAINS:
+                return value.toString().contains(literal.toString());
+            default:
+                return null;
+        }
+    }
+
+    private static Boolean compareIs(Integer cmp, int min, int max) {
+        if (cmp == null) {
+            return null;
+        }
+        int sign = Integer.signum(cmp);
+        return sign >= min && sign <= max;
+    }
+
+    /**
+     * @return the sign of value compared with literal, or null if they are not comparable
+     */
+    private static Integer compare(Object value, Object literal) {
+        if (value instanceof Number || literal instanceof Number) {
+            BigDecimal left = toDecimal(value);
+            BigDecimal right = toDecimal(literal);
+            return left == null || right == null ? null : left.compareTo(right);
+        }
+        if (value instanceof java.util.Date && literal instanceof java.util.Date) {
+            return ((java.util.Date) value).compareTo((java.util.Date) literal);
+        }
+        if (value instanceof Boolean && literal instanceof Boolean) {
+            return ((Boolean) value).compareTo((Boolean) literal);
+        }
+        if (value instanceof CharSequence && literal instanceof CharSequence) {
+            return value.toString().compareTo(literal.toString());
+        }
+        return null;
+    }
+
+    private static BigDecimal toDecimal(Object o) {
+        if (o instanceof BigDecimal) {
+            return (BigDecimal) o;
+        }
+        if (o instanceof Number || o instanceof CharSequence) {
+            try {
+                return new BigDecimal(o.toString().trim());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+}
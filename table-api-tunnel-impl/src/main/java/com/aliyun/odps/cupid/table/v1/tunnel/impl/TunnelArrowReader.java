@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.cupid.table.v1.reader.SplitReader;
+import com.aliyun.odps.data.ArrowRecordReader;
+import com.aliyun.odps.tunnel.TableTunnel;
+import com.aliyun.odps.tunnel.TunnelException;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a tunnel split as Arrow batches through the tunnel arrow download path.
+ * Only the projected data columns are requested from the server. The returned
+ * batch is owned by the reader and stays valid until the next call to
+ * {@link #hasNext()}, {@link #next()} or {@link #close()}.
+ */
+public class TunnelArrowReader implements SplitReader<VectorSchemaRoot> {
+
+    private final TunnelInputSplit inputSplit;
+    private BufferAllocator allocator;
+    private ArrowRecordReader reader;
+    private VectorSchemaRoot currentBatch = null;
+    private VectorSchemaRoot nextBatch = null;
+    private long rowsRead = 0;
+    private boolean isClosed;
+
+    TunnelArrowReader(TunnelInputSplit inputSplit) {
+        this.inputSplit = inputSplit;
+        try {
+            init();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void init() throws IOException {
+        TableTunnel.DownloadSession session = Util.getDownloadSession(inputSplit);
+        List<Column> readDataColumns = Util.getReadDataColumns(inputSplit);
+        allocator = new RootAllocator(Long.MAX_VALUE);
+        try {
+            reader = session.openArrowRecordReader(
+                    inputSplit.getStartIndex(), inputSplit.getNumRecord(), readDataColumns, allocator);
+        } catch (TunnelException e) {
+            allocator.close();
+            throw new IOException(e);
+        }
+        this.isClosed = false;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        releaseCurrentBatch();
+        if (nextBatch != null) {
+            nextBatch.close();
+            nextBatch = null;
+        }
+        reader.close();
+        allocator.close();
+        isClosed = true;
+    }
+
+    @Override
+    public long getBytesRead() {
+        return reader.bytesRead();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (isClosed) {
+            return false;
+        }
+        if (nextBatch == null && rowsRead < inputSplit.getNumRecord()) {
+            releaseCurrentBatch();
+            try {
+                nextBatch = reader.read();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        return nextBatch != null;
+    }
+
+    @Override
+    public VectorSchemaRoot next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        currentBatch = nextBatch;
+        nextBatch = null;
+        rowsRead += currentBatch.getRowCount();
+        return currentBatch;
+    }
+
+    private void releaseCurrentBatch() {
+        if (currentBatch != null) {
+            currentBatch.close();
+            currentBatch = null;
+        }
+    }
+}
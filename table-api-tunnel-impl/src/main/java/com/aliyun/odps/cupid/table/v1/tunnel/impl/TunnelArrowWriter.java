@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Odps;
+import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
+import com.aliyun.odps.cupid.table.v1.writer.WriterCommitMessage;
+import com.aliyun.odps.data.ArrowRecordWriter;
+import com.aliyun.odps.tunnel.TableTunnel;
+import com.aliyun.odps.tunnel.TunnelException;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.pojo.Schema;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Streams Arrow batches to one block of a tunnel upload session through the
+ * tunnel arrow upload path. Batches must follow the data column layout of
+ * {@link #getArrowSchema()}.
+ */
+public class TunnelArrowWriter implements FileWriter<VectorSchemaRoot> {
+
+    protected TunnelWriteSessionInfo sessionInfo;
+    protected long blockId;
+    protected TableTunnel.UploadSession session;
+    protected ArrowRecordWriter writer;
+    private long rowsWritten;
+    private boolean isClosed;
+    private String uploadId;
+    private final Map<String, String> partitionSpec;
+    private final Odps odps;
+
+    TunnelArrowWriter(TunnelWriteSessionInfo sessionInfo, long blockId, Map<String, String> partitionSpec) {
+        this.sessionInfo = sessionInfo;
+        this.blockId = blockId;
+        this.isClosed = false;
+        this.partitionSpec = partitionSpec;
+        this.odps = Util.getOdps(sessionInfo.getOptions());
+        try {
+            init();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private void init() throws IOException {
+        try {
+            uploadId = sessionInfo.getUploadId();
+            if (sessionInfo.isDynamicPartition()) {
+                initDynamicWriter();
+            } else {
+                initStaticWriter();
+            }
+        } catch (TunnelException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public Schema getArrowSchema() {
+        return session.getArrowSchema();
+    }
+
+    @Override
+    public void write(VectorSchemaRoot data) throws IOException {
+        writer.write(data);
+        rowsWritten += data.getRowCount();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        writer.close();
+        isClosed = true;
+    }
+
+    @Override
+    public void commit() throws IOException {
+        close();
+    }
+
+    @Override
+    public WriterCommitMessage commitWithResult() throws IOException {
+        close();
+        if (sessionInfo.isDynamicPartition()) {
+            return new TunnelDynamicWriteMsg(sessionInfo.getProject(),
+                    sessionInfo.getTable(),
+                    partitionSpec,
+                    uploadId);
+        } else {
+            return new TunnelWriteMsg();
+        }
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return writer.bytesWritten();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    private void initDynamicWriter() throws IOException, TunnelException {
+        session = Util.createDynamicUploadSession(sessionInfo, partitionSpec, odps);
+        uploadId = session.getId();
+        writer = session.openArrowRecordWriter(0, Util.getCompressOption(sessionInfo.getOptions()));
+    }
+
+    private void initStaticWriter() throws IOException, TunnelException {
+        session = Util.getUploadSession(sessionInfo);
+        writer = session.openArrowRecordWriter(blockId, Util.getCompressOption(sessionInfo.getOptions()));
+    }
+}
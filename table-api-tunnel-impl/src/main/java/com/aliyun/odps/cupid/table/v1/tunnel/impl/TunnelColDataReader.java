@@ -0,0 +1,120 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.cupid.table.v1.reader.SplitReader;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.IOException;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads a tunnel split as {@link ColDataBatch}es of at most batchSize rows.
+ * An Arrow batch from {@link TunnelArrowReader} that fits is wrapped without
+ * copying; larger ones are sliced into copies.
+ *
+ * <p>A returned batch is only valid until the next call to {@link #hasNext()},
+ * {@link #next()} or {@link #close()}, which may release the Arrow buffers a
+ * wrapped batch reads from. Callers that keep rows across batches must copy
+ * them first.
+ */
+public class TunnelColDataReader implements SplitReader<ColDataBatch> {
+
+    private final SplitReader<VectorSchemaRoot> arrowReader;
+    private final ArrowColDataConverter converter;
+    private final int batchSize;
+    private VectorSchemaRoot currentBatch = null;
+    private int currentOffset = 0;
+    private long rowsRead = 0;
+
+    TunnelColDataReader(TunnelInputSplit inputSplit, int batchSize) {
+        this(checkBatchSize(batchSize),
+                new ArrowColDataConverter(Util.getReadDataColumns(inputSplit)),
+                new TunnelArrowReader(inputSplit));
+    }
+
+    /**
+     * Reads the batches of arrowReader, which owns each batch it returns
+     * until its next call to hasNext, next or close.
+     */
+    TunnelColDataReader(int batchSize, ArrowColDataConverter converter, SplitReader<VectorSchemaRoot> arrowReader) {
+        this.batchSize = checkBatchSize(batchSize);
+        this.converter = converter;
+        this.arrowReader = arrowReader;
+    }
+
+    private static int checkBatchSize(int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        return batchSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        currentBatch = null;
+        arrowReader.close();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return arrowReader.getBytesRead();
+    }
+
+    @Override
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (currentBatch != null && currentOffset < currentBatch.getRowCount()) {
+            return true;
+        }
+        currentBatch = null;
+        while (arrowReader.hasNext()) {
+            currentBatch = arrowReader.next();
+            currentOffset = 0;
+            if (currentBatch.getRowCount() > 0) {
+                return true;
+            }
+        }
+        currentBatch = null;
+        return false;
+    }
+
+    @Override
+    public ColDataBatch next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int numRows = Math.min(batchSize, currentBatch.getRowCount() - currentOffset);
+        ColDataBatch batch;
+        if (currentOffset == 0 && numRows == currentBatch.getRowCount()) {
+            batch = converter.wrap(currentBatch);
+        } else {
+            batch = converter.convert(currentBatch, currentOffset, numRows);
+        }
+        currentOffset += numRows;
+        rowsRead += numRows;
+        return batch;
+    }
+}
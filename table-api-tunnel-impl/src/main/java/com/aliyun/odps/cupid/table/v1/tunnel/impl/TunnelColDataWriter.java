@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
+import com.aliyun.odps.cupid.table.v1.writer.WriterCommitMessage;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Writes {@link ColDataBatch}es through {@link TunnelArrowWriter}. Batches
+ * wrapping Arrow vectors of the session schema are sent without copying, the
+ * others are copied into a reusable Arrow batch; with {@link Util#WRITER_BUFFER_ENABLE}
+ * set, consecutive batches are coalesced until the Arrow buffers reach
+ * {@link Util#WRITER_BUFFER_SIZE} bytes before being sent.
+ */
+public class TunnelColDataWriter implements FileWriter<ColDataBatch> {
+
+    private final TunnelArrowWriter arrowWriter;
+    private final ArrowColDataConverter converter;
+    private final BufferAllocator allocator;
+    private final VectorSchemaRoot root;
+    private final boolean isBufferWriter;
+    private final long bufferSize;
+    private int bufferRows;
+    private long rowsWritten;
+    private boolean isClosed;
+
+    TunnelColDataWriter(TunnelWriteSessionInfo sessionInfo, long blockId, Map<String, String> partitionSpec) {
+        this.arrowWriter = new TunnelArrowWriter(sessionInfo, blockId, partitionSpec);
+        this.converter = new ArrowColDataConverter(arrowWriter.session.getSchema().getColumns());
+        this.allocator = new RootAllocator(Long.MAX_VALUE);
+        this.root = VectorSchemaRoot.create(arrowWriter.getArrowSchema(), allocator);
+        this.isBufferWriter = sessionInfo.getOptions().getOrDefault(Util.WRITER_BUFFER_ENABLE, false);
+        this.bufferSize = sessionInfo.getOptions().getOrDefault(Util.WRITER_BUFFER_SIZE, Util.DEFAULT_WRITER_BUFFER_SIZE);
+        this.isClosed = false;
+    }
+
+    @Override
+    public void write(ColDataBatch data) throws IOException {
+        if (bufferRows == 0 && data.isArrowBacked()
+                && data.toVectorSchemaRoot().getSchema().equals(root.getSchema())) {
+            // already an arrow batch of the session schema, send it as is
+            arrowWriter.write(data.toVectorSchemaRoot());
+            rowsWritten += data.getRowCount();
+            return;
+        }
+        converter.fill(data, root, bufferRows);
+        bufferRows += data.getRowCount();
+        root.setRowCount(bufferRows);
+        rowsWritten += data.getRowCount();
+        if (!isBufferWriter || getBufferBytes() >= bufferSize) {
+            flush();
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (bufferRows == 0) {
+            return;
+        }
+        arrowWriter.write(root);
+        for (FieldVector vector : root.getFieldVectors()) {
+            vector.reset();
+        }
+        root.setRowCount(0);
+        bufferRows = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (isClosed) {
+            return;
+        }
+        try {
+            flush();
+            arrowWriter.close();
+        } finally {
+            root.close();
+            allocator.close();
+            isClosed = true;
+        }
+    }
+
+    @Override
+    public void commit() throws IOException {
+        close();
+    }
+
+    @Override
+    public WriterCommitMessage commitWithResult() throws IOException {
+        close();
+        return arrowWriter.commitWithResult();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return arrowWriter.getBytesWritten();
+    }
+
+    @Override
+    public long getRowsWritten() {
+        return rowsWritten;
+    }
+
+    @Override
+    public long getBufferBytes() {
+        long bytes = 0;
+        for (FieldVector vector : root.getFieldVectors()) {
+            bytes += vector.getBufferSize();
+        }
+        return bytes;
+    }
+
+    @Override
+    public long getBufferRows() {
+        return bufferRows;
+    }
+}
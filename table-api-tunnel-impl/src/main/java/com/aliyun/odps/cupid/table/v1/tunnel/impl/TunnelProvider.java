@@ -43,7 +43,7 @@ public class TunnelProvider implements TableProvider {
 
     @Override
     public ReadCapabilities getReadCapabilities() {
-        return new ReadCapabilities(false, false, false);
+        return new ReadCapabilities(false, true, false);
     }
 
     @Override
@@ -63,17 +63,20 @@ public class TunnelProvider implements TableProvider {
 
     @Override
     public SplitReader<ColDataBatch> createColDataReader(InputSplit inputSplit, int batchSize) {
-        throw new UnsupportedOperationException();
+        return new TunnelColDataReader((TunnelInputSplit) inputSplit, batchSize);
     }
 
     @Override
     public SplitReader<VectorSchemaRoot> createArrowReader(InputSplit inputSplit) {
-        throw new UnsupportedOperationException();
+        return new TunnelArrowReader((TunnelInputSplit) inputSplit);
     }
 
+    /**
+     * The tunnel server decides the arrow batch size, batchSize is ignored.
+     */
     @Override
     public SplitReader<VectorSchemaRoot> createArrowReader(InputSplit inputSplit, int batchSize) {
-        throw new UnsupportedOperationException();
+        return new TunnelArrowReader((TunnelInputSplit) inputSplit);
     }
 
     @Override
@@ -113,14 +116,16 @@ public class TunnelProvider implements TableProvider {
     public FileWriter<ColDataBatch> createColDataWriter(WriteSessionInfo sessionInfo,
                                                         Map<String, String> partitionSpec,
                                                         int fileIndex) {
-        throw new UnsupportedOperationException();
+        checkNotStream(sessionInfo);
+        return new TunnelColDataWriter((TunnelWriteSessionInfo) sessionInfo, fileIndex, partitionSpec);
     }
 
     @Override
     public FileWriter<VectorSchemaRoot> createArrowWriter(WriteSessionInfo sessionInfo,
                                                           Map<String, String> partitionSpec,
                                                           int fileIndex) {
-        throw new UnsupportedOperationException();
+        checkNotStream(sessionInfo);
+        return new TunnelArrowWriter((TunnelWriteSessionInfo) sessionInfo, fileIndex, partitionSpec);
     }
 
     @Override
@@ -128,7 +133,13 @@ public class TunnelProvider implements TableProvider {
                                                           Map<String, String> partitionSpec,
                                                           int fileIndex,
                                                           int attemptId) {
-        throw new UnsupportedOperationException();
+        return createArrowWriter(sessionInfo, partitionSpec, fileIndex);
+    }
+
+    private static void checkNotStream(WriteSessionInfo sessionInfo) {
+        if (((TunnelWriteSessionInfo) sessionInfo).isStream()) {
+            throw new UnsupportedOperationException("Stream upload only supports record writer");
+        }
     }
 
     @Deprecated
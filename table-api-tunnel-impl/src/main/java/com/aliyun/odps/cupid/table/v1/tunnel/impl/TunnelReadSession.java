@@ -21,22 +21,32 @@ package com.aliyun.odps.cupid.table.v1.tunnel.impl;
 
 import com.aliyun.odps.Column;
 import com.aliyun.odps.Odps;
-import com.aliyun.odps.PartitionSpec;
+import com.aliyun.odps.Partition;
+import com.aliyun.odps.Table;
 import com.aliyun.odps.TableSchema;
 import com.aliyun.odps.cupid.table.v1.Attribute;
 import com.aliyun.odps.cupid.table.v1.reader.InputSplit;
 import com.aliyun.odps.cupid.table.v1.reader.RequiredSchema;
 import com.aliyun.odps.cupid.table.v1.reader.TableReadSession;
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
 import com.aliyun.odps.cupid.table.v1.util.Options;
 import com.aliyun.odps.cupid.table.v1.util.Validator;
 import com.aliyun.odps.tunnel.TableTunnel;
-import com.aliyun.odps.utils.StringUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 public class TunnelReadSession extends TableReadSession {
@@ -49,6 +59,8 @@ public class TunnelReadSession extends TableReadSession {
     private List<Attribute> partitionColumns;
     private List<Attribute> requiredColumns;
     private Odps odps;
+    private final Map<String, PartitionMeta> partitionMetaCache = new ConcurrentHashMap<>();
+    private List<FilterExpression> filterExpressions = Collections.emptyList();
 
     TunnelReadSession(String project,
                       String table,
@@ -70,11 +82,19 @@ public class TunnelReadSession extends TableReadSession {
         return this.tableSchema;
     }
 
+    /**
+     * Filters are used to prune partitions at planning time and are passed to the splits, where
+     * readers drop records they definitely reject.
+     */
+    @Override
+    protected void setFilterExpressions(List<FilterExpression> filterExpressions) {
+        this.filterExpressions = filterExpressions;
+    }
+
     @Override
     public InputSplit[] getOrCreateInputSplits() throws IOException {
         if (this.splitParallelism > 0) {
-            throw new UnsupportedOperationException(
-                    "split by parallelism is not supported by tunnel provider");
+            return getOrCreateInputSplitsByParallelism(this.splitParallelism);
         } else {
             return getOrCreateInputSplits(this.splitSizeInMB);
         }
@@ -100,36 +120,201 @@ public class TunnelReadSession extends TableReadSession {
         }
 
         List<InputSplit> splits = new ArrayList<>();
-        TableTunnel tunnel = new TableTunnel(odps);
-        if (!StringUtils.isNullOrEmpty(this.options.getOdpsConf().getTunnelEndpoint())) {
-            tunnel.setEndpoint(this.options.getOdpsConf().getTunnelEndpoint());
+        for (PartitionMeta meta : getPartitionMetas()) {
+            long averageRecordSize;
+            if (meta.recordCount == 0) {
+                averageRecordSize = DEFAULT_AVERAGE_RECORD_SIZE;
+            } else {
+                averageRecordSize = meta.size / meta.recordCount;
+            }
+            if (averageRecordSize == 0) {
+                averageRecordSize = MIN_AVERAGE_RECORD_SIZE;
+            }
+            long numRecordPerSplit = splitSizeInMB * 1024L * 1024L / averageRecordSize;
+            if (numRecordPerSplit == 0) {
+                throw new IllegalArgumentException("Expect larger split size, got: " + splitSizeInMB);
+            }
+            addInputSplits(splits, meta, numRecordPerSplit);
+        }
+
+        // Cache the result
+        inputSplits = splits.toArray(new InputSplit[0]);
+
+        return inputSplits;
+    }
+
+    /**
+     * Split the table into about splitParallelism splits of similar size in bytes. Each partition
+     * gets a number of splits proportional to its size, and its records are divided evenly among
+     * them.
+     *
+     * @param splitParallelism expected number of splits
+     * @return an array of {@link InputSplit}
+     * @throws IOException IOException is thrown when create tunnel download session failed
+     */
+    private InputSplit[] getOrCreateInputSplitsByParallelism(int splitParallelism) throws IOException {
+        if (inputSplits != null) {
+            return inputSplits;
+        }
+
+        List<PartitionMeta> metas = getPartitionMetas();
+        long totalSize = 0;
+        long totalRecordCount = 0;
+        for (PartitionMeta meta : metas) {
+            totalSize += meta.size;
+            totalRecordCount += meta.recordCount;
+        }
+        // Fall back to record counts when the size is unknown
+        boolean bySize = totalSize > 0;
+        double weightPerSplit = (double) (bySize ? totalSize : totalRecordCount) / splitParallelism;
+
+        List<InputSplit> splits = new ArrayList<>();
+        for (PartitionMeta meta : metas) {
+            if (meta.recordCount == 0) {
+                continue;
+            }
+            long weight = bySize ? meta.size : meta.recordCount;
+            long numSplits = weightPerSplit > 0 ? Math.round(weight / weightPerSplit) : 1;
+            numSplits = Math.max(1, Math.min(numSplits, meta.recordCount));
+            long numRecordPerSplit = (meta.recordCount + numSplits - 1) / numSplits;
+            addInputSplits(splits, meta, numRecordPerSplit);
         }
 
+        // Cache the result
+        inputSplits = splits.toArray(new InputSplit[0]);
+
+        return inputSplits;
+    }
+
+    /**
+     * Fetch the download session and the size of every partition to read, see
+     * {@link #fetchPartitionMetas(List)}. Results are kept so that planning again does not repeat
+     * them.
+     */
+    private List<PartitionMeta> getPartitionMetas() throws IOException {
         init();
 
+        List<Map<String, String>> specs = new ArrayList<>();
         if (partitionSpecs == null || partitionSpecs.isEmpty()) {
-            long size = odps.tables().get(project, table).getSize();
-            TableTunnel.DownloadSession session = Util.createDownloadSession(project, table, null, tunnel);
-            splits.addAll(
-                    getInputSplitsInternal(session, size, splitSizeInMB, null));
+            specs.add(null);
         } else {
             for (Map<String, String> partitionSpec : partitionSpecs) {
-                PartitionSpec odpsPartitionSpec = Util.toOdpsPartitionSpec(partitionSpec);
-                long size = odps.tables().get(project, table).getPartition(odpsPartitionSpec).getSize();
-                TableTunnel.DownloadSession session = Util.createDownloadSession(
-                        project,
-                        table,
-                        odpsPartitionSpec,
-                        tunnel);
-                splits.addAll(
-                        getInputSplitsInternal(session, size, splitSizeInMB, partitionSpec));
+                if (FilterEvaluator.mayMatch(filterExpressions, name -> partitionSpec.containsKey(name)
+                        ? partitionSpec.get(name) : FilterEvaluator.MISSING)) {
+                    specs.add(partitionSpec);
+                }
             }
         }
 
-        // Cache the result
-        inputSplits = splits.toArray(new InputSplit[0]);
+        List<Map<String, String>> missing = new ArrayList<>();
+        for (Map<String, String> spec : specs) {
+            if (!partitionMetaCache.containsKey(getCacheKey(spec))) {
+                missing.add(spec);
+            }
+        }
 
-        return inputSplits;
+        if (!missing.isEmpty()) {
+            for (PartitionMeta meta : fetchPartitionMetas(missing)) {
+                partitionMetaCache.put(getCacheKey(meta.partitionSpec), meta);
+            }
+        }
+
+        List<PartitionMeta> metas = new ArrayList<>(specs.size());
+        for (Map<String, String> spec : specs) {
+            metas.add(partitionMetaCache.get(getCacheKey(spec)));
+        }
+        return metas;
+    }
+
+    /**
+     * Open a download session for every partition, or the table when the spec is null. The
+     * partitions are found by a single listing of the table instead of a lookup per spec, and a
+     * partition that does not exist fails the planning up front. The listing does not carry the
+     * sizes, they are loaded with the download sessions on a bounded thread pool, see
+     * {@link Util#READER_PLAN_THREADS}.
+     */
+    List<PartitionMeta> fetchPartitionMetas(List<Map<String, String>> specs) throws IOException {
+        TableTunnel tunnel = Util.getTableTunnel(this.options);
+        Table odpsTable = odps.tables().get(project, table);
+        Map<Map<String, String>, Partition> partitions = specs.get(0) == null
+                ? Collections.emptyMap()
+                : listPartitions(odpsTable, specs);
+        int numThreads = Math.min(specs.size(),
+                Math.max(1, options.getOrDefault(Util.READER_PLAN_THREADS, Util.DEFAULT_READER_PLAN_THREADS)));
+        List<PartitionMeta> metas = new ArrayList<>(specs.size());
+        if (numThreads == 1) {
+            for (Map<String, String> spec : specs) {
+                metas.add(fetchPartitionMeta(spec, partitions.get(spec), odpsTable, tunnel));
+            }
+            return metas;
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(numThreads, r -> {
+            Thread thread = new Thread(r, "tunnel-split-planner");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<PartitionMeta>> futures = new ArrayList<>(specs.size());
+            for (Map<String, String> spec : specs) {
+                Partition partition = partitions.get(spec);
+                futures.add(executor.submit(() -> fetchPartitionMeta(spec, partition, odpsTable, tunnel)));
+            }
+            for (Future<PartitionMeta> future : futures) {
+                metas.add(future.get());
+            }
+            return metas;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private Map<Map<String, String>, Partition> listPartitions(Table odpsTable,
+                                                               List<Map<String, String>> specs) throws IOException {
+        Set<Map<String, String>> wanted = new HashSet<>(specs);
+        Map<Map<String, String>, Partition> partitions = new HashMap<>();
+        Iterator<Partition> iterator = odpsTable.getPartitionIterator();
+        while (iterator.hasNext() && partitions.size() < wanted.size()) {
+            Partition partition = iterator.next();
+            Map<String, String> spec = Util.fromOdpsPartitionSpec(partition.getPartitionSpec());
+            if (wanted.contains(spec)) {
+                partitions.put(spec, partition);
+            }
+        }
+        for (Map<String, String> spec : specs) {
+            if (!partitions.containsKey(spec)) {
+                throw new IOException("Partition " + getCacheKey(spec) + " does not exist in table "
+                        + project + "." + table);
+            }
+        }
+        return partitions;
+    }
+
+    private PartitionMeta fetchPartitionMeta(Map<String, String> partitionSpec,
+                                             Partition partition,
+                                             Table odpsTable,
+                                             TableTunnel tunnel) throws IOException {
+        long size;
+        TableTunnel.DownloadSession session;
+        if (partitionSpec == null) {
+            size = odpsTable.getSize();
+            session = Util.createDownloadSession(project, table, null, tunnel);
+        } else {
+            size = partition.getSize();
+            session = Util.createDownloadSession(project, table, Util.toOdpsPartitionSpec(partitionSpec), tunnel);
+        }
+        return new PartitionMeta(partitionSpec, session.getId(), session.getRecordCount(), size);
+    }
+
+    private static String getCacheKey(Map<String, String> partitionSpec) {
+        return partitionSpec == null ? "" : Util.toOdpsPartitionSpec(partitionSpec).toString();
     }
 
     /**
@@ -165,47 +350,26 @@ public class TunnelReadSession extends TableReadSession {
         }
     }
 
-    private List<InputSplit> getInputSplitsInternal(TableTunnel.DownloadSession session,
-                                                    long size,
-                                                    int splitSizeInMB,
-                                                    Map<String, String> partitionSpec) {
-        List<InputSplit> splits = new ArrayList<>();
-        String downloadId = session.getId();
-        long recordCount = session.getRecordCount();
-
-        long averageRecordSize;
-        if (recordCount == 0) {
-            averageRecordSize = DEFAULT_AVERAGE_RECORD_SIZE;
-        } else {
-            averageRecordSize = size / recordCount;
-        }
-        if (averageRecordSize == 0) {
-            averageRecordSize = MIN_AVERAGE_RECORD_SIZE;
-        }
-        long numRecordPerSplit = splitSizeInMB * 1024 * 1024 / averageRecordSize;
-        if (numRecordPerSplit == 0) {
-            throw new IllegalArgumentException("Expect larger split size, got: " + splitSizeInMB);
-        }
-
-        long numSplits = recordCount / numRecordPerSplit;
-        long remainder = recordCount % numRecordPerSplit;
+    private void addInputSplits(List<InputSplit> splits, PartitionMeta meta, long numRecordPerSplit) {
+        long numSplits = meta.recordCount / numRecordPerSplit;
+        long remainder = meta.recordCount % numRecordPerSplit;
         for (long i = 0; i < numSplits; i++) {
             long startIndex = i * numRecordPerSplit;
             TunnelInputSplit split = new TunnelInputSplit(project, table, dataColumns,
-                    partitionColumns, requiredColumns, partitionSpec, downloadId, startIndex,
+                    partitionColumns, requiredColumns, meta.partitionSpec, meta.downloadId, startIndex,
                     numRecordPerSplit, options);
+            split.setFilterExpressions(filterExpressions);
             splits.add(split);
         }
 
         if (remainder != 0) {
             long startIndex = numSplits * numRecordPerSplit;
             TunnelInputSplit lastSplit = new TunnelInputSplit(project, table, dataColumns,
-                    partitionColumns, requiredColumns, partitionSpec, downloadId, startIndex,
+                    partitionColumns, requiredColumns, meta.partitionSpec, meta.downloadId, startIndex,
                     remainder, options);
+            lastSplit.setFilterExpressions(filterExpressions);
             splits.add(lastSplit);
         }
-
-        return splits;
     }
 
     private void initOdps() {
@@ -214,4 +378,18 @@ public class TunnelReadSession extends TableReadSession {
             this.odps = Util.getOdps(this.options);
         }
     }
+
+    static class PartitionMeta {
+        private final Map<String, String> partitionSpec;
+        private final String downloadId;
+        private final long recordCount;
+        private final long size;
+
+        PartitionMeta(Map<String, String> partitionSpec, String downloadId, long recordCount, long size) {
+            this.partitionSpec = partitionSpec;
+            this.downloadId = downloadId;
+            this.recordCount = recordCount;
+            this.size = size;
+        }
+    }
 }
@@ -20,20 +20,18 @@
 package com.aliyun.odps.cupid.table.v1.tunnel.impl;
 
 import com.aliyun.odps.Column;
-import com.aliyun.odps.PartitionSpec;
-import com.aliyun.odps.cupid.table.v1.Attribute;
 import com.aliyun.odps.cupid.table.v1.reader.SplitReader;
 import com.aliyun.odps.data.ArrayRecord;
 import com.aliyun.odps.data.Record;
 import com.aliyun.odps.tunnel.TableTunnel;
 import com.aliyun.odps.tunnel.TunnelException;
 import com.aliyun.odps.tunnel.io.TunnelRecordReader;
-import com.aliyun.odps.type.TypeInfoParser;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 
 public class TunnelReader implements SplitReader<ArrayRecord> {
 
@@ -42,6 +40,8 @@ public class TunnelReader implements SplitReader<ArrayRecord> {
     private Record currentRecord = null;
     private long rowsRead = 0;
     private boolean isClosed;
+    private Map<String, Integer> filterColumnIndexes;
+    private Record nextRecord = null;
 
     TunnelReader(TunnelInputSplit inputSplit) {
         this.inputSplit = inputSplit;
@@ -53,50 +53,44 @@ public class TunnelReader implements SplitReader<ArrayRecord> {
     }
 
     private void init() throws IOException {
-        String project = inputSplit.getProject();
-        String table = inputSplit.getTable();
-        Map<String, String> partitionSpec = inputSplit.getPartitionSpec();
-        String downloadId = inputSplit.getDownloadId();
-        long startIndex = inputSplit.getStartIndex();
-        long numRecord = inputSplit.getNumRecord();
-        List<Attribute> requiredColumns = inputSplit.getReadDataColumns();
-
-        TableTunnel tunnel = Util.getTableTunnel(inputSplit.getOptions());
-        TableTunnel.DownloadSession session;
-        if (partitionSpec == null || partitionSpec.isEmpty()) {
-            try {
-                session = tunnel.getDownloadSession(project, table, downloadId);
-            } catch (TunnelException e) {
-                throw new IOException(e);
-            }
-        } else {
-            try {
-                PartitionSpec odpsPartitionSpec = Util.toOdpsPartitionSpec(partitionSpec);
-                session = tunnel.getDownloadSession(project, table, odpsPartitionSpec, downloadId);
-            } catch (TunnelException e) {
-                throw new IOException(e);
-            }
-        }
-
-        List<Column> readDataColumns = new ArrayList<>();
-        for (Attribute c : requiredColumns) {
-            readDataColumns.add(new Column(c.getName(), TypeInfoParser.getTypeInfoFromTypeString(c.getType())));
-        }
-        if (requiredColumns.isEmpty()) {
-            List<Attribute> dataColumns = inputSplit.getDataColumns();
-            if (!dataColumns.isEmpty()) {
-                readDataColumns.add(new Column(dataColumns.get(0).getName(),TypeInfoParser.getTypeInfoFromTypeString(dataColumns.get(0).getType())));
-            } else {
-                throw new RuntimeException("Empty column is not supported by tunnel table provider");
-            }
-        }
+        TableTunnel.DownloadSession session = Util.getDownloadSession(inputSplit);
+        List<Column> readDataColumns = Util.getReadDataColumns(inputSplit);
         try {
             reader = session.openRecordReader(
-                    startIndex, numRecord, true, readDataColumns);
+                    inputSplit.getStartIndex(), inputSplit.getNumRecord(), true, readDataColumns);
         } catch (TunnelException e) {
             throw new IOException(e);
         }
         this.isClosed = false;
+        initFilter(readDataColumns);
+    }
+
+    /**
+     * Only filters on the projected data columns and the partition columns can be evaluated on a
+     * record, anything else is left to the engine.
+     */
+    private void initFilter(List<Column> readDataColumns) {
+        if (inputSplit.getFilterExpressions().isEmpty()) {
+            return;
+        }
+        filterColumnIndexes = new HashMap<>();
+        for (int i = 0; i < readDataColumns.size(); i++) {
+            filterColumnIndexes.put(readDataColumns.get(i).getName().toLowerCase(), i);
+        }
+    }
+
+    private boolean accept(Record record) {
+        Map<String, String> partitionSpec = inputSplit.getPartitionSpec();
+        return FilterEvaluator.mayMatch(inputSplit.getFilterExpressions(), name -> {
+            Integer index = filterColumnIndexes.get(name);
+            if (index != null) {
+                return record.get(index);
+            }
+            if (partitionSpec != null && partitionSpec.containsKey(name)) {
+                return partitionSpec.get(name);
+            }
+            return FilterEvaluator.MISSING;
+        });
     }
 
     @Override
@@ -120,17 +114,40 @@ public class TunnelReader implements SplitReader<ArrayRecord> {
 
     @Override
     public boolean hasNext() {
-        return rowsRead < inputSplit.getNumRecord();
+        if (filterColumnIndexes == null) {
+            return rowsRead < inputSplit.getNumRecord();
+        }
+        while (nextRecord == null && rowsRead < inputSplit.getNumRecord()) {
+            Record record = readRecord();
+            if (record != null && accept(record)) {
+                nextRecord = record;
+            }
+        }
+        return nextRecord != null;
     }
 
     @Override
     public ArrayRecord next() {
+        if (filterColumnIndexes == null) {
+            currentRecord = readRecord();
+        } else {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            currentRecord = nextRecord;
+            nextRecord = null;
+        }
+        return (ArrayRecord) currentRecord;
+    }
+
+    private Record readRecord() {
+        Record record = null;
         try {
-            currentRecord = reader.read();
+            record = reader.read();
         } catch (IOException e) {
             e.printStackTrace();
         }
         rowsRead += 1;
-        return (ArrayRecord) currentRecord;
+        return record;
     }
 }
@@ -20,7 +20,6 @@
 package com.aliyun.odps.cupid.table.v1.tunnel.impl;
 
 import com.aliyun.odps.Odps;
-import com.aliyun.odps.PartitionSpec;
 import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
 import com.aliyun.odps.cupid.table.v1.writer.WriterCommitMessage;
 import com.aliyun.odps.data.ArrayRecord;
@@ -31,7 +30,6 @@ import com.aliyun.odps.tunnel.io.TunnelBufferedWriter;
 import com.aliyun.odps.tunnel.io.TunnelRecordWriter;
 
 import java.io.IOException;
-import java.security.InvalidParameterException;
 import java.util.Map;
 
 public class TunnelWriter implements FileWriter<ArrayRecord> {
@@ -127,53 +125,29 @@ public class TunnelWriter implements FileWriter<ArrayRecord> {
     }
 
     private void initDynamicWriter() throws IOException, TunnelException {
-        if (partitionSpec == null || partitionSpec.isEmpty()) {
-            throw new InvalidParameterException("Tunnel dynamic partition is empty");
-        } else {
-            TableTunnel tunnel = Util.getTableTunnel(sessionInfo.getOptions());
-            PartitionSpec odpsPartitionSpec = Util.toOdpsPartitionSpec(partitionSpec);
-            Util.createPartition(sessionInfo.getProject(), sessionInfo.getTable(), odpsPartitionSpec, odps);
-            session = Util.createUploadSession(sessionInfo.getProject(),
-                    sessionInfo.getTable(),
-                    odpsPartitionSpec,
-                    sessionInfo.isOverwrite(),
-                    tunnel);
-            uploadId = session.getId();
-        }
+        session = Util.createDynamicUploadSession(sessionInfo, partitionSpec, odps);
+        uploadId = session.getId();
         if (isBufferWriter) {
-            writer = session.openBufferedWriter(true);
-            ((TunnelBufferedWriter)writer).setBufferSize(
-                    sessionInfo.getOptions().getOrDefault(Util.WRITER_BUFFER_SIZE, Util.DEFAULT_WRITER_BUFFER_SIZE));
+            openBufferedWriter();
         } else {
-            writer = session.openRecordWriter(0,true);
+            writer = session.openRecordWriter(0, true);
         }
     }
 
     private void initStaticWriter() throws IOException, TunnelException {
-        String project = sessionInfo.getProject();
-        String table = sessionInfo.getTable();
-        Map<String, String> partitionSpec = sessionInfo.getPartitionSpec();
-        TableTunnel tunnel = Util.getTableTunnel(sessionInfo.getOptions());
         if (isBufferWriter) {
             int shares = sessionInfo.getOptions().getOrDefault(Util.WRITER_BUFFER_SHARES, 1);
-            if (partitionSpec == null || partitionSpec.isEmpty()) {
-                this.session = tunnel.getUploadSession(project, table, uploadId, shares, blockId);
-            } else {
-                PartitionSpec odpsPartitionSpec = Util.toOdpsPartitionSpec(partitionSpec);
-                this.session = tunnel.getUploadSession(project, table, odpsPartitionSpec, uploadId, shares, blockId);
-            }
-            writer = session.openBufferedWriter(true);
-            ((TunnelBufferedWriter)writer).setBufferSize(
-                    sessionInfo.getOptions().getOrDefault(Util.WRITER_BUFFER_SIZE, Util.DEFAULT_WRITER_BUFFER_SIZE));
-
+            session = Util.getUploadSession(sessionInfo, shares, blockId);
+            openBufferedWriter();
         } else {
-            if (partitionSpec == null || partitionSpec.isEmpty()) {
-                session = tunnel.getUploadSession(project, table, uploadId);
-            } else {
-                PartitionSpec odpsPartitionSpec = Util.toOdpsPartitionSpec(partitionSpec);
-                session = tunnel.getUploadSession(project, table, odpsPartitionSpec, uploadId);
-            }
-            writer = session.openRecordWriter(blockId,true);
+            session = Util.getUploadSession(sessionInfo);
+            writer = session.openRecordWriter(blockId, true);
         }
     }
+
+    private void openBufferedWriter() throws IOException, TunnelException {
+        writer = session.openBufferedWriter(true);
+        ((TunnelBufferedWriter) writer).setBufferSize(
+                sessionInfo.getOptions().getOrDefault(Util.WRITER_BUFFER_SIZE, Util.DEFAULT_WRITER_BUFFER_SIZE));
+    }
 }
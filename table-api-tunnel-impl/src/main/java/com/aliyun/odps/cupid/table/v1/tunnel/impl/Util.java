@@ -19,19 +19,26 @@
 
 package com.aliyun.odps.cupid.table.v1.tunnel.impl;
 
+import com.aliyun.odps.Column;
 import com.aliyun.odps.Odps;
 import com.aliyun.odps.OdpsException;
 import com.aliyun.odps.PartitionSpec;
 import com.aliyun.odps.account.Account;
 import com.aliyun.odps.account.AliyunAccount;
 import com.aliyun.odps.account.StsAccount;
+import com.aliyun.odps.cupid.table.v1.Attribute;
 import com.aliyun.odps.cupid.table.v1.util.Options;
 import com.aliyun.odps.tunnel.TableTunnel;
 import com.aliyun.odps.tunnel.TunnelException;
+import com.aliyun.odps.tunnel.io.CompressOption;
+import com.aliyun.odps.type.TypeInfoParser;
 import com.aliyun.odps.utils.StringUtils;
 
 import java.io.IOException;
+import java.security.InvalidParameterException;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ThreadLocalRandom;
 
@@ -42,6 +49,8 @@ public class Util {
     public static final String WRITER_BUFFER_SHARES = "odps.cupid.writer.buffer.shares";
     public static final String WRITER_BUFFER_SIZE = "odps.cupid.writer.buffer.size";
     public static final int DEFAULT_WRITER_BUFFER_SIZE = 67108864;
+    public static final String READER_PLAN_THREADS = "odps.cupid.reader.plan.threads";
+    public static final int DEFAULT_READER_PLAN_THREADS = 16;
 
 
     public static PartitionSpec toOdpsPartitionSpec(Map<String, String> partitionSpec) {
@@ -64,6 +73,13 @@ public class Util {
         return partitionSpec;
     }
 
+    public static CompressOption getCompressOption(Options options) {
+        if (options.getOrDefault(WRITER_COMPRESS_ENABLE, true)) {
+            return new CompressOption();
+        }
+        return new CompressOption(CompressOption.CompressAlgorithm.ODPS_RAW, 0, 0);
+    }
+
     public static TableTunnel getTableTunnel(Options options) {
         TableTunnel tunnel = new TableTunnel(getOdps(options));
         if (!StringUtils.isNullOrEmpty(options.getOdpsConf().getTunnelEndpoint())) {
@@ -151,6 +167,43 @@ public class Util {
         return downloadSession;
     }
 
+    public static TableTunnel.DownloadSession getDownloadSession(TunnelInputSplit inputSplit) throws IOException {
+        TableTunnel tunnel = getTableTunnel(inputSplit.getOptions());
+        Map<String, String> partitionSpec = inputSplit.getPartitionSpec();
+        try {
+            if (partitionSpec == null || partitionSpec.isEmpty()) {
+                return tunnel.getDownloadSession(inputSplit.getProject(),
+                        inputSplit.getTable(),
+                        inputSplit.getDownloadId());
+            } else {
+                return tunnel.getDownloadSession(inputSplit.getProject(),
+                        inputSplit.getTable(),
+                        toOdpsPartitionSpec(partitionSpec),
+                        inputSplit.getDownloadId());
+            }
+        } catch (TunnelException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public static List<Column> getReadDataColumns(TunnelInputSplit inputSplit) {
+        List<Attribute> requiredColumns = inputSplit.getReadDataColumns();
+        List<Column> readDataColumns = new ArrayList<>();
+        for (Attribute c : requiredColumns) {
+            readDataColumns.add(new Column(c.getName(), TypeInfoParser.getTypeInfoFromTypeString(c.getType())));
+        }
+        if (requiredColumns.isEmpty()) {
+            List<Attribute> dataColumns = inputSplit.getDataColumns();
+            if (!dataColumns.isEmpty()) {
+                readDataColumns.add(new Column(dataColumns.get(0).getName(),
+                        TypeInfoParser.getTypeInfoFromTypeString(dataColumns.get(0).getType())));
+            } else {
+                throw new RuntimeException("Empty column is not supported by tunnel table provider");
+            }
+        }
+        return readDataColumns;
+    }
+
     public static TableTunnel.UploadSession createUploadSession(String project,
                                                                 String table,
                                                                 PartitionSpec partitionSpec,
@@ -188,6 +241,57 @@ public class Util {
         return uploadSession;
     }
 
+    /**
+     * Creates the partition of a dynamic partition writer when missing and opens the upload
+     * session the writer owns.
+     */
+    public static TableTunnel.UploadSession createDynamicUploadSession(TunnelWriteSessionInfo sessionInfo,
+                                                                       Map<String, String> partitionSpec,
+                                                                       Odps odps) throws IOException {
+        if (partitionSpec == null || partitionSpec.isEmpty()) {
+            throw new InvalidParameterException("Tunnel dynamic partition is empty");
+        }
+        PartitionSpec odpsPartitionSpec = toOdpsPartitionSpec(partitionSpec);
+        createPartition(sessionInfo.getProject(), sessionInfo.getTable(), odpsPartitionSpec, odps);
+        return createUploadSession(sessionInfo.getProject(),
+                sessionInfo.getTable(),
+                odpsPartitionSpec,
+                sessionInfo.isOverwrite(),
+                getTableTunnel(sessionInfo.getOptions()));
+    }
+
+    /**
+     * Attaches a writer of a static partition, or of a non-partitioned table, to the upload
+     * session of the write session.
+     */
+    public static TableTunnel.UploadSession getUploadSession(TunnelWriteSessionInfo sessionInfo)
+            throws TunnelException {
+        TableTunnel tunnel = getTableTunnel(sessionInfo.getOptions());
+        Map<String, String> partitionSpec = sessionInfo.getPartitionSpec();
+        if (partitionSpec == null || partitionSpec.isEmpty()) {
+            return tunnel.getUploadSession(sessionInfo.getProject(), sessionInfo.getTable(), sessionInfo.getUploadId());
+        }
+        return tunnel.getUploadSession(sessionInfo.getProject(), sessionInfo.getTable(),
+                toOdpsPartitionSpec(partitionSpec), sessionInfo.getUploadId());
+    }
+
+    /**
+     * Same as {@link #getUploadSession(TunnelWriteSessionInfo)} for a buffered writer, which
+     * shares the block ids starting at blockId with shares writers.
+     */
+    public static TableTunnel.UploadSession getUploadSession(TunnelWriteSessionInfo sessionInfo,
+                                                             int shares,
+                                                             long blockId) throws TunnelException {
+        TableTunnel tunnel = getTableTunnel(sessionInfo.getOptions());
+        Map<String, String> partitionSpec = sessionInfo.getPartitionSpec();
+        if (partitionSpec == null || partitionSpec.isEmpty()) {
+            return tunnel.getUploadSession(sessionInfo.getProject(), sessionInfo.getTable(),
+                    sessionInfo.getUploadId(), shares, blockId);
+        }
+        return tunnel.getUploadSession(sessionInfo.getProject(), sessionInfo.getTable(),
+                toOdpsPartitionSpec(partitionSpec), sessionInfo.getUploadId(), shares, blockId);
+    }
+
     public static TableTunnel.StreamUploadSession createStreamUploadSession(String project,
                                                                             String table,
                                                                             PartitionSpec partitionSpec,
@@ -199,12 +303,12 @@ public class Util {
         while (true) {
             try {
                 if (partitionSpec == null || partitionSpec.isEmpty()) {
-                    uploadSession = tunnel.createStreamUploadSession(project, table);
+                    uploadSession = tunnel.buildStreamUploadSession(project, table).build();
                 } else {
-                    uploadSession = tunnel.createStreamUploadSession(project,
-                            table,
-                            partitionSpec,
-                            createParitition);
+                    uploadSession = tunnel.buildStreamUploadSession(project, table)
+                            .setPartitionSpec(partitionSpec)
+                            .setCreatePartition(createParitition)
+                            .build();
                 }
                 break;
             } catch (TunnelException e) {
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
+import com.aliyun.odps.cupid.table.v1.writer.adaptor.ColDataRowWriter;
+import com.aliyun.odps.cupid.table.v1.writer.adaptor.Row;
+import com.aliyun.odps.data.Char;
+import com.aliyun.odps.data.Varchar;
+import com.aliyun.odps.type.TypeInfoFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+public class ArrowColDataConverterTest {
+
+    private static final List<Column> COLUMNS = Arrays.asList(
+            new Column("s", TypeInfoFactory.STRING),
+            new Column("b", TypeInfoFactory.BINARY),
+            new Column("d", TypeInfoFactory.getDecimalTypeInfo(38, 10)),
+            new Column("od", TypeInfoFactory.getDecimalTypeInfo(54, 18)));
+
+    private static final Schema SCHEMA = new Schema(Arrays.asList(
+            Field.nullable("s", new ArrowType.Utf8()),
+            Field.nullable("b", new ArrowType.Binary()),
+            Field.nullable("d", new ArrowType.Decimal(38, 10)),
+            Field.nullable("od", new ArrowType.Decimal(38, 18))));
+
+    private static final Object[][] ROWS = {
+            {"hello", bytes("x"), new BigDecimal("-12345678901234567890.0123456789"), new BigDecimal("1.5")},
+            {null, null, null, null},
+            {"", new byte[0], BigDecimal.ZERO, new BigDecimal("-0.000000000000000001")},
+            {"\u4e2d\u6587", bytes("a longer binary value"), new BigDecimal("42"), new BigDecimal("123456789012.25")},
+    };
+
+    private BufferAllocator allocator;
+    private ArrowColDataConverter converter;
+
+    @Before
+    public void setUp() {
+        allocator = new RootAllocator(Long.MAX_VALUE);
+        converter = new ArrowColDataConverter(COLUMNS);
+    }
+
+    @After
+    public void tearDown() {
+        allocator.close();
+    }
+
+    @Test
+    public void testReaderLayoutRoundTrip() {
+        try (VectorSchemaRoot source = newRoot(); VectorSchemaRoot target = newRoot()) {
+            // a leading row the conversion skips
+            fillRow(source, 0, ROWS[3]);
+            for (int i = 0; i < ROWS.length; i++) {
+                fillRow(source, i + 1, ROWS[i]);
+            }
+            source.setRowCount(ROWS.length + 1);
+
+            ColDataBatch batch = converter.convert(source, 1, ROWS.length);
+            for (int i = 0; i < ROWS.length; i++) {
+                if (ROWS[i][0] == null) {
+                    Assert.assertTrue(batch.getVectors()[0].isNullAt(i));
+                    continue;
+                }
+                Assert.assertEquals(ROWS[i][0], batch.getVectors()[0].getString(i));
+                Assert.assertArrayEquals((byte[]) ROWS[i][1], batch.getVectors()[1].getBinary(i));
+                Assert.assertEquals(0, ((BigDecimal) ROWS[i][2]).compareTo(batch.getVectors()[2].getDecimal(i)));
+                Assert.assertEquals(0, ((BigDecimal) ROWS[i][3]).compareTo(batch.getVectors()[3].getDecimal(i)));
+            }
+
+            converter.fill(batch, target, 0);
+            target.setRowCount(ROWS.length);
+            assertRows(target);
+        }
+    }
+
+    @Test
+    public void testWriterLayoutRoundTrip() throws Exception {
+        try (VectorSchemaRoot target = newRoot()) {
+            // a batch size below the row count makes the row writer reuse its vectors
+            ColDataRowWriter rowWriter = new ColDataRowWriter(
+                    COLUMNS.toArray(new Column[0]), new FillingWriter(target), 3);
+            for (Object[] row : ROWS) {
+                rowWriter.insert(new ArrayRow(row));
+            }
+            rowWriter.close();
+            target.setRowCount(ROWS.length);
+            assertRows(target);
+        }
+    }
+
+    private VectorSchemaRoot newRoot() {
+        return VectorSchemaRoot.create(SCHEMA, allocator);
+    }
+
+    private static void fillRow(VectorSchemaRoot root, int index, Object[] row) {
+        if (row[0] == null) {
+            ((VarCharVector) root.getVector(0)).setNull(index);
+            ((VarBinaryVector) root.getVector(1)).setNull(index);
+            ((DecimalVector) root.getVector(2)).setNull(index);
+            ((DecimalVector) root.getVector(3)).setNull(index);
+            return;
+        }
+        ((VarCharVector) root.getVector(0)).setSafe(index, ((String) row[0]).getBytes(StandardCharsets.UTF_8));
+        ((VarBinaryVector) root.getVector(1)).setSafe(index, (byte[]) row[1]);
+        ((DecimalVector) root.getVector(2)).setSafe(index, ((BigDecimal) row[2]).setScale(10));
+        ((DecimalVector) root.getVector(3)).setSafe(index, ((BigDecimal) row[3]).setScale(18));
+    }
+
+    private static void assertRows(VectorSchemaRoot root) {
+        Assert.assertEquals(ROWS.length, root.getRowCount());
+        for (int i = 0; i < ROWS.length; i++) {
+            for (int col = 0; col < COLUMNS.size(); col++) {
+                Object expected = ROWS[i][col];
+                Object actual = root.getVector(col).getObject(i);
+                if (expected == null) {
+                    Assert.assertNull(actual);
+                } else if (expected instanceof String) {
+                    Assert.assertEquals(expected, actual.toString());
+                } else if (expected instanceof byte[]) {
+                    Assert.assertArrayEquals((byte[]) expected, (byte[]) actual);
+                } else {
+                    Assert.assertEquals(0, ((BigDecimal) expected).compareTo((BigDecimal) actual));
+                }
+            }
+        }
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Fills each batch into root as it comes, since the row writer reuses
+     * its buffers after every write.
+     */
+    private final class FillingWriter implements FileWriter<ColDataBatch> {
+
+        private final VectorSchemaRoot root;
+        private int rows;
+
+        FillingWriter(VectorSchemaRoot root) {
+            this.root = root;
+        }
+
+        @Override
+        public void write(ColDataBatch data) {
+            converter.fill(data, root, rows);
+            rows += data.getRowCount();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void commit() {
+        }
+
+        @Override
+        public long getBytesWritten() {
+            return 0;
+        }
+
+        @Override
+        public long getRowsWritten() {
+            return rows;
+        }
+    }
+
+    private static final class ArrayRow implements Row {
+
+        private final Object[] values;
+
+        ArrayRow(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean isNullAt(int idx) {
+            return values[idx] == null;
+        }
+
+        @Override
+        public boolean getBoolean(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte getByte(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public short getShort(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int getInt(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public long getLong(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public float getFloat(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public double getDouble(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Date getDatetime(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public java.sql.Date getDate(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Timestamp getTimeStamp(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public BigDecimal getDecimal(int idx) {
+            return (BigDecimal) values[idx];
+        }
+
+        @Override
+        public String getString(int idx) {
+            return (String) values[idx];
+        }
+
+        @Override
+        public Char getChar(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Varchar getVarchar(int idx) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public byte[] getBytes(int idx) {
+            return (byte[]) values[idx];
+        }
+    }
+}
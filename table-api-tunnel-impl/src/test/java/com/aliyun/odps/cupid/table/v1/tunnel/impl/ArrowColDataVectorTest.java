@@ -0,0 +1,324 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.cupid.table.v1.Attribute;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataVector;
+import com.aliyun.odps.type.TypeInfo;
+import com.aliyun.odps.type.TypeInfoFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.BitVector;
+import org.apache.arrow.vector.DateDayVector;
+import org.apache.arrow.vector.DateMilliVector;
+import org.apache.arrow.vector.DecimalVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.Float4Vector;
+import org.apache.arrow.vector.Float8Vector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.SmallIntVector;
+import org.apache.arrow.vector.TimeStampVector;
+import org.apache.arrow.vector.TinyIntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.DateUnit;
+import org.apache.arrow.vector.types.FloatingPointPrecision;
+import org.apache.arrow.vector.types.TimeUnit;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class ArrowColDataVectorTest {
+
+    private BufferAllocator allocator;
+    private final List<FieldVector> vectors = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        allocator = new RootAllocator(Long.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        vectors.forEach(FieldVector::close);
+        allocator.close();
+    }
+
+    @Test
+    public void testFixedWidthAccessors() {
+        BitVector booleans = newVector("c", new ArrowType.Bool());
+        booleans.setSafe(0, 1);
+        booleans.setNull(1);
+        booleans.setSafe(2, 0);
+        ColDataVector vector = wrap(TypeInfoFactory.BOOLEAN, booleans, 3);
+        Assert.assertTrue(vector.getBoolean(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertFalse(vector.getBoolean(2));
+
+        TinyIntVector tinyInts = newVector("c", new ArrowType.Int(8, true));
+        tinyInts.setSafe(0, Byte.MIN_VALUE);
+        tinyInts.setNull(1);
+        tinyInts.setSafe(2, Byte.MAX_VALUE);
+        vector = wrap(TypeInfoFactory.TINYINT, tinyInts, 3);
+        Assert.assertEquals(Byte.MIN_VALUE, vector.getByte(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(Byte.MAX_VALUE, vector.getByte(2));
+
+        SmallIntVector smallInts = newVector("c", new ArrowType.Int(16, true));
+        smallInts.setSafe(0, Short.MIN_VALUE);
+        smallInts.setNull(1);
+        smallInts.setSafe(2, Short.MAX_VALUE);
+        vector = wrap(TypeInfoFactory.SMALLINT, smallInts, 3);
+        Assert.assertEquals(Short.MIN_VALUE, vector.getShort(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(Short.MAX_VALUE, vector.getShort(2));
+
+        IntVector ints = newVector("c", new ArrowType.Int(32, true));
+        ints.setSafe(0, Integer.MIN_VALUE);
+        ints.setNull(1);
+        ints.setSafe(2, Integer.MAX_VALUE);
+        vector = wrap(TypeInfoFactory.INT, ints, 3);
+        Assert.assertEquals(Integer.MIN_VALUE, vector.getInt(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(Integer.MAX_VALUE, vector.getInt(2));
+
+        BigIntVector bigInts = newVector("c", new ArrowType.Int(64, true));
+        bigInts.setSafe(0, Long.MIN_VALUE);
+        bigInts.setNull(1);
+        bigInts.setSafe(2, Long.MAX_VALUE);
+        vector = wrap(TypeInfoFactory.BIGINT, bigInts, 3);
+        Assert.assertEquals(Long.MIN_VALUE, vector.getLong(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(Long.MAX_VALUE, vector.getLong(2));
+
+        Float4Vector floats = newVector("c", new ArrowType.FloatingPoint(FloatingPointPrecision.SINGLE));
+        floats.setSafe(0, -1.5f);
+        floats.setNull(1);
+        floats.setSafe(2, Float.MAX_VALUE);
+        vector = wrap(TypeInfoFactory.FLOAT, floats, 3);
+        Assert.assertEquals(-1.5f, vector.getFloat(0), 0f);
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(Float.MAX_VALUE, vector.getFloat(2), 0f);
+
+        Float8Vector doubles = newVector("c", new ArrowType.FloatingPoint(FloatingPointPrecision.DOUBLE));
+        doubles.setSafe(0, -1.25d);
+        doubles.setNull(1);
+        doubles.setSafe(2, Double.MIN_VALUE);
+        vector = wrap(TypeInfoFactory.DOUBLE, doubles, 3);
+        Assert.assertEquals(-1.25d, vector.getDouble(0), 0d);
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(Double.MIN_VALUE, vector.getDouble(2), 0d);
+
+        DecimalVector decimals = newVector("c", new ArrowType.Decimal(38, 10));
+        decimals.setSafe(0, new BigDecimal("-12345678901234567890.0123456789"));
+        decimals.setNull(1);
+        decimals.setSafe(2, new BigDecimal("0.0000000001"));
+        vector = wrap(TypeInfoFactory.getDecimalTypeInfo(38, 10), decimals, 3);
+        Assert.assertEquals(new BigDecimal("-12345678901234567890.0123456789"), vector.getDecimal(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(new BigDecimal("0.0000000001"), vector.getDecimal(2));
+    }
+
+    @Test
+    public void testVariableWidthAccessors() {
+        VarCharVector strings = newVector("c", new ArrowType.Utf8());
+        strings.setSafe(0, "hello".getBytes(StandardCharsets.UTF_8));
+        strings.setNull(1);
+        strings.setSafe(2, new byte[0]);
+        strings.setSafe(3, "\u4e2d\u6587".getBytes(StandardCharsets.UTF_8));
+        for (TypeInfo typeInfo : Arrays.asList(TypeInfoFactory.STRING,
+                TypeInfoFactory.getVarcharTypeInfo(10), TypeInfoFactory.getCharTypeInfo(10))) {
+            ColDataVector vector = wrap(typeInfo, strings, 4);
+            Assert.assertEquals("hello", vector.getString(0));
+            Assert.assertTrue(vector.isNullAt(1));
+            Assert.assertEquals("", vector.getString(2));
+            Assert.assertEquals("\u4e2d\u6587", vector.getString(3));
+        }
+
+        VarBinaryVector binaries = newVector("c", new ArrowType.Binary());
+        binaries.setSafe(0, new byte[] {1, 2, 3});
+        binaries.setNull(1);
+        binaries.setSafe(2, new byte[0]);
+        ColDataVector vector = wrap(TypeInfoFactory.BINARY, binaries, 3);
+        Assert.assertArrayEquals(new byte[] {1, 2, 3}, vector.getBinary(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertArrayEquals(new byte[0], vector.getBinary(2));
+    }
+
+    @Test
+    public void testDateAccessors() {
+        int day = (int) LocalDate.of(2023, 1, 2).toEpochDay();
+        DateDayVector days = newVector("c", new ArrowType.Date(DateUnit.DAY));
+        days.setSafe(0, day);
+        days.setNull(1);
+        days.setSafe(2, -1);
+        ColDataVector vector = wrap(TypeInfoFactory.DATE, days, 3);
+        Assert.assertEquals("2023-01-02", vector.getDate(0).toString());
+        Assert.assertEquals(day, vector.getInt(0));
+        Assert.assertEquals(day, vector.getLong(0));
+        Assert.assertEquals(day, vector.getDayOffset(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals("1969-12-31", vector.getDate(2).toString());
+        Assert.assertEquals(-1, vector.getDayOffset(2));
+
+        long millis = day * 86400000L + 3723004L;
+        DateMilliVector dateMillis = newVector("c", new ArrowType.Date(DateUnit.MILLISECOND));
+        dateMillis.setSafe(0, millis);
+        dateMillis.setNull(1);
+        dateMillis.setSafe(2, -1L);
+        vector = wrap(TypeInfoFactory.DATE, dateMillis, 3);
+        Assert.assertEquals("2023-01-02", vector.getDate(0).toString());
+        Assert.assertEquals(day, vector.getDayOffset(0));
+        Assert.assertEquals("1969-12-31", vector.getDate(2).toString());
+        Assert.assertEquals(-1, vector.getDayOffset(2));
+
+        vector = wrap(TypeInfoFactory.DATETIME, dateMillis, 3);
+        Assert.assertEquals(millis, vector.getDateTime(0).getTime());
+        Assert.assertEquals(millis, vector.getLong(0));
+        Assert.assertTrue(vector.isNullAt(1));
+        Assert.assertEquals(-1L, vector.getDateTime(2).getTime());
+    }
+
+    @Test
+    public void testTimestampAccessors() {
+        long[] unitsPerSecond = {1L, 1000L, 1000000L, 1000000000L};
+        TimeUnit[] units = {TimeUnit.SECOND, TimeUnit.MILLISECOND, TimeUnit.MICROSECOND, TimeUnit.NANOSECOND};
+        for (int i = 0; i < units.length; i++) {
+            TimeStampVector timestamps = newVector("c", new ArrowType.Timestamp(units[i], null));
+            // 1.5 seconds before and after the epoch, whole seconds only for the second unit
+            long fraction = unitsPerSecond[i] / 2;
+            timestamps.setSafe(0, unitsPerSecond[i] + fraction);
+            timestamps.setNull(1);
+            timestamps.setSafe(2, -unitsPerSecond[i] - fraction);
+            ColDataVector vector = wrap(TypeInfoFactory.TIMESTAMP, timestamps, 3);
+
+            Timestamp after = vector.getTimestamp(0);
+            Timestamp before = vector.getTimestamp(2);
+            Assert.assertTrue(vector.isNullAt(1));
+            if (units[i] == TimeUnit.SECOND) {
+                Assert.assertEquals(1000L, after.getTime());
+                Assert.assertEquals(0, after.getNanos());
+                Assert.assertEquals(-1000L, before.getTime());
+                Assert.assertEquals(0, before.getNanos());
+            } else {
+                Assert.assertEquals(1500L, after.getTime());
+                Assert.assertEquals(500000000, after.getNanos());
+                Assert.assertEquals(-1500L, before.getTime());
+                Assert.assertEquals(500000000, before.getNanos());
+            }
+        }
+    }
+
+    @Test
+    public void testWrapDoesNotCopy() {
+        IntVector ints = newVector("c", new ArrowType.Int(32, true));
+        ints.setSafe(0, 1);
+        ints.setNull(1);
+        ColDataVector vector = wrap(TypeInfoFactory.INT, ints, 2);
+        Assert.assertTrue(vector.isArrowBacked());
+        Assert.assertSame(ints, vector.getArrowVector());
+        Assert.assertNull(vector.getDataBuf());
+        Assert.assertNull(vector.getNulls());
+        Assert.assertEquals(2, vector.getNumRows());
+        Assert.assertEquals(1, vector.getNumNulls());
+        Assert.assertTrue(vector.hasNull());
+
+        // values are read from the Arrow buffers, a later change shows through
+        ints.setSafe(0, 2);
+        ints.setSafe(1, 3);
+        Assert.assertEquals(2, vector.getInt(0));
+        Assert.assertFalse(vector.isNullAt(1));
+        vector.setNumRows(2);
+        Assert.assertFalse(vector.hasNull());
+    }
+
+    @Test
+    public void testWrapBatch() {
+        Attribute[] columns = {
+                new Attribute("i", TypeInfoFactory.INT.getTypeName()),
+                new Attribute("s", TypeInfoFactory.STRING.getTypeName())};
+        IntVector ints = newVector("i", new ArrowType.Int(32, true));
+        VarCharVector strings = newVector("s", new ArrowType.Utf8());
+        try (VectorSchemaRoot root = new VectorSchemaRoot(Arrays.<FieldVector>asList(ints, strings))) {
+            vectors.clear();
+            for (int i = 0; i < 3; i++) {
+                ints.setSafe(i, i);
+                strings.setSafe(i, String.valueOf(i).getBytes(StandardCharsets.UTF_8));
+            }
+            strings.setNull(1);
+            root.setRowCount(3);
+
+            ColDataBatch batch = ColDataBatch.wrap(root, columns);
+            Assert.assertTrue(batch.isArrowBacked());
+            Assert.assertSame(root, batch.toVectorSchemaRoot());
+            Assert.assertEquals(3, batch.getRowCount());
+            Assert.assertEquals(2, batch.getColumnCount());
+            Assert.assertSame(ints, batch.getVectors()[0].getArrowVector());
+            Assert.assertEquals(2, batch.getVectors()[0].getInt(2));
+            Assert.assertEquals(1, batch.getVectors()[1].getNumNulls());
+            Assert.assertEquals("2", batch.getVectors()[1].getString(2));
+
+            batch.setRowCount(1);
+            Assert.assertEquals(1, root.getRowCount());
+            Assert.assertEquals(1, batch.getVectors()[1].getNumRows());
+            Assert.assertEquals(0, batch.getVectors()[1].getNumNulls());
+
+            try {
+                ColDataBatch.wrap(root, new Attribute[] {columns[0]});
+                Assert.fail("the columns must match the vectors of root");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testHeapBatchHasNoRoot() {
+        ColDataVector vector = new ColDataVector(
+                new Attribute("i", TypeInfoFactory.INT.getTypeName()), new byte[4], 4, new byte[1], null);
+        ColDataBatch batch = new ColDataBatch(new ColDataVector[] {vector});
+        Assert.assertFalse(batch.isArrowBacked());
+        batch.toVectorSchemaRoot();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V extends FieldVector> V newVector(String name, ArrowType type) {
+        FieldVector vector = Field.nullable(name, type).createVector(allocator);
+        vectors.add(vector);
+        return (V) vector;
+    }
+
+    private static ColDataVector wrap(TypeInfo typeInfo, FieldVector vector, int numRows) {
+        vector.setValueCount(numRows);
+        return ColDataVector.wrap(new Attribute("c", typeInfo.getTypeName()), vector);
+    }
+}
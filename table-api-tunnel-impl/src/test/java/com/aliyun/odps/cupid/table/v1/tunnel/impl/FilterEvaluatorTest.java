@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+public class FilterEvaluatorTest {
+
+    private static Function<String, Object> resolver(Map<String, Object> values) {
+        return name -> values.containsKey(name) ? values.get(name) : FilterEvaluator.MISSING;
+    }
+
+    @Test
+    public void testPartitionPruning() {
+        Map<String, Object> partition = new HashMap<>();
+        partition.put("ds", "20230101");
+        partition.put("region", "hz");
+
+        Assert.assertFalse(FilterEvaluator.mayMatch(
+                Arrays.asList(FilterExpression.EqualTo("ds", "20230102")), resolver(partition)));
+        Assert.assertTrue(FilterEvaluator.mayMatch(
+                Arrays.asList(FilterExpression.GreaterThanOrEqual("ds", 20230101)), resolver(partition)));
+        Assert.assertFalse(FilterEvaluator.mayMatch(
+                Arrays.asList(FilterExpression.In("region", new Object[]{"sh", "bj"})), resolver(partition)));
+        // Unknown data column does not prune
+        Assert.assertTrue(FilterEvaluator.mayMatch(
+                Arrays.asList(FilterExpression.And(
+                        FilterExpression.EqualTo("region", "hz"),
+                        FilterExpression.EqualTo("id", 1))), resolver(partition)));
+        Assert.assertFalse(FilterEvaluator.mayMatch(
+                Arrays.asList(FilterExpression.And(
+                        FilterExpression.EqualTo("region", "sh"),
+                        FilterExpression.EqualTo("id", 1))), resolver(partition)));
+    }
+
+    @Test
+    public void testRowFilter() {
+        Map<String, Object> row = new HashMap<>();
+        row.put("id", 10L);
+        row.put("name", "foo".getBytes());
+        row.put("score", null);
+
+        Assert.assertEquals(Boolean.TRUE,
+                FilterEvaluator.evaluate(FilterExpression.GreaterThan("id", 5), resolver(row)));
+        Assert.assertEquals(Boolean.FALSE,
+                FilterEvaluator.evaluate(FilterExpression.LessThan("ID", 5), resolver(row)));
+        Assert.assertEquals(Boolean.TRUE,
+                FilterEvaluator.evaluate(FilterExpression.StringStartsWith("name", "fo"), resolver(row)));
+        Assert.assertEquals(Boolean.TRUE,
+                FilterEvaluator.evaluate(FilterExpression.IsNull("score"), resolver(row)));
+        Assert.assertNull(FilterEvaluator.evaluate(FilterExpression.EqualTo("score", 1), resolver(row)));
+        Assert.assertNull(FilterEvaluator.evaluate(
+                FilterExpression.Not(FilterExpression.EqualTo("missing", 1)), resolver(row)));
+        Assert.assertEquals(Boolean.TRUE, FilterEvaluator.evaluate(
+                FilterExpression.Or(FilterExpression.EqualTo("missing", 1),
+                        FilterExpression.EqualTo("id", 10)), resolver(row)));
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.TableSchema;
+import com.aliyun.odps.cupid.table.v1.reader.*;
+import com.aliyun.odps.cupid.table.v1.util.Options;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.cupid.table.v1.writer.FileWriter;
+import com.aliyun.odps.cupid.table.v1.writer.FileWriterBuilder;
+import com.aliyun.odps.cupid.table.v1.writer.TableWriteSession;
+import com.aliyun.odps.cupid.table.v1.writer.TableWriteSessionBuilder;
+import com.aliyun.odps.cupid.table.v1.writer.WriteSessionInfo;
+import com.aliyun.odps.data.ArrayRecord;
+import com.aliyun.odps.type.TypeInfoFactory;
+import demo.memory.MemoryStore;
+import org.apache.arrow.vector.VectorSchemaRoot;
+
+import java.io.IOException;
+
+/**
+ * Compares split read throughput of the record, arrow and col data readers.
+ *
+ * The in-memory demo provider is read record by record as the baseline. The
+ * tunnel readers are measured only when a table is given through
+ * -Dodps.project, -Dodps.access.id, -Dodps.access.key, -Dodps.end.point and
+ * -Dodps.table.
+ */
+public class ReaderThroughputHarness {
+
+    private static final String MEMORY_PROJECT = "cupid";
+    private static final String MEMORY_TABLE = "throughput";
+    private static final int MEMORY_FILES = 4;
+    private static final int MEMORY_ROWS_PER_FILE = 1000000;
+    private static final int COL_DATA_BATCH_SIZE = 4096;
+
+    public static void main(String[] args) throws Exception {
+        runMemoryBaseline();
+
+        String table = System.getProperty("odps.table");
+        if (table != null && !table.isEmpty()) {
+            runTunnel(table);
+        }
+    }
+
+    private static void runMemoryBaseline() throws ClassNotFoundException, IOException {
+        MemoryStore.createProject(MEMORY_PROJECT);
+        MemoryStore.createTable(MEMORY_PROJECT, MEMORY_TABLE);
+
+        TableSchema schema = new TableSchema();
+        schema.addColumn(new Column("id", TypeInfoFactory.BIGINT));
+        schema.addColumn(new Column("value", TypeInfoFactory.STRING));
+
+        TableWriteSession writeSession = new TableWriteSessionBuilder("memory", MEMORY_PROJECT, MEMORY_TABLE)
+                .tableSchema(schema)
+                .build();
+        WriteSessionInfo info = writeSession.getOrCreateSessionInfo();
+        for (int file = 0; file < MEMORY_FILES; file++) {
+            FileWriter<ArrayRecord> writer = new FileWriterBuilder(info, file).buildRecordWriter();
+            for (int i = 0; i < MEMORY_ROWS_PER_FILE; i++) {
+                ArrayRecord record = new ArrayRecord(schema.getColumns().toArray(new Column[0]));
+                record.set(0, (long) i);
+                record.set(1, "value " + i);
+                writer.write(record);
+            }
+            writer.close();
+            writer.commit();
+        }
+        writeSession.commitTable();
+
+        InputSplit[] splits = new TableReadSessionBuilder("memory", MEMORY_PROJECT, MEMORY_TABLE)
+                .tableSchema(schema)
+                .readDataColumns(RequiredSchema.all())
+                .build()
+                .getOrCreateInputSplits(256);
+        long start = System.nanoTime();
+        long rows = 0;
+        for (InputSplit split : splits) {
+            SplitReader<ArrayRecord> reader = new SplitReaderBuilder(split).buildRecordReader();
+            while (reader.hasNext()) {
+                reader.next();
+                rows++;
+            }
+            reader.close();
+        }
+        report("memory/record", rows, System.nanoTime() - start);
+    }
+
+    private static void runTunnel(String table) throws ClassNotFoundException, IOException {
+        String project = System.getProperty("odps.project");
+        Options options = new Options.OptionsBuilder()
+                .accessId(System.getProperty("odps.access.id"))
+                .accessKey(System.getProperty("odps.access.key"))
+                .project(project)
+                .endpoint(System.getProperty("odps.end.point"))
+                .build();
+        InputSplit[] splits = new TableReadSessionBuilder("tunnel", project, table)
+                .readDataColumns(RequiredSchema.all())
+                .options(options)
+                .build()
+                .getOrCreateInputSplits();
+
+        long start = System.nanoTime();
+        long rows = 0;
+        for (InputSplit split : splits) {
+            SplitReader<ArrayRecord> reader = new SplitReaderBuilder(split).buildRecordReader();
+            while (reader.hasNext()) {
+                reader.next();
+                rows++;
+            }
+            reader.close();
+        }
+        report("tunnel/record", rows, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        rows = 0;
+        for (InputSplit split : splits) {
+            SplitReader<VectorSchemaRoot> reader = new SplitReaderBuilder(split).buildArrowReader();
+            while (reader.hasNext()) {
+                rows += reader.next().getRowCount();
+            }
+            reader.close();
+        }
+        report("tunnel/arrow", rows, System.nanoTime() - start);
+
+        start = System.nanoTime();
+        rows = 0;
+        for (InputSplit split : splits) {
+            SplitReader<ColDataBatch> reader = new SplitReaderBuilder(split).buildColDataReader(COL_DATA_BATCH_SIZE);
+            while (reader.hasNext()) {
+                rows += reader.next().getRowCount();
+            }
+            reader.close();
+        }
+        report("tunnel/coldata", rows, System.nanoTime() - start);
+    }
+
+    private static void report(String name, long rows, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.println(String.format("%-16s %12d rows %10.3f s %14.0f rows/s",
+                name, rows, seconds, rows / seconds));
+    }
+}
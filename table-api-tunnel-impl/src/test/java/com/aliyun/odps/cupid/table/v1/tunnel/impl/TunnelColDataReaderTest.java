@@ -0,0 +1,183 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.cupid.table.v1.reader.SplitReader;
+import com.aliyun.odps.cupid.table.v1.vectorized.ColDataBatch;
+import com.aliyun.odps.type.TypeInfoFactory;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.memory.RootAllocator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.types.pojo.ArrowType;
+import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.arrow.vector.types.pojo.Schema;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+public class TunnelColDataReaderTest {
+
+    private static final Schema SCHEMA = new Schema(Collections.singletonList(
+            Field.nullable("id", new ArrowType.Int(64, true))));
+
+    private BufferAllocator allocator;
+
+    @Before
+    public void setUp() {
+        allocator = new RootAllocator(Long.MAX_VALUE);
+    }
+
+    @After
+    public void tearDown() {
+        allocator.close();
+    }
+
+    @Test
+    public void testWrappedBatchIsValidUntilNextHasNext() throws Exception {
+        FakeArrowReader arrowReader = new FakeArrowReader(2, 3);
+        TunnelColDataReader reader = newReader(4, arrowReader);
+
+        Assert.assertTrue(reader.hasNext());
+        ColDataBatch first = reader.next();
+        Assert.assertTrue(first.isArrowBacked());
+        Assert.assertSame(arrowReader.current, first.toVectorSchemaRoot());
+        Assert.assertEquals(Arrays.asList(0L, 1L), values(first));
+
+        // moving on releases the buffers the wrapped batch reads from
+        Assert.assertTrue(reader.hasNext());
+        Assert.assertEquals(0, first.toVectorSchemaRoot().getFieldVectors().get(0).getValueCapacity());
+        ColDataBatch second = reader.next();
+        Assert.assertEquals(Arrays.asList(2L, 3L, 4L), values(second));
+
+        Assert.assertFalse(reader.hasNext());
+        Assert.assertEquals(5, reader.getRowsRead());
+        reader.close();
+    }
+
+    @Test
+    public void testSlicedBatchesAreCopies() throws Exception {
+        FakeArrowReader arrowReader = new FakeArrowReader(5);
+        TunnelColDataReader reader = newReader(2, arrowReader);
+
+        ColDataBatch first = reader.next();
+        ColDataBatch second = reader.next();
+        ColDataBatch third = reader.next();
+        Assert.assertFalse(first.isArrowBacked());
+        Assert.assertFalse(third.isArrowBacked());
+        Assert.assertFalse(reader.hasNext());
+        reader.close();
+
+        // copies outlive the Arrow batch they were sliced from
+        Assert.assertEquals(Arrays.asList(0L, 1L), values(first));
+        Assert.assertEquals(Arrays.asList(2L, 3L), values(second));
+        Assert.assertEquals(Collections.singletonList(4L), values(third));
+        try {
+            reader.next();
+            Assert.fail("a closed reader has no next batch");
+        } catch (NoSuchElementException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBatchSizeMustBePositive() {
+        newReader(0, new FakeArrowReader());
+    }
+
+    private TunnelColDataReader newReader(int batchSize, FakeArrowReader arrowReader) {
+        ArrowColDataConverter converter = new ArrowColDataConverter(
+                Collections.singletonList(new Column("id", TypeInfoFactory.BIGINT)));
+        return new TunnelColDataReader(batchSize, converter, arrowReader);
+    }
+
+    private static List<Long> values(ColDataBatch batch) {
+        Long[] values = new Long[batch.getRowCount()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = batch.getVectors()[0].getLong(i);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Returns batches of consecutive ids and, like {@link TunnelArrowReader},
+     * releases the current batch on the next call to hasNext or close.
+     */
+    private final class FakeArrowReader implements SplitReader<VectorSchemaRoot> {
+
+        private final int[] batchSizes;
+        private int nextBatch;
+        private long nextId;
+        private VectorSchemaRoot current;
+
+        FakeArrowReader(int... batchSizes) {
+            this.batchSizes = batchSizes;
+        }
+
+        @Override
+        public boolean hasNext() {
+            release();
+            return nextBatch < batchSizes.length;
+        }
+
+        @Override
+        public VectorSchemaRoot next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = VectorSchemaRoot.create(SCHEMA, allocator);
+            BigIntVector ids = (BigIntVector) current.getVector(0);
+            int numRows = batchSizes[nextBatch++];
+            for (int i = 0; i < numRows; i++) {
+                ids.setSafe(i, nextId++);
+            }
+            current.setRowCount(numRows);
+            return current;
+        }
+
+        @Override
+        public void close() {
+            release();
+            nextBatch = batchSizes.length;
+        }
+
+        @Override
+        public long getBytesRead() {
+            return 0;
+        }
+
+        @Override
+        public long getRowsRead() {
+            return nextId;
+        }
+
+        private void release() {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class TunnelInputSplitTest {
+
+    private static TunnelInputSplit newSplit() {
+        return new TunnelInputSplit("project", "table", Collections.emptyList(), Collections.emptyList(),
+                Collections.emptyList(), Collections.singletonMap("ds", "20230101"), "download", 100, 10, null);
+    }
+
+    @Test
+    public void testSkipRows() {
+        TunnelInputSplit split = (TunnelInputSplit) newSplit().skipRows(3);
+        Assert.assertEquals("download", split.getDownloadId());
+        Assert.assertEquals(103, split.getStartIndex());
+        Assert.assertEquals(7, split.getNumRecord());
+        Assert.assertEquals(Collections.singletonMap("ds", "20230101"), split.getPartitionSpec());
+
+        TunnelInputSplit end = (TunnelInputSplit) newSplit().skipRows(10);
+        Assert.assertEquals(110, end.getStartIndex());
+        Assert.assertEquals(0, end.getNumRecord());
+        Assert.assertNull(newSplit().skipRows(11));
+    }
+
+    @Test
+    public void testSkipRowsWithFilters() {
+        // the rows of a reader with filters are not the rows of the download session
+        TunnelInputSplit split = newSplit();
+        split.setFilterExpressions(Collections.singletonList(FilterExpression.EqualTo("id", 1)));
+        Assert.assertNull(split.skipRows(3));
+    }
+}
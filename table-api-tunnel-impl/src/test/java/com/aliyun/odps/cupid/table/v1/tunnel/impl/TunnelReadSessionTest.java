@@ -0,0 +1,215 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package com.aliyun.odps.cupid.table.v1.tunnel.impl;
+
+import com.aliyun.odps.Column;
+import com.aliyun.odps.OdpsType;
+import com.aliyun.odps.TableSchema;
+import com.aliyun.odps.cupid.table.v1.reader.InputSplit;
+import com.aliyun.odps.cupid.table.v1.reader.RequiredSchema;
+import com.aliyun.odps.cupid.table.v1.reader.filter.FilterExpression;
+import com.aliyun.odps.cupid.table.v1.util.Options;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TunnelReadSessionTest {
+
+    @Test
+    public void testSplitByParallelismBalancesBySize() throws IOException {
+        TestSession session = newSession()
+                .partition("1", 60, 600)
+                .partition("2", 300, 300)
+                .partition("3", 10, 100);
+        session.splitByParallelism(10);
+
+        InputSplit[] splits = session.getOrCreateInputSplits();
+
+        Assert.assertEquals(10, splits.length);
+        Assert.assertEquals(expectedCounts("1", 6, "2", 3, "3", 1), countByPartition(splits));
+        // every split carries the same share of the bytes, whatever the record size of its partition
+        for (InputSplit split : splits) {
+            Assert.assertEquals(100, session.estimatedSize((TunnelInputSplit) split));
+        }
+        assertCoversPartitions(session, splits);
+    }
+
+    @Test
+    public void testSplitByParallelismFallsBackToRecordCounts() throws IOException {
+        TestSession session = newSession()
+                .partition("1", 80, 0)
+                .partition("2", 20, 0);
+        session.splitByParallelism(5);
+
+        InputSplit[] splits = session.getOrCreateInputSplits();
+
+        Assert.assertEquals(expectedCounts("1", 4, "2", 1), countByPartition(splits));
+        for (InputSplit split : splits) {
+            Assert.assertEquals(20, ((TunnelInputSplit) split).getNumRecord());
+        }
+        assertCoversPartitions(session, splits);
+    }
+
+    @Test
+    public void testSplitByParallelismBoundsSplitsOfSmallPartitions() throws IOException {
+        TestSession session = newSession()
+                .partition("1", 1000, 1000)
+                .partition("2", 1, 1)
+                .partition("3", 2, 2000)
+                .partition("4", 0, 0);
+        session.splitByParallelism(6);
+
+        InputSplit[] splits = session.getOrCreateInputSplits();
+
+        // a tiny partition keeps one split, a partition is never split beyond its records
+        // and an empty partition has no split
+        Assert.assertEquals(expectedCounts("1", 2, "2", 1, "3", 2), countByPartition(splits));
+        assertCoversPartitions(session, splits);
+    }
+
+    @Test
+    public void testSplitBySizeCoversRecords() throws IOException {
+        TestSession session = newSession().partition("1", 25, 25 * 100 * 1024L);
+
+        InputSplit[] splits = session.getOrCreateInputSplits(1);
+
+        // 100 KB records, so 10 records per 1 MB split and the remainder in the last one
+        Assert.assertEquals(3, splits.length);
+        long[][] ranges = new long[splits.length][];
+        for (int i = 0; i < splits.length; i++) {
+            TunnelInputSplit split = (TunnelInputSplit) splits[i];
+            Assert.assertEquals("download-1", split.getDownloadId());
+            ranges[i] = new long[]{split.getStartIndex(), split.getNumRecord()};
+        }
+        Assert.assertArrayEquals(new long[][]{{0, 10}, {10, 10}, {20, 5}}, ranges);
+    }
+
+    @Test
+    public void testPartitionMetasAreFetchedOnceForMatchingPartitions() throws IOException {
+        TestSession session = newSession()
+                .partition("1", 10, 10)
+                .partition("2", 10, 10);
+        session.filter(Collections.singletonList(FilterExpression.EqualTo("ds", "2")));
+        session.splitByParallelism(2);
+
+        InputSplit[] splits = session.getOrCreateInputSplits();
+
+        Assert.assertSame(splits, session.getOrCreateInputSplits());
+        Assert.assertEquals(1, session.fetched.size());
+        Assert.assertEquals(Collections.singletonList(spec("2")), session.fetched.get(0));
+        Assert.assertEquals(expectedCounts("2", 2), countByPartition(splits));
+    }
+
+    private static TestSession newSession() {
+        return new TestSession();
+    }
+
+    private static Map<String, String> spec(String ds) {
+        Map<String, String> spec = new LinkedHashMap<>();
+        spec.put("ds", ds);
+        return spec;
+    }
+
+    private static Map<String, Integer> expectedCounts(Object... dsAndCounts) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (int i = 0; i < dsAndCounts.length; i += 2) {
+            counts.put((String) dsAndCounts[i], (Integer) dsAndCounts[i + 1]);
+        }
+        return counts;
+    }
+
+    private static Map<String, Integer> countByPartition(InputSplit[] splits) {
+        Map<String, Integer> counts = new TreeMap<>();
+        for (InputSplit split : splits) {
+            counts.merge(split.getPartitionSpec().get("ds"), 1, Integer::sum);
+        }
+        return counts;
+    }
+
+    /** The splits of a partition read all of its records exactly once. */
+    private static void assertCoversPartitions(TestSession session, InputSplit[] splits) {
+        Map<String, Long> next = new TreeMap<>();
+        for (InputSplit split : splits) {
+            TunnelInputSplit tunnelSplit = (TunnelInputSplit) split;
+            String ds = split.getPartitionSpec().get("ds");
+            Assert.assertEquals("download-" + ds, tunnelSplit.getDownloadId());
+            Assert.assertEquals(next.getOrDefault(ds, 0L).longValue(), tunnelSplit.getStartIndex());
+            next.put(ds, tunnelSplit.getStartIndex() + tunnelSplit.getNumRecord());
+        }
+        for (Map.Entry<String, long[]> entry : session.partitions.entrySet()) {
+            Assert.assertEquals(entry.getValue()[0], next.getOrDefault(entry.getKey(), 0L).longValue());
+        }
+    }
+
+    private static class TestSession extends TunnelReadSession {
+
+        private final Map<String, long[]> partitions = new TreeMap<>();
+        private final List<List<Map<String, String>>> fetched = new ArrayList<>();
+
+        TestSession() {
+            super("project", "table", schema(), RequiredSchema.all(), new ArrayList<>(), new Options.OptionsBuilder()
+                    .accessId("id").accessKey("key").project("project").endpoint("http://localhost").build());
+        }
+
+        private static TableSchema schema() {
+            TableSchema schema = new TableSchema();
+            schema.addColumn(new Column("id", OdpsType.BIGINT));
+            schema.addPartitionColumn(new Column("ds", OdpsType.STRING));
+            return schema;
+        }
+
+        TestSession partition(String ds, long recordCount, long size) {
+            partitions.put(ds, new long[]{recordCount, size});
+            partitionSpecs.add(spec(ds));
+            return this;
+        }
+
+        void splitByParallelism(int splitParallelism) {
+            setSplitByParallelism(splitParallelism);
+        }
+
+        void filter(List<FilterExpression> filterExpressions) {
+            setFilterExpressions(filterExpressions);
+        }
+
+        long estimatedSize(TunnelInputSplit split) {
+            long[] stats = partitions.get(split.getPartitionSpec().get("ds"));
+            return split.getNumRecord() * stats[1] / stats[0];
+        }
+
+        @Override
+        List<PartitionMeta> fetchPartitionMetas(List<Map<String, String>> specs) {
+            fetched.add(new ArrayList<>(specs));
+            List<PartitionMeta> metas = new ArrayList<>(specs.size());
+            for (Map<String, String> spec : specs) {
+                long[] stats = partitions.get(spec.get("ds"));
+                metas.add(new PartitionMeta(spec, "download-" + spec.get("ds"), stats[0], stats[1]));
+            }
+            return metas;
+        }
+    }
+}